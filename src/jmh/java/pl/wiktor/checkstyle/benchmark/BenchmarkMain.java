@@ -0,0 +1,40 @@
+package pl.wiktor.checkstyle.benchmark;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import pl.wiktor.checkstyle.ConfigurationCache;
+import pl.wiktor.checkstyle.ConfigurationModules;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs {@link org.openjdk.jmh.Main} with the {@code module} parameter of {@link RuleBenchmark} set to every check of
+ * {@code check/checkstyle.xml}, so that checks added to the configuration are measured without touching the benchmark.
+ * <p>
+ * An explicit {@code -p module=...} argument takes precedence over the derived list.
+ */
+public final class BenchmarkMain {
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+    private static final String MODULE_PARAM = "module=";
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(withModules(args, CONFIG_FILE));
+    }
+
+    static String[] withModules(String[] args, Path configFile) throws CheckstyleException {
+        if (Arrays.stream(args).anyMatch(arg -> arg.startsWith(MODULE_PARAM) || arg.startsWith("-p" + MODULE_PARAM))) {
+            return args;
+        }
+
+        List<String> keys = ConfigurationModules.moduleKeys(ConfigurationCache.load(configFile).configuration());
+        List<String> extended = new ArrayList<>(Arrays.asList(args));
+        extended.add("-p");
+        extended.add(MODULE_PARAM + String.join(",", keys));
+        return extended.toArray(String[]::new);
+    }
+}
@@ -0,0 +1,120 @@
+package pl.wiktor.checkstyle.benchmark;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.checks.regexp.RegexpMultilineCheck;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.wiktor.checkstyle.checks.BlankLineAroundBraceCheck;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two blank-line {@code RegexpMultiline} modules of {@code check/checkstyle.xml} with the single
+ * {@link BlankLineAroundBraceCheck} the engine merges them into, on large generated files.
+ * <p>
+ * The generated classes have deeply indented statements separated by whitespace-only lines, the shape that makes the
+ * {@code \s*} runs of the regular expressions backtrack. One operation checks one file for both messages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlankLineBenchmark {
+    private static final String AFTER_OPEN = "Unnecessary blank line after '{'";
+    private static final String BEFORE_CLOSE = "Unnecessary blank line before '}'";
+
+    @Param({"2000", "20000"})
+    public int lines;
+
+    @Param({"1", "8"})
+    public int whitespaceLines;
+
+    private final File file = new File("Generated.java");
+    private FileText text;
+    private List<AbstractFileSetCheck> regexps;
+    private AbstractFileSetCheck singlePass;
+
+    @Setup(Level.Trial)
+    public void setUp() throws CheckstyleException {
+        text = new FileText(file, generate(lines, whitespaceLines));
+
+        regexps = new ArrayList<>();
+        regexps.add(regexpMultiline(BlankLineAroundBraceCheck.AFTER_OPEN_FORMAT, AFTER_OPEN));
+        regexps.add(regexpMultiline(BlankLineAroundBraceCheck.BEFORE_CLOSE_FORMAT, BEFORE_CLOSE));
+
+        DefaultConfiguration configuration = new DefaultConfiguration("BlankLineAroundBrace");
+        configuration.addProperty("messageAfterOpen", AFTER_OPEN);
+        configuration.addProperty("messageBeforeClose", BEFORE_CLOSE);
+        singlePass = new BlankLineAroundBraceCheck();
+        singlePass.configure(configuration);
+        singlePass.beginProcessing("UTF-8");
+    }
+
+    @Benchmark
+    public int regexpMultiline() throws CheckstyleException {
+        int violations = 0;
+        for (AbstractFileSetCheck check : regexps) {
+            violations += check.process(file, text).size();
+        }
+        return violations;
+    }
+
+    @Benchmark
+    public SortedSet<Violation> blankLineAroundBrace() throws CheckstyleException {
+        return singlePass.process(file, text);
+    }
+
+    private static AbstractFileSetCheck regexpMultiline(String format, String message) throws CheckstyleException {
+        DefaultConfiguration configuration = new DefaultConfiguration("RegexpMultiline");
+        configuration.addProperty("format", format);
+        configuration.addProperty("message", message);
+        configuration.addProperty("matchAcrossLines", "true");
+        RegexpMultilineCheck check = new RegexpMultilineCheck();
+        check.configure(configuration);
+        check.beginProcessing("UTF-8");
+        return check;
+    }
+
+    /**
+     * Generates a class with roughly the given number of lines; every statement is followed by whitespace-only lines
+     * carrying the statement's indentation.
+     */
+    static List<String> generate(int lineCount, int whitespaceLines) {
+        String indent = " ".repeat(24);
+        List<String> result = new ArrayList<>();
+        result.add("public class Generated {");
+        int method = 0;
+        while (result.size() < lineCount) {
+            result.add("    public void method" + method++ + "() {");
+            for (int statement = 0; statement < 10; statement++) {
+                result.add(indent + "int value" + statement + " = " + statement + ";");
+                for (int i = 0; i < whitespaceLines; i++) {
+                    result.add(indent);
+                }
+            }
+            result.add("    }");
+        }
+        result.add("}");
+        return result;
+    }
+}
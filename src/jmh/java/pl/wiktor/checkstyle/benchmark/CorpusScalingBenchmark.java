@@ -0,0 +1,113 @@
+package pl.wiktor.checkstyle.benchmark;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.wiktor.checkstyle.CheckerPool;
+import pl.wiktor.checkstyle.ConfigurationCache;
+import pl.wiktor.checkstyle.ConfigurationModules;
+import pl.wiktor.checkstyle.CorpusGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures how the audit scales with the size of the corpus and of its files, on corpora generated from the rule
+ * fixtures by {@link CorpusGenerator}.
+ * <p>
+ * The {@code corpus} parameter is {@code <files>x<lines per file>}: the defaults grow the number of files at a fixed
+ * file size and the file size at a fixed number of files, and a repository of 10k files is
+ * {@code -p corpus=10000x200}. The {@code check} parameter is {@code all} for the full configuration or the key of
+ * one check, e.g. {@code -p check=Indentation,UnusedLocalVariable}. One operation audits the whole corpus; the
+ * {@code files} and {@code lines} counters give files/s and lines/s, so super-linear checks show up as a falling
+ * lines/s on larger files. Add {@code -prof pl.wiktor.checkstyle.benchmark.PeakHeapProfiler} for the peak heap.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class CorpusScalingBenchmark {
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+    private static final long SEED = 42;
+
+    /**
+     * The generated corpus and a checker for the selected check.
+     */
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        @Param({"100x200", "1000x200", "10x2000", "10x20000"})
+        public String corpus;
+
+        @Param({"all"})
+        public String check;
+
+        CorpusGenerator.Corpus generated;
+        Checker checker;
+        private Path root;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException, CheckstyleException {
+            String[] shape = corpus.split("x");
+            root = Files.createTempDirectory("corpus-benchmark");
+            generated = new CorpusGenerator(SEED).generate(root, Integer.parseInt(shape[0]),
+                    Integer.parseInt(shape[1]));
+
+            Configuration configuration = ConfigurationCache.load(CONFIG_FILE).configuration();
+            checker = CheckerPool.createChecker("all".equals(check) ? configuration
+                    : ConfigurationModules.isolate(configuration, check));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            checker.destroy();
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Files and lines audited, reported by JMH as rates next to the operations.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Audited {
+        public long files;
+        public long lines;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            files = 0;
+            lines = 0;
+        }
+    }
+
+    @Benchmark
+    public int audit(Corpus corpus, Audited audited) throws CheckstyleException {
+        int errors = corpus.checker.process(corpus.generated.files());
+        audited.files += corpus.generated.files().size();
+        audited.lines += corpus.generated.lines();
+        return errors;
+    }
+}
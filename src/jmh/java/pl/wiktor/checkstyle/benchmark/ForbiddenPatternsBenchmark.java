@@ -0,0 +1,108 @@
+package pl.wiktor.checkstyle.benchmark;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.checks.regexp.RegexpSinglelineJavaCheck;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.wiktor.checkstyle.checks.ForbiddenPatternsCheck;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one {@code RegexpSinglelineJava} module per forbidden pattern with a single {@link ForbiddenPatternsCheck}
+ * as the number of patterns grows.
+ * <p>
+ * The first three patterns are those of {@code check/checkstyle.xml}; further ones ban made-up API calls in the same
+ * shape, {@code ApiN\s*\.\s*call}. One operation checks one parsed file with every pattern.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ForbiddenPatternsBenchmark {
+    private static final String[][] PROJECT_PATTERNS = {
+        {"SystemOutUsage", "System\\s*\\.\\s*out", "true"},
+        {"SystemErrUsage", "System\\s*\\.\\s*err", "true"},
+        {"SingleLineComments", "^\\s*//(?!\\s*CHECKSTYLE)", "false"},
+    };
+
+    @Param({"3", "12", "48"})
+    public int patterns;
+
+    private DetailAST root;
+    private FileContents contents;
+    private List<AbstractCheck> separate;
+    private AbstractCheck fused;
+
+    @Setup(Level.Trial)
+    public void setUp() throws CheckstyleException {
+        contents = new FileContents(new FileText(new File("Generated.java"), BlankLineBenchmark.generate(5000, 0)));
+        root = JavaParser.parse(contents);
+
+        separate = new ArrayList<>();
+        DefaultConfiguration fusedConfiguration = new DefaultConfiguration(ForbiddenPatternsCheck.class.getName());
+        for (int i = 0; i < patterns; i++) {
+            String[] entry = i < PROJECT_PATTERNS.length ? PROJECT_PATTERNS[i]
+                    : new String[] {"Api" + i, "Api" + i + "\\s*\\.\\s*call", "true"};
+            DefaultConfiguration module = new DefaultConfiguration("RegexpSinglelineJava");
+            DefaultConfiguration pattern = new DefaultConfiguration(ForbiddenPatternsCheck.PATTERN_MODULE);
+            for (DefaultConfiguration configuration : List.of(module, pattern)) {
+                configuration.addProperty("id", entry[0]);
+                configuration.addProperty("format", entry[1]);
+                configuration.addProperty("ignoreComments", entry[2]);
+                configuration.addProperty("message", entry[0] + " is forbidden.");
+            }
+            RegexpSinglelineJavaCheck check = new RegexpSinglelineJavaCheck();
+            check.configure(module);
+            separate.add(check);
+            fusedConfiguration.addChild(pattern);
+        }
+
+        fused = new ForbiddenPatternsCheck();
+        fused.configure(fusedConfiguration);
+        fused.init();
+    }
+
+    @Benchmark
+    public int regexpSinglelineJava() {
+        int violations = 0;
+        for (AbstractCheck check : separate) {
+            violations += run(check);
+        }
+        return violations;
+    }
+
+    @Benchmark
+    public int forbiddenPatterns() {
+        return run(fused);
+    }
+
+    private int run(AbstractCheck check) {
+        check.setFileContents(contents);
+        check.clearViolations();
+        check.beginTree(root);
+        check.finishTree(root);
+        return check.getViolations().size();
+    }
+}
@@ -0,0 +1,145 @@
+package pl.wiktor.checkstyle.benchmark;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.wiktor.checkstyle.CheckerPool;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.ConfigurationCache;
+import pl.wiktor.checkstyle.ConfigurationModules;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the cost of every check in {@code check/checkstyle.xml} on its own and of the full configuration.
+ * <p>
+ * One operation is a single {@link Checker#process(List)} call over the whole corpus. Run with {@code -prof gc}
+ * (the default of the {@code jmh} Maven profile) to get the allocation rate next to the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleBenchmark {
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+    private static final Path FIXTURES = Path.of("src/test/resources/rules");
+
+    /**
+     * The files to audit: the rule fixtures as they are, or a synthetic corpus with many copies of them.
+     */
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        @Param({"fixtures", "synthetic"})
+        public String corpus;
+
+        @Param({"50"})
+        public int copies;
+
+        List<File> files;
+        private Path syntheticRoot;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException, CheckstyleException {
+            List<File> fixtures = CheckstyleRunner.listFiles(FIXTURES);
+            if ("fixtures".equals(corpus)) {
+                files = fixtures;
+                return;
+            }
+
+            syntheticRoot = Files.createTempDirectory("rule-benchmark");
+            files = new ArrayList<>();
+            for (int copy = 0; copy < copies; copy++) {
+                Path target = Files.createDirectories(syntheticRoot.resolve("copy" + copy));
+                for (File fixture : fixtures) {
+                    String name = FIXTURES.relativize(fixture.toPath()).toString().replace(File.separatorChar, '_');
+                    files.add(Files.copy(fixture.toPath(), target.resolve(name)).toFile());
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            if (syntheticRoot != null) {
+                try (Stream<Path> paths = Files.walk(syntheticRoot)) {
+                    for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(path);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A checker configured with a single check taken from the configuration, see {@link ConfigurationModules}.
+     * <p>
+     * The module keys have no defaults here: {@link BenchmarkMain} passes every key of the configuration.
+     */
+    @State(Scope.Benchmark)
+    public static class SingleModule {
+        @Param({})
+        public String module;
+
+        Checker checker;
+
+        @Setup(Level.Trial)
+        public void setUp() throws CheckstyleException {
+            Configuration root = ConfigurationCache.load(CONFIG_FILE).configuration();
+            checker = CheckerPool.createChecker(ConfigurationModules.isolate(root, module));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            checker.destroy();
+        }
+    }
+
+    /**
+     * A checker configured with the complete configuration.
+     */
+    @State(Scope.Benchmark)
+    public static class FullConfig {
+        Checker checker;
+
+        @Setup(Level.Trial)
+        public void setUp() throws CheckstyleException {
+            checker = CheckerPool.createChecker(ConfigurationCache.load(CONFIG_FILE).configuration());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            checker.destroy();
+        }
+    }
+
+    @Benchmark
+    public int singleModule(SingleModule state, Corpus corpus) throws CheckstyleException {
+        return state.checker.process(corpus.files);
+    }
+
+    @Benchmark
+    public int fullConfig(FullConfig state, Corpus corpus) throws CheckstyleException {
+        return state.checker.process(corpus.files);
+    }
+}
@@ -1,37 +1,244 @@
 package pl.wiktor;
 
-import java.io.BufferedReader;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import pl.wiktor.checkstyle.AuditCommand;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.report.StreamingReportListener;
+
+import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Standalone command line audit, {@code ci-check}, for pre-commit hooks and CI jobs.
+ * <p>
+ * Usage: {@code ci-check [--config <file>] [--suppressions <file>] [--threads <n>] [--format sarif|plain]
+ * <path>...}. Every {@code .java} file below the given paths is audited with the configuration, by default
+ * {@code check/checkstyle.xml}, which may also be compiled by {@code CompiledConfiguration}; a later option replaces
+ * an earlier one. Violations are printed in Checkstyle's plain format followed by a summary line, or as one SARIF
+ * document on standard output. The exit code is 0 without errors, 1 when errors were reported and 2 when the audit
+ * could not run, e.g. for invalid options, a missing path or an exception in a check.
+ * <p>
+ * Start-up time dominates an audit of a few files, so the command loads as little as it can: a small set of files
+ * is audited by a single checker on the calling thread, at most one checker per {@value #FILES_PER_THREAD} files is
+ * created, violations are streamed to the output instead of collected, and none of the caches, git or metrics
+ * classes of {@link pl.wiktor.checkstyle.AuditCommand} are touched. The {@code ci-check} Maven profile further
+ * archives the classes a training run over the test fixtures loads into an AppCDS archive, which
+ * {@code check/ci-check} starts the JVM with.
+ */
+public final class Main {
+    static final int EXIT_OK = 0;
+    static final int EXIT_VIOLATIONS = 1;
+    static final int EXIT_FAILURE = 2;
+    static final int FILES_PER_THREAD = 16;
+    private static final String DEFAULT_CONFIG = "check/checkstyle.xml";
+    private static final String JAVA_SUFFIX = ".java";
+
+    private Main() {
+    }
 
-public class Main {
     public static void main(String[] args) {
-        String a = "as";
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: ci-check [--config <file>] [--suppressions <file>] [--threads <n>] "
+                    + "[--format sarif|plain] <path>...");
+            return EXIT_FAILURE;
+        }
 
-        if (a.equals("as")) {
+        long start = System.nanoTime();
+        List<File> files;
+        try {
+            files = javaFiles(options.paths());
+        } catch (CheckstyleException e) {
+            System.out.println("Audit failed: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+        int threads = Math.max(1, Math.min(options.threads(), (files.size() + FILES_PER_THREAD - 1)
+                / FILES_PER_THREAD));
+
+        try (CheckstyleRunner runner = new CheckstyleRunner(options.config(), options.suppressions(), threads)) {
+            if (options.sarif()) {
+                StreamingReportListener report = StreamingReportListener.open(new UnclosedOutputStream(System.out),
+                        StreamingReportListener.Format.SARIF, Path.of(""));
+                try (report) {
+                    audit(runner, files, threads, report);
+                }
+                StreamingReportListener.Summary summary = report.getSummary();
+                return exitCode(summary.errors(), summary.exceptions());
+            }
+
+            PlainListener listener = new PlainListener();
+            audit(runner, files, threads, listener);
+            System.out.printf("Audited %d files in %d ms, %d errors%n", files.size(),
+                    (System.nanoTime() - start) / 1_000_000, listener.errors);
+            return exitCode(listener.errors, listener.exceptions);
+        } catch (CheckstyleException | IOException e) {
+            System.out.println("Audit failed: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Audits the files on the calling thread when one thread is enough, otherwise in parallel, and passes the
+     * violations of every file to the listener as soon as the file is finished, one file at a time.
+     */
+    private static void audit(CheckstyleRunner runner, List<File> files, int threads, AuditListener listener)
+            throws CheckstyleException {
+        if (threads == 1) {
+            runner.audit(files, listener);
         } else {
+            runner.auditFilesParallel(files, listener, null, null);
+        }
+    }
+
+    private static int exitCode(long errors, long exceptions) {
+        if (exceptions > 0) {
+            return EXIT_FAILURE;
         }
+        return errors == 0 ? EXIT_OK : EXIT_VIOLATIONS;
+    }
 
-        try (BufferedReader reader = new BufferedReader(new StringReader("line1\nline2"));
-             StringReader stringReader = new StringReader("ignored")) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                System.out.println("Read: " + line);
+    /**
+     * Lists the {@code .java} files below the given directories and the given files themselves.
+     */
+    private static List<File> javaFiles(List<Path> paths) throws CheckstyleException {
+        List<File> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                for (File file : CheckstyleRunner.listFiles(path)) {
+                    if (file.getName().endsWith(JAVA_SUFFIX)) {
+                        files.add(file);
+                    }
+                }
+            } else if (Files.isRegularFile(path)) {
+                files.add(path.toFile());
+            } else {
+                throw new CheckstyleException("No such file or directory: " + path);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        return files;
     }
 
-    public void test() {
-        String a = "as";
+    /**
+     * Prints violations like Checkstyle's plain logger as they are reported and counts errors and exceptions.
+     */
+    private static final class PlainListener implements AuditListener {
+        private long errors;
+        private long exceptions;
 
-        //comment
-        if (a.equals("as")) {
-            System.out.println("sout");
-        } else {
+        @Override
+        public void auditStarted(AuditEvent event) {
+        }
+
+        @Override
+        public void auditFinished(AuditEvent event) {
+        }
+
+        @Override
+        public void fileStarted(AuditEvent event) {
+        }
+
+        @Override
+        public void fileFinished(AuditEvent event) {
         }
 
-        if (a.equals("ase")) return;
+        @Override
+        public void addError(AuditEvent event) {
+            SeverityLevel severity = event.getSeverityLevel();
+            if (severity == SeverityLevel.IGNORE) {
+                return;
+            }
+            if (severity == SeverityLevel.ERROR) {
+                errors++;
+            }
+            System.out.println(AuditCommand.format(event));
+        }
+
+        @Override
+        public void addException(AuditEvent event, Throwable throwable) {
+            exceptions++;
+            System.out.println("[EXCEPTION] " + event.getFileName() + ": " + throwable);
+        }
+    }
+
+    /**
+     * Standard output for a report, which is flushed instead of closed when the report is closed.
+     */
+    private static final class UnclosedOutputStream extends FilterOutputStream {
+        private UnclosedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private record Options(Path config, Path suppressions, int threads, boolean sarif, List<Path> paths) {
+        private static Options parse(String[] args) {
+            Path config = Path.of(DEFAULT_CONFIG);
+            Path suppressions = null;
+            int threads = Runtime.getRuntime().availableProcessors();
+            boolean sarif = false;
+            List<Path> paths = new ArrayList<>();
+
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--config" -> config = Path.of(value(args, ++i));
+                    case "--suppressions" -> suppressions = Path.of(value(args, ++i));
+                    case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+                    case "--format" -> sarif = isSarif(value(args, ++i));
+                    default -> {
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        }
+                        paths.add(Path.of(args[i]));
+                    }
+                }
+            }
+            if (paths.isEmpty()) {
+                throw new IllegalArgumentException("At least one path is required");
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("--threads must be positive, got " + threads);
+            }
+            return new Options(config, suppressions, threads, sarif, paths);
+        }
+
+        private static boolean isSarif(String format) {
+            return switch (format) {
+                case "sarif" -> true;
+                case "plain" -> false;
+                default -> throw new IllegalArgumentException("Unknown format " + format + ", expected sarif or plain");
+            };
+        }
+
+        private static String value(String[] args, int index) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+            }
+            return args[index];
+        }
     }
 }
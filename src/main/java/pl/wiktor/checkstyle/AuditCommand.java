@@ -0,0 +1,337 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import pl.wiktor.checkstyle.baseline.ViolationBaseline;
+import pl.wiktor.checkstyle.cache.ResultCache;
+import pl.wiktor.checkstyle.git.GitChanges;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+import pl.wiktor.checkstyle.metrics.AuditMetricsListener;
+import pl.wiktor.checkstyle.report.StreamingReportListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Command line audit used by the {@code checkstyle-cache} and {@code checkstyle-changed} Maven profiles.
+ * <p>
+ * Usage: {@code AuditCommand --config <file> [--suppressions <file>] [--cache <file>] [--cache-size <bytes>]
+ * [--threads <n>] [--report <file>] [--output <file>] [--changed-since <ref> [--changed-lines-only]]
+ * [--pipeline [--include <glob>]... [--exclude <glob>]...] [--fail-fast <budget>]
+ * [--baseline <file> | --write-baseline <file>] <path>...}.
+ * Every {@code .java} file below the given paths is audited; violations are printed in Checkstyle's plain format
+ * and, with {@code --output}, also written as SARIF or JSON Lines, see {@link StreamingReportListener}, as soon as
+ * their file is audited, so that memory use does not grow with the number of violations. With
+ * {@code --changed-since} only the files changed in the local git repository since the given revision are audited,
+ * see {@link GitChanges}, and {@code --changed-lines-only} further drops the violations on unchanged lines. With
+ * {@code --report} the time spent in every module is measured, printed as {@link AuditMetrics#toSummaryTable()} and
+ * written to the given file as {@link AuditMetrics#toJson()}. With {@code --pipeline} the paths are audited by an
+ * {@link AuditPipeline}, which selects the files by the globs and the configuration's {@code fileExtensions} instead
+ * of the {@code .java} suffix and prints the busy and wait times of its stages. With {@code --fail-fast} no further
+ * files are audited once the {@link ViolationBudget} given as {@code first-error}, {@code first-file}, {@code <n>}
+ * or {@code <n>-per-check} is exhausted, and the summary says that the audit was cut short. With {@code --baseline}
+ * the violations recorded in the given {@link ViolationBaseline} are neither printed nor counted, and
+ * {@code --write-baseline} records all current violations in the given file instead of failing on them. The exit
+ * code is 0 without errors, 1 when errors were reported or the audit was cut short and 2 when the audit could not
+ * run, e.g. for invalid options or a missing path.
+ */
+public final class AuditCommand {
+    static final int EXIT_OK = 0;
+    static final int EXIT_VIOLATIONS = 1;
+    static final int EXIT_FAILURE = 2;
+    private static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+    private static final String JAVA_SUFFIX = ".java";
+
+    private AuditCommand() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: AuditCommand --config <file> [--suppressions <file>] [--cache <file>] "
+                    + "[--cache-size <bytes>] [--threads <n>] [--report <file>] [--output <file>] "
+                    + "[--changed-since <ref> [--changed-lines-only]] "
+                    + "[--pipeline [--include <glob>]... [--exclude <glob>]...] [--fail-fast <budget>] "
+                    + "[--baseline <file> | --write-baseline <file>] <path>...");
+            return EXIT_FAILURE;
+        }
+
+        long start = System.nanoTime();
+        try (CheckstyleRunner runner = new CheckstyleRunner(options.config(), options.suppressions(),
+                options.threads());
+             StreamingReportListener report = openReport(options)) {
+            ResultCache cache = options.cache() == null ? null : ResultCache.open(options.cache(), options.cacheSize());
+            runner.setResultCache(cache);
+
+            AuditMetricsListener metrics = options.report() == null ? null : new AuditMetricsListener();
+            ViolationBudget budget = options.budget();
+            GitChanges changes = options.changedSince() == null ? null
+                    : GitChanges.since(Path.of("").toAbsolutePath(), options.changedSince());
+            PrintingListener printer = new PrintingListener(report);
+            ViolationBaseline.Recorder recorder = options.writeBaseline() == null ? null
+                    : ViolationBaseline.recorder(Path.of(""));
+            ViolationBaseline.Filter baseline = options.baseline() == null ? null
+                    : ViolationBaseline.load(options.baseline(), Path.of("")).filter(printer);
+            AuditListener listener = recorder != null ? recorder : baseline != null ? baseline : printer;
+            if (options.changedLinesOnly()) {
+                listener = changes.changedLinesOnly(listener);
+            }
+
+            if (options.pipeline()) {
+                List<AuditPipeline.Stage> stages = runner.auditTree(options.paths(), options.includes(),
+                        options.excludes(), listener, metrics, budget);
+                System.out.print(AuditPipeline.toSummaryTable(stages));
+            } else {
+                List<File> files = javaFiles(options.paths());
+                runner.auditFilesParallel(changes == null ? files : changes.changedFiles(files), listener, metrics,
+                        budget);
+            }
+            if (cache != null) {
+                cache.save();
+            }
+            if (recorder != null) {
+                recorder.write(options.writeBaseline());
+                System.out.printf("Recorded %d violations of %d files in %s%n", recorder.size(), recorder.files(),
+                        options.writeBaseline());
+                return EXIT_OK;
+            }
+
+            System.out.printf("Audited %d files (%d from cache) in %d ms, %d errors%n", printer.files,
+                    cache == null ? 0 : cache.getHits(), (System.nanoTime() - start) / 1_000_000, printer.errors);
+            if (baseline != null) {
+                System.out.printf("%d violations accepted by the baseline %s%n", baseline.accepted(),
+                        options.baseline());
+            }
+            boolean cutShort = budget != null && budget.isCutShort();
+            if (cutShort) {
+                System.out.println(budget.toSummary());
+            }
+            if (metrics != null) {
+                writeReport(metrics.getMetrics(), options.report());
+            }
+            return printer.errors == 0 && !cutShort ? EXIT_OK : EXIT_VIOLATIONS;
+        } catch (CheckstyleException | UncheckedIOException e) {
+            System.out.println("Audit failed: " + e.getMessage());
+            return EXIT_FAILURE;
+        } catch (IOException e) {
+            System.out.println("Audit failed: Unable to write the report " + options.output() + ": " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Opens the {@code --output} report, or returns {@code null} when there is none or a baseline is recorded.
+     */
+    private static StreamingReportListener openReport(Options options) throws IOException {
+        return options.output() == null || options.writeBaseline() != null ? null
+                : StreamingReportListener.open(options.output());
+    }
+
+    /**
+     * Formats a violation like Checkstyle's plain logger, followed by its module key.
+     */
+    public static String format(AuditEvent event) {
+        return String.format("[%s] %s:%d:%d: %s [%s]", event.getSeverityLevel().getName().toUpperCase(Locale.ROOT),
+                event.getFileName(), event.getLine(), event.getColumn(), event.getMessage(),
+                AuditMetrics.moduleKey(event.getModuleId(), event.getSourceName()));
+    }
+
+    private static void writeReport(AuditMetrics metrics, Path report) throws CheckstyleException {
+        System.out.print(metrics.toSummaryTable());
+        try {
+            Files.writeString(report, metrics.toJson());
+        } catch (IOException e) {
+            throw new CheckstyleException("Unable to write the report " + report, e);
+        }
+    }
+
+    /**
+     * Lists the {@code .java} files below the given directories and the given files themselves.
+     */
+    static List<File> javaFiles(List<Path> paths) throws CheckstyleException {
+        List<File> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile)
+                            .filter(file -> file.toString().endsWith(JAVA_SUFFIX))
+                            .sorted()
+                            .forEach(file -> files.add(file.toFile()));
+                } catch (IOException e) {
+                    throw new CheckstyleException("Unable to list files in " + path, e);
+                }
+            } else if (Files.isRegularFile(path)) {
+                files.add(path.toFile());
+            } else {
+                throw new CheckstyleException("No such file or directory: " + path);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Prints the violations like Checkstyle's plain logger as they are reported, passing every callback on to the
+     * report unless it is {@code null}, and counts the files and errors.
+     */
+    private static final class PrintingListener implements AuditListener {
+        private final AuditListener report;
+        private int files;
+        private int errors;
+
+        private PrintingListener(AuditListener report) {
+            this.report = report;
+        }
+
+        @Override
+        public void auditStarted(AuditEvent e) {
+            if (report != null) {
+                report.auditStarted(e);
+            }
+        }
+
+        @Override
+        public void auditFinished(AuditEvent e) {
+            if (report != null) {
+                report.auditFinished(e);
+            }
+        }
+
+        @Override
+        public void fileStarted(AuditEvent e) {
+            if (report != null) {
+                report.fileStarted(e);
+            }
+        }
+
+        @Override
+        public void fileFinished(AuditEvent e) {
+            files++;
+            if (report != null) {
+                report.fileFinished(e);
+            }
+        }
+
+        @Override
+        public void addError(AuditEvent e) {
+            SeverityLevel severity = e.getSeverityLevel();
+            if (severity != SeverityLevel.IGNORE) {
+                if (severity == SeverityLevel.ERROR) {
+                    errors++;
+                }
+                System.out.println(format(e));
+            }
+            if (report != null) {
+                report.addError(e);
+            }
+        }
+
+        @Override
+        public void addException(AuditEvent e, Throwable t) {
+            if (report != null) {
+                report.addException(e, t);
+            }
+        }
+    }
+
+    private record Options(Path config, Path suppressions, Path cache, long cacheSize, int threads, Path report,
+                           Path output, String changedSince, boolean changedLinesOnly, boolean pipeline,
+                           List<String> includes, List<String> excludes, ViolationBudget budget, Path baseline,
+                           Path writeBaseline, List<Path> paths) {
+        private static Options parse(String[] args) {
+            Path config = null;
+            Path suppressions = null;
+            Path cache = null;
+            Path report = null;
+            Path output = null;
+            String changedSince = null;
+            boolean changedLinesOnly = false;
+            boolean pipeline = false;
+            List<String> includes = new ArrayList<>();
+            List<String> excludes = new ArrayList<>();
+            ViolationBudget budget = null;
+            Path baseline = null;
+            Path writeBaseline = null;
+            long cacheSize = DEFAULT_CACHE_SIZE;
+            int threads = Runtime.getRuntime().availableProcessors();
+            List<Path> paths = new ArrayList<>();
+
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--config" -> config = Path.of(value(args, ++i));
+                    case "--suppressions" -> suppressions = Path.of(value(args, ++i));
+                    case "--cache" -> cache = Path.of(value(args, ++i));
+                    case "--cache-size" -> cacheSize = Long.parseLong(value(args, ++i));
+                    case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+                    case "--report" -> report = Path.of(value(args, ++i));
+                    case "--output" -> output = Path.of(value(args, ++i));
+                    case "--changed-since" -> changedSince = value(args, ++i);
+                    case "--changed-lines-only" -> changedLinesOnly = true;
+                    case "--pipeline" -> pipeline = true;
+                    case "--include" -> includes.add(value(args, ++i));
+                    case "--exclude" -> excludes.add(value(args, ++i));
+                    case "--fail-fast" -> budget = ViolationBudget.parse(value(args, ++i));
+                    case "--baseline" -> baseline = Path.of(value(args, ++i));
+                    case "--write-baseline" -> writeBaseline = Path.of(value(args, ++i));
+                    default -> {
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        }
+                        paths.add(Path.of(args[i]));
+                    }
+                }
+            }
+            if (config == null || paths.isEmpty()) {
+                throw new IllegalArgumentException("A configuration and at least one path are required");
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("--threads must be positive, got " + threads);
+            }
+            if (cacheSize < 1) {
+                throw new IllegalArgumentException("--cache-size must be positive, got " + cacheSize);
+            }
+            if (changedLinesOnly && changedSince == null) {
+                throw new IllegalArgumentException("--changed-lines-only requires --changed-since");
+            }
+            if (pipeline && (cache != null || changedSince != null)) {
+                throw new IllegalArgumentException("--pipeline audits whole trees, it cannot be combined with --cache "
+                        + "or --changed-since");
+            }
+            if (!pipeline && !(includes.isEmpty() && excludes.isEmpty())) {
+                throw new IllegalArgumentException("--include and --exclude require --pipeline");
+            }
+            if (writeBaseline != null && (baseline != null || changedSince != null || budget != null)) {
+                throw new IllegalArgumentException("--write-baseline records all violations, it cannot be combined "
+                        + "with --baseline, --changed-since or --fail-fast");
+            }
+            if (baseline != null && budget != null) {
+                throw new IllegalArgumentException("--fail-fast counts violations before --baseline accepts them, "
+                        + "they cannot be combined");
+            }
+            return new Options(config, suppressions, cache, cacheSize, threads, report, output, changedSince,
+                    changedLinesOnly, pipeline, includes, excludes, budget, baseline, writeBaseline, paths);
+        }
+
+        private static String value(String[] args, int index) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+            }
+            return args[index];
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import pl.wiktor.checkstyle.engine.ParseCache;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Long-running audit server on a Unix domain socket, so that repeated audits skip the JVM startup, the class loading
+ * of the checks and the parsing of the configuration, and run on JIT-compiled code.
+ * <p>
+ * Usage: {@code AuditDaemon --socket <file> --config <file> [--suppressions <file>] [--threads <n>]}; requests are
+ * sent by {@link DaemonClient}. Every audit goes through one {@link CheckstyleRunner}, which compares the content
+ * hashes of the configuration and suppressions files on every audit and reloads its checkers when either changed,
+ * and reads the files through a {@link ParseCache}, so unchanged files are not parsed again.
+ * <p>
+ * The protocol is line based and UTF-8 encoded. A request is {@value #AUDIT} followed by one absolute path per line
+ * and an empty line, or {@value #STOP}. The daemon answers with one line per violation in the format of
+ * {@link AuditCommand}, written as soon as each file is finished, and a last line of either
+ * {@code #OK <files> <errors>} or {@code #FAILED <message>}. Requests are served concurrently; the audits running
+ * when the configuration is reloaded or the daemon is stopped are finished with the checkers they started with.
+ * Every request runs on a virtual thread, and the socket streams and the checker pool block without holding a monitor,
+ * so a request waiting for a checker or for a client that reads its response slowly does not pin a carrier thread.
+ */
+public final class AuditDaemon implements AutoCloseable {
+    static final String AUDIT = "AUDIT";
+    static final String STOP = "STOP";
+    static final String OK = "#OK ";
+    static final String FAILED = "#FAILED ";
+
+    private final Path socket;
+    private final CheckstyleRunner runner;
+    private ServerSocketChannel server;
+    private Thread acceptor;
+
+    public AuditDaemon(Path socket, Path configFile, Path suppressionsFile, int threads) {
+        this.socket = socket;
+        this.runner = new CheckstyleRunner(configFile, suppressionsFile, threads);
+        runner.setParseCache(new ParseCache(ParseCache.DEFAULT_MAX_CHARACTERS));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path socket = null;
+        Path config = null;
+        Path suppressions = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--socket" -> socket = Path.of(value(args, ++i));
+                case "--config" -> config = Path.of(value(args, ++i));
+                case "--suppressions" -> suppressions = Path.of(value(args, ++i));
+                case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (socket == null || config == null) {
+            throw new IllegalArgumentException("Usage: AuditDaemon --socket <file> --config <file> "
+                    + "[--suppressions <file>] [--threads <n>]");
+        }
+
+        try (AuditDaemon daemon = new AuditDaemon(socket, config, suppressions, threads)) {
+            daemon.start();
+            System.out.println("Checkstyle daemon listening on " + socket);
+            daemon.awaitStop();
+        }
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * Loads the configuration and starts accepting requests.
+     *
+     * @throws CheckstyleException when the configuration cannot be loaded
+     * @throws IOException         when the socket cannot be bound, e.g. because another daemon is listening on it
+     */
+    public synchronized void start() throws CheckstyleException, IOException {
+        runner.audit(List.of());
+        removeStaleSocket();
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        acceptor = Thread.ofPlatform().name("checkstyle-daemon").start(this::accept);
+    }
+
+    /**
+     * Waits until the daemon was stopped by a {@value #STOP} request or {@link #close()}.
+     */
+    public void awaitStop() throws InterruptedException {
+        acceptor.join();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (server != null) {
+            server.close();
+            server = null;
+            Files.deleteIfExists(socket);
+        }
+        runner.close();
+    }
+
+    private void accept() {
+        ServerSocketChannel channel = server;
+        while (channel.isOpen()) {
+            try {
+                SocketChannel client = channel.accept();
+                Thread.ofVirtual().name("checkstyle-daemon-request").start(() -> serve(client));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("Checkstyle daemon failed to accept a request: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client),
+                     StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8)) {
+            String command = in.readLine();
+            if (STOP.equals(command)) {
+                out.write(OK + "0 0\n");
+                out.flush();
+                close();
+                return;
+            }
+            if (!AUDIT.equals(command)) {
+                out.write(FAILED + "Unknown request " + command + "\n");
+                return;
+            }
+
+            List<Path> paths = new ArrayList<>();
+            for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+                paths.add(Path.of(line));
+            }
+            out.write(audit(paths, out));
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Checkstyle daemon failed to answer a request: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Audits the paths, streaming the violations to the client, and returns the last line of the response.
+     */
+    private String audit(List<Path> paths, Writer out) {
+        try {
+            List<File> files = AuditCommand.javaFiles(paths);
+            StreamingListener listener = new StreamingListener(out);
+            runner.audit(files, listener);
+            return OK + files.size() + " " + listener.errors + "\n";
+        } catch (CheckstyleException | RuntimeException e) {
+            return FAILED + String.valueOf(e.getMessage()).replace('\n', ' ') + "\n";
+        }
+    }
+
+    /**
+     * Refuses to replace the socket of a running daemon, and removes the socket file left by one that did not stop
+     * cleanly.
+     */
+    private void removeStaleSocket() throws IOException {
+        if (!Files.exists(socket)) {
+            return;
+        }
+        boolean listening;
+        try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            listening = probe.isConnected();
+        } catch (IOException e) {
+            listening = false;
+        }
+        if (listening) {
+            throw new IOException("A daemon is already listening on " + socket);
+        }
+        Files.delete(socket);
+    }
+
+    /**
+     * Writes every violation to the client and flushes once per file.
+     */
+    private static final class StreamingListener implements AuditListener {
+        private final Writer out;
+        private int errors;
+
+        private StreamingListener(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void auditStarted(AuditEvent event) {
+        }
+
+        @Override
+        public void auditFinished(AuditEvent event) {
+        }
+
+        @Override
+        public void fileStarted(AuditEvent event) {
+        }
+
+        @Override
+        public void fileFinished(AuditEvent event) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void addError(AuditEvent event) {
+            SeverityLevel severity = event.getSeverityLevel();
+            if (severity == SeverityLevel.IGNORE) {
+                return;
+            }
+            if (severity == SeverityLevel.ERROR) {
+                errors++;
+            }
+            try {
+                out.write(AuditCommand.format(event));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void addException(AuditEvent event, Throwable throwable) {
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+import pl.wiktor.checkstyle.engine.FileTextChecker;
+import pl.wiktor.checkstyle.engine.ManagedChecker;
+import pl.wiktor.checkstyle.engine.ParseCache;
+import pl.wiktor.checkstyle.metrics.ModuleTimingListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Audit of whole source trees in three overlapping stages connected by bounded queues:
+ * <ol>
+ *     <li>{@code discover}: one virtual thread walks the roots with {@link Files#walk} and keeps the regular files
+ *     matching the include and exclude globs and the configuration's {@code fileExtensions},</li>
+ *     <li>{@code read}: virtual threads read and decode the files into {@link FileText} with the configuration's
+ *     {@code charset}, through the pool's {@link ParseCache} if it has one,</li>
+ *     <li>{@code check}: platform threads, each owning a pooled checker, audit the decoded files one at a time with
+ *     {@link FileTextChecker#process(File, FileText)}.</li>
+ * </ol>
+ * A full queue blocks the stage before it, so at most the queue capacities of files are in memory, and the checkers
+ * only wait for the disk when the readers cannot keep up, which hides the latency of network file systems behind the
+ * checking. Every stage reports how long its threads were busy and how long they waited for input and for room in the
+ * next queue. The events of every file are passed on once it is checked, see
+ * {@link #audit(List, AuditListener, ModuleTimingListener, ViolationBudget)}, or merged like the other parallel
+ * audits, see {@link FileEventsListener#merge}, so that the result does not depend on the walk order or the
+ * scheduling.
+ * <p>
+ * Globs are matched against the path relative to its root with {@code /} separators, e.g.
+ * {@code **}{@code /generated/**}. Configurations with cross-file checks are audited by a single checker thread, like
+ * {@link CheckstyleRunner#auditFilesParallel(List)} does.
+ */
+public final class AuditPipeline {
+    /**
+     * Default number of reading virtual threads, enough to keep many requests in flight on a network file system.
+     */
+    public static final int DEFAULT_READERS = 64;
+
+    /**
+     * Default capacity of each queue between two stages.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final Item END = new Item(null, null);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final CheckerPool checkers;
+    private final ParseCache parseCache;
+    private final int checkerThreads;
+    private final int readers;
+    private final int queueCapacity;
+    private final String charset;
+    private final String[] fileExtensions;
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+
+    /**
+     * @param configuration  the configuration the pool was created from, for its {@code charset} and
+     *                       {@code fileExtensions}
+     * @param checkerThreads number of checking threads, at most the pool size
+     * @param includes       globs of the files to audit, all files when empty
+     * @param excludes       globs of the files to skip
+     */
+    public AuditPipeline(CheckerPool checkers, Configuration configuration, int checkerThreads, int readers,
+                         int queueCapacity, List<String> includes, List<String> excludes)
+            throws CheckstyleException {
+        if (checkerThreads < 1 || readers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive, got " + checkerThreads
+                    + " checkers, " + readers + " readers and a capacity of " + queueCapacity);
+        }
+        this.checkers = checkers;
+        this.parseCache = checkers.getParseCache();
+        this.checkerThreads = Math.min(checkerThreads, checkers.getMaxSize());
+        this.readers = readers;
+        this.queueCapacity = queueCapacity;
+        this.charset = rootProperty(configuration, "charset",
+                System.getProperty("file.encoding", StandardCharsets.UTF_8.name()));
+        this.fileExtensions = fileExtensions(rootProperty(configuration, "fileExtensions", ""));
+        this.includes = matchers(includes);
+        this.excludes = matchers(excludes);
+    }
+
+    /**
+     * Audits every selected file below the given roots.
+     *
+     * @param timingListener receives the time spent in every module while the files are checked, or {@code null}
+     * @param budget         the violation budget, or {@code null}; once it is exhausted, the walk stops and the
+     *                       files already queued are passed on without being read or checked
+     */
+    public Result audit(List<Path> roots, ModuleTimingListener timingListener, ViolationBudget budget)
+            throws CheckstyleException {
+        FileEventsListener listener = new FileEventsListener();
+        List<Stage> stages = audit(roots, listener, timingListener, budget);
+        return new Result(listener.getEventsByFile(), stages);
+    }
+
+    /**
+     * Audits every selected file below the given roots like
+     * {@link #audit(List, ModuleTimingListener, ViolationBudget)}, but passes the events of every file to the given
+     * listener once the file is checked, instead of collecting them, and returns the stages.
+     * <p>
+     * The listener receives a single audit, one file at a time, so it needs not be thread-safe, but the order of the
+     * files depends on the scheduling. The timing listener, which may be {@code null}, receives the same events.
+     */
+    public List<Stage> audit(List<Path> roots, AuditListener listener, ModuleTimingListener timingListener,
+                             ViolationBudget budget) throws CheckstyleException {
+        Run run = new Run(budget);
+        List<Thread> threads = new ArrayList<>();
+        SerializingListener serializing = new SerializingListener(listener, timingListener);
+        serializing.auditStarted(this);
+        threads.add(Thread.ofVirtual().name("pipeline-discover").unstarted(() -> run.discover(roots)));
+        for (int i = 0; i < readers; i++) {
+            threads.add(Thread.ofVirtual().name("pipeline-read-", i).unstarted(run::read));
+        }
+        for (int i = 0; i < checkerThreads; i++) {
+            threads.add(Thread.ofPlatform().daemon().name("pipeline-check-" + i)
+                    .unstarted(() -> run.check(serializing.forChecker(), timingListener)));
+        }
+        run.threads = threads;
+        threads.forEach(Thread::start);
+
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException("Interrupted while waiting for the audit pipeline", e);
+        }
+
+        Throwable failure = run.failure.get();
+        if (failure instanceof CheckstyleException cause) {
+            throw cause;
+        }
+        if (failure != null) {
+            throw new CheckstyleException("Audit pipeline failed: " + failure.getMessage(), failure);
+        }
+        serializing.auditFinished(this);
+        return List.of(
+                run.discover.toStage("discover", 1),
+                run.read.toStage("read", readers),
+                run.check.toStage("check", checkerThreads));
+    }
+
+    /**
+     * Returns whether the file passes the globs and the configured file extensions.
+     */
+    boolean isSelected(Path root, Path file) {
+        Path relative = file.equals(root) ? file.getFileName() : root.relativize(file);
+        Path normalized = Path.of(relative.toString().replace(File.separatorChar, '/'));
+        return (includes.isEmpty() || includes.stream().anyMatch(matcher -> matcher.matches(normalized)))
+                && excludes.stream().noneMatch(matcher -> matcher.matches(normalized))
+                && CommonUtil.matchesFileExtension(file.toFile(), fileExtensions);
+    }
+
+    private static String rootProperty(Configuration configuration, String name, String defaultValue)
+            throws CheckstyleException {
+        return Arrays.asList(configuration.getPropertyNames()).contains(name) ? configuration.getProperty(name)
+                : defaultValue;
+    }
+
+    /**
+     * Parses {@code fileExtensions} the way {@code Checker.setFileExtensions} does.
+     */
+    private static String[] fileExtensions(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(extension -> !extension.isEmpty())
+                .map(extension -> extension.startsWith(".") ? extension : "." + extension)
+                .toArray(String[]::new);
+    }
+
+    private static List<PathMatcher> matchers(List<String> globs) {
+        return globs.stream().map(glob -> FileSystems.getDefault().getPathMatcher("glob:" + glob)).toList();
+    }
+
+    /**
+     * The queues, counters and failure of one audit.
+     */
+    private final class Run {
+        private final BlockingQueue<Item> files = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Item> texts = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicInteger runningReaders = new AtomicInteger(readers);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final StageCounters discover = new StageCounters();
+        private final StageCounters read = new StageCounters();
+        private final StageCounters check = new StageCounters();
+        private final ViolationBudget budget;
+        private volatile List<Thread> threads = List.of();
+
+        private Run(ViolationBudget budget) {
+            this.budget = budget;
+        }
+
+        private boolean isExhausted() {
+            return budget != null && budget.isExhausted();
+        }
+
+        private void discover(List<Path> roots) {
+            long start = System.nanoTime();
+            try {
+                for (Path root : roots) {
+                    Path absoluteRoot = root.toAbsolutePath().normalize();
+                    try (Stream<Path> paths = Files.walk(absoluteRoot)) {
+                        Iterator<Path> iterator = paths.iterator();
+                        while (iterator.hasNext() && !isExhausted()) {
+                            Path path = iterator.next();
+                            if (Files.isRegularFile(path) && isSelected(absoluteRoot, path)) {
+                                discover.put(files, new Item(path.toFile(), null));
+                                discover.items.increment();
+                            }
+                        }
+                    } catch (IOException | UncheckedIOException e) {
+                        throw new CheckstyleException("Unable to list files in " + root, e);
+                    }
+                }
+            } catch (CheckstyleException | RuntimeException e) {
+                fail(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                endOfInput(files, readers);
+                discover.busy(start);
+            }
+        }
+
+        private void read() {
+            long start = System.nanoTime();
+            try {
+                for (Item item = read.take(files); item != END; item = read.take(files)) {
+                    FileText text = null;
+                    try {
+                        if (!isExhausted()) {
+                            text = parseCache == null ? new FileText(item.file().getAbsoluteFile(), charset)
+                                    : parseCache.text(item.file(), charset);
+                        }
+                    } catch (IOException e) {
+                        text = null;
+                    }
+                    read.put(texts, new Item(item.file(), text));
+                    read.items.increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                fail(e);
+            } finally {
+                if (runningReaders.decrementAndGet() == 0) {
+                    endOfInput(texts, checkerThreads);
+                }
+                read.busy(start);
+            }
+        }
+
+        private void check(AuditListener listener, ModuleTimingListener timingListener) {
+            long start = System.nanoTime();
+            try {
+                ManagedChecker managed = checkers.borrow();
+                try {
+                    FileTextChecker checker = timingListener == null ? managed.checker()
+                            : managed.timedChecker(timingListener);
+                    AuditListener checkerListener = budget == null ? listener : budget.limit(listener);
+                    checker.addListener(checkerListener);
+                    try {
+                        checkerListener.auditStarted(new AuditEvent(checker));
+                        checker.beginProcessing();
+                        for (Item item = check.take(texts); item != END; item = check.take(texts)) {
+                            if (budget == null || budget.admit(item.file())) {
+                                checker.process(item.file(), item.text());
+                                check.items.increment();
+                            }
+                        }
+                        checker.finishProcessing();
+                        checkerListener.auditFinished(new AuditEvent(checker));
+                    } finally {
+                        checker.removeListener(checkerListener);
+                    }
+                } finally {
+                    managed.unbind();
+                    checkers.release(managed);
+                }
+            } catch (CheckstyleException | RuntimeException e) {
+                fail(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                check.busy(start);
+            }
+        }
+
+        /**
+         * Records the first failure and stops every stage.
+         */
+        private void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                threads.stream().filter(thread -> thread != Thread.currentThread()).forEach(Thread::interrupt);
+            }
+        }
+
+        private void endOfInput(BlockingQueue<Item> queue, int consumers) {
+            if (failure.get() != null) {
+                return;
+            }
+            try {
+                for (int i = 0; i < consumers; i++) {
+                    queue.put(END);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A file and, between reading and checking, its text; {@code null} when it could not be read.
+     */
+    private record Item(File file, FileText text) {
+    }
+
+    /**
+     * Thread-safe counters of one stage, summed over its threads.
+     */
+    private static final class StageCounters {
+        private final LongAdder items = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder inputWaitNanos = new LongAdder();
+        private final LongAdder outputWaitNanos = new LongAdder();
+
+        private Item take(BlockingQueue<Item> queue) throws InterruptedException {
+            long start = System.nanoTime();
+            try {
+                return queue.take();
+            } finally {
+                inputWaitNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        private void put(BlockingQueue<Item> queue, Item item) throws InterruptedException {
+            long start = System.nanoTime();
+            try {
+                queue.put(item);
+            } finally {
+                outputWaitNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        private void busy(long start) {
+            totalNanos.add(System.nanoTime() - start);
+        }
+
+        private Stage toStage(String name, int threads) {
+            long waits = inputWaitNanos.sum() + outputWaitNanos.sum();
+            return new Stage(name, threads, items.sum(), Math.max(0, totalNanos.sum() - waits), inputWaitNanos.sum(),
+                    outputWaitNanos.sum());
+        }
+    }
+
+    /**
+     * Time spent by the threads of one stage, summed over the threads: working, waiting for input from the previous
+     * stage and waiting for room in the queue to the next stage.
+     */
+    public record Stage(String name, int threads, long files, long busyNanos, long inputWaitNanos,
+                        long outputWaitNanos) {
+    }
+
+    /**
+     * The violations per file, like {@link CheckstyleRunner#auditFilesParallel(List)} returns them, and the stages.
+     */
+    public record Result(Map<Path, List<AuditEvent>> events, List<Stage> stages) {
+        /**
+         * Formats the stages as a plain text table with times in milliseconds.
+         */
+        public String toSummaryTable() {
+            return AuditPipeline.toSummaryTable(stages);
+        }
+    }
+
+    /**
+     * Formats the given stages as a plain text table with times in milliseconds.
+     */
+    public static String toSummaryTable(List<Stage> stages) {
+        String row = "%-8s %7s %6s %10s %15s %16s%n";
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT, row, "Stage", "Threads", "Files",
+                "Busy [ms]", "Input wait [ms]", "Output wait [ms]"));
+        for (Stage stage : stages) {
+            table.append(String.format(Locale.ROOT, row, stage.name(), stage.threads(), stage.files(),
+                    millis(stage.busyNanos()), millis(stage.inputWaitNanos()), millis(stage.outputWaitNanos())));
+        }
+        return table.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+}
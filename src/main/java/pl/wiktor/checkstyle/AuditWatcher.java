@@ -0,0 +1,418 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import pl.wiktor.checkstyle.engine.ParseCache;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches source roots and re-audits every saved {@code .java} file at once, reporting only the violations that
+ * appeared or disappeared.
+ * <p>
+ * Usage: {@code AuditWatcher --config <file> [--suppressions <file>] [--debounce <ms>] <root>...}. The roots are
+ * scanned and audited once when the watcher starts; afterwards every directory below them is watched by a
+ * {@link WatchService}, including directories created later, and nothing is scanned again. Changes arriving within
+ * the debounce interval of each other are coalesced into one batch, so an editor writing a file several times or a
+ * checkout touching many files causes one audit of the distinct files. A batch containing the configuration or the
+ * suppressions file re-audits every known file, and the {@link CheckstyleRunner} reloads its checkers because their
+ * content hashes changed. All audits go through one runner with a {@link ParseCache}, so the checkers stay configured
+ * and JIT-compiled between batches.
+ * <p>
+ * A violation is identified by its file, module key and message, and counted, so a violation that only moved because
+ * lines were inserted above it is neither new nor resolved. Every batch is passed to the consumer as a {@link Report};
+ * the command line prints new violations prefixed with {@code +} and resolved ones with {@code -}.
+ */
+public final class AuditWatcher implements AutoCloseable {
+    static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(20);
+    private static final String JAVA_SUFFIX = ".java";
+
+    private final List<Path> roots;
+    private final Set<Path> configurationFiles = new HashSet<>();
+    private final Duration debounce;
+    private final Consumer<Report> reports;
+    private final CheckstyleRunner runner;
+    private final Set<Path> files = new TreeSet<>();
+    private final Map<Path, List<AuditEvent>> violations = new HashMap<>();
+    private final Set<Path> watchedDirectories = new HashSet<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * @param suppressionsFile suppressions applied like the Maven plugin's {@code suppressionsLocation}, or
+     *                         {@code null}
+     * @param reports          receives the report of the initial audit and of every batch, on the watcher's thread
+     */
+    public AuditWatcher(List<Path> roots, Path configFile, Path suppressionsFile, Duration debounce,
+                        Consumer<Report> reports) {
+        this.roots = roots.stream().map(AuditWatcher::normalize).toList();
+        this.configurationFiles.add(normalize(configFile));
+        if (suppressionsFile != null) {
+            this.configurationFiles.add(normalize(suppressionsFile));
+        }
+        this.debounce = debounce;
+        this.reports = reports;
+        this.runner = new CheckstyleRunner(configFile, suppressionsFile, 1);
+        runner.setParseCache(new ParseCache(ParseCache.DEFAULT_MAX_CHARACTERS));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path config = null;
+        Path suppressions = null;
+        Duration debounce = DEFAULT_DEBOUNCE;
+        List<Path> roots = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--config" -> config = Path.of(value(args, ++i));
+                case "--suppressions" -> suppressions = Path.of(value(args, ++i));
+                case "--debounce" -> debounce = Duration.ofMillis(Long.parseLong(value(args, ++i)));
+                default -> {
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                    roots.add(Path.of(args[i]));
+                }
+            }
+        }
+        if (config == null || roots.isEmpty()) {
+            throw new IllegalArgumentException("Usage: AuditWatcher --config <file> [--suppressions <file>] "
+                    + "[--debounce <ms>] <root>...");
+        }
+
+        try (AuditWatcher watcher = new AuditWatcher(roots, config, suppressions, debounce, AuditWatcher::print)) {
+            watcher.start();
+            watcher.awaitStop();
+        }
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private static void print(Report report) {
+        report.added().forEach(line -> System.out.println("+ " + line));
+        report.resolved().forEach(line -> System.out.println("- " + line));
+        if (report.failure() != null) {
+            System.out.println("Audit failed: " + report.failure());
+            return;
+        }
+        System.out.printf("Audited %d files in %d ms: %d new, %d resolved, %d errors%n", report.files(),
+                report.nanos() / 1_000_000, report.added().size(), report.resolved().size(), report.errors());
+    }
+
+    /**
+     * Registers the directories below the roots, audits every {@code .java} file in them and starts watching.
+     *
+     * @throws CheckstyleException when the configuration cannot be loaded or a root does not exist
+     * @throws IOException         when the roots cannot be listed or watched
+     */
+    public synchronized void start() throws CheckstyleException, IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                throw new CheckstyleException("No such directory: " + root);
+            }
+            files.addAll(register(root));
+        }
+        for (Path file : configurationFiles) {
+            registerDirectory(file.getParent());
+        }
+
+        Report report = audit(files, Set.of(), System.nanoTime());
+        reports.accept(report);
+        if (report.failure() != null) {
+            throw new CheckstyleException(report.failure());
+        }
+        thread = Thread.ofPlatform().name("checkstyle-watcher").start(this::watch);
+    }
+
+    /**
+     * Waits until the watcher was closed.
+     */
+    public void awaitStop() throws InterruptedException {
+        thread.join();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread watching;
+        synchronized (this) {
+            if (watchService != null) {
+                watchService.close();
+            }
+            watching = thread;
+        }
+        if (watching != null && watching != Thread.currentThread()) {
+            try {
+                watching.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        runner.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                long start = System.nanoTime();
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = false;
+                while (key != null) {
+                    overflow |= collect(key, changed);
+                    key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                reports.accept(process(changed, overflow, start));
+            }
+        } catch (ClosedWatchServiceException e) {
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds the changed paths of the key to the batch, registering and adding created directories, and returns whether
+     * events were lost.
+     */
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        Path directory = (Path) key.watchable();
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    changed.addAll(register(path));
+                } catch (IOException e) {
+                    overflow = true;
+                }
+            } else {
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(directory);
+        }
+        return overflow;
+    }
+
+    /**
+     * Re-audits the changed files, every known file when the configuration changed, or rescans the roots when events
+     * were lost. The files of a deleted directory are forgotten without an event per file.
+     */
+    private Report process(Set<Path> changed, boolean overflow, long start) {
+        Set<Path> toAudit = new TreeSet<>();
+        Set<Path> deleted = new TreeSet<>();
+        if (overflow) {
+            Set<Path> found = new TreeSet<>();
+            try {
+                for (Path root : roots) {
+                    found.addAll(register(root));
+                }
+            } catch (IOException e) {
+                return new Report(0, List.of(), List.of(), errors(), System.nanoTime() - start, e.getMessage());
+            }
+            deleted.addAll(files);
+            deleted.removeAll(found);
+            files.clear();
+            files.addAll(found);
+            toAudit.addAll(found);
+        }
+        for (Path path : changed) {
+            if (configurationFiles.contains(path)) {
+                toAudit.addAll(files);
+            } else if (path.toString().endsWith(JAVA_SUFFIX) && isWatched(path)) {
+                if (Files.isRegularFile(path)) {
+                    files.add(path);
+                    toAudit.add(path);
+                } else if (files.remove(path)) {
+                    deleted.add(path);
+                }
+            } else if (watchedDirectories.contains(path) && !Files.isDirectory(path)) {
+                watchedDirectories.removeIf(directory -> directory.startsWith(path));
+                for (Path file : files) {
+                    if (file.startsWith(path)) {
+                        deleted.add(file);
+                    }
+                }
+                files.removeAll(deleted);
+            }
+        }
+        toAudit.removeAll(deleted);
+        if (toAudit.isEmpty() && deleted.isEmpty()) {
+            return new Report(0, List.of(), List.of(), errors(), System.nanoTime() - start, null);
+        }
+        return audit(toAudit, deleted, start);
+    }
+
+    private boolean isWatched(Path path) {
+        for (Path root : roots) {
+            if (path.startsWith(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Audits the files, forgets the deleted ones and compares the violations with those known before.
+     */
+    private Report audit(Set<Path> toAudit, Set<Path> deleted, long start) {
+        Map<Path, List<AuditEvent>> events;
+        try {
+            List<File> auditFiles = new ArrayList<>(toAudit.size());
+            toAudit.forEach(path -> auditFiles.add(path.toFile()));
+            events = toAudit.isEmpty() ? Map.of() : runner.auditFiles(auditFiles);
+        } catch (CheckstyleException e) {
+            return new Report(toAudit.size(), List.of(), List.of(), errors(), System.nanoTime() - start,
+                    String.valueOf(e.getMessage()).replace('\n', ' '));
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> resolved = new ArrayList<>();
+        for (Path path : deleted) {
+            violations.getOrDefault(path, List.of()).forEach(event -> resolved.add(AuditCommand.format(event)));
+            violations.remove(path);
+        }
+        for (Path path : toAudit) {
+            List<AuditEvent> current = new ArrayList<>();
+            for (AuditEvent event : events.getOrDefault(path, List.of())) {
+                if (event.getSeverityLevel() != SeverityLevel.IGNORE) {
+                    current.add(event);
+                }
+            }
+            List<AuditEvent> previous = violations.getOrDefault(path, List.of());
+            compare(previous, current, added, resolved);
+            if (current.isEmpty()) {
+                violations.remove(path);
+            } else {
+                violations.put(path, current);
+            }
+        }
+        return new Report(toAudit.size(), added, resolved, errors(), System.nanoTime() - start, null);
+    }
+
+    /**
+     * Adds the violations of the current audit of a file that the previous one did not report, and those of the
+     * previous audit that are gone, counting violations with the same identity.
+     */
+    private static void compare(List<AuditEvent> previous, List<AuditEvent> current, List<String> added,
+                                List<String> resolved) {
+        Map<String, Integer> remaining = new HashMap<>();
+        for (AuditEvent event : previous) {
+            remaining.merge(identity(event), 1, Integer::sum);
+        }
+        Map<String, Integer> unmatched = new HashMap<>();
+        for (AuditEvent event : current) {
+            String identity = identity(event);
+            if (remaining.getOrDefault(identity, 0) > 0) {
+                remaining.merge(identity, -1, Integer::sum);
+            } else {
+                added.add(AuditCommand.format(event));
+            }
+        }
+        for (AuditEvent event : previous) {
+            String identity = identity(event);
+            if (unmatched.merge(identity, 1, Integer::sum) <= remaining.getOrDefault(identity, 0)) {
+                resolved.add(AuditCommand.format(event));
+            }
+        }
+    }
+
+    private static String identity(AuditEvent event) {
+        return AuditMetrics.moduleKey(event.getModuleId(), event.getSourceName()) + '\n' + event.getMessage();
+    }
+
+    private long errors() {
+        long errors = 0;
+        for (List<AuditEvent> events : violations.values()) {
+            for (AuditEvent event : events) {
+                if (event.getSeverityLevel() == SeverityLevel.ERROR) {
+                    errors++;
+                }
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Watches the directory and every directory below it, and returns the {@code .java} files found in them.
+     */
+    private List<Path> register(Path directory) throws IOException {
+        List<Path> found = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                registerDirectory(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && file.toString().endsWith(JAVA_SUFFIX)) {
+                    found.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return found;
+    }
+
+    private void registerDirectory(Path directory) throws IOException {
+        if (watchedDirectories.add(directory)) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Result of the initial audit or of one batch of changes.
+     *
+     * @param files    number of files audited
+     * @param added    formatted violations that were not reported before
+     * @param resolved formatted violations, with their previous positions, that are no longer reported
+     * @param errors   violations of severity error now known in all watched files
+     * @param nanos    time from the first change of the batch until the result
+     * @param failure  message of the failed audit, or {@code null}
+     */
+    public record Report(int files, List<String> added, List<String> resolved, long errors, long nanos,
+                         String failure) {
+    }
+}
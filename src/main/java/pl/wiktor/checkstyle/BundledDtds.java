@@ -0,0 +1,71 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The configuration and suppressions DTDs bundled in the Checkstyle jar, by public identifier.
+ * <p>
+ * Checkstyle resolves these identifiers from its jar, but a document declaring any other DTD would be fetched from
+ * its system identifier. Such documents are rejected instead, so that loading a configuration never needs network
+ * access.
+ */
+final class BundledDtds {
+    private static final String PREFIX = "com/puppycrawl/tools/checkstyle/";
+    private static final Map<String, String> RESOURCES = Map.ofEntries(
+            Map.entry("-//Puppy Crawl//DTD Check Configuration 1.0//EN", "configuration_1_0.dtd"),
+            Map.entry("-//Puppy Crawl//DTD Check Configuration 1.1//EN", "configuration_1_1.dtd"),
+            Map.entry("-//Puppy Crawl//DTD Check Configuration 1.2//EN", "configuration_1_2.dtd"),
+            Map.entry("-//Puppy Crawl//DTD Check Configuration 1.3//EN", "configuration_1_3.dtd"),
+            Map.entry("-//Checkstyle//DTD Checkstyle Configuration 1.0//EN", "configuration_1_0.dtd"),
+            Map.entry("-//Checkstyle//DTD Checkstyle Configuration 1.1//EN", "configuration_1_1.dtd"),
+            Map.entry("-//Checkstyle//DTD Checkstyle Configuration 1.2//EN", "configuration_1_2.dtd"),
+            Map.entry("-//Checkstyle//DTD Checkstyle Configuration 1.3//EN", "configuration_1_3.dtd"),
+            Map.entry("-//Puppy Crawl//DTD Suppressions 1.0//EN", "suppressions_1_0.dtd"),
+            Map.entry("-//Puppy Crawl//DTD Suppressions 1.1//EN", "suppressions_1_1.dtd"),
+            Map.entry("-//Puppy Crawl//DTD Suppressions 1.2//EN", "suppressions_1_2.dtd"),
+            Map.entry("-//Checkstyle//DTD SuppressionFilter Configuration 1.0//EN", "suppressions_1_0.dtd"),
+            Map.entry("-//Checkstyle//DTD SuppressionFilter Configuration 1.1//EN", "suppressions_1_1.dtd"),
+            Map.entry("-//Checkstyle//DTD SuppressionFilter Configuration 1.2//EN", "suppressions_1_2.dtd"));
+    private static final Pattern DOCTYPE = Pattern.compile("<!DOCTYPE\\s+[\\w:.-]+\\s+(PUBLIC\\s+[\"']([^\"']*)[\"']"
+            + "|SYSTEM\\b|\\[)");
+
+    private BundledDtds() {
+    }
+
+    /**
+     * Fails unless the document declares no DTD or one bundled with Checkstyle.
+     */
+    static void requireBundled(byte[] content, Path file) throws CheckstyleException {
+        Matcher doctype = DOCTYPE.matcher(new String(content, StandardCharsets.UTF_8));
+        if (doctype.find() && (doctype.group(2) == null || !RESOURCES.containsKey(doctype.group(2)))) {
+            throw new CheckstyleException(file + " declares a DTD that is not bundled with Checkstyle, loading it "
+                    + "would need network access; use one of the public identifiers " + RESOURCES.keySet());
+        }
+    }
+
+    /**
+     * Entity resolver that serves the bundled DTDs and refuses every other external entity.
+     */
+    static InputSource resolve(String publicId, String systemId) throws SAXException {
+        String resource = publicId == null ? null : RESOURCES.get(publicId);
+        InputStream in = resource == null ? null
+                : BundledDtds.class.getClassLoader().getResourceAsStream(PREFIX + resource);
+        if (in == null) {
+            throw new SAXException("External entity " + (publicId == null ? systemId : publicId)
+                    + " is not bundled with Checkstyle");
+        }
+        InputSource source = new InputSource(in);
+        source.setPublicId(publicId);
+        source.setSystemId(systemId);
+        return source;
+    }
+}
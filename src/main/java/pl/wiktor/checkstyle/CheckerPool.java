@@ -0,0 +1,143 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import pl.wiktor.checkstyle.engine.EngineConfiguration;
+import pl.wiktor.checkstyle.engine.ManagedChecker;
+import pl.wiktor.checkstyle.engine.ParseCache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of configured {@link Checker} instances built from a single configuration.
+ * <p>
+ * A {@link Checker} is not thread-safe, so every borrowed instance is used by one thread at a time
+ * and handed back once its listeners have been removed. The checkers run on the engine modules, see
+ * {@link EngineConfiguration}, and may share a {@link ParseCache}.
+ * <p>
+ * Closing the pool destroys the idle checkers at once and the borrowed ones when they are released, and fails every
+ * borrower still waiting for a checker. Borrowers wait on a lock rather than a monitor, so that the virtual threads of
+ * {@link AuditDaemon} requests give up their carrier threads while they wait.
+ */
+public final class CheckerPool implements AutoCloseable {
+    private final Configuration engineConfiguration;
+    private final Configuration timedConfiguration;
+    private final ParseCache parseCache;
+    private final int maxSize;
+    private final Deque<ManagedChecker> idle = new ArrayDeque<>();
+    private final List<ManagedChecker> created = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private boolean closed;
+
+    public CheckerPool(Configuration configuration, int maxSize) throws CheckstyleException {
+        this(configuration, maxSize, null);
+    }
+
+    /**
+     * @param parseCache cache of file texts and syntax trees shared by the checkers, or {@code null}
+     */
+    public CheckerPool(Configuration configuration, int maxSize, ParseCache parseCache) throws CheckstyleException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive, got " + maxSize);
+        }
+        this.engineConfiguration = parseCache == null ? EngineConfiguration.substitute(configuration)
+                : EngineConfiguration.share(configuration);
+        this.timedConfiguration = EngineConfiguration.rewrite(configuration);
+        this.parseCache = parseCache;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Takes an idle checker, creates a new one while below the bound, or waits for one to be released.
+     *
+     * @throws IllegalStateException when the pool is closed, also while waiting
+     */
+    public ManagedChecker borrow() throws CheckstyleException {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("Checker pool is closed");
+                }
+                ManagedChecker checker = idle.poll();
+                if (checker != null) {
+                    return checker;
+                }
+                if (created.size() < maxSize) {
+                    ManagedChecker fresh = ManagedChecker.create(engineConfiguration, timedConfiguration,
+                            parseCache);
+                    created.add(fresh);
+                    return fresh;
+                }
+                released.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException("Interrupted while waiting for a Checker", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a checker to the pool; it must not have any run-specific listeners left attached and its
+     * timing must be unbound.
+     */
+    public void release(ManagedChecker checker) {
+        lock.lock();
+        try {
+            if (closed) {
+                checker.destroy();
+                return;
+            }
+            idle.add(checker);
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the cache shared by the checkers, or {@code null}.
+     */
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            ManagedChecker checker;
+            while ((checker = idle.poll()) != null) {
+                checker.destroy();
+            }
+            created.clear();
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Creates a plain checker configured with the given configuration, without the engine modules.
+     */
+    public static Checker createChecker(Configuration configuration) throws CheckstyleException {
+        Checker checker = new Checker();
+        checker.setModuleClassLoader(Checker.class.getClassLoader());
+        checker.configure(configuration);
+        return checker;
+    }
+}
@@ -0,0 +1,560 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import pl.wiktor.checkstyle.cache.CachingAuditListener;
+import pl.wiktor.checkstyle.cache.ResultCache;
+import pl.wiktor.checkstyle.engine.FileTextChecker;
+import pl.wiktor.checkstyle.engine.ManagedChecker;
+import pl.wiktor.checkstyle.engine.ParseCache;
+import pl.wiktor.checkstyle.git.GitChanges;
+import pl.wiktor.checkstyle.metrics.FlightRecorderEvents;
+import pl.wiktor.checkstyle.metrics.ModuleTimingListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Reusable, thread-safe Checkstyle runner.
+ * <p>
+ * The configuration is parsed once per content hash and configured {@link Checker} instances are kept in a
+ * bounded {@link CheckerPool}, so repeated audits only pay for the checking itself. The pool size is also the number
+ * of workers used by the parallel mode. When the configuration or suppressions file changes, new audits get a new
+ * pool, while the audits already running finish on the old one, which is closed after the last of them.
+ * <p>
+ * Passing a {@link ModuleTimingListener} to {@link #audit(List, AuditListener)} additionally reports the time spent
+ * in every module, e.g. to a {@link pl.wiktor.checkstyle.metrics.AuditMetricsListener}.
+ * <p>
+ * With a {@link ResultCache} set, files whose content, configuration and suppressions are unchanged are not audited
+ * again; their stored violations are replayed to the listeners instead. Configurations with cross-file checks are
+ * always audited in full, since their results depend on the other files.
+ * <p>
+ * With a {@link ParseCache} set, the pooled checkers read files through it and reuse the syntax trees of files that
+ * did not change since an earlier audit, also across runners sharing the cache. Timed audits read and parse every
+ * file, so that their module timings include the parser.
+ * <p>
+ * Audits given a {@link ViolationBudget} stop auditing further files once it is exhausted; the budget then tells
+ * whether the result is incomplete.
+ * <p>
+ * Every audit is recorded as a {@link FlightRecorderEvents.Audit} Java Flight Recorder event, and the checkers record
+ * the files and checks, see {@link FileTextChecker}.
+ */
+public final class CheckstyleRunner implements AutoCloseable {
+    private static final String SERIAL_MODE = "serial";
+    private static final String PARALLEL_MODE = "parallel";
+    private static final String TREE_MODE = "tree";
+
+    private final Path configFile;
+    private final Path suppressionsFile;
+    private final int poolSize;
+    private final Map<CheckerPool, Integer> poolUsers = new HashMap<>();
+    private String poolFingerprint;
+    private boolean crossFileChecks;
+    private CheckerPool pool;
+    private Configuration poolConfiguration;
+    private ExecutorService workers;
+    private volatile ResultCache resultCache;
+    private ParseCache parseCache;
+    private boolean closed;
+
+    public CheckstyleRunner(Path configFile) {
+        this(configFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CheckstyleRunner(Path configFile, int poolSize) {
+        this(configFile, null, poolSize);
+    }
+
+    /**
+     * @param suppressionsFile suppressions applied through a {@code SuppressionFilter} like the Maven plugin's
+     *                         {@code suppressionsLocation}, or {@code null}
+     */
+    public CheckstyleRunner(Path configFile, Path suppressionsFile, int poolSize) {
+        this.configFile = configFile;
+        this.suppressionsFile = suppressionsFile;
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Sets the cache used by subsequent audits, or {@code null} to audit every file. Saving the cache is left to the
+     * caller.
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Sets the cache of file texts and syntax trees used by subsequent audits, or {@code null} to read and parse every
+     * file; the checker pool is rebuilt on the next audit.
+     */
+    public synchronized void setParseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+        poolFingerprint = null;
+    }
+
+    /**
+     * Audits the given files and returns every reported violation.
+     */
+    public List<AuditEvent> audit(List<File> files) throws CheckstyleException {
+        List<AuditEvent> events = new ArrayList<>();
+        audit(files, new CollectingListener(events));
+        return events;
+    }
+
+    /**
+     * Audits every regular file below the given directory in a single Checkstyle pass.
+     *
+     * @return immutable map from absolute file path to the violations reported for that file
+     */
+    public Map<Path, List<AuditEvent>> auditDirectory(Path directory) throws CheckstyleException {
+        return auditFiles(listFiles(directory));
+    }
+
+    /**
+     * Audits the given files in a single Checkstyle pass and splits the events per file.
+     *
+     * @return immutable map from absolute file path to the violations reported for that file
+     */
+    public Map<Path, List<AuditEvent>> auditFiles(List<File> files) throws CheckstyleException {
+        FileEventsListener listener = new FileEventsListener();
+        audit(files, listener);
+        return listener.getEventsByFile();
+    }
+
+    /**
+     * Audits every regular file below the given directory, spreading the files across the worker pool.
+     *
+     * @return the same result as {@link #auditDirectory(Path)}
+     */
+    public Map<Path, List<AuditEvent>> auditDirectoryParallel(Path directory) throws CheckstyleException {
+        return auditFilesParallel(listFiles(directory));
+    }
+
+    /**
+     * Audits the given files on a fixed set of workers, each owning its own configured {@link Checker}.
+     * <p>
+     * Every worker audits one batch of files of about the same total size in a single Checkstyle pass, see
+     * {@link #batches(List, int)}. The per-worker results are merged into the same scheduling independent order as the
+     * serial {@link #auditFiles(List)}.
+     * <p>
+     * File-set checks that compare files with each other, like {@code Translation}, only see the files of their own
+     * batch. Configurations containing such checks are therefore audited by a single worker, see
+     * {@link ConfigurationModules#hasCrossFileChecks(Configuration)}.
+     */
+    public Map<Path, List<AuditEvent>> auditFilesParallel(List<File> files) throws CheckstyleException {
+        return auditFilesParallel(files, null);
+    }
+
+    /**
+     * Audits the given files like {@link #auditFilesParallel(List)} and reports the time spent in every module to the
+     * given listener, which may be {@code null}.
+     * <p>
+     * Every worker reports its module timings as they occur, and the audit events of every file once it is finished,
+     * all within a single audit.
+     */
+    public Map<Path, List<AuditEvent>> auditFilesParallel(List<File> files, ModuleTimingListener timingListener)
+            throws CheckstyleException {
+        return auditFilesParallel(files, timingListener, null);
+    }
+
+    /**
+     * Audits the given files like {@link #auditFilesParallel(List, ModuleTimingListener)} until the given budget,
+     * which may be {@code null}, is exhausted. Cached results are replayed first and spend the budget too.
+     */
+    public Map<Path, List<AuditEvent>> auditFilesParallel(List<File> files, ModuleTimingListener timingListener,
+                                                          ViolationBudget budget) throws CheckstyleException {
+        FileEventsListener listener = new FileEventsListener();
+        auditFilesParallel(files, listener, timingListener, budget);
+        return listener.getEventsByFile();
+    }
+
+    /**
+     * Audits the given files like {@link #auditFilesParallel(List, ModuleTimingListener, ViolationBudget)}, but
+     * passes the events to the given listener while the workers run instead of collecting them, so that memory use
+     * does not grow with the number of violations.
+     * <p>
+     * The listener receives a single audit. Each file is reported as a whole, from one worker at a time, once it is
+     * finished, so the listener needs not be thread-safe, but the order of the files depends on the scheduling.
+     */
+    public void auditFilesParallel(List<File> files, AuditListener listener, ModuleTimingListener timingListener,
+                                   ViolationBudget budget) throws CheckstyleException {
+        FlightRecorderEvents.Audit event = FlightRecorderEvents.beginAudit();
+        AuditSetup setup = currentSetup();
+        try {
+            CheckerPool checkers = setup.pool();
+            int workerCount = setup.crossFileChecks() ? 1 : Math.min(checkers.getMaxSize(), files.size());
+            SerializingListener serializing = new SerializingListener(listener, timingListener);
+            serializing.auditStarted(this);
+
+            ResultCache cache = setup.cache();
+            int audited = files.size();
+            if (cache == null) {
+                auditInWorkers(checkers, workerCount, files, serializing, null, null, timingListener, budget);
+            } else {
+                ResultCache.Lookup lookup = cache.lookup(files, setup.fingerprint());
+                AuditListener replayed = serializing.forChecker();
+                CachingAuditListener.replay(lookup.cached(), budget == null ? replayed : budget.limit(replayed),
+                        this);
+                ResultCache.Lookup workerLookup = new ResultCache.Lookup(lookup.toAudit(), lookup.missing(),
+                        Map.of());
+                audited = lookup.toAudit().size();
+                auditInWorkers(checkers, workerCount, lookup.toAudit(), serializing, cache, workerLookup,
+                        timingListener, budget);
+            }
+
+            serializing.auditFinished(this);
+            if (event != null) {
+                event.finish(PARALLEL_MODE, files.size(), audited, workerCount);
+            }
+        } finally {
+            release(setup);
+        }
+    }
+
+    /**
+     * Audits those of the given files that changed according to {@code changes}, like
+     * {@link #auditFilesParallel(List, ModuleTimingListener)}.
+     *
+     * @param changedLinesOnly whether to drop the violations on lines that did not change; the timing listener still
+     *                         receives every event and the budget is spent on them too
+     * @param budget           the violation budget, or {@code null}
+     */
+    public Map<Path, List<AuditEvent>> auditChangesParallel(List<File> files, GitChanges changes,
+                                                            boolean changedLinesOnly,
+                                                            ModuleTimingListener timingListener,
+                                                            ViolationBudget budget) throws CheckstyleException {
+        Map<Path, List<AuditEvent>> events = auditFilesParallel(changes.changedFiles(files), timingListener, budget);
+        return changedLinesOnly ? changes.changedLinesOnly(events) : events;
+    }
+
+    /**
+     * Audits every selected file below the given roots in an {@link AuditPipeline}, which overlaps listing, reading
+     * and checking the files, with one checking thread per pooled checker.
+     * <p>
+     * Meant for full audits of large trees: the result cache is not consulted, and the timing listener, which may be
+     * {@code null}, receives the events of every file once it is checked, like with
+     * {@link #auditFilesParallel(List, ModuleTimingListener)}.
+     *
+     * @param includes globs of the files to audit relative to their root, all files when empty
+     * @param excludes globs of the files to skip
+     * @param budget   the violation budget, or {@code null}
+     */
+    public AuditPipeline.Result auditTree(List<Path> roots, List<String> includes, List<String> excludes,
+                                          ModuleTimingListener timingListener, ViolationBudget budget)
+            throws CheckstyleException {
+        FileEventsListener listener = new FileEventsListener();
+        List<AuditPipeline.Stage> stages = auditTree(roots, includes, excludes, listener, timingListener, budget);
+        return new AuditPipeline.Result(listener.getEventsByFile(), stages);
+    }
+
+    /**
+     * Audits the selected files below the given roots like
+     * {@link #auditTree(List, List, List, ModuleTimingListener, ViolationBudget)}, but passes the events to the given
+     * listener while the files are checked, like
+     * {@link #auditFilesParallel(List, AuditListener, ModuleTimingListener, ViolationBudget)} does, and returns the
+     * stages of the pipeline.
+     */
+    public List<AuditPipeline.Stage> auditTree(List<Path> roots, List<String> includes, List<String> excludes,
+                                               AuditListener listener, ModuleTimingListener timingListener,
+                                               ViolationBudget budget) throws CheckstyleException {
+        FlightRecorderEvents.Audit event = FlightRecorderEvents.beginAudit();
+        AuditSetup setup = currentSetup();
+        try {
+            int threads = setup.crossFileChecks() ? 1 : poolSize;
+            AuditPipeline pipeline = new AuditPipeline(setup.pool(), setup.configuration(),
+                    threads, AuditPipeline.DEFAULT_READERS,
+                    AuditPipeline.DEFAULT_QUEUE_CAPACITY, includes, excludes);
+            List<AuditPipeline.Stage> stages = pipeline.audit(roots, listener, timingListener, budget);
+            if (event != null) {
+                int files = (int) stages.get(stages.size() - 1).files();
+                event.finish(TREE_MODE, files, files, threads);
+            }
+            return stages;
+        } finally {
+            release(setup);
+        }
+    }
+
+    /**
+     * Audits the given files, forwarding all audit callbacks to the given listener.
+     * <p>
+     * When the listener is a {@link ModuleTimingListener}, the module timing is enabled for this audit and reported
+     * to it as well.
+     */
+    public void audit(List<File> files, AuditListener listener) throws CheckstyleException {
+        audit(files, listener, null);
+    }
+
+    /**
+     * Audits the given files like {@link #audit(List, AuditListener)} until the given budget, which may be
+     * {@code null}, is exhausted.
+     */
+    public void audit(List<File> files, AuditListener listener, ViolationBudget budget) throws CheckstyleException {
+        FlightRecorderEvents.Audit event = FlightRecorderEvents.beginAudit();
+        AuditSetup setup = currentSetup();
+        try {
+            CheckerPool checkers = setup.pool();
+            ResultCache cache = setup.cache();
+            List<File> toAudit = files;
+            AuditListener checkerListener = budget == null ? listener : budget.limit(listener);
+            if (cache != null) {
+                ResultCache.Lookup lookup = cache.lookup(files, setup.fingerprint());
+                toAudit = lookup.toAudit();
+                checkerListener = new CachingAuditListener(checkerListener, cache, lookup);
+            }
+
+            ManagedChecker managed = checkers.borrow();
+            try {
+                FileTextChecker checker = listener instanceof ModuleTimingListener timingListener
+                        ? managed.timedChecker(timingListener) : managed.checker();
+                checker.process(toAudit, checkerListener, budget == null ? null : budget::admit);
+            } finally {
+                managed.unbind();
+                checkers.release(managed);
+            }
+            if (event != null) {
+                event.finish(SERIAL_MODE, files.size(), toAudit.size(), 1);
+            }
+        } finally {
+            release(setup);
+        }
+    }
+
+    /**
+     * Lists the regular files below the given directory in a stable, sorted order.
+     */
+    public static List<File> listFiles(Path directory) throws CheckstyleException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .sorted()
+                    .map(Path::toFile)
+                    .toList();
+        } catch (IOException e) {
+            throw new CheckstyleException("Unable to list files in " + directory, e);
+        }
+    }
+
+    private void auditInWorkers(CheckerPool checkers, int workerCount, List<File> files,
+                                SerializingListener listener, ResultCache cache, ResultCache.Lookup lookup,
+                                ModuleTimingListener timingListener, ViolationBudget budget)
+            throws CheckstyleException {
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService executor = workerExecutor();
+        for (List<File> batch : batches(files, workerCount)) {
+            futures.add(executor.submit(() -> auditBatch(checkers, batch, listener.forChecker(), cache, lookup,
+                    timingListener, budget)));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Splits the files into one batch per worker, balancing the total file size: the largest files are placed first,
+     * each on the currently smallest batch. Every batch keeps the given file order.
+     */
+    static List<List<File>> batches(List<File> files, int workerCount) {
+        List<File> largestFirst = new ArrayList<>(files);
+        largestFirst.sort(Comparator.comparingLong(File::length).reversed());
+        long[] sizes = new long[workerCount];
+        Map<File, Integer> assigned = new HashMap<>();
+        for (File file : largestFirst) {
+            int smallest = 0;
+            for (int i = 1; i < workerCount; i++) {
+                if (sizes[i] < sizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            sizes[smallest] += Math.max(1L, file.length());
+            assigned.put(file, smallest);
+        }
+
+        List<List<File>> batches = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            batches.add(new ArrayList<>());
+        }
+        for (File file : files) {
+            batches.get(assigned.get(file)).add(file);
+        }
+        batches.removeIf(List::isEmpty);
+        return batches;
+    }
+
+    /**
+     * Audits one batch in a single {@link FileTextChecker#process(List, AuditListener)} call, so the worker's file-set
+     * checks and listeners see one audit, like the serial run does.
+     */
+    private static Void auditBatch(CheckerPool checkers, List<File> batch, AuditListener listener, ResultCache cache,
+                                   ResultCache.Lookup lookup, ModuleTimingListener timingListener,
+                                   ViolationBudget budget) throws CheckstyleException {
+        AuditListener limited = budget == null ? listener : budget.limit(listener);
+        AuditListener checkerListener = cache == null ? limited : new CachingAuditListener(limited, cache, lookup);
+        ManagedChecker managed = checkers.borrow();
+
+        try {
+            FileTextChecker checker = timingListener == null ? managed.checker()
+                    : managed.timedChecker(timingListener);
+            checker.process(batch, checkerListener, budget == null ? null : budget::admit);
+        } finally {
+            managed.unbind();
+            checkers.release(managed);
+        }
+        return null;
+    }
+
+    private static void await(Future<?> future) throws CheckstyleException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException("Interrupted while waiting for audit workers", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CheckstyleException cause) {
+                throw cause;
+            }
+            throw new CheckstyleException("Audit worker failed", e.getCause());
+        }
+    }
+
+    private synchronized ExecutorService workerExecutor() {
+        if (closed) {
+            throw new IllegalStateException("Checkstyle runner is closed");
+        }
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(poolSize,
+                    Thread.ofPlatform().daemon().name("checkstyle-worker-", 0).factory());
+        }
+        return workers;
+    }
+
+    /**
+     * Returns the pool for the current content of the configuration and suppressions files, replacing it when either
+     * changed, together with their fingerprint. Both files are read and hashed once per call.
+     */
+    private synchronized AuditSetup currentSetup() throws CheckstyleException {
+        ConfigurationCache.LoadedConfiguration loaded = ConfigurationCache.load(configFile);
+        String suppressionsHash = suppressionsFile == null ? null
+                : ConfigurationCache.suppressionsHash(suppressionsFile);
+        String configurationKey = loaded.hash() + ":" + suppressionsHash;
+
+        if (closed) {
+            throw new IllegalStateException("Checkstyle runner is closed");
+        }
+        if (pool == null || !configurationKey.equals(poolFingerprint)) {
+            if (pool != null) {
+                retire(pool);
+            }
+            Configuration configuration = suppressionsFile == null ? loaded.configuration()
+                    : ConfigurationModules.withSuppressions(loaded.configuration(), suppressionsFile);
+            pool = new CheckerPool(configuration, poolSize, parseCache);
+            poolConfiguration = configuration;
+            poolFingerprint = configurationKey;
+            crossFileChecks = ConfigurationModules.hasCrossFileChecks(configuration);
+        }
+
+        ResultCache cache = crossFileChecks ? null : resultCache;
+        String fingerprint = cache == null ? null : ResultCache.fingerprint(loaded.hash(), suppressionsHash);
+        poolUsers.merge(pool, 1, Integer::sum);
+        return new AuditSetup(pool, poolConfiguration, cache, fingerprint, crossFileChecks);
+    }
+
+    /**
+     * Ends the use of a pool by an audit that got it from {@link #currentSetup()}, closing the pool when it was
+     * replaced in the meantime and this was the last audit using it.
+     */
+    private synchronized void release(AuditSetup setup) {
+        CheckerPool used = setup.pool();
+        if (poolUsers.merge(used, -1, Integer::sum) == 0) {
+            poolUsers.remove(used);
+            if (used != pool) {
+                used.close();
+            }
+        }
+    }
+
+    /**
+     * Closes a replaced pool, or leaves that to the last audit still using it, so that audits running while the
+     * configuration changes finish on the checkers they started with.
+     */
+    private void retire(CheckerPool replaced) {
+        if (!poolUsers.containsKey(replaced)) {
+            replaced.close();
+        }
+    }
+
+    /**
+     * Stops accepting audits. Running audits finish first, each on its own pool and workers, which are closed
+     * once the last of them is done.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+        if (pool != null) {
+            retire(pool);
+            pool = null;
+        }
+    }
+
+    /**
+     * The pool, its configuration, the result cache and its fingerprint used by one audit, and whether the
+     * configuration has cross-file checks. Configurations with cross-file checks use no result cache, and the
+     * fingerprint, which hashes the engine classes once per JVM, is only computed when a cache is used.
+     */
+    private record AuditSetup(CheckerPool pool, Configuration configuration, ResultCache cache, String fingerprint,
+                              boolean crossFileChecks) {
+    }
+
+    /**
+     * Collects every reported violation into the given list.
+     */
+    private record CollectingListener(List<AuditEvent> events) implements AuditListener {
+        @Override
+        public void auditStarted(AuditEvent e) {
+        }
+
+        @Override
+        public void auditFinished(AuditEvent e) {
+        }
+
+        @Override
+        public void fileStarted(AuditEvent e) {
+        }
+
+        @Override
+        public void fileFinished(AuditEvent e) {
+        }
+
+        @Override
+        public void addError(AuditEvent e) {
+            events.add(e);
+        }
+
+        @Override
+        public void addException(AuditEvent e, Throwable t) {
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Compiles a Checkstyle configuration and its suppressions into a compact binary form that
+ * {@link ConfigurationCache#load(Path)} reads without any XML parsing.
+ * <p>
+ * Usage: {@code CompiledConfiguration --config <file> [--suppressions <file>] [--property <name>=<value>]...
+ * --output <file>}. Properties are expanded while compiling, and every {@code <suppress>} element becomes a
+ * {@code SuppressionSingleFilter} and every {@code <suppress-xpath>} a {@code SuppressionXpathSingleFilter}, which
+ * suppress exactly what the {@code SuppressionFilter} and {@code SuppressionXpathFilter} would. Both files are
+ * validated against the DTDs bundled with Checkstyle, and the result is validated by configuring a {@link Checker}
+ * with it, so an invalid configuration fails the build step instead of the audit.
+ * <p>
+ * The binary form starts with {@value #MAGIC}, a format version and the Checkstyle version it was compiled for, and
+ * is rejected by another Checkstyle version. The module tree follows depth first: name, properties, custom messages
+ * and children, with properties and messages sorted so that the same configuration always compiles to the same
+ * bytes.
+ */
+public final class CompiledConfiguration {
+    static final String MAGIC = "CSCF";
+    private static final byte[] MAGIC_BYTES = MAGIC.getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 1;
+    private static final String CHECKSTYLE_VERSION = String.valueOf(Checker.class.getPackage()
+            .getImplementationVersion());
+    private static final String SUPPRESS = "suppress";
+    private static final String SUPPRESS_XPATH = "suppress-xpath";
+    private static final List<String> SUPPRESS_ATTRIBUTES = List.of("files", "checks", "message", "id", "lines",
+            "columns");
+    private static final List<String> SUPPRESS_XPATH_ATTRIBUTES = List.of("files", "checks", "message", "id",
+            "query");
+
+    private CompiledConfiguration() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        Path config = null;
+        Path suppressions = null;
+        Path output = null;
+        Properties properties = new Properties();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--config" -> config = Path.of(value(args, ++i));
+                    case "--suppressions" -> suppressions = Path.of(value(args, ++i));
+                    case "--output" -> output = Path.of(value(args, ++i));
+                    case "--property" -> {
+                        String property = value(args, ++i);
+                        int separator = property.indexOf('=');
+                        if (separator < 1) {
+                            throw new IllegalArgumentException("Expected <name>=<value>, got " + property);
+                        }
+                        properties.setProperty(property.substring(0, separator), property.substring(separator + 1));
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (config == null || output == null) {
+                throw new IllegalArgumentException("A configuration and an output file are required");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: CompiledConfiguration --config <file> [--suppressions <file>] "
+                    + "[--property <name>=<value>]... --output <file>");
+            return AuditCommand.EXIT_FAILURE;
+        }
+
+        try {
+            byte[] compiled = write(compile(config, suppressions, properties));
+            Path parent = output.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.write(output, compiled);
+            System.out.printf("Compiled %s to %s (%d bytes)%n", config, output, compiled.length);
+            return AuditCommand.EXIT_OK;
+        } catch (CheckstyleException | IOException e) {
+            System.out.println("Compilation failed: " + e.getMessage());
+            return AuditCommand.EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Parses the configuration with the given properties, adds the suppressions of the optional suppressions file as
+     * single filters and checks that a {@link Checker} accepts the result.
+     */
+    public static Configuration compile(Path configFile, Path suppressionsFile, Properties properties)
+            throws CheckstyleException {
+        Configuration configuration = ConfigurationCache.parseXml(readFile(configFile), configFile, properties);
+        if (suppressionsFile != null) {
+            configuration = withSingleFilters(configuration, readSuppressions(suppressionsFile));
+        }
+        Checker checker = CheckerPool.createChecker(configuration);
+        checker.destroy();
+        return configuration;
+    }
+
+    /**
+     * Returns whether the given content is a compiled configuration rather than XML.
+     */
+    public static boolean isCompiled(byte[] content) {
+        return content.length >= MAGIC_BYTES.length
+                && Arrays.equals(content, 0, MAGIC_BYTES.length, MAGIC_BYTES, 0, MAGIC_BYTES.length);
+    }
+
+    /**
+     * Serializes the configuration in the compiled form.
+     */
+    public static byte[] write(Configuration configuration) throws CheckstyleException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC_BYTES);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, CHECKSTYLE_VERSION);
+            writeModule(out, configuration);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a configuration in the compiled form; {@code file} is only used in error messages.
+     */
+    public static Configuration read(byte[] content, Path file) throws CheckstyleException {
+        if (!isCompiled(content)) {
+            throw new CheckstyleException(file + " is not a compiled configuration");
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+            in.skipNBytes(MAGIC_BYTES.length);
+            int formatVersion = in.readInt();
+            String checkstyleVersion = readString(in);
+            if (formatVersion != FORMAT_VERSION || !CHECKSTYLE_VERSION.equals(checkstyleVersion)) {
+                throw new CheckstyleException(file + " was compiled with format " + formatVersion + " for Checkstyle "
+                        + checkstyleVersion + ", recompile it for format " + FORMAT_VERSION + " and Checkstyle "
+                        + CHECKSTYLE_VERSION);
+            }
+            Configuration configuration = readModule(in);
+            if (in.read() != -1) {
+                throw new CheckstyleException(file + " has trailing data after the configuration");
+            }
+            return configuration;
+        } catch (IOException e) {
+            throw new CheckstyleException(file + " is a truncated or corrupt compiled configuration", e);
+        }
+    }
+
+    private static void writeModule(DataOutputStream out, Configuration module)
+            throws IOException, CheckstyleException {
+        writeString(out, module.getName());
+        Map<String, String> properties = new TreeMap<>();
+        for (String name : module.getPropertyNames()) {
+            properties.put(name, module.getProperty(name));
+        }
+        writeMap(out, properties);
+        writeMap(out, new TreeMap<>(module.getMessages()));
+        out.writeInt(module.getChildren().length);
+        for (Configuration child : module.getChildren()) {
+            writeModule(out, child);
+        }
+    }
+
+    private static Configuration readModule(DataInputStream in) throws IOException {
+        DefaultConfiguration module = new DefaultConfiguration(readString(in));
+        for (int i = readCount(in); i > 0; i--) {
+            module.addProperty(readString(in), readString(in));
+        }
+        for (int i = readCount(in); i > 0; i--) {
+            module.addMessage(readString(in), readString(in));
+        }
+        for (int i = readCount(in); i > 0; i--) {
+            module.addChild(readModule(in));
+        }
+        return module;
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(readCount(in)), StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Invalid length " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Adds one single filter per suppression: plain ones at the root, XPath ones to every {@code TreeWalker}.
+     */
+    private static Configuration withSingleFilters(Configuration root, List<DefaultConfiguration> filters)
+            throws CheckstyleException {
+        DefaultConfiguration copy = ConfigurationModules.copyWithoutChildren(root);
+        for (Configuration child : root.getChildren()) {
+            if (ConfigurationModules.isTreeWalker(child)) {
+                DefaultConfiguration treeWalker = ConfigurationModules.copyWithoutChildren(child);
+                Arrays.stream(child.getChildren()).forEach(treeWalker::addChild);
+                filters.stream().filter(filter -> filter.getName().startsWith("SuppressionXpath"))
+                        .forEach(treeWalker::addChild);
+                copy.addChild(treeWalker);
+            } else {
+                copy.addChild(child);
+            }
+        }
+        filters.stream().filter(filter -> !filter.getName().startsWith("SuppressionXpath")).forEach(copy::addChild);
+        return copy;
+    }
+
+    /**
+     * Returns a {@code SuppressionSingleFilter} for every {@code <suppress>} element of the suppressions file, which
+     * together suppress exactly what a {@code SuppressionFilter} of the file does; its {@code <suppress-xpath>}
+     * elements are left out, since that filter ignores them too.
+     */
+    public static List<Configuration> suppressionFilters(Path suppressionsFile) throws CheckstyleException {
+        List<Configuration> filters = new ArrayList<>();
+        for (DefaultConfiguration filter : readSuppressions(suppressionsFile)) {
+            if (filter.getName().startsWith("SuppressionXpath")) {
+                continue;
+            }
+            List<String> names = Arrays.asList(filter.getPropertyNames());
+            if (!names.contains("checks") && !names.contains("id") && !names.contains("message")) {
+                throw new CheckstyleException("Missing checks, id or message attribute in " + suppressionsFile);
+            }
+            filters.add(filter);
+        }
+        return filters;
+    }
+
+    private static List<DefaultConfiguration> readSuppressions(Path suppressionsFile) throws CheckstyleException {
+        byte[] content = readFile(suppressionsFile);
+        BundledDtds.requireBundled(content, suppressionsFile);
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setValidating(true);
+            factory.setIgnoringComments(true);
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            builder.setEntityResolver(BundledDtds::resolve);
+            builder.setErrorHandler(new FailingErrorHandler());
+            document = builder.parse(new ByteArrayInputStream(content), suppressionsFile.toUri().toString());
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new CheckstyleException("Unable to parse suppressions " + suppressionsFile + ": " + e.getMessage(),
+                    e);
+        }
+
+        List<DefaultConfiguration> filters = new ArrayList<>();
+        for (Node node = document.getDocumentElement().getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element) {
+                switch (element.getTagName()) {
+                    case SUPPRESS -> filters.add(singleFilter("SuppressionSingleFilter", element,
+                            SUPPRESS_ATTRIBUTES));
+                    case SUPPRESS_XPATH -> filters.add(singleFilter("SuppressionXpathSingleFilter", element,
+                            SUPPRESS_XPATH_ATTRIBUTES));
+                    default -> throw new CheckstyleException("Unsupported element <" + element.getTagName()
+                            + "> in " + suppressionsFile);
+                }
+            }
+        }
+        return filters;
+    }
+
+    private static DefaultConfiguration singleFilter(String name, Element element, List<String> attributes) {
+        DefaultConfiguration filter = new DefaultConfiguration(name);
+        for (String attribute : attributes) {
+            if (element.hasAttribute(attribute)) {
+                filter.addProperty(attribute, element.getAttribute(attribute));
+            }
+        }
+        return filter;
+    }
+
+    private static byte[] readFile(Path file) throws CheckstyleException {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new CheckstyleException("Unable to read " + file, e);
+        }
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * Turns every validation warning and error into a failure.
+     */
+    private static final class FailingErrorHandler implements ErrorHandler {
+        @Override
+        public void warning(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+
+        @Override
+        public void error(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+
+        @Override
+        public void fatalError(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+    }
+}
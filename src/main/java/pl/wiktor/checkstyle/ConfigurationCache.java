@@ -0,0 +1,121 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.xml.sax.InputSource;
+import pl.wiktor.checkstyle.metrics.FlightRecorderEvents;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses Checkstyle configuration files once and shares the result until the file's content changes.
+ * <p>
+ * Only the latest parsed configuration is kept per file, so editing a configuration in a long-lived process replaces
+ * its entry instead of adding one. A file in the form written by {@link CompiledConfiguration} is read directly;
+ * an XML file must declare no DTD or one bundled with Checkstyle, so loading never needs network access. Every load
+ * is recorded as a {@link FlightRecorderEvents.ConfigurationLoad}.
+ */
+public final class ConfigurationCache {
+    private static final Map<Path, LoadedConfiguration> CONFIGURATIONS = new ConcurrentHashMap<>();
+
+    private ConfigurationCache() {
+    }
+
+    /**
+     * Returns the parsed configuration for the given file, parsing it again only when its content changed since the
+     * last call.
+     */
+    public static LoadedConfiguration load(Path configFile) throws CheckstyleException {
+        FlightRecorderEvents.ConfigurationLoad event = FlightRecorderEvents.beginConfigurationLoad();
+        byte[] content = readConfigFile(configFile);
+        String hash = sha256(content);
+        Path key = configFile.toAbsolutePath().normalize();
+        LoadedConfiguration loaded = CONFIGURATIONS.get(key);
+        boolean parsed = loaded == null || !loaded.hash().equals(hash);
+
+        if (parsed) {
+            loaded = new LoadedConfiguration(hash, parse(content, configFile));
+            CONFIGURATIONS.put(key, loaded);
+        }
+
+        if (event != null) {
+            event.finish(key.toString(), hash, parsed);
+        }
+        return loaded;
+    }
+
+    /**
+     * Computes the hex encoded SHA-256 digest of a suppressions file's content, failing if parsing it would need a
+     * DTD that is not bundled with Checkstyle.
+     */
+    public static String suppressionsHash(Path suppressionsFile) throws CheckstyleException {
+        byte[] content = readConfigFile(suppressionsFile);
+        BundledDtds.requireBundled(content, suppressionsFile);
+        return sha256(content);
+    }
+
+    /**
+     * Computes the hex encoded SHA-256 digest of the given bytes.
+     */
+    public static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Computes the hex encoded SHA-256 digest of the given file's content.
+     */
+    public static String sha256(Path file) throws CheckstyleException {
+        return sha256(readConfigFile(file));
+    }
+
+    private static byte[] readConfigFile(Path configFile) throws CheckstyleException {
+        try {
+            return Files.readAllBytes(configFile);
+        } catch (IOException e) {
+            throw new CheckstyleException("Unable to read configuration " + configFile, e);
+        }
+    }
+
+    private static Configuration parse(byte[] content, Path configFile) throws CheckstyleException {
+        if (CompiledConfiguration.isCompiled(content)) {
+            return CompiledConfiguration.read(content, configFile);
+        }
+        return parseXml(content, configFile, new Properties());
+    }
+
+    /**
+     * Parses an XML configuration, expanding its property references with the given properties.
+     */
+    static Configuration parseXml(byte[] content, Path configFile, Properties properties) throws CheckstyleException {
+        BundledDtds.requireBundled(content, configFile);
+        InputSource source = new InputSource(new ByteArrayInputStream(content));
+        source.setSystemId(configFile.toUri().toString());
+
+        return ConfigurationLoader.loadConfiguration(
+                source,
+                new PropertiesExpander(properties),
+                ConfigurationLoader.IgnoredModulesOptions.EXECUTE
+        );
+    }
+
+    /**
+     * A parsed configuration together with the content hash it was loaded from.
+     */
+    public record LoadedConfiguration(String hash, Configuration configuration) {
+    }
+}
@@ -0,0 +1,155 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lists the checks of a configuration and derives single-check configurations from it.
+ * <p>
+ * A check is identified by its {@code id} property, or by its module name when it has none. Keys that occur more than
+ * once (e.g. the two {@code RegexpMultiline} modules) get a 1-based {@code #n} suffix in configuration order.
+ */
+public final class ConfigurationModules {
+    private static final String TREE_WALKER = "TreeWalker";
+    private static final String FILTER_SUFFIX = "Filter";
+    private static final String SUPPRESSION_FILTER = "SuppressionFilter";
+    private static final Set<String> CROSS_FILE_CHECKS = Set.of("Translation");
+
+    private ConfigurationModules() {
+    }
+
+    /**
+     * Returns the keys of all checks in the configuration, both file-set checks and checks nested in TreeWalker.
+     */
+    public static List<String> moduleKeys(Configuration root) throws CheckstyleException {
+        return checks(root).stream()
+                .map(CheckModule::key)
+                .toList();
+    }
+
+    /**
+     * Builds a configuration that keeps the root (and TreeWalker) properties but contains only the given check.
+     */
+    public static Configuration isolate(Configuration root, String key) throws CheckstyleException {
+        for (CheckModule module : checks(root)) {
+            if (module.key().equals(key)) {
+                DefaultConfiguration isolated = copyWithoutChildren(root);
+                if (module.treeWalker() == null) {
+                    isolated.addChild(module.configuration());
+                } else {
+                    DefaultConfiguration treeWalker = copyWithoutChildren(module.treeWalker());
+                    treeWalker.addChild(module.configuration());
+                    isolated.addChild(treeWalker);
+                }
+                return isolated;
+            }
+        }
+        throw new CheckstyleException("No check with key '" + key + "', available: " + moduleKeys(root));
+    }
+
+    /**
+     * Adds a {@code SuppressionFilter} for the given suppressions file, the way the Maven plugin applies its
+     * {@code suppressionsLocation}.
+     */
+    public static Configuration withSuppressions(Configuration root, Path suppressionsFile)
+            throws CheckstyleException {
+        DefaultConfiguration copy = copyWithoutChildren(root);
+        for (Configuration child : root.getChildren()) {
+            copy.addChild(child);
+        }
+        DefaultConfiguration filter = new DefaultConfiguration(SUPPRESSION_FILTER);
+        filter.addProperty("file", suppressionsFile.toAbsolutePath().toString());
+        copy.addChild(filter);
+        return copy;
+    }
+
+    /**
+     * Returns all checks of the configuration in configuration order, with their unique keys.
+     */
+    public static List<CheckModule> checks(Configuration root) throws CheckstyleException {
+        List<CheckModule> found = new ArrayList<>();
+        for (Configuration child : root.getChildren()) {
+            if (isTreeWalker(child)) {
+                for (Configuration nested : child.getChildren()) {
+                    if (!isFilter(nested)) {
+                        found.add(new CheckModule(baseKey(nested), nested, child));
+                    }
+                }
+            } else if (!isFilter(child)) {
+                found.add(new CheckModule(baseKey(child), child, null));
+            }
+        }
+
+        Map<String, Integer> occurrences = new HashMap<>();
+        found.forEach(module -> occurrences.merge(module.key(), 1, Integer::sum));
+
+        Map<String, Integer> seen = new HashMap<>();
+        return found.stream()
+                .map(module -> occurrences.get(module.key()) == 1 ? module : new CheckModule(
+                        module.key() + "#" + seen.merge(module.key(), 1, Integer::sum),
+                        module.configuration(), module.treeWalker()))
+                .toList();
+    }
+
+    private static String baseKey(Configuration module) throws CheckstyleException {
+        for (String name : module.getPropertyNames()) {
+            if ("id".equals(name)) {
+                return module.getProperty(name);
+            }
+        }
+        return module.getName();
+    }
+
+    /**
+     * Tells whether the configuration has a root-level check that compares files with each other in
+     * {@code finishProcessing}, so that its result depends on which files are audited together.
+     */
+    public static boolean hasCrossFileChecks(Configuration root) {
+        for (Configuration child : root.getChildren()) {
+            String name = child.getName();
+            String simpleName = name.substring(name.lastIndexOf('.') + 1).replaceFirst("Check$", "");
+            if (CROSS_FILE_CHECKS.contains(simpleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether the module is a filter rather than a check, based on the Checkstyle naming convention.
+     */
+    public static boolean isFilter(Configuration module) {
+        return module.getName().endsWith(FILTER_SUFFIX);
+    }
+
+    public static boolean isTreeWalker(Configuration module) {
+        return TREE_WALKER.equals(module.getName()) || TreeWalker.class.getName().equals(module.getName());
+    }
+
+    /**
+     * Copies the name, properties and custom messages of a module, without its children.
+     */
+    public static DefaultConfiguration copyWithoutChildren(Configuration source) throws CheckstyleException {
+        DefaultConfiguration copy = new DefaultConfiguration(source.getName());
+        for (String name : source.getPropertyNames()) {
+            copy.addProperty(name, source.getProperty(name));
+        }
+        source.getMessages().forEach(copy::addMessage);
+        return copy;
+    }
+
+    /**
+     * A single check of the configuration; {@code treeWalker} is {@code null} for file-set checks.
+     */
+    public record CheckModule(String key, Configuration configuration, Configuration treeWalker) {
+    }
+}
@@ -0,0 +1,75 @@
+package pl.wiktor.checkstyle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line client of {@link AuditDaemon}.
+ * <p>
+ * Usage: {@code DaemonClient --socket <file> <path>...} audits the given files and directories and prints the
+ * violations as they arrive; {@code DaemonClient --socket <file> --stop} stops the daemon. The exit codes are those
+ * of {@link AuditCommand}; a daemon that is not running is a failure.
+ */
+public final class DaemonClient {
+    private DaemonClient() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        Path socket = null;
+        boolean stop = false;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--socket" -> socket = i + 1 < args.length ? Path.of(args[++i]) : null;
+                case "--stop" -> stop = true;
+                default -> paths.add(Path.of(args[i]).toAbsolutePath().normalize().toString());
+            }
+        }
+        if (socket == null || stop == !paths.isEmpty()) {
+            System.out.println("Usage: DaemonClient --socket <file> (--stop | <path>...)");
+            return AuditCommand.EXIT_FAILURE;
+        }
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            out.write(stop ? AuditDaemon.STOP + "\n" : AuditDaemon.AUDIT + "\n" + String.join("\n", paths) + "\n\n");
+            out.flush();
+            return readResponse(new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            System.out.println("Cannot reach the Checkstyle daemon on " + socket + ": " + e.getMessage());
+            return AuditCommand.EXIT_FAILURE;
+        }
+    }
+
+    private static int readResponse(BufferedReader in) throws IOException {
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            if (line.startsWith(AuditDaemon.FAILED)) {
+                System.out.println("Audit failed: " + line.substring(AuditDaemon.FAILED.length()));
+                return AuditCommand.EXIT_FAILURE;
+            }
+            if (line.startsWith(AuditDaemon.OK)) {
+                String[] counts = line.substring(AuditDaemon.OK.length()).split(" ");
+                int errors = Integer.parseInt(counts[1]);
+                System.out.printf("Audited %s files, %d errors%n", counts[0], errors);
+                return errors == 0 ? AuditCommand.EXIT_OK : AuditCommand.EXIT_VIOLATIONS;
+            }
+            System.out.println(line);
+        }
+        System.out.println("The Checkstyle daemon closed the connection before finishing the audit");
+        return AuditCommand.EXIT_FAILURE;
+    }
+}
@@ -0,0 +1,91 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Audit listener that splits the events of a multi-file run per file.
+ * <p>
+ * Every audited file gets an entry, including files without violations. Files are ordered by path and events by
+ * {@link #EVENT_ORDER}, so the result does not depend on the order in which files were processed.
+ */
+public final class FileEventsListener implements AuditListener {
+    /**
+     * Scheduling independent event order: file, line, column, source and finally message.
+     */
+    public static final Comparator<AuditEvent> EVENT_ORDER = Comparator
+            .comparing(AuditEvent::getFileName)
+            .thenComparingInt(AuditEvent::getLine)
+            .thenComparingInt(AuditEvent::getColumn)
+            .thenComparing(AuditEvent::getSourceName)
+            .thenComparing(AuditEvent::getMessage);
+
+    private final Map<Path, List<AuditEvent>> eventsByFile = new LinkedHashMap<>();
+    private List<AuditEvent> current = new ArrayList<>();
+
+    @Override
+    public void auditStarted(AuditEvent e) {
+    }
+
+    @Override
+    public void auditFinished(AuditEvent e) {
+    }
+
+    @Override
+    public void fileStarted(AuditEvent e) {
+        current = new ArrayList<>();
+    }
+
+    @Override
+    public void fileFinished(AuditEvent e) {
+        eventsByFile.put(toPath(e.getFileName()), List.copyOf(current));
+        current = new ArrayList<>();
+    }
+
+    @Override
+    public void addError(AuditEvent e) {
+        current.add(e);
+    }
+
+    @Override
+    public void addException(AuditEvent e, Throwable t) {
+    }
+
+    /**
+     * Returns an immutable view of the collected events, keyed by the absolute, normalized file path.
+     */
+    public Map<Path, List<AuditEvent>> getEventsByFile() {
+        return merge(List.of(this));
+    }
+
+    /**
+     * Merges the events collected by several listeners, e.g. one per worker, into a single deterministic result.
+     */
+    public static Map<Path, List<AuditEvent>> merge(Collection<FileEventsListener> listeners) {
+        Map<Path, List<AuditEvent>> sorted = new TreeMap<>();
+        for (FileEventsListener listener : listeners) {
+            sorted.putAll(listener.eventsByFile);
+        }
+
+        Map<Path, List<AuditEvent>> result = new LinkedHashMap<>();
+        sorted.forEach((file, events) -> result.put(file, events.stream().sorted(EVENT_ORDER).toList()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Converts a file name reported by Checkstyle into the key used by {@link #getEventsByFile()}.
+     */
+    public static Path toPath(String fileName) {
+        return Path.of(fileName).toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,333 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.AbstractAutomaticBean;
+import com.puppycrawl.tools.checkstyle.XMLLogger;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import pl.wiktor.checkstyle.cache.ResultCache;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line audit of a whole multi-module Maven reactor in one JVM, used by the {@code checkstyle-aggregate} Maven
+ * profile instead of one {@code maven-checkstyle-plugin} execution per module.
+ * <p>
+ * Usage: {@code ReactorAudit --config <file> [--suppressions <file>] [--cache <file>] [--cache-size <bytes>]
+ * [--threads <n>] [--include-test-sources <true|false>] [--fail-on-violation <true|false>]
+ * [--violation-severity <error|warning|info>] [--max-allowed-violations <n>] [--combined-report <file>] <root>}.
+ * The modules are read from the {@code <modules>} of the {@code pom.xml} in the root directory and, recursively, of
+ * its modules; every module contributes its {@code sourceDirectory} and, with {@code --include-test-sources}, its
+ * {@code testSourceDirectory} when set without properties, and the Maven defaults otherwise. The {@code .java} files
+ * of all modules are audited in one parallel pass by one {@link CheckstyleRunner}, sharing the configuration, the
+ * checkers and the optional {@link ResultCache}.
+ * <p>
+ * Violations are printed in the plain format, and every module gets the plugin's XML report in
+ * {@code target/checkstyle-result.xml}; the combined report of all modules defaults to
+ * {@code target/checkstyle-aggregate-result.xml} of the root. Like the plugin's {@code check} goal, a module fails when
+ * it has more violations of at least the violation severity than allowed, and the command exits with 1 when a module
+ * fails and {@code --fail-on-violation} is on, 0 otherwise, and 2 when the audit could not run.
+ */
+public final class ReactorAudit {
+    static final int EXIT_OK = 0;
+    static final int EXIT_VIOLATIONS = 1;
+    static final int EXIT_FAILURE = 2;
+    private static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+    private static final String POM = "pom.xml";
+    private static final String MODULE_REPORT = "target/checkstyle-result.xml";
+    private static final String COMBINED_REPORT = "target/checkstyle-aggregate-result.xml";
+    private static final String DEFAULT_SOURCES = "src/main/java";
+    private static final String DEFAULT_TEST_SOURCES = "src/test/java";
+
+    private ReactorAudit() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: ReactorAudit --config <file> [--suppressions <file>] [--cache <file>] "
+                    + "[--cache-size <bytes>] [--threads <n>] [--include-test-sources <true|false>] "
+                    + "[--fail-on-violation <true|false>] [--violation-severity <error|warning|info>] "
+                    + "[--max-allowed-violations <n>] [--combined-report <file>] <root>");
+            return EXIT_FAILURE;
+        }
+
+        long start = System.nanoTime();
+        try (CheckstyleRunner runner = new CheckstyleRunner(options.config(), options.suppressions(),
+                options.threads())) {
+            List<Module> modules = modules(options.root(), options.includeTestSources());
+            Map<Path, Module> owners = new LinkedHashMap<>();
+            List<File> files = new ArrayList<>();
+            for (Module module : modules) {
+                List<Path> roots = module.sourceRoots().stream().filter(Files::isDirectory).toList();
+                for (File file : roots.isEmpty() ? List.<File>of() : AuditCommand.javaFiles(roots)) {
+                    if (owners.putIfAbsent(FileEventsListener.toPath(file.getPath()), module) == null) {
+                        files.add(file);
+                    }
+                }
+            }
+
+            ResultCache cache = options.cache() == null ? null : ResultCache.open(options.cache(), options.cacheSize());
+            runner.setResultCache(cache);
+            Map<Path, List<AuditEvent>> events = runner.auditFilesParallel(files, null, null);
+            if (cache != null) {
+                cache.save();
+            }
+
+            Map<Module, Map<Path, List<AuditEvent>>> byModule = new LinkedHashMap<>();
+            modules.forEach(module -> byModule.put(module, new LinkedHashMap<>()));
+            events.forEach((file, fileEvents) -> byModule.get(owners.get(file)).put(file, fileEvents));
+
+            boolean failed = false;
+            for (Map.Entry<Module, Map<Path, List<AuditEvent>>> entry : byModule.entrySet()) {
+                Module module = entry.getKey();
+                int violations = print(entry.getValue(), options.violationSeverity());
+                boolean moduleFailed = violations > options.maxAllowedViolations();
+                failed |= moduleFailed;
+                if (module.sourceRoots().stream().anyMatch(Files::isDirectory)) {
+                    writeReport(entry.getValue(), module.directory().resolve(MODULE_REPORT));
+                }
+                System.out.printf("%s: %d files, %d violations%s%n", module.name(), entry.getValue().size(),
+                        violations, moduleFailed ? " (more than " + options.maxAllowedViolations() + " allowed)" : "");
+            }
+            Path combined = options.combinedReport() == null ? options.root().resolve(COMBINED_REPORT)
+                    : options.combinedReport();
+            writeReport(events, combined);
+            System.out.printf("Audited %d modules, %d files (%d from cache) in %d ms%n", modules.size(),
+                    events.size(), cache == null ? 0 : cache.getHits(), (System.nanoTime() - start) / 1_000_000);
+            return failed && options.failOnViolation() ? EXIT_VIOLATIONS : EXIT_OK;
+        } catch (CheckstyleException e) {
+            System.out.println("Audit failed: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Returns the modules of the reactor in the given directory: the root first, then every module declared in
+     * {@code <modules>} depth first, each directory once.
+     */
+    static List<Module> modules(Path root, boolean includeTestSources) throws CheckstyleException {
+        List<Module> modules = new ArrayList<>();
+        collect(root.toAbsolutePath().normalize(), includeTestSources, new HashSet<>(), modules);
+        return modules;
+    }
+
+    private static void collect(Path directory, boolean includeTestSources, Set<Path> seen, List<Module> modules)
+            throws CheckstyleException {
+        if (!seen.add(directory)) {
+            return;
+        }
+        Path pom = directory.resolve(POM);
+        if (!Files.isRegularFile(pom)) {
+            throw new CheckstyleException("No " + POM + " in " + directory);
+        }
+        Element project = readPom(pom).getDocumentElement();
+        Element build = child(project, "build");
+        List<Path> sourceRoots = new ArrayList<>();
+        sourceRoots.add(directory.resolve(sourceDirectory(build, "sourceDirectory", DEFAULT_SOURCES)));
+        if (includeTestSources) {
+            sourceRoots.add(directory.resolve(sourceDirectory(build, "testSourceDirectory", DEFAULT_TEST_SOURCES)));
+        }
+        String artifactId = text(child(project, "artifactId"));
+        modules.add(new Module(artifactId == null ? directory.getFileName().toString() : artifactId, directory,
+                List.copyOf(sourceRoots)));
+
+        Element declared = child(project, "modules");
+        for (Node node = declared == null ? null : declared.getFirstChild(); node != null;
+                node = node.getNextSibling()) {
+            if (node instanceof Element module && "module".equals(module.getTagName())) {
+                Path moduleDirectory = directory.resolve(module.getTextContent().trim()).normalize();
+                collect(moduleDirectory.getFileName().toString().equals(POM) ? moduleDirectory.getParent()
+                        : moduleDirectory, includeTestSources, seen, modules);
+            }
+        }
+    }
+
+    /**
+     * Returns the configured source directory, or the default one when it is not set or uses properties, which are
+     * not interpolated here.
+     */
+    private static String sourceDirectory(Element build, String name, String defaultDirectory) {
+        String configured = text(build == null ? null : child(build, name));
+        return configured == null || configured.contains("${") ? defaultDirectory : configured;
+    }
+
+    private static Document readPom(Path pom) throws CheckstyleException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            builder.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
+            return builder.parse(pom.toFile());
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new CheckstyleException("Unable to read " + pom + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Element child(Element parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && name.equals(element.getTagName())) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static String text(Element element) {
+        return element == null || element.getTextContent().isBlank() ? null : element.getTextContent().trim();
+    }
+
+    /**
+     * Prints the events like {@link AuditCommand} and returns the number of violations of at least the given severity.
+     */
+    private static int print(Map<Path, List<AuditEvent>> events, SeverityLevel violationSeverity) {
+        int violations = 0;
+        for (List<AuditEvent> fileEvents : events.values()) {
+            for (AuditEvent event : fileEvents) {
+                SeverityLevel severity = event.getSeverityLevel();
+                if (severity == SeverityLevel.IGNORE) {
+                    continue;
+                }
+                if (severity.compareTo(violationSeverity) >= 0) {
+                    violations++;
+                }
+                System.out.println(AuditCommand.format(event));
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Writes the events in Checkstyle's XML format, the format of the plugin's {@code checkstyle-result.xml}.
+     */
+    private static void writeReport(Map<Path, List<AuditEvent>> events, Path report) throws CheckstyleException {
+        try {
+            Path parent = report.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            OutputStream out = Files.newOutputStream(report);
+            XMLLogger logger = new XMLLogger(out, AbstractAutomaticBean.OutputStreamOptions.CLOSE);
+            logger.auditStarted(new AuditEvent(ReactorAudit.class));
+            for (Map.Entry<Path, List<AuditEvent>> entry : events.entrySet()) {
+                AuditEvent file = new AuditEvent(ReactorAudit.class, entry.getKey().toString());
+                logger.fileStarted(file);
+                entry.getValue().forEach(logger::addError);
+                logger.fileFinished(file);
+            }
+            logger.auditFinished(new AuditEvent(ReactorAudit.class));
+        } catch (IOException e) {
+            throw new CheckstyleException("Unable to write the report " + report, e);
+        }
+    }
+
+    /**
+     * A module of the reactor with the source roots to audit, which need not exist.
+     */
+    record Module(String name, Path directory, List<Path> sourceRoots) {
+    }
+
+    private record Options(Path config, Path suppressions, Path cache, long cacheSize, int threads,
+                           boolean includeTestSources, boolean failOnViolation, SeverityLevel violationSeverity,
+                           int maxAllowedViolations, Path combinedReport, Path root) {
+        private static Options parse(String[] args) {
+            Path config = null;
+            Path suppressions = null;
+            Path cache = null;
+            Path combinedReport = null;
+            Path root = null;
+            long cacheSize = DEFAULT_CACHE_SIZE;
+            int threads = Runtime.getRuntime().availableProcessors();
+            boolean includeTestSources = false;
+            boolean failOnViolation = true;
+            SeverityLevel violationSeverity = SeverityLevel.ERROR;
+            int maxAllowedViolations = 0;
+
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--config" -> config = Path.of(value(args, ++i));
+                    case "--suppressions" -> suppressions = Path.of(value(args, ++i));
+                    case "--cache" -> cache = Path.of(value(args, ++i));
+                    case "--cache-size" -> cacheSize = Long.parseLong(value(args, ++i));
+                    case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+                    case "--include-test-sources" -> includeTestSources = bool(args, ++i);
+                    case "--fail-on-violation" -> failOnViolation = bool(args, ++i);
+                    case "--violation-severity" -> violationSeverity = SeverityLevel.getInstance(value(args, ++i));
+                    case "--max-allowed-violations" -> maxAllowedViolations = Integer.parseInt(value(args, ++i));
+                    case "--combined-report" -> combinedReport = Path.of(value(args, ++i));
+                    default -> {
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        }
+                        if (root != null) {
+                            throw new IllegalArgumentException("Only one reactor root is audited, got " + root
+                                    + " and " + args[i]);
+                        }
+                        root = Path.of(args[i]);
+                    }
+                }
+            }
+            if (config == null || root == null) {
+                throw new IllegalArgumentException("A configuration and the reactor root are required");
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("--threads must be positive, got " + threads);
+            }
+            if (cacheSize < 1) {
+                throw new IllegalArgumentException("--cache-size must be positive, got " + cacheSize);
+            }
+            if (maxAllowedViolations < 0) {
+                throw new IllegalArgumentException("--max-allowed-violations must not be negative, got "
+                        + maxAllowedViolations);
+            }
+            if (violationSeverity == SeverityLevel.IGNORE) {
+                throw new IllegalArgumentException("--violation-severity must be error, warning or info");
+            }
+            return new Options(config, suppressions, cache, cacheSize, threads, includeTestSources, failOnViolation,
+                    violationSeverity, maxAllowedViolations, combinedReport, root);
+        }
+
+        private static boolean bool(String[] args, int index) {
+            String value = value(args, index);
+            if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+                throw new IllegalArgumentException("Expected true or false for " + args[index - 1] + ", got " + value);
+            }
+            return Boolean.parseBoolean(value);
+        }
+
+        private static String value(String[] args, int index) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+            }
+            return args[index];
+        }
+    }
+}
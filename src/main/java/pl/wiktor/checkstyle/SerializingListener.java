@@ -0,0 +1,120 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Passes the events of files audited concurrently by several checkers to listeners that expect their callbacks from
+ * one thread at a time, one whole file at a time.
+ * <p>
+ * Every checker reports to its own {@link #forChecker()} listener, which keeps the events of the file it is auditing
+ * and forwards them once the file is finished, so memory use depends on the violations of the files being audited,
+ * not on those of the whole audit. The files reach the listeners in the order they are finished, each as
+ * {@code fileStarted}, its violations and exceptions in the order they were reported and {@code fileFinished}. The
+ * audit is started and finished once, by {@link #auditStarted(Object)} and {@link #auditFinished(Object)}; those
+ * callbacks of the checkers are not forwarded.
+ */
+final class SerializingListener {
+    private final List<AuditListener> listeners;
+    private int files;
+
+    /**
+     * @param listeners the listeners to forward to; {@code null} ones are skipped
+     */
+    SerializingListener(AuditListener... listeners) {
+        this.listeners = Arrays.stream(listeners).filter(Objects::nonNull).toList();
+    }
+
+    synchronized void auditStarted(Object source) {
+        AuditEvent event = new AuditEvent(source);
+        listeners.forEach(listener -> listener.auditStarted(event));
+    }
+
+    synchronized void auditFinished(Object source) {
+        AuditEvent event = new AuditEvent(source);
+        listeners.forEach(listener -> listener.auditFinished(event));
+    }
+
+    /**
+     * Returns a new listener for one checker, which is used by one thread at a time.
+     */
+    AuditListener forChecker() {
+        return new CheckerListener();
+    }
+
+    /**
+     * Returns the number of files forwarded so far.
+     */
+    synchronized int getFiles() {
+        return files;
+    }
+
+    private synchronized void forward(AuditEvent started, List<Reported> reported, AuditEvent finished) {
+        files++;
+        for (AuditListener listener : listeners) {
+            listener.fileStarted(started);
+        }
+        for (Reported event : reported) {
+            for (AuditListener listener : listeners) {
+                if (event.throwable() == null) {
+                    listener.addError(event.event());
+                } else {
+                    listener.addException(event.event(), event.throwable());
+                }
+            }
+        }
+        for (AuditListener listener : listeners) {
+            listener.fileFinished(finished);
+        }
+    }
+
+    /**
+     * A violation, or an exception when the throwable is not {@code null}.
+     */
+    private record Reported(AuditEvent event, Throwable throwable) {
+    }
+
+    /**
+     * Keeps the events of the file its checker is auditing.
+     */
+    private final class CheckerListener implements AuditListener {
+        private AuditEvent started;
+        private List<Reported> reported = new ArrayList<>();
+
+        @Override
+        public void auditStarted(AuditEvent e) {
+        }
+
+        @Override
+        public void auditFinished(AuditEvent e) {
+        }
+
+        @Override
+        public void fileStarted(AuditEvent e) {
+            started = e;
+            reported = new ArrayList<>();
+        }
+
+        @Override
+        public void fileFinished(AuditEvent e) {
+            forward(started == null ? e : started, reported, e);
+            started = null;
+            reported = new ArrayList<>();
+        }
+
+        @Override
+        public void addError(AuditEvent e) {
+            reported.add(new Reported(e, null));
+        }
+
+        @Override
+        public void addException(AuditEvent e, Throwable t) {
+            reported.add(new Reported(e, t));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limit on the violations of one audit, after which no further files are audited, for quicker feedback from builds
+ * that fail anyway.
+ * <p>
+ * A budget is spent by the events passed through its {@link #limit(AuditListener)} listeners, which may be used by
+ * several threads of the same audit. Once it is exhausted, {@link #admit(File)} refuses every file not started yet;
+ * files already being audited are finished, but their events beyond the budget are not reported. Violations with
+ * severity {@code ignore} never count. A budget is used for one audit only.
+ */
+public final class ViolationBudget {
+    private final String description;
+    private final int maxViolations;
+    private final int maxViolationsPerCheck;
+    private final boolean errorsOnly;
+    private final boolean wholeFile;
+    private final AtomicInteger violations = new AtomicInteger();
+    private final Map<String, AtomicInteger> violationsPerCheck = new ConcurrentHashMap<>();
+    private final LongAdder skippedFiles = new LongAdder();
+    private final LongAdder droppedViolations = new LongAdder();
+    private volatile boolean exhausted;
+
+    private ViolationBudget(String description, int maxViolations, int maxViolationsPerCheck, boolean errorsOnly,
+                            boolean wholeFile) {
+        this.description = description;
+        this.maxViolations = maxViolations;
+        this.maxViolationsPerCheck = maxViolationsPerCheck;
+        this.errorsOnly = errorsOnly;
+        this.wholeFile = wholeFile;
+    }
+
+    /**
+     * Stops at the first violation with severity {@code error}.
+     */
+    public static ViolationBudget firstError() {
+        return new ViolationBudget("first error", 1, 0, true, false);
+    }
+
+    /**
+     * Stops once the first file with a violation of severity {@code error} is finished, reporting all its violations.
+     */
+    public static ViolationBudget firstFileWithError() {
+        return new ViolationBudget("first file with an error", 1, 0, true, true);
+    }
+
+    /**
+     * Stops at the given number of violations.
+     */
+    public static ViolationBudget maxViolations(int max) {
+        requirePositive(max);
+        return new ViolationBudget(max + " violations", max, 0, false, false);
+    }
+
+    /**
+     * Stops once any check reported the given number of violations.
+     */
+    public static ViolationBudget maxViolationsPerCheck(int max) {
+        requirePositive(max);
+        return new ViolationBudget(max + " violations of one check", 0, max, false, false);
+    }
+
+    /**
+     * Parses {@code first-error}, {@code first-file}, {@code <n>} or {@code <n>-per-check}.
+     */
+    public static ViolationBudget parse(String value) {
+        try {
+            return switch (value) {
+                case "first-error" -> firstError();
+                case "first-file" -> firstFileWithError();
+                default -> value.endsWith("-per-check")
+                        ? maxViolationsPerCheck(Integer.parseInt(value.substring(0, value.length() - 10)))
+                        : maxViolations(Integer.parseInt(value));
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown violation budget '" + value + "', expected first-error, "
+                    + "first-file, <n> or <n>-per-check", e);
+        }
+    }
+
+    /**
+     * Returns a listener forwarding the callbacks to the given one while spending this budget, and dropping the
+     * violations beyond it. Every thread of the audit needs its own listener.
+     */
+    public AuditListener limit(AuditListener delegate) {
+        return new LimitingListener(delegate);
+    }
+
+    /**
+     * Returns whether the file may still be audited, counting it as skipped otherwise.
+     */
+    public boolean admit(File file) {
+        if (exhausted) {
+            skippedFiles.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Returns whether the audit left out files or violations because the budget was exhausted.
+     */
+    public boolean isCutShort() {
+        return skippedFiles.sum() > 0 || droppedViolations.sum() > 0;
+    }
+
+    /**
+     * Describes how the audit was cut short, e.g. for the summary of a command line audit.
+     */
+    public String toSummary() {
+        return String.format(Locale.ROOT, "Audit cut short by its budget (%s): %d files not audited, %d violations "
+                + "not reported", description, skippedFiles.sum(), droppedViolations.sum());
+    }
+
+    private boolean counts(AuditEvent event) {
+        SeverityLevel severity = event.getSeverityLevel();
+        return severity != SeverityLevel.IGNORE && (!errorsOnly || severity == SeverityLevel.ERROR);
+    }
+
+    /**
+     * Spends the budget on a counted violation and returns whether it is still to be reported.
+     */
+    private boolean spend(AuditEvent event) {
+        if (wholeFile) {
+            return true;
+        }
+        int max = maxViolations > 0 ? maxViolations : maxViolationsPerCheck;
+        AtomicInteger counter = maxViolations > 0 ? violations : violationsPerCheck.computeIfAbsent(
+                AuditMetrics.moduleKey(event.getModuleId(), event.getSourceName()), key -> new AtomicInteger());
+        int spent = counter.incrementAndGet();
+        if (spent >= max) {
+            exhausted = true;
+        }
+        return spent <= max;
+    }
+
+    private static void requirePositive(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Violation budget must be positive, got " + max);
+        }
+    }
+
+    /**
+     * Forwards the callbacks of one thread, spending the budget.
+     */
+    private final class LimitingListener implements AuditListener {
+        private final AuditListener delegate;
+        private boolean counted;
+
+        private LimitingListener(AuditListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void auditStarted(AuditEvent e) {
+            delegate.auditStarted(e);
+        }
+
+        @Override
+        public void auditFinished(AuditEvent e) {
+            delegate.auditFinished(e);
+        }
+
+        @Override
+        public void fileStarted(AuditEvent e) {
+            counted = false;
+            delegate.fileStarted(e);
+        }
+
+        @Override
+        public void fileFinished(AuditEvent e) {
+            delegate.fileFinished(e);
+            if (wholeFile && counted) {
+                exhausted = true;
+            }
+        }
+
+        @Override
+        public void addError(AuditEvent e) {
+            if (!counts(e)) {
+                delegate.addError(e);
+            } else if (spend(e)) {
+                counted = true;
+                delegate.addError(e);
+            } else {
+                droppedViolations.increment();
+            }
+        }
+
+        @Override
+        public void addException(AuditEvent e, Throwable t) {
+            delegate.addException(e, t);
+        }
+    }
+}
@@ -0,0 +1,598 @@
+package pl.wiktor.checkstyle.baseline;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import pl.wiktor.checkstyle.checks.LineIndex;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Violations accepted as they are, so that a configuration can fail the build on new violations only.
+ * <p>
+ * A violation is recorded as a 64-bit fingerprint of its module key, the file path relative to the base directory,
+ * its message key and the content of its line, trimmed and with every run of whitespace collapsed to one space.
+ * The line number is left out, so a violation survives lines inserted or removed above it, while editing the line
+ * itself makes it new. The same violation reported twice is recorded twice and accepted twice.
+ * <p>
+ * The file format is a header ({@code CSBL}, format version, entry count, bucket bits), a directory of
+ * {@code 2^bits + 1} offsets into the fingerprints, the fingerprints sorted as unsigned numbers, and for tooling a
+ * table of interned strings followed by the file, module and message key of every entry as varint indices. A bucket
+ * holds the fingerprints sharing their top bits and there are two to four fingerprints per bucket on average, so a
+ * lookup is one directory read and a scan of a few adjacent longs. The file is memory-mapped and only the part a
+ * lookup touches is paged in; neither the fingerprints nor the strings are copied to the heap, where a filter only
+ * keeps one bit per entry to consume duplicates.
+ * <p>
+ * Lines are read as UTF-8, which decodes the ASCII and UTF-8 sources this project audits.
+ */
+public final class ViolationBaseline {
+    private static final int MAGIC = 0x4353424C;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private static final int MAX_BUCKET_BITS = 24;
+    private static final String CHARSET = "UTF-8";
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ByteBuffer buffer;
+    private final Path baseDirectory;
+    private final int count;
+    private final int bits;
+    private final int fingerprintsOffset;
+
+    private ViolationBaseline(ByteBuffer buffer, Path baseDirectory, int count, int bits) {
+        this.buffer = buffer;
+        this.baseDirectory = baseDirectory.toAbsolutePath().normalize();
+        this.count = count;
+        this.bits = bits;
+        this.fingerprintsOffset = HEADER_BYTES + ((1 << bits) + 1) * Integer.BYTES;
+    }
+
+    /**
+     * Loads the baseline stored in the given file, matching files by their path relative to the given base
+     * directory, normally the project directory.
+     */
+    public static ViolationBaseline load(Path file, Path baseDirectory) throws CheckstyleException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new CheckstyleException("Baseline is too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new CheckstyleException("Unable to read baseline " + file, e);
+        }
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new CheckstyleException("Not a baseline file: " + file);
+        }
+        int count = buffer.getInt(8);
+        int bits = buffer.getInt(12);
+        if (count < 0 || bits < 0 || bits > MAX_BUCKET_BITS
+                || buffer.limit() < HEADER_BYTES + ((1L << bits) + 1) * Integer.BYTES + (long) count * Long.BYTES) {
+            throw new CheckstyleException("Truncated baseline file: " + file);
+        }
+        return new ViolationBaseline(buffer, baseDirectory, count, bits);
+    }
+
+    /**
+     * Records every violation of the given audit result, skipping ignored ones, in the given file.
+     */
+    public static void write(Path file, Path baseDirectory, Map<Path, List<AuditEvent>> events)
+            throws CheckstyleException {
+        Recorder recorder = new Recorder(baseDirectory);
+        for (Map.Entry<Path, List<AuditEvent>> entry : events.entrySet()) {
+            recorder.start(entry.getKey());
+            for (AuditEvent event : entry.getValue()) {
+                try {
+                    recorder.add(event);
+                } catch (IOException e) {
+                    throw new CheckstyleException("Unable to read " + entry.getKey(), e);
+                }
+            }
+        }
+        recorder.write(file);
+    }
+
+    /**
+     * Returns a listener that records every violation reported to it, skipping ignored ones, for
+     * {@link Recorder#write(Path)}. Only the fingerprints and origins are kept, not the events.
+     */
+    public static Recorder recorder(Path baseDirectory) {
+        return new Recorder(baseDirectory);
+    }
+
+    /**
+     * Returns the number of recorded violations.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Removes the violations recorded in the baseline from an audit result, keeping every file and the order of
+     * the remaining events. Each entry accepts one violation, so a violation that is now reported more often than
+     * it was recorded is kept as often as it is new.
+     */
+    public Filtered filter(Map<Path, List<AuditEvent>> events) throws CheckstyleException {
+        Filter filter = new Filter(null);
+        Map<Path, List<AuditEvent>> kept = new LinkedHashMap<>();
+        for (Map.Entry<Path, List<AuditEvent>> entry : events.entrySet()) {
+            filter.start(entry.getKey());
+            List<AuditEvent> remaining = new ArrayList<>(entry.getValue().size());
+            for (AuditEvent event : entry.getValue()) {
+                try {
+                    if (!filter.accepts(event)) {
+                        remaining.add(event);
+                    }
+                } catch (IOException e) {
+                    throw new CheckstyleException("Unable to read " + entry.getKey(), e);
+                }
+            }
+            kept.put(entry.getKey(), remaining);
+        }
+        return new Filtered(kept, filter.accepted());
+    }
+
+    /**
+     * Returns a listener that removes the violations recorded in the baseline like {@link #filter(Map)} does while
+     * the audit runs, passing every other callback on to the given listener. The listener expects its callbacks from
+     * one thread at a time and keeps one bit per entry, whatever the number of violations.
+     */
+    public Filter filter(AuditListener listener) {
+        return new Filter(listener);
+    }
+
+    /**
+     * Tells whether a violation with the given fingerprint is recorded.
+     */
+    boolean contains(long fingerprint) {
+        return find(fingerprint, null) >= 0;
+    }
+
+    /**
+     * Lists the file, module key and message key of every recorded violation in the order they were recorded,
+     * decoding the string table on every call.
+     */
+    public List<Entry> entries() {
+        DataInput in = new DataInputStream(new ByteBufferInput(buffer.duplicate()
+                .position(fingerprintsOffset + count * Long.BYTES)));
+        try {
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readVarint(in)];
+                in.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(new Entry(strings[readVarint(in)], strings[readVarint(in)], strings[readVarint(in)]));
+            }
+            return entries;
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt baseline string table", e);
+        }
+    }
+
+    /**
+     * Marks the first unused entry with the given fingerprint as used and tells whether there was one.
+     */
+    private boolean consume(BitSet used, long fingerprint) {
+        int index = find(fingerprint, used);
+        if (index < 0) {
+            return false;
+        }
+        used.set(index);
+        return true;
+    }
+
+    /**
+     * Returns the position of the first entry with the given fingerprint that is not in {@code used}, or -1.
+     */
+    private int find(long fingerprint, BitSet used) {
+        int bucket = bits == 0 ? 0 : (int) (fingerprint >>> (Long.SIZE - bits));
+        int end = buffer.getInt(HEADER_BYTES + (bucket + 1) * Integer.BYTES);
+        for (int i = buffer.getInt(HEADER_BYTES + bucket * Integer.BYTES); i < end; i++) {
+            int order = Long.compareUnsigned(buffer.getLong(fingerprintsOffset + i * Long.BYTES), fingerprint);
+            if (order > 0) {
+                return -1;
+            }
+            if (order == 0 && (used == null || !used.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hashes the parts of a violation with 64-bit FNV-1a over their characters, separated by a zero character, the
+     * line being normalized on the fly, and mixes the result with the MurmurHash3 finalizer so that the top bits
+     * used for buckets are uniform.
+     */
+    static long fingerprint(String file, String check, String key, CharSequence line) {
+        long hash = FNV_OFFSET;
+        hash = hash(hash(hash(hash, check), file), key);
+        boolean space = false;
+        boolean started = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = started;
+            } else {
+                if (space) {
+                    hash = (hash ^ ' ') * FNV_PRIME;
+                    space = false;
+                }
+                hash = (hash ^ c) * FNV_PRIME;
+                started = true;
+            }
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+
+    private static long hash(long seed, String value) {
+        long hash = seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash * FNV_PRIME;
+    }
+
+    private static String check(AuditEvent event) {
+        return AuditMetrics.moduleKey(event.getModuleId(), event.getSourceName());
+    }
+
+    private static String relativeName(Path baseDirectory, Path file) {
+        Path path = file.toAbsolutePath().normalize();
+        if (!path.startsWith(baseDirectory)) {
+            return path.toString();
+        }
+        return baseDirectory.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static void writeVarint(DataOutput out, int value) throws IOException {
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            out.write((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        out.write(rest);
+    }
+
+    private static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * An audit result without the violations the baseline accepted.
+     *
+     * @param events   the remaining events of every audited file
+     * @param accepted the number of violations the baseline accepted
+     */
+    public record Filtered(Map<Path, List<AuditEvent>> events, int accepted) {
+    }
+
+    /**
+     * Where a recorded violation came from.
+     *
+     * @param file  the file path relative to the base directory
+     * @param check the module key, see {@link AuditMetrics#moduleKey(String, String)}
+     * @param key   the message key
+     */
+    public record Entry(String file, String check, String key) {
+    }
+
+    /**
+     * Listener removing the violations a baseline accepts, see {@link #filter(AuditListener)}. Reading a line of a
+     * file with a violation fails with an {@link UncheckedIOException}.
+     */
+    public final class Filter implements AuditListener {
+        private final AuditListener delegate;
+        private final BitSet used = new BitSet(count);
+        private Lines lines;
+        private String name;
+        private int accepted;
+
+        private Filter(AuditListener delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Returns the number of violations the baseline accepted so far.
+         */
+        public int accepted() {
+            return accepted;
+        }
+
+        @Override
+        public void auditStarted(AuditEvent e) {
+            delegate.auditStarted(e);
+        }
+
+        @Override
+        public void auditFinished(AuditEvent e) {
+            delegate.auditFinished(e);
+        }
+
+        @Override
+        public void fileStarted(AuditEvent e) {
+            start(Path.of(e.getFileName()));
+            delegate.fileStarted(e);
+        }
+
+        @Override
+        public void fileFinished(AuditEvent e) {
+            delegate.fileFinished(e);
+            lines = null;
+        }
+
+        @Override
+        public void addError(AuditEvent e) {
+            try {
+                if (!accepts(e)) {
+                    delegate.addError(e);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void addException(AuditEvent e, Throwable t) {
+            delegate.addException(e, t);
+        }
+
+        private void start(Path file) {
+            lines = new Lines(file);
+            name = relativeName(baseDirectory, file);
+        }
+
+        /**
+         * Tells whether the baseline accepts the violation of the current file, consuming its entry.
+         */
+        private boolean accepts(AuditEvent event) throws IOException {
+            if (event.getSeverityLevel() == SeverityLevel.IGNORE || !consume(used, fingerprint(name, check(event),
+                    event.getViolation().getKey(), lines.line(event.getLine())))) {
+                return false;
+            }
+            accepted++;
+            return true;
+        }
+    }
+
+    /**
+     * Listener recording violations for a new baseline, see {@link #recorder(Path)}. Reading a line of a file with
+     * a violation fails with an {@link UncheckedIOException}.
+     */
+    public static final class Recorder implements AuditListener {
+        private final Builder builder = new Builder();
+        private final Path baseDirectory;
+        private Lines lines;
+        private String name;
+        private int files;
+
+        private Recorder(Path baseDirectory) {
+            this.baseDirectory = baseDirectory.toAbsolutePath().normalize();
+        }
+
+        /**
+         * Returns the number of violations recorded so far.
+         */
+        public int size() {
+            return builder.count;
+        }
+
+        /**
+         * Returns the number of files finished so far.
+         */
+        public int files() {
+            return files;
+        }
+
+        /**
+         * Writes the recorded violations to the given file, replacing it.
+         */
+        public void write(Path file) throws CheckstyleException {
+            builder.write(file);
+        }
+
+        @Override
+        public void auditStarted(AuditEvent e) {
+        }
+
+        @Override
+        public void auditFinished(AuditEvent e) {
+        }
+
+        @Override
+        public void fileStarted(AuditEvent e) {
+            start(Path.of(e.getFileName()));
+        }
+
+        @Override
+        public void fileFinished(AuditEvent e) {
+            files++;
+            lines = null;
+        }
+
+        @Override
+        public void addError(AuditEvent e) {
+            try {
+                add(e);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void addException(AuditEvent e, Throwable t) {
+        }
+
+        private void start(Path file) {
+            lines = new Lines(file);
+            name = relativeName(baseDirectory, file);
+        }
+
+        private void add(AuditEvent event) throws IOException {
+            if (event.getSeverityLevel() != SeverityLevel.IGNORE) {
+                builder.add(name, check(event), event.getViolation().getKey(), lines.line(event.getLine()));
+            }
+        }
+    }
+
+    /**
+     * Collects violations and writes them sorted by fingerprint, keeping everything in primitive arrays so that a
+     * baseline of a large code base is built without an object per violation.
+     */
+    static final class Builder {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private long[] fingerprints = new long[64];
+        private int[] origins = new int[3 * 64];
+        private int count;
+
+        void add(String file, String check, String key, CharSequence line) {
+            if (count == fingerprints.length) {
+                fingerprints = Arrays.copyOf(fingerprints, 2 * count);
+                origins = Arrays.copyOf(origins, 6 * count);
+            }
+            fingerprints[count] = fingerprint(file, check, key, line);
+            origins[3 * count] = intern(file);
+            origins[3 * count + 1] = intern(check);
+            origins[3 * count + 2] = intern(key);
+            count++;
+        }
+
+        void write(Path file) throws CheckstyleException {
+            long[] sorted = Arrays.copyOf(fingerprints, count);
+            // Flipping the sign bit makes the signed sort order the unsigned one.
+            for (int i = 0; i < count; i++) {
+                sorted[i] ^= Long.MIN_VALUE;
+            }
+            Arrays.sort(sorted);
+            for (int i = 0; i < count; i++) {
+                sorted[i] ^= Long.MIN_VALUE;
+            }
+            int bits = Math.min(MAX_BUCKET_BITS, Math.max(0, Integer.SIZE - Integer.numberOfLeadingZeros(count) - 2));
+            try {
+                Path parent = file.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeInt(count);
+                    out.writeInt(bits);
+                    int index = 0;
+                    for (long bucket = 0; bucket <= 1L << bits; bucket++) {
+                        while (index < count && bits > 0 && sorted[index] >>> (Long.SIZE - bits) < bucket) {
+                            index++;
+                        }
+                        out.writeInt(bits == 0 && bucket > 0 ? count : index);
+                    }
+                    for (long fingerprint : sorted) {
+                        out.writeLong(fingerprint);
+                    }
+                    out.writeInt(strings.size());
+                    for (String value : strings.keySet()) {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        writeVarint(out, bytes.length);
+                        out.write(bytes);
+                    }
+                    for (int i = 0; i < 3 * count; i++) {
+                        writeVarint(out, origins[i]);
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new CheckstyleException("Unable to write baseline " + file, e);
+            }
+        }
+
+        private int intern(String value) {
+            return strings.computeIfAbsent(value, v -> strings.size());
+        }
+    }
+
+    /**
+     * The lines of one file, read on the first violation that needs one.
+     */
+    private static final class Lines {
+        private final Path file;
+        private LineIndex index;
+
+        private Lines(Path file) {
+            this.file = file;
+        }
+
+        private CharSequence line(int line) throws IOException {
+            if (line < 1) {
+                return "";
+            }
+            if (index == null) {
+                index = LineIndex.read(file.toFile(), CHARSET);
+            }
+            return line <= index.size() ? index.line(line - 1) : "";
+        }
+    }
+
+    /**
+     * Reads a buffer as a stream, for decoding the string table with {@link DataInputStream}.
+     */
+    private static final class ByteBufferInput extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package pl.wiktor.checkstyle.cache;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forwards all audit callbacks to a delegate, stores the results of the audited files in a {@link ResultCache} and
+ * replays the cached results when the audit starts.
+ * <p>
+ * Files that reported an exception are not stored, so they are audited again on the next run.
+ */
+public final class CachingAuditListener implements AuditListener {
+    private final AuditListener delegate;
+    private final ResultCache cache;
+    private final ResultCache.Lookup lookup;
+    private ResultCache.Key currentKey;
+    private List<AuditEvent> current = new ArrayList<>();
+    private boolean failed;
+
+    public CachingAuditListener(AuditListener delegate, ResultCache cache, ResultCache.Lookup lookup) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.lookup = lookup;
+    }
+
+    @Override
+    public void auditStarted(AuditEvent e) {
+        delegate.auditStarted(e);
+        replay(lookup.cached(), delegate, e.getSource());
+    }
+
+    @Override
+    public void auditFinished(AuditEvent e) {
+        delegate.auditFinished(e);
+    }
+
+    @Override
+    public void fileStarted(AuditEvent e) {
+        delegate.fileStarted(e);
+        currentKey = lookup.missing().get(e.getFileName());
+        current = new ArrayList<>();
+        failed = false;
+    }
+
+    @Override
+    public void fileFinished(AuditEvent e) {
+        delegate.fileFinished(e);
+        if (currentKey != null && !failed) {
+            cache.store(currentKey, current);
+        }
+        currentKey = null;
+    }
+
+    @Override
+    public void addError(AuditEvent e) {
+        delegate.addError(e);
+        current.add(e);
+    }
+
+    @Override
+    public void addException(AuditEvent e, Throwable t) {
+        delegate.addException(e, t);
+        failed = true;
+    }
+
+    /**
+     * Reports cached results to the listener as if the files had just been audited.
+     */
+    public static void replay(Map<String, List<Violation>> cached, AuditListener listener, Object source) {
+        cached.forEach((fileName, violations) -> {
+            listener.fileStarted(new AuditEvent(source, fileName));
+            violations.forEach(violation -> listener.addError(new AuditEvent(source, fileName, violation)));
+            listener.fileFinished(new AuditEvent(source, fileName));
+        });
+    }
+}
@@ -0,0 +1,463 @@
+package pl.wiktor.checkstyle.cache;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import pl.wiktor.checkstyle.ConfigurationCache;
+import pl.wiktor.checkstyle.metrics.FlightRecorderEvents;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, size-bounded cache of audit results keyed by file content.
+ * <p>
+ * An entry key is the first 128 bits of the SHA-256 of the configuration {@link #fingerprint(Path, Path)}, the
+ * file path relative to the base directory and the file content, so any change to the file, the configuration, the
+ * suppressions, the Checkstyle version or the classes of this project is a miss, while a cache restored into another
+ * checkout of the project still hits. An entry holds the violations reported for the file after filtering; a hit
+ * replays them without reading the file through Checkstyle.
+ * <p>
+ * The file format is a header ({@code CSRC}, format version), a table of interned strings and the entries in least
+ * recently used order, with all numbers written as unsigned varints. When the encoded size exceeds the bound, the
+ * least recently used entries are dropped on {@link #save()}.
+ */
+public final class ResultCache {
+    private static final int MAGIC = 0x43535243;
+    private static final int FORMAT_VERSION = 2;
+    private static final String PROJECT_PACKAGE = "pl/wiktor/checkstyle";
+    private static final int KEY_BYTES = 16;
+    private static final String REPLAY_BUNDLE = "com.puppycrawl.tools.checkstyle.messages";
+    private static final String REPLAY_MESSAGE = "{0}";
+    private static final SeverityLevel[] SEVERITIES = SeverityLevel.values();
+
+    private final Path file;
+    private final long maxBytes;
+    private final Path baseDirectory;
+    private final LinkedHashMap<Key, List<CachedViolation>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Class<?>> sourceClasses = new HashMap<>();
+    private int hits;
+    private int misses;
+
+    private ResultCache(Path file, long maxBytes, Path baseDirectory) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.baseDirectory = baseDirectory.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Opens the cache stored in the given file, keying files by their path relative to the working directory.
+     */
+    public static ResultCache open(Path file, long maxBytes) {
+        return open(file, maxBytes, Path.of(""));
+    }
+
+    /**
+     * Opens the cache stored in the given file, keying files by their path relative to the given base directory,
+     * normally the project directory. A missing, unreadable or outdated file yields an empty cache.
+     */
+    public static ResultCache open(Path file, long maxBytes, Path baseDirectory) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Cache size must be positive, got " + maxBytes);
+        }
+        ResultCache cache = new ResultCache(file, maxBytes, baseDirectory);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            cache.read(in);
+        } catch (NoSuchFileException e) {
+            return cache;
+        } catch (IOException | RuntimeException e) {
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Hashes everything besides the file itself that the audit result depends on: the configuration file, the
+     * suppressions file (may be {@code null}), the Checkstyle version, the classes of this project and the cache
+     * format.
+     */
+    public static String fingerprint(Path configFile, Path suppressionsFile) throws CheckstyleException {
+        return fingerprint(ConfigurationCache.sha256(configFile),
+                suppressionsFile == null ? null : ConfigurationCache.sha256(suppressionsFile));
+    }
+
+    /**
+     * Same as {@link #fingerprint(Path, Path)} for already computed content hashes of the configuration and
+     * suppressions files.
+     */
+    public static String fingerprint(String configHash, String suppressionsHash) {
+        MessageDigest digest = sha256();
+        digest.update(configHash.getBytes(StandardCharsets.UTF_8));
+        if (suppressionsHash != null) {
+            digest.update(suppressionsHash.getBytes(StandardCharsets.UTF_8));
+        }
+        String version = Checker.class.getPackage().getImplementationVersion();
+        digest.update(("checkstyle:" + version + ";engine:" + EngineHash.VALUE + ";format:" + FORMAT_VERSION)
+                .getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up every file and splits them into cached results and files that still have to be audited, recording
+     * every lookup as a {@link FlightRecorderEvents.CacheLookup}.
+     */
+    public synchronized Lookup lookup(List<File> files, String fingerprint) throws CheckstyleException {
+        Map<String, Key> missing = new LinkedHashMap<>();
+        Map<String, List<Violation>> cached = new LinkedHashMap<>();
+        List<File> toAudit = new ArrayList<>();
+
+        for (File source : files) {
+            FlightRecorderEvents.CacheLookup event = FlightRecorderEvents.beginCacheLookup();
+            String fileName = source.getAbsolutePath();
+            Key key = Key.of(fingerprint, relativeName(source), read(source.toPath()));
+            List<Violation> violations = toViolations(entries.get(key));
+            if (event != null) {
+                event.finish(FlightRecorderEvents.CacheLookup.RESULT_CACHE, fileName, violations != null);
+            }
+            if (violations == null) {
+                misses++;
+                missing.put(fileName, key);
+                toAudit.add(source);
+            } else {
+                hits++;
+                cached.put(fileName, violations);
+            }
+        }
+        return new Lookup(toAudit, missing, cached);
+    }
+
+    synchronized void store(Key key, List<AuditEvent> events) {
+        List<CachedViolation> violations = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            Violation violation = event.getViolation();
+            violations.add(new CachedViolation(violation.getLineNo(), violation.getColumnNo(),
+                    violation.getColumnCharIndex(), violation.getTokenType(), violation.getSeverityLevel(),
+                    violation.getModuleId(), violation.getSourceName(), violation.getKey(), event.getMessage()));
+        }
+        entries.put(key, List.copyOf(violations));
+    }
+
+    /**
+     * Writes the cache back to its file, dropping the least recently used entries beyond the size bound.
+     */
+    public synchronized void save() throws CheckstyleException {
+        List<Map.Entry<Key, List<CachedViolation>>> kept = new ArrayList<>();
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        long size = Integer.BYTES + varintSize(FORMAT_VERSION) + 2L * Integer.BYTES;
+
+        List<Map.Entry<Key, List<CachedViolation>>> newestFirst = new ArrayList<>(entries.entrySet());
+        Collections.reverse(newestFirst);
+        for (Map.Entry<Key, List<CachedViolation>> entry : newestFirst) {
+            Map<String, Integer> added = new LinkedHashMap<>();
+            long entrySize = KEY_BYTES + varintSize(entry.getValue().size());
+            for (CachedViolation violation : entry.getValue()) {
+                entrySize += violation.encodedSize(strings, added);
+            }
+            for (String value : added.keySet()) {
+                int length = value.getBytes(StandardCharsets.UTF_8).length;
+                entrySize += varintSize(length) + length;
+            }
+            if (size + entrySize > maxBytes) {
+                break;
+            }
+            size += entrySize;
+            strings.putAll(added);
+            kept.add(entry);
+        }
+        Collections.reverse(kept);
+
+        entries.clear();
+        kept.forEach(entry -> entries.put(entry.getKey(), entry.getValue()));
+        write(strings);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private void write(Map<String, Integer> strings) throws CheckstyleException {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                writeVarint(out, FORMAT_VERSION);
+                out.writeInt(strings.size());
+                for (String value : strings.keySet()) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarint(out, bytes.length);
+                    out.write(bytes);
+                }
+                out.writeInt(entries.size());
+                for (Map.Entry<Key, List<CachedViolation>> entry : entries.entrySet()) {
+                    out.writeLong(entry.getKey().high());
+                    out.writeLong(entry.getKey().low());
+                    writeVarint(out, entry.getValue().size());
+                    for (CachedViolation violation : entry.getValue()) {
+                        violation.write(out, strings);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new CheckstyleException("Unable to write result cache " + file, e);
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || readVarint(in) != FORMAT_VERSION) {
+            return;
+        }
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = new String(in.readNBytes(readVarint(in)), StandardCharsets.UTF_8);
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Key key = new Key(in.readLong(), in.readLong());
+            int violationCount = readVarint(in);
+            List<CachedViolation> violations = new ArrayList<>(violationCount);
+            for (int j = 0; j < violationCount; j++) {
+                violations.add(CachedViolation.read(in, strings));
+            }
+            entries.put(key, List.copyOf(violations));
+        }
+    }
+
+    private List<Violation> toViolations(List<CachedViolation> cached) {
+        if (cached == null) {
+            return null;
+        }
+        List<Violation> violations = new ArrayList<>(cached.size());
+        for (CachedViolation violation : cached) {
+            Class<?> sourceClass = sourceClass(violation.sourceName());
+            if (sourceClass == null) {
+                return null;
+            }
+            violations.add(new Violation(violation.line(), violation.column(), violation.columnCharIndex(),
+                    violation.tokenType(), REPLAY_BUNDLE, violation.key(), new Object[] {violation.message()},
+                    violation.severity(), violation.moduleId(), sourceClass, REPLAY_MESSAGE));
+        }
+        return violations;
+    }
+
+    private Class<?> sourceClass(String name) {
+        return sourceClasses.computeIfAbsent(name, className -> {
+            try {
+                return Class.forName(className, false, Checker.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Returns the path of the file relative to the base directory with {@code /} separators, or the absolute path
+     * for files outside of it.
+     */
+    private String relativeName(File source) {
+        Path path = source.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(baseDirectory)) {
+            return path.toString();
+        }
+        return baseDirectory.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static byte[] read(Path path) throws CheckstyleException {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new CheckstyleException("Unable to read " + path, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        for (int rest = value >>> 7; rest != 0; rest >>>= 7) {
+            size++;
+        }
+        return size;
+    }
+
+    static void writeVarint(OutputStream out, int value) throws IOException {
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            out.write((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        out.write(rest);
+    }
+
+    static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Hash of the compiled classes of this project, which take part in producing the results through the engine
+     * modules and substitutions; computed once, when the first fingerprint is taken. When the classes cannot be read
+     * the hash is random, so that the cache never hits across runs.
+     */
+    private static final class EngineHash {
+        private static final String VALUE = compute();
+
+        private static String compute() {
+            MessageDigest digest = sha256();
+            try {
+                Path location = Path.of(ResultCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+                if (Files.isDirectory(location)) {
+                    hashClasses(location.resolve(PROJECT_PACKAGE), digest);
+                } else {
+                    try (FileSystem jar = FileSystems.newFileSystem(location)) {
+                        hashClasses(jar.getPath(PROJECT_PACKAGE), digest);
+                    }
+                }
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                return "unknown:" + UUID.randomUUID();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        private static void hashClasses(Path root, MessageDigest digest) throws IOException {
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.filter(Files::isRegularFile).sorted().toList()) {
+                    digest.update(root.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update(Files.readAllBytes(path));
+                }
+            }
+        }
+    }
+
+    /**
+     * Cache key: the first 128 bits of the SHA-256 of fingerprint, relative path and content.
+     */
+    public record Key(long high, long low) {
+        static Key of(String fingerprint, String fileName, byte[] content) {
+            MessageDigest digest = sha256();
+            digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fileName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(content));
+            return new Key(hash.getLong(), hash.getLong());
+        }
+    }
+
+    /**
+     * Result of {@link #lookup(List, String)}.
+     *
+     * @param toAudit files without a cached result, in the given order
+     * @param missing cache keys of those files, by absolute file name
+     * @param cached  replayable violations of the other files, by absolute file name
+     */
+    public record Lookup(List<File> toAudit, Map<String, Key> missing, Map<String, List<Violation>> cached) {
+    }
+
+    /**
+     * A stored violation with its already formatted message.
+     */
+    private record CachedViolation(int line, int column, int columnCharIndex, int tokenType, SeverityLevel severity,
+                                   String moduleId, String sourceName, String key, String message) {
+        private long encodedSize(Map<String, Integer> strings, Map<String, Integer> added) {
+            long size = varintSize(line) + varintSize(column) + varintSize(columnCharIndex) + varintSize(tokenType)
+                    + 1;
+            for (String value : new String[] {moduleId, sourceName, key, message}) {
+                size += varintSize(intern(value, strings, added));
+            }
+            return size;
+        }
+
+        private static int intern(String value, Map<String, Integer> strings, Map<String, Integer> added) {
+            if (value == null) {
+                return 0;
+            }
+            Integer index = strings.get(value);
+            if (index == null) {
+                index = added.get(value);
+            }
+            if (index == null) {
+                index = strings.size() + added.size() + 1;
+                added.put(value, index);
+            }
+            return index;
+        }
+
+        private void write(DataOutputStream out, Map<String, Integer> strings) throws IOException {
+            writeVarint(out, line);
+            writeVarint(out, column);
+            writeVarint(out, columnCharIndex);
+            writeVarint(out, tokenType);
+            out.writeByte(severity.ordinal());
+            for (String value : new String[] {moduleId, sourceName, key, message}) {
+                writeVarint(out, value == null ? 0 : strings.get(value));
+            }
+        }
+
+        private static CachedViolation read(DataInputStream in, String[] strings) throws IOException {
+            return new CachedViolation(readVarint(in), readVarint(in), readVarint(in), readVarint(in),
+                    SEVERITIES[in.readUnsignedByte()], string(in, strings), string(in, strings),
+                    string(in, strings), string(in, strings));
+        }
+
+        private static String string(DataInputStream in, String[] strings) throws IOException {
+            int index = readVarint(in);
+            return index == 0 ? null : strings[index - 1];
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.checks.regexp.RegexpMultilineCheck;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+
+import java.io.File;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Reports blank lines directly after {@code '{'} and directly before {@code '}'} in a single pass over the file text.
+ * <p>
+ * It reports exactly what {@code RegexpMultiline} reports for the formats {@link #AFTER_OPEN_FORMAT} and
+ * {@link #BEFORE_CLOSE_FORMAT}: a brace whose adjacent whitespace run contains at least two line feeds, on the line of
+ * the opening brace or of the first line feed respectively. Those regular expressions backtrack heavily on long
+ * whitespace runs; this check looks at every character once.
+ * <p>
+ * Violations are reported with the source, bundle and key of {@link RegexpMultilineCheck}, so suppressions and
+ * message expectations written for the regular expressions keep working. An empty message disables that side.
+ * <p>
+ * As a {@link LineCheck} it scans the text of a {@link LineIndex} the same way.
+ */
+public class BlankLineAroundBraceCheck extends AbstractFileSetCheck implements LineCheck {
+    /**
+     * The {@code RegexpMultiline} format for a blank line after an opening brace.
+     */
+    public static final String AFTER_OPEN_FORMAT = "\\{\\s*\\r?\\n\\s*\\r?\\n";
+
+    /**
+     * The {@code RegexpMultiline} format for a blank line before a closing brace.
+     */
+    public static final String BEFORE_CLOSE_FORMAT = "\\r?\\n\\s*\\r?\\n\\s*\\}";
+
+    private static final String REGEXP_BUNDLE = "com.puppycrawl.tools.checkstyle.checks.regexp.messages";
+    private static final int BLANK_LINE_FEEDS = 2;
+
+    private String messageAfterOpen = "";
+    private String messageBeforeClose = "";
+
+    /**
+     * Audits files of every extension until {@code fileExtensions} is set, like the regular expressions do.
+     */
+    public BlankLineAroundBraceCheck() {
+        setFileExtensions();
+    }
+
+    public void setMessageAfterOpen(String messageAfterOpen) {
+        this.messageAfterOpen = messageAfterOpen;
+    }
+
+    public void setMessageBeforeClose(String messageBeforeClose) {
+        this.messageBeforeClose = messageBeforeClose;
+    }
+
+    @Override
+    protected void processFiltered(File file, FileText fileText) {
+        addViolations(scan(fileText.getFullText()));
+    }
+
+    @Override
+    public SortedSet<Violation> process(File file, LineIndex lines) {
+        return CommonUtil.matchesFileExtension(file, getFileExtensions()) ? scan(lines.text()) : new TreeSet<>();
+    }
+
+    private SortedSet<Violation> scan(CharSequence text) {
+        boolean reportAfterOpen = !messageAfterOpen.isEmpty();
+        boolean reportBeforeClose = !messageBeforeClose.isEmpty();
+        SortedSet<Violation> violations = new TreeSet<>();
+        int length = text.length();
+
+        int line = 1;
+        boolean afterOpen = false;
+        int openLine = 0;
+        int lineFeeds = 0;
+        int firstLineFeedLine = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                lineFeeds++;
+                if (lineFeeds == 1) {
+                    firstLineFeedLine = line;
+                }
+                line++;
+            } else if (c == '\r') {
+                if (i + 1 == length || text.charAt(i + 1) != '\n') {
+                    line++;
+                }
+            } else if (c == ' ' || c == '\t' || c == '\u000B' || c == '\f') {
+                continue;
+            } else {
+                if (reportAfterOpen && afterOpen && lineFeeds >= BLANK_LINE_FEEDS) {
+                    violations.add(violation(openLine, messageAfterOpen));
+                }
+                if (reportBeforeClose && c == '}' && lineFeeds >= BLANK_LINE_FEEDS) {
+                    violations.add(violation(firstLineFeedLine, messageBeforeClose));
+                }
+                afterOpen = c == '{';
+                openLine = line;
+                lineFeeds = 0;
+            }
+        }
+        if (reportAfterOpen && afterOpen && lineFeeds >= BLANK_LINE_FEEDS) {
+            violations.add(violation(openLine, messageAfterOpen));
+        }
+        return violations;
+    }
+
+    private Violation violation(int line, String message) {
+        return new Violation(line, REGEXP_BUNDLE, message, new Object[0], getSeverityLevel(), getId(),
+                RegexpMultilineCheck.class, getCustomMessages().get(message));
+    }
+}
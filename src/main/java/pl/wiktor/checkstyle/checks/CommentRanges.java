@@ -0,0 +1,145 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+
+import java.util.Arrays;
+
+/**
+ * The columns covered by comments on every line of a Java file, for checks that ignore matches in comments without
+ * the deprecated {@code AbstractCheck.getFileContents()}.
+ * <p>
+ * The lines are scanned once, skipping string, character and text block literals, and a comment covers the same
+ * columns as the one Checkstyle's lexer reports to {@link FileContents}: a single-line comment runs from {@code //}
+ * to the end of its line and a block comment from {@code /*} to the closing {@code /}, including every line in
+ * between. A range is checked like {@link FileContents#hasIntersectionWithComment(int, int, int, int)} checks it.
+ * The file is expected to have been parsed, so an unterminated literal or comment simply ends at the end of the text.
+ */
+final class CommentRanges {
+    private static final int[] NONE = {};
+
+    private final int[][] ranges;
+
+    private CommentRanges(int lineCount) {
+        ranges = new int[lineCount][];
+        Arrays.fill(ranges, NONE);
+    }
+
+    /**
+     * Finds the comments of the given lines.
+     */
+    static CommentRanges of(String[] lines) {
+        CommentRanges comments = new CommentRanges(lines.length);
+        boolean inBlock = false;
+        boolean inTextBlock = false;
+        int blockLine = 0;
+        int blockColumn = 0;
+        for (int lineIndex = 0; lineIndex < lines.length; lineIndex++) {
+            String line = lines[lineIndex];
+            int length = line.length();
+            int i = 0;
+            while (i < length) {
+                if (inBlock) {
+                    int end = line.indexOf("*/", i);
+                    if (end < 0) {
+                        break;
+                    }
+                    comments.addBlock(blockLine, blockColumn, lineIndex, end + 1);
+                    inBlock = false;
+                    i = end + 2;
+                } else if (inTextBlock) {
+                    char c = line.charAt(i);
+                    if (c == '\\') {
+                        i += 2;
+                    } else if (line.startsWith("\"\"\"", i)) {
+                        inTextBlock = false;
+                        i += 3;
+                    } else {
+                        i++;
+                    }
+                } else {
+                    char c = line.charAt(i);
+                    if (c == '/' && i + 1 < length && line.charAt(i + 1) == '/') {
+                        comments.add(lineIndex, i, length - 1);
+                        break;
+                    } else if (c == '/' && i + 1 < length && line.charAt(i + 1) == '*') {
+                        inBlock = true;
+                        blockLine = lineIndex;
+                        blockColumn = i;
+                        i += 2;
+                    } else if (line.startsWith("\"\"\"", i)) {
+                        inTextBlock = true;
+                        i += 3;
+                    } else if (c == '"' || c == '\'') {
+                        i = skipLiteral(line, i + 1, c);
+                    } else {
+                        i++;
+                    }
+                }
+            }
+        }
+        if (inBlock && lines.length > 0) {
+            int last = lines.length - 1;
+            comments.addBlock(blockLine, blockColumn, last, Math.max(0, lines[last].length() - 1));
+        }
+        return comments;
+    }
+
+    /**
+     * Tells whether a comment covers any column from {@code startColumn} to {@code endColumn}, both inclusive, of
+     * the given line.
+     *
+     * @param lineNo the one-based line number
+     */
+    boolean intersects(int lineNo, int startColumn, int endColumn) {
+        int[] line = ranges[lineNo - 1];
+        for (int i = 0; i < line.length; i += 2) {
+            if (line[i] <= endColumn && line[i + 1] >= startColumn) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index after the closing quote of a string or character literal, or the line length when the
+     * literal is not closed on the line.
+     */
+    private static int skipLiteral(String line, int start, char quote) {
+        int i = start;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return line.length();
+    }
+
+    /**
+     * Adds a block comment; the lines after its first one are covered from before their first column, so that an
+     * empty range at column 0 intersects them like it does in {@link FileContents}.
+     */
+    private void addBlock(int startLine, int startColumn, int endLine, int endColumn) {
+        if (startLine == endLine) {
+            add(startLine, startColumn, endColumn);
+            return;
+        }
+        add(startLine, startColumn, Integer.MAX_VALUE);
+        for (int line = startLine + 1; line < endLine; line++) {
+            add(line, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+        add(endLine, Integer.MIN_VALUE, endColumn);
+    }
+
+    private void add(int line, int startColumn, int endColumn) {
+        int[] current = ranges[line];
+        int[] extended = Arrays.copyOf(current, current.length + 2);
+        extended[current.length] = startColumn;
+        extended[current.length + 1] = endColumn;
+        ranges[line] = extended;
+    }
+}
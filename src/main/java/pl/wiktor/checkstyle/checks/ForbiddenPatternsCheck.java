@@ -0,0 +1,251 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.checks.regexp.RegexpSinglelineJavaCheck;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+import pl.wiktor.checkstyle.metrics.CombinedModuleTiming;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Reports lines matching any of a list of forbidden patterns in a single pass over the lines of a file.
+ * <p>
+ * Every pattern is a child module {@value #PATTERN_MODULE} with the {@code RegexpSinglelineJava} properties
+ * {@code id}, {@code format}, {@code message}, {@code ignoreComments}, {@code ignoreCase} and {@code severity}, and
+ * reports exactly what such a module reports: the first match of a line that does not intersect a comment (when
+ * comments are ignored), at column 0. A literal that every match must contain is taken from each regular expression
+ * (see {@link RequiredLiteral}) and one {@link LiteralAutomaton} over all of them finds the candidate patterns of a
+ * line; only those run their regular expression. Adding a pattern with such a literal therefore does not add another
+ * scan of every line, while patterns without one are run on every line. The comments of a file are only located, see
+ * {@link CommentRanges}, once a pattern that ignores comments matches one of its lines.
+ * <p>
+ * Violations carry the id of their pattern and the source, bundle and key of {@link RegexpSinglelineJavaCheck}, so
+ * suppressions by check name or id keep applying to each pattern separately. For the same reason the time of every
+ * pattern is measured on its own when timing is enabled, see {@link CombinedModuleTiming}.
+ */
+public class ForbiddenPatternsCheck extends AbstractCheck implements CombinedModuleTiming {
+    /**
+     * Name of the child module that configures one pattern.
+     */
+    public static final String PATTERN_MODULE = "ForbiddenPattern";
+
+    private static final String REGEXP_BUNDLE = "com.puppycrawl.tools.checkstyle.checks.regexp.messages";
+    private static final String MSG_REGEXP_EXCEEDED = "regexp.exceeded";
+    private static final String DEFAULT_FORMAT = "$.";
+    private static final String[] NO_LINES = {};
+
+    private final List<ForbiddenPattern> patterns = new ArrayList<>();
+    private final SortedSet<Violation> violations = new TreeSet<>();
+    private final BitSet candidates = new BitSet();
+    private final BitSet skippedPatterns = new BitSet();
+    private LiteralAutomaton automaton = LiteralAutomaton.compile(List.of());
+    private ForbiddenPattern[] unfiltered = {};
+    private long[] patternNanos = {};
+    private String[] lines = NO_LINES;
+    private CommentRanges comments;
+    private boolean timingEnabled;
+
+    @Override
+    public int[] getDefaultTokens() {
+        return getRequiredTokens();
+    }
+
+    @Override
+    public int[] getAcceptableTokens() {
+        return getRequiredTokens();
+    }
+
+    @Override
+    public int[] getRequiredTokens() {
+        return CommonUtil.EMPTY_INT_ARRAY;
+    }
+
+    @Override
+    protected void setupChild(Configuration childConf) throws CheckstyleException {
+        if (!PATTERN_MODULE.equals(childConf.getName())) {
+            throw new CheckstyleException(childConf.getName() + " is not allowed as a child in "
+                    + getClass().getSimpleName());
+        }
+
+        String id = null;
+        String format = DEFAULT_FORMAT;
+        String message = "";
+        boolean ignoreComments = false;
+        boolean ignoreCase = false;
+        SeverityLevel severity = null;
+        for (String name : childConf.getPropertyNames()) {
+            String value = childConf.getProperty(name);
+            switch (name) {
+                case "id" -> id = value;
+                case "format" -> format = value;
+                case "message" -> message = value;
+                case "ignoreComments" -> ignoreComments = toBoolean(name, value);
+                case "ignoreCase" -> ignoreCase = toBoolean(name, value);
+                case "severity" -> severity = toSeverity(value);
+                default -> throw new CheckstyleException("Property '" + name + "' does not exist in "
+                        + PATTERN_MODULE);
+            }
+        }
+
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(format, ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+        } catch (PatternSyntaxException e) {
+            throw new CheckstyleException("Cannot set property 'format' to '" + format + "'", e);
+        }
+        patterns.add(new ForbiddenPattern(patterns.size(), id, pattern, message, ignoreComments, severity,
+                Map.copyOf(childConf.getMessages()), ignoreCase ? null : RequiredLiteral.of(format)));
+    }
+
+    @Override
+    public void init() {
+        automaton = LiteralAutomaton.compile(patterns.stream().map(ForbiddenPattern::literal).toList());
+        unfiltered = patterns.stream()
+                .filter(pattern -> pattern.literal() == null)
+                .toArray(ForbiddenPattern[]::new);
+        patternNanos = new long[patterns.size()];
+    }
+
+    @Override
+    public void beginTree(DetailAST rootAST) {
+        violations.clear();
+        lines = getLines();
+        for (int index = 0; index < lines.length; index++) {
+            String line = lines[index];
+            candidates.clear();
+            automaton.collect(line, candidates);
+            candidates.andNot(skippedPatterns);
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                checkLine(patterns.get(i), index + 1, line);
+            }
+            for (ForbiddenPattern pattern : unfiltered) {
+                if (!skippedPatterns.get(pattern.index())) {
+                    checkLine(pattern, index + 1, line);
+                }
+            }
+        }
+        lines = NO_LINES;
+        comments = null;
+    }
+
+    /**
+     * Returns the ids of the patterns, in the order of their indexes.
+     */
+    public List<String> patternIds() {
+        return patterns.stream().map(ForbiddenPattern::id).toList();
+    }
+
+    /**
+     * Sets the indexes of the patterns not to run on the following files, e.g. because their violations there are
+     * suppressed.
+     */
+    public void setSkippedPatterns(BitSet skipped) {
+        skippedPatterns.clear();
+        skippedPatterns.or(skipped);
+    }
+
+    @Override
+    public void setTimingEnabled(boolean enabled) {
+        timingEnabled = enabled;
+    }
+
+    @Override
+    public List<String> moduleKeys() {
+        return patterns.stream()
+                .map(pattern -> AuditMetrics.moduleKey(pattern.id(), RegexpSinglelineJavaCheck.class.getName()))
+                .toList();
+    }
+
+    @Override
+    public long[] drainNanos() {
+        long[] drained = patternNanos.clone();
+        Arrays.fill(patternNanos, 0L);
+        return drained;
+    }
+
+    @Override
+    public SortedSet<Violation> getViolations() {
+        return new TreeSet<>(violations);
+    }
+
+    /**
+     * Reports the first match on the line that is not suppressed, like {@code SinglelineDetector} with a maximum of 0.
+     */
+    private void checkLine(ForbiddenPattern pattern, int lineNo, String line) {
+        if (!timingEnabled) {
+            findViolation(pattern, lineNo, line);
+            return;
+        }
+        long start = System.nanoTime();
+        findViolation(pattern, lineNo, line);
+        patternNanos[pattern.index()] += System.nanoTime() - start;
+    }
+
+    private void findViolation(ForbiddenPattern pattern, int lineNo, String line) {
+        Matcher matcher = pattern.pattern().matcher(line);
+        int start = 0;
+        while (matcher.find(start)) {
+            int startCol = matcher.start();
+            int endCol = matcher.end();
+            if (!pattern.ignoreComments() || !comments().intersects(lineNo, startCol, endCol - 1)) {
+                violations.add(pattern.violation(lineNo, getSeverityLevel()));
+                return;
+            }
+            if (endCol == startCol) {
+                return;
+            }
+            start = endCol;
+        }
+    }
+
+    private CommentRanges comments() {
+        if (comments == null) {
+            comments = CommentRanges.of(lines);
+        }
+        return comments;
+    }
+
+    private static boolean toBoolean(String name, String value) throws CheckstyleException {
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.parseBoolean(value);
+        }
+        throw new CheckstyleException("Cannot set property '" + name + "' to '" + value + "'");
+    }
+
+    private static SeverityLevel toSeverity(String value) throws CheckstyleException {
+        try {
+            return SeverityLevel.getInstance(value);
+        } catch (IllegalArgumentException e) {
+            throw new CheckstyleException("Cannot set property 'severity' to '" + value + "'", e);
+        }
+    }
+
+    /**
+     * One configured pattern at the given index; {@code severity} is {@code null} when inherited and {@code literal}
+     * when every line has to be matched.
+     */
+    private record ForbiddenPattern(int index, String id, Pattern pattern, String message, boolean ignoreComments,
+                                    SeverityLevel severity, Map<String, String> customMessages, String literal) {
+        private Violation violation(int lineNo, SeverityLevel inherited) {
+            String key = message.isEmpty() ? MSG_REGEXP_EXCEEDED : message;
+            Object[] args = message.isEmpty() ? new Object[] {pattern.toString()} : new Object[0];
+            return new Violation(lineNo, REGEXP_BUNDLE, key, args, severity == null ? inherited : severity, id,
+                    RegexpSinglelineJavaCheck.class, customMessages.get(key));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+
+import java.io.File;
+import java.util.SortedSet;
+
+/**
+ * A file-set check that can also audit a file from its {@link LineIndex}, so that files only audited by such checks
+ * are never turned into a {@code FileText}.
+ * <p>
+ * Both ways of processing a file must report the same violations.
+ */
+public interface LineCheck extends FileSetCheck {
+    /**
+     * Audits the file from its lines, applying the check's {@code fileExtensions} like
+     * {@link FileSetCheck#process(File, com.puppycrawl.tools.checkstyle.api.FileText)} does.
+     *
+     * @return the violations found in the file
+     */
+    SortedSet<Violation> process(File file, LineIndex lines) throws CheckstyleException;
+
+    /**
+     * Tells whether {@link #process(File, LineIndex)} may be called, which containers only allow when the module they
+     * contain is a line check.
+     */
+    default boolean readsLines() {
+        return true;
+    }
+}
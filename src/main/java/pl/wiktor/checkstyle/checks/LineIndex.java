@@ -0,0 +1,228 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.api.FileText;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The text of a file decoded once, with the offsets of its lines, for checks that only look at lines and ranges of
+ * the text, see {@link LineCheck}.
+ * <p>
+ * The file is memory-mapped, or read into one byte array when it is smaller than {@link #MAP_THRESHOLD}, where mapping
+ * costs more than it saves. When the charset encodes ASCII as itself and no byte of the file is above {@code 0x7F},
+ * which is checked eight bytes at a time, the text is a view of those bytes and nothing is decoded; otherwise the
+ * bytes are decoded once into a single {@link java.nio.CharBuffer}, replacing malformed input like {@link FileText}
+ * does. Lines and ranges are views of the text, so neither the file nor any line is ever copied into a
+ * {@link String}, and the index itself only keeps one {@code int} per line.
+ * <p>
+ * Lines are split like {@link FileText} splits them: on {@code \n}, {@code \r\n} and a lone {@code \r}, the text after
+ * the last terminator being a line when it is not empty; an empty file has no lines.
+ */
+public final class LineIndex {
+    /**
+     * Size in bytes from which files are memory-mapped instead of read.
+     */
+    public static final int MAP_THRESHOLD = 64 * 1024;
+
+    private static final Set<Charset> ASCII_COMPATIBLE = Set.of(StandardCharsets.UTF_8, StandardCharsets.US_ASCII,
+            StandardCharsets.ISO_8859_1);
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final int AVERAGE_LINE_LENGTH = 32;
+
+    private final CharSequence text;
+    private final boolean ascii;
+    private int[] lineStarts;
+    private int lines;
+
+    private LineIndex(CharSequence text, boolean ascii) {
+        this.text = text;
+        this.ascii = ascii;
+        index();
+    }
+
+    /**
+     * Reads the file with the charset the checks expect.
+     *
+     * @throws IOException when the file cannot be read; {@link FileText} reports the same file with the message the
+     *                     checker expects
+     */
+    public static LineIndex read(File file, String charset) throws IOException {
+        Charset decoding = Charset.forName(charset);
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to be indexed: " + file);
+            }
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                int read = 0;
+                while (bytes.hasRemaining() && read >= 0) {
+                    read = channel.read(bytes);
+                }
+                bytes.flip();
+            }
+        }
+        if (ASCII_COMPATIBLE.contains(decoding) && isAscii(bytes)) {
+            return new LineIndex(new AsciiText(bytes, 0, bytes.limit()), true);
+        }
+        try {
+            return new LineIndex(decoding.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(bytes), false);
+        } catch (CharacterCodingException e) {
+            throw new IOException("Unable to decode " + file + " with " + charset, e);
+        }
+    }
+
+    /**
+     * Indexes text that is already in memory.
+     */
+    public static LineIndex of(CharSequence text) {
+        return new LineIndex(text, false);
+    }
+
+    /**
+     * Returns the whole text.
+     */
+    public CharSequence text() {
+        return text;
+    }
+
+    /**
+     * Tells whether the text is a view of the file's bytes, which were all ASCII.
+     */
+    public boolean isAscii() {
+        return ascii;
+    }
+
+    /**
+     * Returns the number of lines.
+     */
+    public int size() {
+        return lines;
+    }
+
+    /**
+     * Returns the line without its terminator.
+     *
+     * @param index the zero-based index of the line
+     */
+    public CharSequence line(int index) {
+        Objects.checkIndex(index, lines);
+        int start = lineStarts[index];
+        int end = index + 1 < lines ? lineStarts[index + 1] : text.length();
+        if (end > start && text.charAt(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return text.subSequence(start, end);
+    }
+
+    /**
+     * Returns the offset in the text of the first character of the line.
+     *
+     * @param index the zero-based index of the line
+     */
+    public int lineStart(int index) {
+        Objects.checkIndex(index, lines);
+        return lineStarts[index];
+    }
+
+    private void index() {
+        int length = text.length();
+        lineStarts = new int[length / AVERAGE_LINE_LENGTH + 1];
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                addLine(start);
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            addLine(start);
+        }
+    }
+
+    private void addLine(int start) {
+        if (lines == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+        }
+        lineStarts[lines++] = start;
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+        int length = bytes.limit();
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            if ((bytes.getLong(i) & HIGH_BITS) != 0) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A range of ASCII bytes seen as characters.
+     */
+    private static final class AsciiText implements CharSequence {
+        private final ByteBuffer bytes;
+        private final int offset;
+        private final int length;
+
+        private AsciiText(ByteBuffer bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Objects.checkIndex(index, length);
+            return (char) bytes.get(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            Objects.checkFromToIndex(start, end, length);
+            return new AsciiText(bytes, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            byte[] copy = new byte[length];
+            bytes.get(offset, copy);
+            return new String(copy, StandardCharsets.US_ASCII);
+        }
+    }
+}
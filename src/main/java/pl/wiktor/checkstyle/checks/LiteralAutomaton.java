@@ -0,0 +1,114 @@
+package pl.wiktor.checkstyle.checks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over ASCII literals that finds which of them occur in a line in a single scan.
+ * <p>
+ * The transitions are compiled into a dense table, so the scan costs one array lookup per character however many
+ * literals there are. Characters outside ASCII reset the automaton, which is correct because no literal contains one.
+ */
+final class LiteralAutomaton {
+    private static final int ALPHABET = 0x80;
+    private static final int ROOT = 0;
+    private static final int[] NO_OUTPUT = {};
+
+    private final int[] transitions;
+    private final int[][] outputs;
+
+    private LiteralAutomaton(int[] transitions, int[][] outputs) {
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Compiles the given literals; {@code null} entries are skipped but keep their index.
+     */
+    static LiteralAutomaton compile(List<String> literals) {
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> endings = new ArrayList<>();
+        trie.add(newNode());
+        endings.add(new ArrayList<>());
+
+        for (int index = 0; index < literals.size(); index++) {
+            String literal = literals.get(index);
+            if (literal == null) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < literal.length(); i++) {
+                char c = literal.charAt(i);
+                if (c >= ALPHABET) {
+                    throw new IllegalArgumentException("Literal is not ASCII: " + literal);
+                }
+                if (trie.get(state)[c] < 0) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(newNode());
+                    endings.add(new ArrayList<>());
+                }
+                state = trie.get(state)[c];
+            }
+            endings.get(state).add(index);
+        }
+
+        int states = trie.size();
+        int[] transitions = new int[states * ALPHABET];
+        int[] failure = new int[states];
+        int[][] outputs = new int[states][];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+
+        while (head < tail) {
+            int state = queue[head++];
+            List<Integer> own = endings.get(state);
+            int[] inherited = state == ROOT ? NO_OUTPUT : outputs[failure[state]];
+            outputs[state] = own.isEmpty() ? inherited : merge(own, inherited);
+
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = trie.get(state)[c];
+                int fallback = state == ROOT ? ROOT : transitions[failure[state] * ALPHABET + c];
+                if (child < 0) {
+                    transitions[state * ALPHABET + c] = fallback;
+                } else {
+                    transitions[state * ALPHABET + c] = child;
+                    failure[child] = fallback;
+                    queue[tail++] = child;
+                }
+            }
+        }
+        return new LiteralAutomaton(transitions, outputs);
+    }
+
+    /**
+     * Sets the index of every literal that occurs in the line.
+     */
+    void collect(String line, BitSet found) {
+        int state = ROOT;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            state = c < ALPHABET ? transitions[state * ALPHABET + c] : ROOT;
+            for (int index : outputs[state]) {
+                found.set(index);
+            }
+        }
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    private static int[] merge(List<Integer> own, int[] inherited) {
+        int[] merged = Arrays.copyOf(inherited, inherited.length + own.size());
+        for (int i = 0; i < own.size(); i++) {
+            merged[inherited.length + i] = own.get(i);
+        }
+        return merged;
+    }
+}
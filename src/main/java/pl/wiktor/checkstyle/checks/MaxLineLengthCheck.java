@@ -0,0 +1,102 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+
+import java.io.File;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Reports lines longer than {@code max}, exactly like {@link LineLengthCheck}: tabs are expanded to the checker's
+ * {@code tabWidth}, and lines in which {@code ignorePattern} is found are skipped.
+ * <p>
+ * Unlike {@link LineLengthCheck}, which needs every line as a {@link String}, it measures the lines of a
+ * {@link LineIndex} in place. Violations are reported with the source, bundle and key of {@link LineLengthCheck}, so
+ * suppressions and message expectations written for it keep working.
+ */
+public class MaxLineLengthCheck extends AbstractFileSetCheck implements LineCheck {
+    private static final String SIZES_BUNDLE = "com.puppycrawl.tools.checkstyle.checks.sizes.messages";
+    private static final String MESSAGE_KEY = "maxLineLen";
+    private static final int DEFAULT_MAX = 80;
+
+    private int max = DEFAULT_MAX;
+    private Pattern ignorePattern = Pattern.compile("^(package|import) .*");
+
+    /**
+     * Audits files of every extension until {@code fileExtensions} is set, like {@link LineLengthCheck} does.
+     */
+    public MaxLineLengthCheck() {
+        setFileExtensions();
+    }
+
+    public void setMax(int max) {
+        this.max = max;
+    }
+
+    public void setIgnorePattern(Pattern ignorePattern) {
+        this.ignorePattern = ignorePattern;
+    }
+
+    @Override
+    protected void processFiltered(File file, FileText fileText) {
+        SortedSet<Violation> violations = new TreeSet<>();
+        for (int i = 0; i < fileText.size(); i++) {
+            check(fileText.get(i), i + 1, violations);
+        }
+        addViolations(violations);
+    }
+
+    @Override
+    public SortedSet<Violation> process(File file, LineIndex lines) {
+        SortedSet<Violation> violations = new TreeSet<>();
+        if (CommonUtil.matchesFileExtension(file, getFileExtensions())) {
+            for (int i = 0; i < lines.size(); i++) {
+                check(lines.line(i), i + 1, violations);
+            }
+        }
+        return violations;
+    }
+
+    private void check(CharSequence line, int lineNo, SortedSet<Violation> violations) {
+        if (line.length() <= max && !hasTab(line)) {
+            return;
+        }
+        int length = expandedLength(line);
+        if (length > max && !ignorePattern.matcher(line).find()) {
+            violations.add(new Violation(lineNo, SIZES_BUNDLE, MESSAGE_KEY, new Object[] {max, length},
+                    getSeverityLevel(), getId(), LineLengthCheck.class, getCustomMessages().get(MESSAGE_KEY)));
+        }
+    }
+
+    /**
+     * Returns the length {@link CommonUtil#lengthExpandedTabs(String, int, int)} computes for the line, which expands
+     * the first as many characters as the line has code points.
+     */
+    private int expandedLength(CharSequence line) {
+        int codePoints = Character.codePointCount(line, 0, line.length());
+        int tabWidth = getTabWidth();
+        int length = 0;
+        for (int i = 0; i < codePoints; i++) {
+            if (line.charAt(i) == '\t') {
+                length = (length / tabWidth + 1) * tabWidth;
+            } else {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static boolean hasTab(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '\t') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,164 @@
+package pl.wiktor.checkstyle.checks;
+
+import java.util.regex.Pattern;
+
+/**
+ * Finds a literal that every match of a regular expression contains, so that lines without it can be skipped before
+ * running the expression.
+ * <p>
+ * The analysis is deliberately conservative: expressions with alternation, inline flags or quoting have no required
+ * literal, groups and character classes only end the current literal, and a character followed by an optional
+ * quantifier is dropped. Only ASCII characters are taken, and the longest literal found wins.
+ */
+final class RequiredLiteral {
+    private static final Pattern INLINE_FLAGS = Pattern.compile("\\(\\?[idmsuxU-]+[):]");
+    private static final String CLASS_ESCAPES = "dDsSwWbBAGzZhHvVRXntrfae";
+
+    private RequiredLiteral() {
+    }
+
+    /**
+     * Returns the required literal of the expression, or {@code null} when it has none this analysis can prove.
+     */
+    static String of(String regex) {
+        if (regex.indexOf('|') >= 0 || regex.contains("\\Q") || INLINE_FLAGS.matcher(regex).find()) {
+            return null;
+        }
+
+        String best = "";
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int atomEnd = i + 1;
+            boolean literal = false;
+            char value = c;
+
+            switch (c) {
+                case '\\' -> {
+                    if (i + 1 == regex.length()) {
+                        return null;
+                    }
+                    value = regex.charAt(i + 1);
+                    atomEnd = i + 2;
+                    if (value < 0x80 && Character.isLetterOrDigit(value)) {
+                        if (CLASS_ESCAPES.indexOf(value) < 0) {
+                            return null;
+                        }
+                    } else {
+                        literal = value < 0x80;
+                    }
+                }
+                case '[' -> atomEnd = skipClass(regex, i);
+                case '(' -> atomEnd = skipGroup(regex, i);
+                case '.', '^', '$' -> atomEnd = i + 1;
+                case '?', '*', '+', '{', ')' -> {
+                    return null;
+                }
+                default -> literal = c < 0x80;
+            }
+            if (atomEnd < 0) {
+                return null;
+            }
+
+            char quantifier = atomEnd < regex.length() ? regex.charAt(atomEnd) : 0;
+            boolean optional = quantifier == '?' || quantifier == '*' || quantifier == '{';
+            int next = optional || quantifier == '+' ? skipQuantifier(regex, atomEnd) : atomEnd;
+            if (next < 0) {
+                return null;
+            }
+
+            if (literal && !optional) {
+                run.append(value);
+            }
+            if (!literal || optional || quantifier == '+') {
+                best = longer(best, run);
+                run.setLength(0);
+            }
+            i = next;
+        }
+
+        best = longer(best, run);
+        return best.isEmpty() ? null : best;
+    }
+
+    private static String longer(String best, StringBuilder run) {
+        return run.length() > best.length() ? run.toString() : best;
+    }
+
+    /**
+     * Returns the index after the character class starting at {@code start}, or -1 when it cannot be followed.
+     */
+    private static int skipClass(String regex, int start) {
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            return -1;
+        }
+
+        int depth = 1;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index after the group starting at {@code start}, or -1 when it cannot be followed.
+     */
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index after the quantifier starting at {@code start}, including a lazy or possessive modifier.
+     */
+    private static int skipQuantifier(String regex, int start) {
+        int i = start + 1;
+        if (regex.charAt(start) == '{') {
+            int close = regex.indexOf('}', start);
+            if (close < 0) {
+                return -1;
+            }
+            i = close + 1;
+        }
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+}
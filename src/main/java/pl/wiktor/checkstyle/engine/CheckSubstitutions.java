@@ -0,0 +1,243 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.checks.regexp.RegexpMultilineCheck;
+import com.puppycrawl.tools.checkstyle.checks.regexp.RegexpSinglelineJavaCheck;
+import com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck;
+import pl.wiktor.checkstyle.checks.BlankLineAroundBraceCheck;
+import pl.wiktor.checkstyle.checks.ForbiddenPatternsCheck;
+import pl.wiktor.checkstyle.checks.MaxLineLengthCheck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Replaces configured modules by faster checks of this project that report exactly the same violations.
+ * <p>
+ * A module is only replaced when every property it sets is understood by the replacement; anything else is left to
+ * the original module.
+ */
+final class CheckSubstitutions {
+    private static final String REGEXP_MULTILINE = "RegexpMultiline";
+    private static final String REGEXP_SINGLELINE_JAVA = "RegexpSinglelineJava";
+    private static final String LINE_LENGTH = "LineLength";
+    private static final Set<String> LINE_LENGTH_PROPERTIES = Set.of(
+            "max", "ignorePattern", "fileExtensions", "id", "severity");
+    private static final Set<String> FORBIDDEN_PATTERN_PROPERTIES = Set.of(
+            "id", "format", "message", "ignoreComments", "ignoreCase", "severity");
+    private static final Set<String> BOOLEAN_PROPERTIES = Set.of("ignoreComments", "ignoreCase");
+    private static final Set<String> BLANK_LINE_PROPERTIES = Set.of(
+            "format", "message", "matchAcrossLines", "ignoreCase", "fileExtensions", "id", "severity");
+    private static final Map<String, String> BLANK_LINE_MESSAGES = Map.of(
+            BlankLineAroundBraceCheck.AFTER_OPEN_FORMAT, "messageAfterOpen",
+            BlankLineAroundBraceCheck.BEFORE_CLOSE_FORMAT, "messageBeforeClose");
+    private static final List<String> BLANK_LINE_SHARED_PROPERTIES = List.of("fileExtensions", "id", "severity");
+
+    private CheckSubstitutions() {
+    }
+
+    /**
+     * Returns the root-level modules with {@code LineLength} replaced by {@link MaxLineLengthCheck} and the blank-line
+     * {@code RegexpMultiline} modules replaced by {@link BlankLineAroundBraceCheck}. Two such modules with the same
+     * {@code id}, {@code severity} and {@code fileExtensions}, one per side, are merged into a single instance at the
+     * position of the first one, so the text is scanned once for both messages.
+     */
+    static List<Configuration> substituteRootChildren(Configuration root) throws CheckstyleException {
+        List<Configuration> children = new ArrayList<>();
+        List<DefaultConfiguration> blankLineChecks = new ArrayList<>();
+        for (Configuration child : root.getChildren()) {
+            if (isModule(child, LINE_LENGTH) && isLineLengthReplaceable(child)) {
+                children.add(rename(child, MaxLineLengthCheck.class.getName()));
+                continue;
+            }
+            String messageProperty = isModule(child, REGEXP_MULTILINE) ? blankLineMessageProperty(child) : null;
+            if (messageProperty == null) {
+                children.add(child);
+                continue;
+            }
+
+            DefaultConfiguration merged = null;
+            for (DefaultConfiguration candidate : blankLineChecks) {
+                if (property(candidate, messageProperty) == null && sameSharedProperties(candidate, child)) {
+                    merged = candidate;
+                    break;
+                }
+            }
+            if (merged == null) {
+                merged = new DefaultConfiguration(BlankLineAroundBraceCheck.class.getName());
+                for (String name : BLANK_LINE_SHARED_PROPERTIES) {
+                    String value = property(child, name);
+                    if (value != null) {
+                        merged.addProperty(name, value);
+                    }
+                }
+                blankLineChecks.add(merged);
+                children.add(merged);
+            }
+            merged.addProperty(messageProperty, property(child, "message"));
+            child.getMessages().forEach(merged::addMessage);
+        }
+        return children;
+    }
+
+    /**
+     * Returns the name of the configured module a substituted root-level check replaces, or {@code null} when the
+     * check is not a substitution.
+     */
+    static String replacedModuleName(Configuration module) {
+        if (MaxLineLengthCheck.class.getName().equals(module.getName())) {
+            return LINE_LENGTH;
+        }
+        return BlankLineAroundBraceCheck.class.getName().equals(module.getName()) ? REGEXP_MULTILINE : null;
+    }
+
+    /**
+     * Returns the name of the source a check reports its violations as: the class of the module it replaces when it
+     * is a substitution or a {@link ManagedTreeWalker}, otherwise its own class.
+     */
+    static String sourceName(Object check) {
+        if (check instanceof ManagedTreeWalker) {
+            return TreeWalker.class.getName();
+        }
+        if (check instanceof BlankLineAroundBraceCheck) {
+            return RegexpMultilineCheck.class.getName();
+        }
+        if (check instanceof MaxLineLengthCheck) {
+            return LineLengthCheck.class.getName();
+        }
+        if (check instanceof ForbiddenPatternsCheck) {
+            return RegexpSinglelineJavaCheck.class.getName();
+        }
+        return check.getClass().getName();
+    }
+
+    /**
+     * Returns the children of a TreeWalker with all {@code RegexpSinglelineJava} modules that can be fused replaced by
+     * a single {@link ForbiddenPatternsCheck} at the position of the first one.
+     */
+    static List<Configuration> substituteTreeWalkerChildren(Configuration treeWalker) throws CheckstyleException {
+        List<Configuration> children = new ArrayList<>();
+        DefaultConfiguration fused = new DefaultConfiguration(ForbiddenPatternsCheck.class.getName());
+        for (Configuration child : treeWalker.getChildren()) {
+            if (isModule(child, REGEXP_SINGLELINE_JAVA) && isFusable(child)) {
+                if (fused.getChildren().length == 0) {
+                    children.add(fused);
+                }
+                fused.addChild(forbiddenPattern(child));
+            } else {
+                children.add(child);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Tells whether {@link MaxLineLengthCheck} understands every property of the module; invalid values are left to
+     * {@code LineLength} to report.
+     */
+    private static boolean isLineLengthReplaceable(Configuration module) throws CheckstyleException {
+        if (module.getChildren().length > 0
+                || !LINE_LENGTH_PROPERTIES.containsAll(List.of(module.getPropertyNames()))) {
+            return false;
+        }
+        try {
+            String max = property(module, "max");
+            if (max != null) {
+                Integer.parseInt(max);
+            }
+            String ignorePattern = property(module, "ignorePattern");
+            if (ignorePattern != null) {
+                Pattern.compile(ignorePattern);
+            }
+            return true;
+        } catch (NumberFormatException | PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    private static Configuration rename(Configuration module, String name) throws CheckstyleException {
+        DefaultConfiguration renamed = new DefaultConfiguration(name);
+        for (String property : module.getPropertyNames()) {
+            renamed.addProperty(property, module.getProperty(property));
+        }
+        module.getMessages().forEach(renamed::addMessage);
+        return renamed;
+    }
+
+    private static boolean isFusable(Configuration module) throws CheckstyleException {
+        if (module.getChildren().length > 0) {
+            return false;
+        }
+        for (String name : module.getPropertyNames()) {
+            if (!FORBIDDEN_PATTERN_PROPERTIES.contains(name)) {
+                return false;
+            }
+            String value = module.getProperty(name);
+            if (BOOLEAN_PROPERTIES.contains(name) && !"true".equalsIgnoreCase(value)
+                    && !"false".equalsIgnoreCase(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Configuration forbiddenPattern(Configuration module) throws CheckstyleException {
+        DefaultConfiguration pattern = new DefaultConfiguration(ForbiddenPatternsCheck.PATTERN_MODULE);
+        for (String name : module.getPropertyNames()) {
+            pattern.addProperty(name, module.getProperty(name));
+        }
+        module.getMessages().forEach(pattern::addMessage);
+        return pattern;
+    }
+
+    /**
+     * Returns the {@link BlankLineAroundBraceCheck} property that takes the message of the module, or {@code null}
+     * when the module cannot be replaced.
+     */
+    private static String blankLineMessageProperty(Configuration module) throws CheckstyleException {
+        String messageProperty = BLANK_LINE_MESSAGES.get(property(module, "format"));
+        String message = property(module, "message");
+        if (messageProperty == null || message == null || message.isEmpty() || module.getChildren().length > 0) {
+            return null;
+        }
+        for (String name : module.getPropertyNames()) {
+            if (!BLANK_LINE_PROPERTIES.contains(name)) {
+                return null;
+            }
+        }
+        return messageProperty;
+    }
+
+    private static boolean sameSharedProperties(Configuration merged, Configuration module)
+            throws CheckstyleException {
+        for (String name : BLANK_LINE_SHARED_PROPERTIES) {
+            if (!Objects.equals(property(merged, name), property(module, name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isModule(Configuration module, String name) {
+        String configured = module.getName();
+        return configured.equals(name) || configured.equals(name + "Check") || configured.endsWith("." + name)
+                || configured.endsWith("." + name + "Check");
+    }
+
+    static String property(Configuration module, String name) throws CheckstyleException {
+        for (String configured : module.getPropertyNames()) {
+            if (configured.equals(name)) {
+                return module.getProperty(name);
+            }
+        }
+        return null;
+    }
+}
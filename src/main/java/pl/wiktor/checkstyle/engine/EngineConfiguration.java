@@ -0,0 +1,138 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import pl.wiktor.checkstyle.CompiledConfiguration;
+import pl.wiktor.checkstyle.ConfigurationModules;
+
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites a Checkstyle configuration so that it runs on the engine modules.
+ * <p>
+ * Modules with a faster equivalent in this project are replaced by it, both at the root and inside TreeWalker, see
+ * {@link CheckSubstitutions}. Audits sharing a {@link ParseCache} run on {@link #share(Configuration)}, which
+ * additionally replaces {@code TreeWalker} by {@link ManagedTreeWalker}. For timed audits
+ * {@link #rewrite(Configuration)} replaces {@code TreeWalker} the same way and wraps every other root-level check in
+ * a {@link TimedFileSetCheck}. Filters and all other modules are kept as they are, so the rewritten configuration
+ * reports exactly the same violations as the original one.
+ * <p>
+ * A root-level {@code SuppressionFilter} of a local suppressions file is expanded into its single filters, see
+ * {@link CompiledConfiguration#suppressionFilters(Path)}, so that {@link FileTextChecker} can compile them into a
+ * {@link SuppressionIndex} and skip the suppressed checks. Configurations with such rules always run on
+ * {@link ManagedTreeWalker}, which skips the suppressed checks of the TreeWalker as well.
+ */
+public final class EngineConfiguration {
+    private static final String SUPPRESSION_FILTER = "SuppressionFilter";
+    private static final Set<String> SUPPRESSION_FILTER_PROPERTIES = Set.of("file", "optional");
+
+    private EngineConfiguration() {
+    }
+
+    /**
+     * Returns the configuration for audits without module timing: the substitutions applied to the stock modules, with
+     * {@link ManagedTreeWalker} only when suppressions are compiled.
+     */
+    public static Configuration substitute(Configuration root) throws CheckstyleException {
+        return substitute(root, null);
+    }
+
+    /**
+     * Returns the configuration for audits without module timing that share a {@link ParseCache}: the substitutions
+     * applied to the stock modules, with {@link ManagedTreeWalker} in place of {@code TreeWalker}.
+     */
+    public static Configuration share(Configuration root) throws CheckstyleException {
+        return substitute(root, ManagedTreeWalker.class.getName());
+    }
+
+    private static Configuration substitute(Configuration root, String treeWalkerName) throws CheckstyleException {
+        List<Configuration> children = rootChildren(root);
+        String managedName = treeWalkerName == null && SuppressionIndex.hasRules(children)
+                ? ManagedTreeWalker.class.getName() : treeWalkerName;
+        DefaultConfiguration substituted = ConfigurationModules.copyWithoutChildren(root);
+        for (Configuration child : children) {
+            if (ConfigurationModules.isTreeWalker(child)) {
+                substituted.addChild(rename(child, managedName == null ? child.getName() : managedName,
+                        CheckSubstitutions.substituteTreeWalkerChildren(child)));
+            } else {
+                substituted.addChild(child);
+            }
+        }
+        return substituted;
+    }
+
+    /**
+     * Returns the configuration for timed audits, running on the instrumented modules.
+     */
+    public static Configuration rewrite(Configuration root) throws CheckstyleException {
+        DefaultConfiguration rewritten = ConfigurationModules.copyWithoutChildren(root);
+        for (Configuration child : rootChildren(root)) {
+            if (ConfigurationModules.isTreeWalker(child)) {
+                rewritten.addChild(rename(child, ManagedTreeWalker.class.getName(),
+                        CheckSubstitutions.substituteTreeWalkerChildren(child)));
+            } else if (ConfigurationModules.isFilter(child)) {
+                rewritten.addChild(child);
+            } else {
+                DefaultConfiguration timed = new DefaultConfiguration(TimedFileSetCheck.class.getName());
+                String replaced = CheckSubstitutions.replacedModuleName(child);
+                if (replaced != null) {
+                    timed.addProperty("moduleName", replaced);
+                }
+                timed.addChild(child);
+                rewritten.addChild(timed);
+            }
+        }
+        return rewritten;
+    }
+
+    /**
+     * Returns the substituted root-level modules, with the {@code SuppressionFilter}s of local files expanded.
+     */
+    private static List<Configuration> rootChildren(Configuration root) throws CheckstyleException {
+        List<Configuration> children = new ArrayList<>();
+        for (Configuration child : CheckSubstitutions.substituteRootChildren(root)) {
+            children.addAll(expandSuppressionFilter(child));
+        }
+        return children;
+    }
+
+    /**
+     * Returns the single filters of a {@code SuppressionFilter} whose file is a regular file, or the module itself
+     * when it is no such filter or the file cannot be expanded, so that the filter reports the problem as usual.
+     */
+    private static List<Configuration> expandSuppressionFilter(Configuration module) throws CheckstyleException {
+        if (!CheckSubstitutions.isModule(module, SUPPRESSION_FILTER) || module.getChildren().length > 0
+                || !module.getMessages().isEmpty()
+                || !SUPPRESSION_FILTER_PROPERTIES.containsAll(Arrays.asList(module.getPropertyNames()))) {
+            return List.of(module);
+        }
+        String file = CheckSubstitutions.property(module, "file");
+        try {
+            Path path = file == null ? null : Path.of(file);
+            return path != null && Files.isRegularFile(path) ? CompiledConfiguration.suppressionFilters(path)
+                    : List.of(module);
+        } catch (CheckstyleException | InvalidPathException e) {
+            return List.of(module);
+        }
+    }
+
+    private static Configuration rename(Configuration module, String name, List<Configuration> children)
+            throws CheckstyleException {
+        DefaultConfiguration renamed = new DefaultConfiguration(name);
+        for (String property : module.getPropertyNames()) {
+            renamed.addProperty(property, module.getProperty(property));
+        }
+        module.getMessages().forEach(renamed::addMessage);
+        for (Configuration child : children) {
+            renamed.addChild(child);
+        }
+        return renamed;
+    }
+}
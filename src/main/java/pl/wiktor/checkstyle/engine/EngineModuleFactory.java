@@ -0,0 +1,37 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+/**
+ * Module factory that hands the checker's {@link Instrumentation} and {@link ParseCache} to the engine modules and
+ * resolves every other module like the default Checkstyle factory.
+ */
+public final class EngineModuleFactory implements ModuleFactory {
+    private final ModuleFactory delegate;
+    private final Instrumentation instrumentation;
+    private final ParseCache parseCache;
+
+    /**
+     * @param parseCache cache shared by the {@link ManagedTreeWalker} modules, or {@code null}
+     */
+    public EngineModuleFactory(ClassLoader classLoader, Instrumentation instrumentation, ParseCache parseCache)
+            throws CheckstyleException {
+        this.delegate = new PackageObjectFactory(PackageNamesLoader.getPackageNames(classLoader), classLoader);
+        this.instrumentation = instrumentation;
+        this.parseCache = parseCache;
+    }
+
+    @Override
+    public Object createModule(String name) throws CheckstyleException {
+        if (ManagedTreeWalker.class.getName().equals(name)) {
+            return new ManagedTreeWalker(instrumentation, parseCache);
+        }
+        if (TimedFileSetCheck.class.getName().equals(name)) {
+            return new TimedFileSetCheck(instrumentation);
+        }
+        return delegate.createModule(name);
+    }
+}
@@ -0,0 +1,377 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.Definitions;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AbstractViolationReporter;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilter;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilterSet;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevelCounter;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+import pl.wiktor.checkstyle.checks.LineCheck;
+import pl.wiktor.checkstyle.checks.LineIndex;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+import pl.wiktor.checkstyle.metrics.FlightRecorderEvents;
+import pl.wiktor.checkstyle.metrics.FlightRecorderListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * {@link Checker} that can also audit files one at a time from text that was read elsewhere, e.g. by another thread.
+ * <p>
+ * {@link #process(File, FileText)} mirrors the per-file part of {@link Checker#process(List)} of Checkstyle
+ * {@value ManagedTreeWalker#CHECKSTYLE_VERSION}: the before-execution filters, file-set checks, filters and listeners
+ * see exactly what they see there, only the file is not read again. Such an audit is opened by
+ * {@link #beginProcessing()} and closed by {@link #finishProcessing()}. Unlike {@link Checker#process(List)}, it
+ * leaves the audit started and finished events and the {@code fileExtensions} filter to the caller, and it does not
+ * support Checkstyle's own {@code cacheFile}.
+ * <p>
+ * With a {@link ParseCache} set, the files are read through the cache, so that unchanged files reach the file-set
+ * checks as the same {@link FileText} and {@link ManagedTreeWalker} can reuse their syntax trees.
+ * <p>
+ * Root-level suppression filters accepted by {@link SuppressionIndex#isRule(Configuration, boolean)} are compiled into
+ * a {@link SuppressionIndex} instead of being created: the file-set checks whose violations it suppresses in a file
+ * are not run on that file, and neither are the checks of a {@link ManagedTreeWalker} child.
+ * <p>
+ * A file whose text is read here and that only {@link LineCheck}s audit, e.g. a file no TreeWalker check runs on
+ * because of its extension or the suppressions, is read into a {@link LineIndex} instead of a {@link FileText}, which
+ * the line checks measure in place.
+ * <p>
+ * Every audited file is recorded as a {@link FlightRecorderEvents.FileAudit} by a {@link FlightRecorderListener}
+ * attached to every checker, and every root-level check processing a file as a
+ * {@link FlightRecorderEvents.CheckExecution}, TreeWalker counting as one check.
+ */
+public final class FileTextChecker extends Checker {
+    private final List<FileSetCheck> fileSetChecks = new ArrayList<>();
+    private final BeforeExecutionFileFilterSet beforeExecutionFileFilters = new BeforeExecutionFileFilterSet();
+    private String basedir;
+    private String charset = System.getProperty("file.encoding", StandardCharsets.UTF_8.name());
+    private boolean haltOnException;
+    private boolean cacheFile;
+    private String[] fileExtensions = new String[0];
+    private ParseCache parseCache;
+    private final SuppressionIndex suppressions = new SuppressionIndex();
+    private BitSet[] suppressionRules = new BitSet[0];
+    private boolean readsLines;
+    private final FlightRecorderListener flightRecorder = new FlightRecorderListener();
+    private String[] checkNames = new String[0];
+
+    public FileTextChecker() {
+        addListener(flightRecorder);
+    }
+
+    /**
+     * Takes the {@code fileExtensions} from the configuration, since {@link Checker} keeps them to itself.
+     */
+    @Override
+    protected void finishLocalSetup() throws CheckstyleException {
+        super.finishLocalSetup();
+        Configuration configuration = getConfiguration();
+        if (Arrays.asList(configuration.getPropertyNames()).contains("fileExtensions")) {
+            fileExtensions = Arrays.stream(configuration.getProperty("fileExtensions").split(","))
+                    .map(String::trim)
+                    .filter(extension -> !extension.isEmpty())
+                    .map(extension -> extension.startsWith(".") ? extension : "." + extension)
+                    .toArray(String[]::new);
+        }
+    }
+
+    /**
+     * Compiles the suppression filters the {@link SuppressionIndex} accepts, and sets up every other child like
+     * {@link Checker} does.
+     */
+    @Override
+    protected void setupChild(Configuration childConf) throws CheckstyleException {
+        if (!SuppressionIndex.isRule(childConf, false)) {
+            super.setupChild(childConf);
+            return;
+        }
+        if (suppressions.isEmpty()) {
+            addFilter(suppressions);
+        }
+        suppressions.add(childConf);
+    }
+
+    @Override
+    public void addFileSetCheck(FileSetCheck fileSetCheck) {
+        super.addFileSetCheck(fileSetCheck);
+        fileSetChecks.add(fileSetCheck);
+        readsLines |= isLineCheck(fileSetCheck);
+        if (fileSetCheck instanceof ManagedTreeWalker treeWalker) {
+            treeWalker.setRootSuppressions(suppressions);
+        }
+    }
+
+    @Override
+    public void addBeforeExecutionFileFilter(BeforeExecutionFileFilter filter) {
+        super.addBeforeExecutionFileFilter(filter);
+        beforeExecutionFileFilters.addBeforeExecutionFileFilter(filter);
+    }
+
+    @Override
+    public void removeBeforeExecutionFileFilter(BeforeExecutionFileFilter filter) {
+        super.removeBeforeExecutionFileFilter(filter);
+        beforeExecutionFileFilters.removeBeforeExecutionFileFilter(filter);
+    }
+
+    @Override
+    public void setBasedir(String basedir) {
+        super.setBasedir(basedir);
+        this.basedir = basedir;
+    }
+
+    @Override
+    public void setCharset(String charset) throws UnsupportedEncodingException {
+        super.setCharset(charset);
+        this.charset = charset;
+    }
+
+    @Override
+    public void setHaltOnException(boolean haltOnException) {
+        super.setHaltOnException(haltOnException);
+        this.haltOnException = haltOnException;
+    }
+
+    @Override
+    public void setCacheFile(String fileName) throws IOException {
+        super.setCacheFile(fileName);
+        cacheFile = true;
+    }
+
+    /**
+     * Sets the cache the files are read through, or {@code null} to read every file.
+     */
+    public void setParseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
+    /**
+     * Returns the charset the file-set checks expect the text to be decoded with.
+     */
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * Audits the files like {@link Checker#process(List)} with the listener attached for this audit only.
+     *
+     * @return the number of errors
+     */
+    public int process(List<File> files, AuditListener listener) throws CheckstyleException {
+        return process(files, listener, null);
+    }
+
+    /**
+     * Audits the files like {@link Checker#process(List)} with the listener attached for this audit only, skipping
+     * the files refused by the admission test, which is asked right before each file is audited.
+     * <p>
+     * The files are audited one at a time, unless Checkstyle's own {@code cacheFile} is set and neither a
+     * {@link ParseCache}, compiled suppressions nor an admission test are, in which case {@link Checker#process(List)}
+     * audits them. One at a time, the audit started and finished events go to the given listener only, so no other
+     * listener that needs them may be attached.
+     *
+     * @param admission decides whether a file is still to be audited, e.g. {@code ViolationBudget::admit}, or
+     *                  {@code null} to audit all files
+     * @return the number of errors
+     */
+    public int process(List<File> files, AuditListener listener, Predicate<File> admission)
+            throws CheckstyleException {
+        addListener(listener);
+        try {
+            if (cacheFile && parseCache == null && suppressions.isEmpty() && admission == null) {
+                return super.process(files);
+            }
+            SeverityLevelCounter errors = new SeverityLevelCounter(SeverityLevel.ERROR);
+            addListener(errors);
+            try {
+                listener.auditStarted(new AuditEvent(this));
+                beginProcessing();
+                for (File file : files) {
+                    if (CommonUtil.matchesFileExtension(file, fileExtensions)
+                            && (admission == null || admission.test(file))) {
+                        process(file, null);
+                    }
+                }
+                finishProcessing();
+                listener.auditFinished(new AuditEvent(this));
+            } finally {
+                removeListener(errors);
+            }
+            return errors.getCount();
+        } finally {
+            removeListener(listener);
+        }
+    }
+
+    /**
+     * Starts an audit of single files: notifies every file-set check that processing begins.
+     */
+    public void beginProcessing() throws CheckstyleException {
+        if (cacheFile) {
+            throw new CheckstyleException("The cacheFile property is not supported when auditing files one at a "
+                    + "time, use the runner's result cache instead");
+        }
+        suppressionRules = new BitSet[fileSetChecks.size()];
+        checkNames = new String[fileSetChecks.size()];
+        for (int i = 0; i < fileSetChecks.size(); i++) {
+            checkNames[i] = moduleKey(fileSetChecks.get(i));
+            fileSetChecks.get(i).beginProcessing(charset);
+            suppressionRules[i] = suppressions.isEmpty() ? null : suppressions.rules(fileSetChecks.get(i));
+        }
+    }
+
+    /**
+     * Audits one file, reporting it to the listeners like {@link Checker#process(List)} does.
+     *
+     * @param text the file's content read with {@link #getCharset()}, or {@code null} to read it here or through the
+     *             {@link ParseCache}, e.g. because reading it elsewhere failed and the failure should be reported the
+     *             way the checker reports it
+     */
+    public void process(File file, FileText text) throws CheckstyleException {
+        String filePath = file.getPath();
+        try {
+            String fileName = file.getAbsolutePath();
+            if (!beforeExecutionFileFilters.accept(CommonUtil.relativizePath(basedir, fileName))) {
+                return;
+            }
+            fireFileStarted(fileName);
+            fireErrors(fileName, processText(file, text));
+            fireFileFinished(fileName);
+        } catch (Exception e) {
+            throw new CheckstyleException("Exception was thrown while processing " + filePath, e);
+        } catch (Error e) {
+            throw new Error("Error was thrown while processing " + filePath, e);
+        }
+    }
+
+    /**
+     * Ends an audit of single files: lets every file-set check report its cross-file results and clean up.
+     */
+    public void finishProcessing() {
+        fileSetChecks.forEach(FileSetCheck::finishProcessing);
+        fileSetChecks.forEach(FileSetCheck::destroy);
+    }
+
+    private SortedSet<Violation> processText(File file, FileText text) throws Exception {
+        SortedSet<Violation> violations = new TreeSet<>();
+        try {
+            String fileName = file.getAbsolutePath();
+            LineIndex lines = text == null && readsLines && !needsText(file, fileName) ? readLines(file) : null;
+            if (lines != null) {
+                flightRecorder.linesRead(lines.size());
+                for (int i = 0; i < fileSetChecks.size(); i++) {
+                    if (isLineCheck(fileSetChecks.get(i)) && !isSuppressed(i, fileName)) {
+                        violations.addAll(processCheck(i, file, null, lines));
+                    }
+                }
+                return violations;
+            }
+
+            FileText fileText = text;
+            if (fileText == null) {
+                fileText = parseCache == null ? new FileText(file.getAbsoluteFile(), charset)
+                        : parseCache.text(file, charset);
+            }
+            flightRecorder.linesRead(fileText.size());
+            for (int i = 0; i < fileSetChecks.size(); i++) {
+                if (!isSuppressed(i, fileName)) {
+                    violations.addAll(processCheck(i, file, fileText, null));
+                }
+            }
+        } catch (IOException e) {
+            violations.add(new Violation(1, Definitions.CHECKSTYLE_BUNDLE, EXCEPTION_MSG,
+                    new String[] {e.getMessage()}, null, getClass(), null));
+        } catch (Exception e) {
+            if (haltOnException) {
+                throw e;
+            }
+            StringWriter trace = new StringWriter();
+            e.printStackTrace(new PrintWriter(trace, true));
+            violations.add(new Violation(1, Definitions.CHECKSTYLE_BUNDLE, EXCEPTION_MSG,
+                    new String[] {trace.toString()}, null, getClass(), null));
+        }
+        return violations;
+    }
+
+    /**
+     * Runs one check on the file's text, or on its lines when no text is given, recording the execution.
+     */
+    private SortedSet<Violation> processCheck(int check, File file, FileText text, LineIndex lines)
+            throws CheckstyleException {
+        FlightRecorderEvents.CheckExecution event = FlightRecorderEvents.beginCheckExecution();
+        FileSetCheck fileSetCheck = fileSetChecks.get(check);
+        SortedSet<Violation> found = text == null ? ((LineCheck) fileSetCheck).process(file, lines)
+                : fileSetCheck.process(file, text);
+        if (event != null) {
+            event.finish(checkNames[check], file.getAbsolutePath(), found.size());
+        }
+        return found;
+    }
+
+    private boolean isSuppressed(int check, String fileName) {
+        BitSet rules = suppressionRules[check];
+        return rules != null && suppressions.suppresses(fileName, rules);
+    }
+
+    /**
+     * Tells whether a check that is not a line check would run on the file.
+     */
+    private boolean needsText(File file, String fileName) {
+        for (int i = 0; i < fileSetChecks.size(); i++) {
+            FileSetCheck check = fileSetChecks.get(i);
+            if (isLineCheck(check) || isSuppressed(i, fileName)) {
+                continue;
+            }
+            FileSetCheck module = check instanceof TimedFileSetCheck timed ? timed.delegate() : check;
+            boolean runs = module instanceof ManagedTreeWalker managed ? !managed.skipsFile(file)
+                    : !(module instanceof TreeWalker treeWalker)
+                            || CommonUtil.matchesFileExtension(file, treeWalker.getFileExtensions());
+            if (runs) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the lines of the file, or returns {@code null} when that fails, so that reading its {@link FileText}
+     * reports the failure the way the checker does.
+     */
+    private LineIndex readLines(File file) {
+        try {
+            return LineIndex.read(file.getAbsoluteFile(), charset);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String moduleKey(FileSetCheck check) {
+        FileSetCheck module = check instanceof TimedFileSetCheck timed ? timed.delegate() : check;
+        return AuditMetrics.moduleKey(module instanceof AbstractViolationReporter reporter ? reporter.getId() : null,
+                CheckSubstitutions.sourceName(module));
+    }
+
+    private static boolean isLineCheck(FileSetCheck check) {
+        return check instanceof LineCheck lineCheck && lineCheck.readsLines();
+    }
+}
@@ -0,0 +1,31 @@
+package pl.wiktor.checkstyle.engine;
+
+import pl.wiktor.checkstyle.metrics.ModuleTimingListener;
+
+import java.io.File;
+
+/**
+ * Per-checker switch for the module timing, shared by the {@link ManagedTreeWalker} and {@link TimedFileSetCheck}
+ * instances of one checker.
+ */
+public final class Instrumentation {
+    private volatile ModuleTimingListener listener;
+
+    /**
+     * Routes timings to the given listener; {@code null} disables the timing.
+     */
+    public void bind(ModuleTimingListener timingListener) {
+        listener = timingListener;
+    }
+
+    public boolean isEnabled() {
+        return listener != null;
+    }
+
+    void record(String module, File file, long nanos, int invocations) {
+        ModuleTimingListener current = listener;
+        if (current != null) {
+            current.moduleTimed(module, file.getAbsolutePath(), nanos, invocations);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import pl.wiktor.checkstyle.metrics.ModuleTimingListener;
+
+/**
+ * One pooled slot of the runner: a {@link Checker} on the stock modules for plain audits and, created by the first
+ * timed audit, a {@link Checker} on the instrumented modules together with the switch for its module timing.
+ * <p>
+ * Plain audits therefore run on {@link ManagedTreeWalker} only when they share a {@link ParseCache}, which the stock
+ * TreeWalker cannot use. Like the checkers, a slot is used by one thread at a time.
+ */
+public final class ManagedChecker {
+    private final FileTextChecker checker;
+    private final Configuration timedConfiguration;
+    private final Instrumentation instrumentation = new Instrumentation();
+    private FileTextChecker timedChecker;
+
+    private ManagedChecker(FileTextChecker checker, Configuration timedConfiguration) {
+        this.checker = checker;
+        this.timedConfiguration = timedConfiguration;
+    }
+
+    /**
+     * Creates a slot for configurations already rewritten by {@link EngineConfiguration#substitute(Configuration)},
+     * or {@link EngineConfiguration#share(Configuration)} when a parse cache is given, and
+     * {@link EngineConfiguration#rewrite(Configuration)}.
+     *
+     * @param parseCache cache of file texts and syntax trees shared with other slots, or {@code null}; timed audits
+     *                   never use it, so that they measure the parser too
+     */
+    public static ManagedChecker create(Configuration configuration, Configuration timedConfiguration,
+                                        ParseCache parseCache) throws CheckstyleException {
+        return new ManagedChecker(createChecker(configuration, new Instrumentation(), parseCache), timedConfiguration);
+    }
+
+    /**
+     * Returns the checker on the stock modules.
+     */
+    public FileTextChecker checker() {
+        return checker;
+    }
+
+    /**
+     * Returns the checker on the instrumented modules with its timing routed to the given listener until
+     * {@link #unbind()}.
+     */
+    public FileTextChecker timedChecker(ModuleTimingListener listener) throws CheckstyleException {
+        if (timedChecker == null) {
+            timedChecker = createChecker(timedConfiguration, instrumentation, null);
+        }
+        instrumentation.bind(listener);
+        return timedChecker;
+    }
+
+    /**
+     * Disables the module timing again.
+     */
+    public void unbind() {
+        instrumentation.bind(null);
+    }
+
+    public void destroy() {
+        checker.destroy();
+        if (timedChecker != null) {
+            timedChecker.destroy();
+        }
+    }
+
+    private static FileTextChecker createChecker(Configuration configuration, Instrumentation instrumentation,
+                                                 ParseCache parseCache) throws CheckstyleException {
+        FileTextChecker created = new FileTextChecker();
+        created.setModuleFactory(new EngineModuleFactory(Checker.class.getClassLoader(), instrumentation,
+                parseCache));
+        created.setParseCache(parseCache);
+        created.configure(configuration);
+        return created;
+    }
+}
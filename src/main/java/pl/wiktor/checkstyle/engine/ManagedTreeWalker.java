@@ -0,0 +1,517 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.AbstractAutomaticBean;
+import com.puppycrawl.tools.checkstyle.DefaultContext;
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.TreeWalkerAuditEvent;
+import com.puppycrawl.tools.checkstyle.TreeWalkerFilter;
+import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.Context;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.ExternalResourceHolder;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+import com.puppycrawl.tools.checkstyle.utils.TokenUtil;
+import pl.wiktor.checkstyle.checks.ForbiddenPatternsCheck;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+import pl.wiktor.checkstyle.metrics.CombinedModuleTiming;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replacement for Checkstyle's {@link TreeWalker} used by the runner for timed audits and for audits sharing a
+ * {@link ParseCache}.
+ * <p>
+ * It accepts the same properties and children, registers checks with the same validation, parses every file once,
+ * notifies the checks in the same order and applies the TreeWalker filters the same way, so the reported violations
+ * are identical. While the checker's {@link Instrumentation} is enabled the time spent in the parser and in every
+ * check is reported per file. With a {@link ParseCache}, files whose text came from the cache are parsed only when
+ * their tree is not cached yet.
+ * <p>
+ * The {@code SuppressionXpathSingleFilter} children accepted by {@link SuppressionIndex#isRule(Configuration, boolean)}
+ * are compiled into a {@link SuppressionIndex}; a check whose violations in a file are suppressed by it or by the
+ * index of the root-level filters is not run on that file, and a file is not parsed when no check is left.
+ * <p>
+ * The class mirrors the internals of {@link TreeWalker} of the Checkstyle version it was written against,
+ * {@value #CHECKSTYLE_VERSION}; {@code ManagedTreeWalkerTest} fails on any other version until it has been compared
+ * again.
+ */
+public final class ManagedTreeWalker extends AbstractFileSetCheck implements ExternalResourceHolder {
+    /**
+     * Module key under which the time spent parsing is reported.
+     */
+    public static final String PARSER_KEY = "JavaParser";
+
+    /**
+     * Checkstyle version whose {@link TreeWalker} this class mirrors.
+     */
+    public static final String CHECKSTYLE_VERSION = "10.20.0";
+
+    private static final String MESSAGE_BUNDLE = "com.puppycrawl.tools.checkstyle.messages";
+
+    private final Instrumentation instrumentation;
+    private final ParseCache parseCache;
+    private final Map<Integer, SortedSet<CheckSlot>> tokenToOrdinaryChecks = new HashMap<>();
+    private final Map<Integer, SortedSet<CheckSlot>> tokenToCommentChecks = new HashMap<>();
+    private final SortedSet<CheckSlot> ordinaryChecks = createSlotSet();
+    private final SortedSet<CheckSlot> commentChecks = createSlotSet();
+    private final Set<TreeWalkerFilter> filters = new HashSet<>();
+    private final SuppressionIndex suppressions = new SuppressionIndex();
+    private SuppressionIndex rootSuppressions;
+    private final SortedSet<Violation> violations = new TreeSet<>();
+    private Context childContext;
+    private ModuleFactory moduleFactory;
+    private boolean skipFileOnJavaParseException;
+    private SeverityLevel javaParseExceptionSeverity = SeverityLevel.ERROR;
+
+    /**
+     * @param parseCache cache of the syntax trees shared with other checkers, or {@code null} to parse every file
+     */
+    public ManagedTreeWalker(Instrumentation instrumentation, ParseCache parseCache) {
+        this.instrumentation = instrumentation;
+        this.parseCache = parseCache;
+        setFileExtensions("java");
+    }
+
+    public void setModuleFactory(ModuleFactory moduleFactory) {
+        this.moduleFactory = moduleFactory;
+    }
+
+    public void setSkipFileOnJavaParseException(boolean skipFileOnJavaParseException) {
+        this.skipFileOnJavaParseException = skipFileOnJavaParseException;
+    }
+
+    public void setJavaParseExceptionSeverity(SeverityLevel javaParseExceptionSeverity) {
+        this.javaParseExceptionSeverity = javaParseExceptionSeverity;
+    }
+
+    /**
+     * Sets the compiled root-level suppressions of the checker, whose checks are skipped as well.
+     */
+    void setRootSuppressions(SuppressionIndex rootSuppressions) {
+        this.rootSuppressions = rootSuppressions;
+    }
+
+    @Override
+    public void finishLocalSetup() {
+        DefaultContext checkContext = new DefaultContext();
+        checkContext.add("severity", getSeverity());
+        checkContext.add("tabWidth", String.valueOf(getTabWidth()));
+        childContext = checkContext;
+    }
+
+    @Override
+    public void setupChild(Configuration childConf) throws CheckstyleException {
+        if (SuppressionIndex.isRule(childConf, true)) {
+            suppressions.add(childConf);
+            return;
+        }
+        String name = childConf.getName();
+        Object module;
+
+        try {
+            module = moduleFactory.createModule(name);
+            if (module instanceof AbstractAutomaticBean bean) {
+                bean.contextualize(childContext);
+                bean.configure(childConf);
+            }
+        } catch (CheckstyleException e) {
+            throw new CheckstyleException("cannot initialize module " + name + " - " + e.getMessage(), e);
+        }
+
+        if (module instanceof AbstractCheck check) {
+            check.init();
+            registerCheck(check);
+        } else if (module instanceof TreeWalkerFilter filter) {
+            filters.add(filter);
+        } else {
+            throw new CheckstyleException("TreeWalker is not allowed as a parent of " + name + " Please review "
+                    + "'Parent Module' section for this Check in web documentation if Check is standard.");
+        }
+    }
+
+    @Override
+    public void beginProcessing(String charset) {
+        super.beginProcessing(charset);
+        ordinaryChecks.forEach(slot -> slot.findSuppressionRules(rootSuppressions, suppressions));
+        commentChecks.forEach(slot -> slot.findSuppressionRules(rootSuppressions, suppressions));
+    }
+
+    @Override
+    public void destroy() {
+        ordinaryChecks.forEach(slot -> slot.check.destroy());
+        commentChecks.forEach(slot -> slot.check.destroy());
+        super.destroy();
+    }
+
+    @Override
+    public Set<String> getExternalResourceLocations() {
+        return Stream.of(filters.stream(), ordinaryChecks.stream().map(slot -> slot.check),
+                        commentChecks.stream().map(slot -> slot.check))
+                .flatMap(modules -> modules)
+                .filter(ExternalResourceHolder.class::isInstance)
+                .flatMap(holder -> ((ExternalResourceHolder) holder).getExternalResourceLocations().stream())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    protected void processFiltered(File file, FileText fileText) throws CheckstyleException {
+        String fileName = file.getAbsolutePath();
+        boolean ordinary = skipSuppressedChecks(ordinaryChecks, fileName);
+        boolean comments = skipSuppressedChecks(commentChecks, fileName);
+        if (!ordinary && !comments) {
+            return;
+        }
+
+        boolean timed = instrumentation.isEnabled();
+        FileContents contents = getFileContents();
+        DetailAST rootAst = cachedTree(fileText, false);
+        DetailAST commentAst = comments ? cachedTree(fileText, true) : null;
+        DetailAST parsed = null;
+        if (rootAst == null && (ordinary || commentAst == null)) {
+            parsed = parse(file, contents, timed);
+            if (parsed == null) {
+                return;
+            }
+            rootAst = !comments || commentAst != null ? storeTree(fileText, false, parsed) : parsed;
+        }
+
+        try {
+            if (ordinary) {
+                walk(rootAst, contents, ordinaryChecks, tokenToOrdinaryChecks, timed);
+            }
+            if (comments) {
+                if (commentAst == null) {
+                    DetailAST uncommented = parsed == null ? parse(file, contents, timed) : parsed;
+                    if (uncommented == null) {
+                        return;
+                    }
+                    commentAst = storeTree(fileText, true, JavaParser.appendHiddenCommentNodes(uncommented));
+                }
+                rootAst = commentAst;
+                walk(commentAst, contents, commentChecks, tokenToCommentChecks, timed);
+            }
+            if (filters.isEmpty() && suppressions.isEmpty()) {
+                addViolations(violations);
+            } else {
+                addViolations(filterViolations(fileName, contents, rootAst));
+            }
+            if (timed) {
+                reportTimings(file, ordinaryChecks);
+                reportTimings(file, commentChecks);
+            }
+        } finally {
+            violations.clear();
+        }
+    }
+
+    /**
+     * Tells whether no check would run on the file, because its extension is not audited or every check is suppressed
+     * there, so that the file needs neither its text nor a syntax tree.
+     */
+    boolean skipsFile(File file) {
+        if (!CommonUtil.matchesFileExtension(file, getFileExtensions())) {
+            return true;
+        }
+        String fileName = file.getAbsolutePath();
+        return !skipSuppressedChecks(ordinaryChecks, fileName) && !skipSuppressedChecks(commentChecks, fileName);
+    }
+
+    /**
+     * Marks the checks whose violations in the file are suppressed as skipped, and tells whether any check is left.
+     */
+    private static boolean skipSuppressedChecks(SortedSet<CheckSlot> checks, String fileName) {
+        boolean active = false;
+        for (CheckSlot slot : checks) {
+            slot.skipSuppressed(fileName);
+            active |= !slot.skipped;
+        }
+        return active;
+    }
+
+    /**
+     * Parses the file, or reports the parse error and returns {@code null} when the file is to be skipped.
+     */
+    private DetailAST parse(File file, FileContents contents, boolean timed) throws CheckstyleException {
+        long parseStart = timed ? System.nanoTime() : 0L;
+        DetailAST rootAst;
+        try {
+            rootAst = JavaParser.parse(contents);
+        } catch (CheckstyleException e) {
+            if (!skipFileOnJavaParseException) {
+                throw e;
+            }
+            violations.add(new Violation(1, MESSAGE_BUNDLE, TreeWalker.PARSE_EXCEPTION_MSG,
+                    new Object[] {e.getMessage()}, javaParseExceptionSeverity, null, TreeWalker.class, null));
+            addViolations(violations);
+            violations.clear();
+            return null;
+        }
+        if (timed) {
+            instrumentation.record(PARSER_KEY, file, System.nanoTime() - parseStart, 1);
+        }
+        return rootAst;
+    }
+
+    private DetailAST cachedTree(FileText fileText, boolean withComments) {
+        return parseCache == null ? null : parseCache.tree(fileText, withComments);
+    }
+
+    private DetailAST storeTree(FileText fileText, boolean withComments, DetailAST tree) {
+        return parseCache == null ? tree : parseCache.store(fileText, withComments, tree);
+    }
+
+    private void walk(DetailAST root, FileContents contents, SortedSet<CheckSlot> checks,
+                      Map<Integer, SortedSet<CheckSlot>> tokenToChecks, boolean timed) {
+        for (CheckSlot slot : checks) {
+            if (slot.skipped) {
+                continue;
+            }
+            if (slot.check instanceof CombinedModuleTiming combined) {
+                combined.setTimingEnabled(timed);
+            }
+            long start = timed ? System.nanoTime() : 0L;
+            slot.check.setFileContents(contents);
+            slot.check.clearViolations();
+            slot.check.beginTree(root);
+            if (timed) {
+                slot.add(start);
+            }
+        }
+
+        DetailAST current = root;
+        while (current != null) {
+            notifyChecks(current, tokenToChecks, true, timed);
+            DetailAST next = current.getFirstChild();
+            while (current != null && next == null) {
+                notifyChecks(current, tokenToChecks, false, timed);
+                next = current.getNextSibling();
+                current = current.getParent();
+            }
+            current = next;
+        }
+
+        for (CheckSlot slot : checks) {
+            if (slot.skipped) {
+                continue;
+            }
+            long start = timed ? System.nanoTime() : 0L;
+            slot.check.finishTree(root);
+            violations.addAll(slot.check.getViolations());
+            if (timed) {
+                slot.add(start);
+            }
+        }
+    }
+
+    private static void notifyChecks(DetailAST ast, Map<Integer, SortedSet<CheckSlot>> tokenToChecks, boolean visit,
+                                     boolean timed) {
+        SortedSet<CheckSlot> slots = tokenToChecks.get(ast.getType());
+        if (slots == null) {
+            return;
+        }
+        for (CheckSlot slot : slots) {
+            if (slot.skipped) {
+                continue;
+            }
+            long start = timed ? System.nanoTime() : 0L;
+            if (visit) {
+                slot.check.visitToken(ast);
+            } else {
+                slot.check.leaveToken(ast);
+            }
+            if (timed) {
+                slot.add(start);
+            }
+        }
+    }
+
+    private SortedSet<Violation> filterViolations(String fileName, FileContents contents, DetailAST rootAst) {
+        SortedSet<Violation> accepted = new TreeSet<>(violations);
+        for (Violation violation : violations) {
+            if (suppressions.suppresses(fileName, suppressions.rules(violation.getSourceName(),
+                    violation.getModuleId()))) {
+                accepted.remove(violation);
+                continue;
+            }
+            TreeWalkerAuditEvent event = new TreeWalkerAuditEvent(contents, fileName, violation, rootAst);
+            for (TreeWalkerFilter filter : filters) {
+                if (!filter.accept(event)) {
+                    accepted.remove(violation);
+                    break;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    private void reportTimings(File file, SortedSet<CheckSlot> checks) {
+        for (CheckSlot slot : checks) {
+            if (slot.skipped) {
+                continue;
+            }
+            if (slot.check instanceof CombinedModuleTiming combined) {
+                reportCombinedTimings(file, slot, combined);
+            } else {
+                instrumentation.record(slot.key, file, slot.nanos, slot.invocations);
+            }
+            slot.nanos = 0L;
+            slot.invocations = 0;
+        }
+    }
+
+    /**
+     * Reports the time of every module of a combined check under its own key; the work they share is split evenly,
+     * so that the reported times add up to the time spent in the check. Modules skipped for the file are not reported.
+     */
+    private void reportCombinedTimings(File file, CheckSlot slot, CombinedModuleTiming combined) {
+        List<String> keys = combined.moduleKeys();
+        long[] nanos = combined.drainNanos();
+        int reported = keys.size() - slot.skippedModules.cardinality();
+        if (reported <= 0) {
+            return;
+        }
+        long shared = Math.max(0L, slot.nanos - Arrays.stream(nanos).sum());
+        int share = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            if (!slot.skippedModules.get(i)) {
+                long time = nanos[i] + shared / reported + (share++ < shared % reported ? 1 : 0);
+                instrumentation.record(keys.get(i), file, time, slot.invocations);
+            }
+        }
+    }
+
+    private void registerCheck(AbstractCheck check) throws CheckstyleException {
+        CheckSlot slot = new CheckSlot(check);
+        int[] tokens;
+        Set<String> checkTokens = check.getTokenNames();
+
+        if (checkTokens.isEmpty()) {
+            tokens = check.getDefaultTokens();
+        } else {
+            tokens = check.getRequiredTokens();
+            int[] acceptableTokens = check.getAcceptableTokens();
+            Arrays.sort(acceptableTokens);
+            for (String token : checkTokens) {
+                int tokenId = TokenUtil.getTokenId(token);
+                if (Arrays.binarySearch(acceptableTokens, tokenId) < 0) {
+                    throw new CheckstyleException(String.format(Locale.ROOT,
+                            "Token \"%s\" was not found in Acceptable tokens list in check %s",
+                            token, check.getClass().getName()));
+                }
+                registerCheck(tokenId, slot);
+            }
+        }
+        for (int token : tokens) {
+            registerCheck(token, slot);
+        }
+
+        if (check.isCommentNodesRequired()) {
+            commentChecks.add(slot);
+        } else {
+            ordinaryChecks.add(slot);
+        }
+    }
+
+    private void registerCheck(int tokenId, CheckSlot slot) throws CheckstyleException {
+        if (slot.check.isCommentNodesRequired()) {
+            tokenToCommentChecks.computeIfAbsent(tokenId, id -> createSlotSet()).add(slot);
+        } else if (TokenUtil.isCommentType(tokenId)) {
+            throw new CheckstyleException(String.format(Locale.ROOT, "Check '%s' waits for comment type token ('%s') "
+                            + "and should override 'isCommentNodesRequired()' method to return 'true'",
+                    slot.check.getClass().getName(), TokenUtil.getTokenName(tokenId)));
+        } else {
+            tokenToOrdinaryChecks.computeIfAbsent(tokenId, id -> createSlotSet()).add(slot);
+        }
+    }
+
+    /**
+     * Same order as the check sets of {@link TreeWalker}: class name, then id, then identity.
+     */
+    private static SortedSet<CheckSlot> createSlotSet() {
+        return new TreeSet<>(Comparator.<CheckSlot, String>comparing(slot -> slot.check.getClass().getName())
+                .thenComparing(slot -> slot.check.getId(), Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingInt(slot -> slot.check.hashCode()));
+    }
+
+    /**
+     * A registered check with its timing for the current file, and whether it is skipped for the file.
+     * <p>
+     * The suppression rules are kept per module the check reports as: the check itself, or every pattern of a
+     * {@link ForbiddenPatternsCheck}, which is skipped when all its patterns are.
+     */
+    private static final class CheckSlot {
+        private final AbstractCheck check;
+        private final String key;
+        private final BitSet skippedModules = new BitSet();
+        private SuppressionIndex rootIndex;
+        private SuppressionIndex localIndex;
+        private BitSet[] rootRules;
+        private BitSet[] localRules;
+        private boolean skipped;
+        private long nanos;
+        private int invocations;
+
+        private CheckSlot(AbstractCheck check) {
+            this.check = check;
+            this.key = AuditMetrics.moduleKey(check.getId(), check.getClass().getName());
+        }
+
+        private void findSuppressionRules(SuppressionIndex root, SuppressionIndex local) {
+            String sourceName = CheckSubstitutions.sourceName(check);
+            List<String> ids = check instanceof ForbiddenPatternsCheck patterns ? patterns.patternIds()
+                    : Collections.singletonList(check.getId());
+            rootIndex = root;
+            localIndex = local;
+            rootRules = root == null || root.isEmpty() ? null
+                    : ids.stream().map(id -> root.rules(sourceName, id)).toArray(BitSet[]::new);
+            localRules = local.isEmpty() ? null
+                    : ids.stream().map(id -> local.rules(sourceName, id)).toArray(BitSet[]::new);
+        }
+
+        private void skipSuppressed(String fileName) {
+            if (rootRules == null && localRules == null) {
+                return;
+            }
+            int modules = rootRules == null ? localRules.length : rootRules.length;
+            skippedModules.clear();
+            for (int i = 0; i < modules; i++) {
+                if (rootRules != null && rootIndex.suppresses(fileName, rootRules[i])
+                        || localRules != null && localIndex.suppresses(fileName, localRules[i])) {
+                    skippedModules.set(i);
+                }
+            }
+            skipped = modules > 0 && skippedModules.cardinality() == modules;
+            if (check instanceof ForbiddenPatternsCheck patterns) {
+                patterns.setSkippedPatterns(skippedModules);
+            }
+        }
+
+        private void add(long start) {
+            nanos += System.nanoTime() - start;
+            invocations++;
+        }
+    }
+}
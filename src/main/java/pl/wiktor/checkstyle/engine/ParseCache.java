@@ -0,0 +1,230 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import pl.wiktor.checkstyle.metrics.FlightRecorderEvents;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded, thread-safe cache of decoded files and their syntax trees, so that a file version is read into a
+ * {@link FileText} and parsed by the Java grammar once, however many checkers, audits or tests see it.
+ * <p>
+ * An entry is keyed by the absolute file path and holds the latest version of the file only: the charset and the
+ * first 128 bits of the SHA-256 of the file's bytes decide whether {@link #text(File, String)} may return the cached
+ * text. The path is part of the key because the {@link FileText} and the trees carry the file they were read from.
+ * Entries are evicted in least recently used order once the cached texts exceed the given number of characters; the
+ * trees of a file take a multiple of the memory of its text.
+ * <p>
+ * {@link ManagedTreeWalker} looks the trees up by the identity of the {@link FileText} it is given, so they are only
+ * shared for texts returned by this cache. It keeps the tree with comment nodes apart from the one without, since
+ * adding the comment nodes changes the tree. Before a text or a tree is shared, its lazily computed line breaks or
+ * token sets are filled, so that checks running on other threads only ever read it.
+ */
+public final class ParseCache {
+    /**
+     * Default bound, in characters of cached file text.
+     */
+    public static final long DEFAULT_MAX_CHARACTERS = 1L << 20;
+
+    private final long maxCharacters;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<FileText, Entry> byText = new IdentityHashMap<>();
+    private long characters;
+    private long hits;
+    private long misses;
+    private long parses;
+
+    public ParseCache(long maxCharacters) {
+        if (maxCharacters < 1) {
+            throw new IllegalArgumentException("Cache bound must be positive, got " + maxCharacters);
+        }
+        this.maxCharacters = maxCharacters;
+    }
+
+    /**
+     * Returns the text of the file decoded with the given charset, reading it through Checkstyle's {@link FileText}
+     * only when this version of the file is not cached. The lookup is recorded as a
+     * {@link FlightRecorderEvents.CacheLookup}.
+     */
+    public FileText text(File file, String charset) throws IOException {
+        FlightRecorderEvents.CacheLookup event = FlightRecorderEvents.beginCacheLookup();
+        File absolute = file.getAbsoluteFile();
+        Path path = absolute.toPath();
+        byte[] content = Files.readAllBytes(path);
+        ByteBuffer hash = ByteBuffer.wrap(sha256().digest(content));
+        long high = hash.getLong();
+        long low = hash.getLong();
+
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null && entry.matches(charset, high, low)) {
+                hits++;
+                if (event != null) {
+                    event.finish(FlightRecorderEvents.CacheLookup.PARSE_CACHE, absolute.getPath(), true);
+                }
+                return entry.text;
+            }
+            misses++;
+        }
+        if (event != null) {
+            event.finish(FlightRecorderEvents.CacheLookup.PARSE_CACHE, absolute.getPath(), false);
+        }
+
+        FileText text = new FileText(absolute, charset);
+        if (text.getFullText().length() > maxCharacters
+                || !text.getFullText().toString().equals(new String(content, Charset.forName(charset)))) {
+            return text;
+        }
+        text.lineColumn(0);
+        synchronized (this) {
+            remove(path);
+            Entry entry = new Entry(text, charset, high, low);
+            entries.put(path, entry);
+            byText.put(text, entry);
+            characters += text.getFullText().length();
+            evict();
+        }
+        return text;
+    }
+
+    /**
+     * Returns the number of {@link #text(File, String)} calls answered from the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of {@link #text(File, String)} calls that read the file.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of trees parsed and stored in the cache.
+     */
+    public synchronized long getParses() {
+        return parses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        byText.clear();
+        characters = 0;
+    }
+
+    /**
+     * Returns the cached tree of the given text, or {@code null} when it is not cached or the text was not returned
+     * by this cache.
+     */
+    synchronized DetailAST tree(FileText text, boolean withComments) {
+        Entry entry = byText.get(text);
+        if (entry == null) {
+            return null;
+        }
+        return withComments ? entry.treeWithComments : entry.tree;
+    }
+
+    /**
+     * Stores a tree freshly parsed from the given text, unless the text is not cached or a tree is already stored, and
+     * returns the stored tree. The tree must not be changed afterwards.
+     */
+    DetailAST store(FileText text, boolean withComments, DetailAST tree) {
+        fillTokenSets(tree);
+        synchronized (this) {
+            Entry entry = byText.get(text);
+            if (entry == null) {
+                return tree;
+            }
+            DetailAST stored = withComments ? entry.treeWithComments : entry.tree;
+            if (stored != null) {
+                return stored;
+            }
+            if (withComments) {
+                entry.treeWithComments = tree;
+            } else {
+                entry.tree = tree;
+            }
+            parses++;
+            return tree;
+        }
+    }
+
+    /**
+     * Computes the token set of every node, which {@code DetailAstImpl} otherwise fills on first use without any
+     * synchronization.
+     */
+    @SuppressWarnings("deprecation")
+    private static void fillTokenSets(DetailAST root) {
+        root.branchContains(root.getType());
+    }
+
+    private void remove(Path path) {
+        Entry removed = entries.remove(path);
+        if (removed != null) {
+            byText.remove(removed.text);
+            characters -= removed.text.getFullText().length();
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (characters > maxCharacters && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            byText.remove(entry.text);
+            characters -= entry.text.getFullText().length();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * One file version: its text and, once parsed, its trees. The trees are guarded by the cache.
+     */
+    private static final class Entry {
+        private final FileText text;
+        private final String charset;
+        private final long high;
+        private final long low;
+        private DetailAST tree;
+        private DetailAST treeWithComments;
+
+        private Entry(FileText text, String charset, long high, long low) {
+            this.text = text;
+            this.charset = charset;
+            this.high = high;
+            this.low = low;
+        }
+
+        private boolean matches(String otherCharset, long otherHigh, long otherLow) {
+            return charset.equals(otherCharset) && high == otherHigh && low == otherLow;
+        }
+    }
+}
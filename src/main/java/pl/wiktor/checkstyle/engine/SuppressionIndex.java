@@ -0,0 +1,314 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AbstractViolationReporter;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.Filter;
+import pl.wiktor.checkstyle.ConfigurationModules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The file-level suppressions of a configuration compiled into one index, which tells once per file which checks are
+ * suppressed there, so that the engine skips those checks for the file instead of running them and filtering their
+ * violations.
+ * <p>
+ * A {@code SuppressionSingleFilter} at the root, or a {@code SuppressionXpathSingleFilter} inside TreeWalker, that sets
+ * no other properties than {@code files}, {@code checks} and {@code id} suppresses every violation of the matching
+ * checks in the matching files, and is compiled into a rule of this index; filters with a message, lines, columns or
+ * an XPath query stay filters. The {@code checks} and {@code id} of every rule are matched once per source and id of
+ * a check and kept as a bit set of rules. A {@code files} expression that only looks for a sequence of directories,
+ * such as {@code .*[\\/]src[\\/]test[\\/]java[\\/].*}, is resolved on a trie of the directories seen so far, so each
+ * directory is matched once; other expressions are matched once per file. A check is skipped for a file when the bit
+ * set of its source intersects the one of the file.
+ * <p>
+ * The index is also the {@link Filter} of its rules, so violations of modules that are never skipped, e.g. the
+ * exceptions reported by the checker or checks that compare files with each other, are suppressed exactly as the
+ * compiled filters suppressed them. Like the checkers, an index is used by one thread at a time.
+ */
+public final class SuppressionIndex implements Filter {
+    private static final String SINGLE_FILTER = "SuppressionSingleFilter";
+    private static final String XPATH_SINGLE_FILTER = "SuppressionXpathSingleFilter";
+    private static final Set<String> RULE_PROPERTIES = Set.of("files", "checks", "id");
+    private static final Set<String> STATEFUL_CHECKS = Set.of("TranslationCheck", "JavadocPackageCheck");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\\\/]");
+    private static final List<String> SEPARATOR_CLASSES = List.of("[\\\\/]", "[/\\\\]");
+    private static final Pattern SEGMENT = Pattern.compile("(?:[A-Za-z0-9_-]|\\\\\\.)+");
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<Rule> fileRegexRules = new ArrayList<>();
+    private final Map<String, BitSet> sourceRules = new HashMap<>();
+    private PathNode root;
+    private String lastFileName;
+    private BitSet lastFileRules;
+
+    /**
+     * Returns whether the module is a filter this index compiles: a {@code SuppressionSingleFilter} at the root or a
+     * {@code SuppressionXpathSingleFilter} inside TreeWalker, with valid expressions and only {@code files},
+     * {@code checks} and {@code id} set.
+     */
+    public static boolean isRule(Configuration module, boolean insideTreeWalker) {
+        if (!CheckSubstitutions.isModule(module, insideTreeWalker ? XPATH_SINGLE_FILTER : SINGLE_FILTER)
+                || module.getChildren().length > 0 || !module.getMessages().isEmpty()) {
+            return false;
+        }
+        try {
+            for (String name : module.getPropertyNames()) {
+                if (!RULE_PROPERTIES.contains(name)) {
+                    return false;
+                }
+                if (!"id".equals(name)) {
+                    Pattern.compile(module.getProperty(name));
+                }
+            }
+            return true;
+        } catch (CheckstyleException | PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether any of the root-level modules, or any filter inside a TreeWalker among them, is compiled.
+     */
+    public static boolean hasRules(List<Configuration> rootModules) {
+        for (Configuration child : rootModules) {
+            if (isRule(child, false)) {
+                return true;
+            }
+            if (ConfigurationModules.isTreeWalker(child)
+                    && Arrays.stream(child.getChildren()).anyMatch(nested -> isRule(nested, true))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the rule of a filter accepted by {@link #isRule(Configuration, boolean)}.
+     */
+    public void add(Configuration filter) throws CheckstyleException {
+        String files = CheckSubstitutions.property(filter, "files");
+        String checks = CheckSubstitutions.property(filter, "checks");
+        Rule rule = new Rule(rules.size(), files == null ? null : Pattern.compile(files), segments(files),
+                checks == null ? null : Pattern.compile(checks), CheckSubstitutions.property(filter, "id"));
+        rules.add(rule);
+        if (files != null && rule.segments() == null) {
+            fileRegexRules.add(rule);
+        }
+        sourceRules.clear();
+        root = null;
+        lastFileName = null;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Returns the rules suppressing the violations of the given source and module id, to be passed to
+     * {@link #suppresses(String, BitSet)}; the result must not be changed.
+     */
+    public BitSet rules(String sourceName, String moduleId) {
+        return sourceRules.computeIfAbsent(sourceName + '\0' + moduleId, key -> {
+            BitSet matching = new BitSet();
+            for (Rule rule : rules) {
+                if ((rule.id() == null || rule.id().equals(moduleId))
+                        && (rule.checks() == null || rule.checks().matcher(sourceName).find())) {
+                    matching.set(rule.index());
+                }
+            }
+            return matching;
+        });
+    }
+
+    /**
+     * Returns whether any of the given rules of a source applies to the file, i.e. its violations there are
+     * suppressed.
+     *
+     * @param fileName the absolute path of the file, as the checker reports it
+     */
+    public boolean suppresses(String fileName, BitSet sourceRules) {
+        return !sourceRules.isEmpty() && fileRules(fileName).intersects(sourceRules);
+    }
+
+    @Override
+    public boolean accept(AuditEvent event) {
+        return rules.isEmpty() || event.getFileName() == null || event.getViolation() == null
+                || !suppresses(event.getFileName(), rules(event.getSourceName(), event.getModuleId()));
+    }
+
+    /**
+     * Returns the rules suppressing the violations of a root-level check, or {@code null} when the check runs on every
+     * file, e.g. because it keeps state across files or is a TreeWalker, whose own checks are skipped one by one.
+     */
+    public BitSet rules(FileSetCheck check) {
+        FileSetCheck module = check instanceof TimedFileSetCheck timed ? timed.delegate() : check;
+        if (!(module instanceof AbstractViolationReporter reporter) || module instanceof ManagedTreeWalker
+                || module instanceof TreeWalker || STATEFUL_CHECKS.contains(module.getClass().getSimpleName())) {
+            return null;
+        }
+        return rules(CheckSubstitutions.sourceName(module), reporter.getId());
+    }
+
+    /**
+     * Returns the rules that apply to the file, resolving its directories on the trie.
+     */
+    private BitSet fileRules(String fileName) {
+        if (fileName.equals(lastFileName)) {
+            return lastFileRules;
+        }
+        BitSet matching;
+        if (hasLineTerminator(fileName)) {
+            matching = new BitSet();
+            for (Rule rule : rules) {
+                if (rule.files() == null || rule.files().matcher(fileName).find()) {
+                    matching.set(rule.index());
+                }
+            }
+        } else {
+            String[] parts = SEPARATORS.split(fileName, -1);
+            PathNode node = root();
+            for (int i = 0; i < parts.length - 1; i++) {
+                node = node.child(parts, i);
+            }
+            matching = node.rules;
+            if (!fileRegexRules.isEmpty()) {
+                matching = (BitSet) matching.clone();
+                for (Rule rule : fileRegexRules) {
+                    if (rule.files().matcher(fileName).find()) {
+                        matching.set(rule.index());
+                    }
+                }
+            }
+        }
+        lastFileName = fileName;
+        lastFileRules = matching;
+        return matching;
+    }
+
+    private PathNode root() {
+        if (root == null) {
+            BitSet everywhere = new BitSet();
+            rules.stream().filter(rule -> rule.files() == null).forEach(rule -> everywhere.set(rule.index()));
+            root = new PathNode(everywhere);
+        }
+        return root;
+    }
+
+    /**
+     * Returns the directory names an expression looks for, when it only matches paths with these directories in a row
+     * after a separator and before another one, or {@code null} otherwise.
+     */
+    private static List<String> segments(String files) {
+        if (files == null) {
+            return null;
+        }
+        String rest = files.startsWith("^.*") ? files.substring(3) : files.startsWith(".*") ? files.substring(2)
+                : files;
+        rest = rest.endsWith(".*$") ? rest.substring(0, rest.length() - 3)
+                : rest.endsWith(".*") ? rest.substring(0, rest.length() - 2) : rest;
+        List<String> segments = new ArrayList<>();
+        String separator = startingSeparator(rest);
+        if (separator == null) {
+            return null;
+        }
+        rest = rest.substring(separator.length());
+        while (!rest.isEmpty()) {
+            Matcher segment = SEGMENT.matcher(rest);
+            if (!segment.lookingAt()) {
+                return null;
+            }
+            rest = rest.substring(segment.end());
+            separator = startingSeparator(rest);
+            if (separator == null) {
+                return null;
+            }
+            rest = rest.substring(separator.length());
+            segments.add(segment.group().replace("\\.", "."));
+        }
+        return segments.isEmpty() ? null : List.copyOf(segments);
+    }
+
+    private static String startingSeparator(String text) {
+        return SEPARATOR_CLASSES.stream().filter(text::startsWith).findFirst().orElse(null);
+    }
+
+    /**
+     * Tells whether the name contains a character that {@code .} does not match, so that {@code .*} cannot be skipped.
+     */
+    private static boolean hasLineTerminator(String fileName) {
+        for (int i = 0; i < fileName.length(); i++) {
+            char c = fileName.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether {@code parts[..index]} ends with the segments, preceded by a separator.
+     */
+    private static boolean endsWith(String[] parts, int index, List<String> segments) {
+        int first = index - segments.size() + 1;
+        if (first < 1) {
+            return false;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            if (!segments.get(i).equals(parts[first + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * One compiled filter; {@code segments} are set when {@code files} only looks for a sequence of directories.
+     */
+    private record Rule(int index, Pattern files, List<String> segments, Pattern checks, String id) {
+    }
+
+    /**
+     * A directory reached by the path of an audited file, with the rules whose directories it ends with or that apply
+     * to a directory above it.
+     */
+    private final class PathNode {
+        private final BitSet rules;
+        private final Map<String, PathNode> children = new HashMap<>();
+
+        private PathNode(BitSet rules) {
+            this.rules = rules;
+        }
+
+        /**
+         * Returns the node of directory {@code parts[index]} below this one, the path up to it being
+         * {@code parts[0..index]}.
+         */
+        private PathNode child(String[] parts, int index) {
+            PathNode child = children.get(parts[index]);
+            if (child == null) {
+                BitSet matching = (BitSet) rules.clone();
+                for (Rule rule : SuppressionIndex.this.rules) {
+                    if (rule.segments() != null && endsWith(parts, index, rule.segments())) {
+                        matching.set(rule.index());
+                    }
+                }
+                child = new PathNode(matching);
+                children.put(parts[index], child);
+            }
+            return child;
+        }
+    }
+}
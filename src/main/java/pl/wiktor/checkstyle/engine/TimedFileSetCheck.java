@@ -0,0 +1,184 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.AbstractAutomaticBean;
+import com.puppycrawl.tools.checkstyle.DefaultContext;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.ExternalResourceHolder;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.MessageDispatcher;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import pl.wiktor.checkstyle.checks.LineCheck;
+import pl.wiktor.checkstyle.checks.LineIndex;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+
+import java.io.File;
+import java.util.Set;
+import java.util.SortedSet;
+
+/**
+ * Transparent container around a single root-level file-set check that reports the time the check spends per file.
+ * <p>
+ * The wrapped check receives the same context as it would from the {@code Checker} and every {@link FileSetCheck}
+ * call is forwarded unchanged. When the wrapped check is a {@link LineCheck}, so is this container.
+ */
+public final class TimedFileSetCheck extends AbstractAutomaticBean implements LineCheck, ExternalResourceHolder {
+    private final Instrumentation instrumentation;
+    private ModuleFactory moduleFactory;
+    private String charset;
+    private String severity;
+    private String basedir;
+    private int tabWidth;
+    private String moduleName;
+    private FileSetCheck delegate;
+    private String key;
+
+    public TimedFileSetCheck(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    public void setModuleFactory(ModuleFactory moduleFactory) {
+        this.moduleFactory = moduleFactory;
+    }
+
+    public void setCharset(String charset) {
+        this.charset = charset;
+    }
+
+    public void setSeverity(String severity) {
+        this.severity = severity;
+    }
+
+    public void setBasedir(String basedir) {
+        this.basedir = basedir;
+    }
+
+    public void setTabWidth(int tabWidth) {
+        this.tabWidth = tabWidth;
+    }
+
+    /**
+     * Name under which the module is timed when the wrapped check replaces a configured module, see
+     * {@link CheckSubstitutions}; defaults to the class of the wrapped check.
+     */
+    public void setModuleName(String moduleName) {
+        this.moduleName = moduleName;
+    }
+
+    @Override
+    protected void finishLocalSetup() {
+    }
+
+    @Override
+    protected void setupChild(Configuration childConf) throws CheckstyleException {
+        if (delegate != null) {
+            throw new CheckstyleException(getClass().getSimpleName() + " wraps exactly one module, got another: "
+                    + childConf.getName());
+        }
+
+        Object module = moduleFactory.createModule(childConf.getName());
+        if (module instanceof AbstractAutomaticBean bean) {
+            DefaultContext context = new DefaultContext();
+            context.add("charset", charset);
+            context.add("moduleFactory", moduleFactory);
+            context.add("severity", severity);
+            context.add("basedir", basedir);
+            context.add("tabWidth", String.valueOf(tabWidth));
+            bean.contextualize(context);
+            bean.configure(childConf);
+        }
+        if (!(module instanceof FileSetCheck check)) {
+            throw new CheckstyleException(childConf.getName() + " is not a FileSetCheck and cannot be timed");
+        }
+
+        delegate = check;
+        key = AuditMetrics.moduleKey(idOf(childConf), moduleName == null ? module.getClass().getName() : moduleName);
+    }
+
+    /**
+     * Returns the wrapped check.
+     */
+    FileSetCheck delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void setMessageDispatcher(MessageDispatcher dispatcher) {
+        delegate.setMessageDispatcher(dispatcher);
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public void destroy() {
+        delegate.destroy();
+    }
+
+    @Override
+    public void beginProcessing(String fileCharset) {
+        delegate.beginProcessing(fileCharset);
+    }
+
+    @Override
+    public SortedSet<Violation> process(File file, FileText fileText) throws CheckstyleException {
+        if (!instrumentation.isEnabled()) {
+            return delegate.process(file, fileText);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return delegate.process(file, fileText);
+        } finally {
+            instrumentation.record(key, file, System.nanoTime() - start, 1);
+        }
+    }
+
+    @Override
+    public SortedSet<Violation> process(File file, LineIndex lines) throws CheckstyleException {
+        if (!(delegate instanceof LineCheck lineCheck)) {
+            throw new IllegalStateException(delegate.getClass().getName() + " does not read lines");
+        }
+        if (!instrumentation.isEnabled()) {
+            return lineCheck.process(file, lines);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return lineCheck.process(file, lines);
+        } finally {
+            instrumentation.record(key, file, System.nanoTime() - start, 1);
+        }
+    }
+
+    @Override
+    public boolean readsLines() {
+        return delegate instanceof LineCheck lineCheck && lineCheck.readsLines();
+    }
+
+    @Override
+    public void finishProcessing() {
+        delegate.finishProcessing();
+    }
+
+    @Override
+    public Set<String> getExternalResourceLocations() {
+        if (delegate instanceof ExternalResourceHolder holder) {
+            return holder.getExternalResourceLocations();
+        }
+        return Set.of();
+    }
+
+    private static String idOf(Configuration module) throws CheckstyleException {
+        for (String name : module.getPropertyNames()) {
+            if ("id".equals(name)) {
+                return module.getProperty(name);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,297 @@
+package pl.wiktor.checkstyle.git;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Files and lines changed in a local git working tree since a base revision, read with the {@code git} executable
+ * and without any network access.
+ * <p>
+ * The changes are those of {@code git diff --unified=0 <merge-base>}: every commit since the merge base of the base
+ * revision and {@code HEAD}, plus staged and unstaged changes of the working tree. Untracked files that are not
+ * ignored count as changed in full. Deleted files and pure renames have no changed lines and are left out.
+ * <p>
+ * File names are read the way git writes them: the name of a changed file from the {@code +++} line of its header,
+ * which git ends with a tab when the name contains a space and writes as a C-style quoted string when it contains a
+ * quote, a backslash or a control character, and the names of untracked files separated by NUL bytes.
+ */
+public final class GitChanges {
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+    private static final String FILE_HEADER = "diff --git ";
+    private static final String OLD_FILE = "--- ";
+    private static final String NEW_FILE = "+++ ";
+    private static final String NEW_FILE_PREFIX = "b/";
+    private static final char QUOTE = '"';
+
+    private final Map<Path, BitSet> changedLines;
+    private final Set<Path> untracked;
+
+    private GitChanges(Map<Path, BitSet> changedLines, Set<Path> untracked) {
+        this.changedLines = changedLines;
+        this.untracked = untracked;
+    }
+
+    /**
+     * Reads the changes of the repository containing the given directory since the given revision, e.g. a branch
+     * name like {@code main}, a remote-tracking branch or a commit id.
+     *
+     * @throws CheckstyleException when git cannot be run, the directory is not in a repository or the revision is
+     *                             unknown
+     */
+    public static GitChanges since(Path directory, String baseRef) throws CheckstyleException {
+        Path root = Path.of(git(directory, "rev-parse", "--show-toplevel").strip());
+        String mergeBase = git(root, "merge-base", baseRef, "HEAD").strip();
+        String diff = git(root, "diff", "--no-color", "--no-ext-diff", "--no-renames", "--unified=0",
+                "--diff-filter=d", mergeBase, "--");
+        List<String> untracked = List.of(git(root, "ls-files", "-z", "--others", "--exclude-standard").split("\0"));
+        return parse(root, diff, untracked);
+    }
+
+    /**
+     * Parses the output of {@code git diff --unified=0}, with paths relative to the repository root.
+     */
+    static GitChanges parse(Path root, String diff, Collection<String> untrackedFiles) {
+        Path base = root.toAbsolutePath().normalize();
+        Map<Path, BitSet> changedLines = new LinkedHashMap<>();
+        BitSet current = null;
+        boolean header = false;
+        String previous = "";
+        for (String line : diff.split("\n")) {
+            if (line.startsWith(FILE_HEADER)) {
+                header = true;
+                current = null;
+            } else if (header && line.startsWith(NEW_FILE) && previous.startsWith(OLD_FILE)) {
+                header = false;
+                String name = fileName(line.substring(NEW_FILE.length()));
+                current = name.startsWith(NEW_FILE_PREFIX)
+                        ? changedLines.computeIfAbsent(resolve(base, name.substring(NEW_FILE_PREFIX.length())),
+                                file -> new BitSet())
+                        : null;
+            }
+            previous = line;
+            Matcher hunk = HUNK.matcher(line);
+            if (current != null && hunk.find()) {
+                int start = Integer.parseInt(hunk.group(1));
+                int count = hunk.group(2) == null ? 1 : Integer.parseInt(hunk.group(2));
+                current.set(start, start + count);
+            }
+        }
+        changedLines.values().removeIf(BitSet::isEmpty);
+
+        Set<Path> untracked = new HashSet<>();
+        for (String name : untrackedFiles) {
+            if (!name.isEmpty()) {
+                untracked.add(resolve(base, name));
+            }
+        }
+        return new GitChanges(changedLines, untracked);
+    }
+
+    /**
+     * Returns whether the file has changed lines or is untracked.
+     */
+    public boolean isChanged(Path file) {
+        Path key = key(file);
+        return changedLines.containsKey(key) || untracked.contains(key);
+    }
+
+    /**
+     * Returns whether the 1-based line of the file was added or modified. Every line of an untracked file is.
+     */
+    public boolean isChangedLine(Path file, int line) {
+        return isChangedLineOf(key(file), line);
+    }
+
+    /**
+     * Returns the changed files among the given ones, in their order.
+     */
+    public List<File> changedFiles(List<File> files) {
+        List<File> changed = new ArrayList<>();
+        for (File file : files) {
+            if (isChanged(file.toPath())) {
+                changed.add(file);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Drops the events reported on lines that were not changed. Events without a line, like those of file-level
+     * checks, are kept.
+     *
+     * @param events events per absolute file path, as returned by the runner
+     */
+    public Map<Path, List<AuditEvent>> changedLinesOnly(Map<Path, List<AuditEvent>> events) {
+        Map<Path, List<AuditEvent>> result = new LinkedHashMap<>();
+        events.forEach((file, fileEvents) -> {
+            Path key = key(file);
+            result.put(file, fileEvents.stream()
+                    .filter(event -> event.getLine() < 1 || isChangedLineOf(key, event.getLine()))
+                    .toList());
+        });
+        return result;
+    }
+
+    /**
+     * Returns a listener that drops the events reported on lines that were not changed, like
+     * {@link #changedLinesOnly(Map)} does, while the audit runs, and passes every other callback on to the given
+     * listener. It expects its callbacks from one thread at a time.
+     */
+    public AuditListener changedLinesOnly(AuditListener listener) {
+        return new ChangedLinesListener(listener);
+    }
+
+    private boolean isChangedLineOf(Path key, int line) {
+        BitSet lines = changedLines.get(key);
+        return lines != null ? lines.get(line) : untracked.contains(key);
+    }
+
+    /**
+     * Returns the name of a {@code ---} or {@code +++} line without the tab git appends to names containing a space,
+     * and unquoted when git quoted it.
+     */
+    static String fileName(String name) {
+        String unterminated = name.endsWith("\t") ? name.substring(0, name.length() - 1) : name;
+        if (unterminated.length() < 2 || unterminated.charAt(0) != QUOTE
+                || unterminated.charAt(unterminated.length() - 1) != QUOTE) {
+            return unterminated;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 1; i < unterminated.length() - 1; i++) {
+            char c = unterminated.charAt(i);
+            if (c != '\\') {
+                bytes.writeBytes(String.valueOf(c).getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+            char escaped = unterminated.charAt(++i);
+            switch (escaped) {
+                case 'a' -> bytes.write(0x07);
+                case 'b' -> bytes.write('\b');
+                case 't' -> bytes.write('\t');
+                case 'n' -> bytes.write('\n');
+                case 'v' -> bytes.write(0x0B);
+                case 'f' -> bytes.write('\f');
+                case 'r' -> bytes.write('\r');
+                case '0', '1', '2', '3' -> {
+                    bytes.write(Integer.parseInt(unterminated.substring(i, i + 3), 8));
+                    i += 2;
+                }
+                default -> bytes.write(escaped);
+            }
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Path resolve(Path root, String name) {
+        return key(root.resolve(name));
+    }
+
+    /**
+     * Returns the real path of existing files, so that symbolic links in the path of the repository or the audited
+     * files do not hide a match.
+     */
+    private static Path key(Path file) {
+        try {
+            return file.toRealPath();
+        } catch (IOException e) {
+            return file.toAbsolutePath().normalize();
+        }
+    }
+
+    private static String git(Path directory, String... args) throws CheckstyleException {
+        List<String> command = new ArrayList<>(List.of("git", "-c", "core.quotePath=false", "-C",
+                directory.toString()));
+        command.addAll(List.of(args));
+        try {
+            Process process = new ProcessBuilder(command).start();
+            CompletableFuture<String> errors = CompletableFuture
+                    .supplyAsync(() -> read(process.getErrorStream()))
+                    .exceptionally(e -> "");
+            String output = read(process.getInputStream());
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new CheckstyleException("git " + String.join(" ", args) + " failed with exit code " + exitCode
+                        + ": " + errors.join().strip());
+            }
+            return output;
+        } catch (IOException | UncheckedIOException e) {
+            throw new CheckstyleException("Unable to run git in " + directory, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException("Interrupted while running git in " + directory, e);
+        }
+    }
+
+    private static String read(InputStream in) {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Passes on the events of changed lines, see {@link #changedLinesOnly(AuditListener)}.
+     */
+    private final class ChangedLinesListener implements AuditListener {
+        private final AuditListener delegate;
+        private Path key;
+
+        private ChangedLinesListener(AuditListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void auditStarted(AuditEvent e) {
+            delegate.auditStarted(e);
+        }
+
+        @Override
+        public void auditFinished(AuditEvent e) {
+            delegate.auditFinished(e);
+        }
+
+        @Override
+        public void fileStarted(AuditEvent e) {
+            key = key(Path.of(e.getFileName()));
+            delegate.fileStarted(e);
+        }
+
+        @Override
+        public void fileFinished(AuditEvent e) {
+            delegate.fileFinished(e);
+        }
+
+        @Override
+        public void addError(AuditEvent e) {
+            if (e.getLine() < 1 || isChangedLineOf(key, e.getLine())) {
+                delegate.addError(e);
+            }
+        }
+
+        @Override
+        public void addException(AuditEvent e, Throwable t) {
+            delegate.addException(e, t);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package pl.wiktor.checkstyle.metrics;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable snapshot of the per-module and per-file timings and counters of one or more audit runs.
+ * <p>
+ * Modules and files are ordered by descending time. Module keys are the {@code id} of a module when it has one and
+ * its class name without package and {@code Check} suffix otherwise, see {@link #moduleKey(String, String)}.
+ *
+ * @param modules totals per module
+ * @param files   totals per file, with the time of every module on that file
+ */
+public record AuditMetrics(List<ModuleMetrics> modules, List<FileMetrics> files) {
+    private static final String CHECK_SUFFIX = "Check";
+    private static final int TABLE_FILES = 10;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    public AuditMetrics {
+        modules = modules.stream().sorted(Comparator.comparingLong(ModuleMetrics::nanos).reversed()
+                .thenComparing(ModuleMetrics::module)).toList();
+        files = files.stream().sorted(Comparator.comparingLong(FileMetrics::nanos).reversed()
+                .thenComparing(FileMetrics::file)).toList();
+    }
+
+    /**
+     * Derives the key under which a module is reported from its id and class (or source) name.
+     */
+    public static String moduleKey(String moduleId, String className) {
+        if (moduleId != null) {
+            return moduleId;
+        }
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        if (simpleName.endsWith(CHECK_SUFFIX) && simpleName.length() > CHECK_SUFFIX.length()) {
+            return simpleName.substring(0, simpleName.length() - CHECK_SUFFIX.length());
+        }
+        return simpleName;
+    }
+
+    public Optional<ModuleMetrics> module(String key) {
+        return modules.stream()
+                .filter(module -> module.module().equals(key))
+                .findFirst();
+    }
+
+    public long totalNanos() {
+        return modules.stream().mapToLong(ModuleMetrics::nanos).sum();
+    }
+
+    /**
+     * Formats the module totals and the slowest files as a plain-text table.
+     */
+    public String toSummaryTable() {
+        long total = totalNanos();
+        StringBuilder table = new StringBuilder();
+        int width = modules.stream().mapToInt(module -> module.module().length()).max().orElse(0);
+        width = Math.max(width, "Module".length());
+        String row = "%-" + width + "s %10s %7s %10s %6s %10s%n";
+
+        table.append(String.format(Locale.ROOT, row, "Module", "Time [ms]", "Share", "Calls", "Files", "Violations"));
+        for (ModuleMetrics module : modules) {
+            table.append(String.format(Locale.ROOT, row, module.module(), millis(module.nanos()),
+                    String.format(Locale.ROOT, "%.1f%%", total == 0 ? 0.0 : 100.0 * module.nanos() / total),
+                    module.invocations(), module.files(), module.violations()));
+        }
+        table.append(String.format(Locale.ROOT, row, "Total", millis(total), "", "", files.size(),
+                modules.stream().mapToLong(ModuleMetrics::violations).sum()));
+
+        if (!files.isEmpty()) {
+            table.append(String.format(Locale.ROOT, "%nSlowest files:%n"));
+            for (FileMetrics file : files.subList(0, Math.min(TABLE_FILES, files.size()))) {
+                table.append(String.format(Locale.ROOT, "%10s  %s%n", millis(file.nanos()), file.file()));
+            }
+        }
+        return table.toString();
+    }
+
+    /**
+     * Formats the whole snapshot as a JSON document; times are reported in nanoseconds.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"totalNanos\":").append(totalNanos()).append(",\"modules\":[");
+        for (int i = 0; i < modules.size(); i++) {
+            ModuleMetrics module = modules.get(i);
+            json.append(i == 0 ? "" : ",").append("{\"module\":");
+            appendString(json, module.module());
+            json.append(",\"nanos\":").append(module.nanos())
+                    .append(",\"invocations\":").append(module.invocations())
+                    .append(",\"files\":").append(module.files())
+                    .append(",\"violations\":").append(module.violations())
+                    .append('}');
+        }
+        json.append("],\"files\":[");
+        for (int i = 0; i < files.size(); i++) {
+            FileMetrics file = files.get(i);
+            json.append(i == 0 ? "" : ",").append("{\"file\":");
+            appendString(json, file.file());
+            json.append(",\"nanos\":").append(file.nanos())
+                    .append(",\"violations\":").append(file.violations())
+                    .append(",\"modules\":{");
+            String separator = "";
+            for (Map.Entry<String, Long> entry : file.moduleNanos().entrySet()) {
+                json.append(separator);
+                appendString(json, entry.getKey());
+                json.append(':').append(entry.getValue());
+                separator = ",";
+            }
+            json.append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Totals of one module over all audited files.
+     *
+     * @param invocations number of calls into the module (token visits for TreeWalker checks, files otherwise)
+     * @param files       number of files the module processed
+     */
+    public record ModuleMetrics(String module, long nanos, long invocations, int files, long violations) {
+    }
+
+    /**
+     * Totals of one file; {@code moduleNanos} holds the time of every module on this file, keyed by module.
+     */
+    public record FileMetrics(String file, long nanos, long violations, Map<String, Long> moduleNanos) {
+    }
+}
@@ -0,0 +1,103 @@
+package pl.wiktor.checkstyle.metrics;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Collects wall time and invocation counts per module and per file, and violations per module.
+ * <p>
+ * The listener accumulates over every audit it is attached to and may be shared by several checkers at once. At the
+ * end of each audit the current {@link AuditMetrics} are handed to the optional callback, e.g. to print
+ * {@link AuditMetrics#toSummaryTable()}.
+ */
+public final class AuditMetricsListener implements ModuleTimingListener {
+    private final Map<String, ModuleTotals> modules = new HashMap<>();
+    private final Map<String, FileTotals> files = new HashMap<>();
+    private final Consumer<AuditMetrics> onAuditFinished;
+
+    public AuditMetricsListener() {
+        this(metrics -> {
+        });
+    }
+
+    public AuditMetricsListener(Consumer<AuditMetrics> onAuditFinished) {
+        this.onAuditFinished = onAuditFinished;
+    }
+
+    @Override
+    public void auditStarted(AuditEvent e) {
+    }
+
+    @Override
+    public void auditFinished(AuditEvent e) {
+        onAuditFinished.accept(getMetrics());
+    }
+
+    @Override
+    public synchronized void fileStarted(AuditEvent e) {
+        files.computeIfAbsent(e.getFileName(), name -> new FileTotals());
+    }
+
+    @Override
+    public void fileFinished(AuditEvent e) {
+    }
+
+    @Override
+    public synchronized void moduleTimed(String module, String fileName, long nanos, int invocations) {
+        ModuleTotals totals = modules.computeIfAbsent(module, key -> new ModuleTotals());
+        totals.nanos += nanos;
+        totals.invocations += invocations;
+
+        FileTotals file = files.computeIfAbsent(fileName, name -> new FileTotals());
+        file.nanos += nanos;
+        file.moduleNanos.merge(module, nanos, Long::sum);
+    }
+
+    @Override
+    public synchronized void addError(AuditEvent e) {
+        String module = AuditMetrics.moduleKey(e.getModuleId(), e.getSourceName());
+        modules.computeIfAbsent(module, key -> new ModuleTotals()).violations++;
+        files.computeIfAbsent(e.getFileName(), name -> new FileTotals()).violations++;
+    }
+
+    @Override
+    public void addException(AuditEvent e, Throwable t) {
+    }
+
+    /**
+     * Returns a snapshot of everything collected so far.
+     */
+    public synchronized AuditMetrics getMetrics() {
+        Map<String, Integer> fileCounts = new HashMap<>();
+        List<AuditMetrics.FileMetrics> fileMetrics = new ArrayList<>();
+        files.forEach((name, file) -> {
+            file.moduleNanos.keySet().forEach(module -> fileCounts.merge(module, 1, Integer::sum));
+            fileMetrics.add(new AuditMetrics.FileMetrics(name, file.nanos, file.violations,
+                    Collections.unmodifiableMap(new TreeMap<>(file.moduleNanos))));
+        });
+
+        List<AuditMetrics.ModuleMetrics> moduleMetrics = new ArrayList<>();
+        modules.forEach((name, module) -> moduleMetrics.add(new AuditMetrics.ModuleMetrics(name, module.nanos,
+                module.invocations, fileCounts.getOrDefault(name, 0), module.violations)));
+        return new AuditMetrics(moduleMetrics, fileMetrics);
+    }
+
+    private static final class ModuleTotals {
+        private long nanos;
+        private long invocations;
+        private long violations;
+    }
+
+    private static final class FileTotals {
+        private final Map<String, Long> moduleNanos = new HashMap<>();
+        private long nanos;
+        private long violations;
+    }
+}
@@ -0,0 +1,25 @@
+package pl.wiktor.checkstyle.metrics;
+
+import java.util.List;
+
+/**
+ * A check that runs several configured modules at once and measures each of them itself, so that the time is reported
+ * under the keys of the configured modules instead of the key of the combined check.
+ */
+public interface CombinedModuleTiming {
+    /**
+     * Turns the measuring on or off for the following files.
+     */
+    void setTimingEnabled(boolean enabled);
+
+    /**
+     * Returns the keys of the combined modules, see {@link AuditMetrics#moduleKey(String, String)}.
+     */
+    List<String> moduleKeys();
+
+    /**
+     * Returns the time measured per module since the previous call, indexed like {@link #moduleKeys()}, and resets
+     * it. Work shared by all modules is not included.
+     */
+    long[] drainNanos();
+}
@@ -0,0 +1,294 @@
+package pl.wiktor.checkstyle.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.io.File;
+
+/**
+ * Java Flight Recorder events of the audits, so that a continuous recording of a build agent shows where audit time
+ * goes, e.g. the files that cost the most, without attaching a profiler.
+ * <p>
+ * All events are enabled by default and record no stack trace. They are begun through the {@code begin} methods here,
+ * which return {@code null} until Flight Recorder has been started in the JVM, e.g. by
+ * {@code -XX:StartFlightRecording} or {@code jcmd <pid> JFR.start}: loading the first event class costs several hundred
+ * milliseconds, which a short command line audit would otherwise pay without recording anything. Once started, an
+ * event that no recording wants costs next to nothing and is not committed, so the events stay in place in
+ * production. Their names start with {@value #PREFIX}, so a recording is filtered with e.g.
+ * {@code jfr print --events pl.wiktor.checkstyle.FileAudit recording.jfr}. A check execution is only committed when it
+ * took at least one millisecond, which a recording may change with
+ * {@code pl.wiktor.checkstyle.CheckExecution#threshold=0 ms}.
+ */
+public final class FlightRecorderEvents {
+    /**
+     * Prefix of the event names.
+     */
+    public static final String PREFIX = "pl.wiktor.checkstyle.";
+
+    private static final String CATEGORY = "Checkstyle";
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * Begins an {@link Audit}, or returns {@code null} while Flight Recorder has not been started.
+     */
+    public static Audit beginAudit() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        Audit event = new Audit();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins a {@link FileAudit}, or returns {@code null} while Flight Recorder has not been started or the event is
+     * disabled.
+     */
+    public static FileAudit beginFileAudit() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        FileAudit event = new FileAudit();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins a {@link CheckExecution}, or returns {@code null} while Flight Recorder has not been started.
+     */
+    public static CheckExecution beginCheckExecution() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        CheckExecution event = new CheckExecution();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins a {@link ConfigurationLoad}, or returns {@code null} while Flight Recorder has not been started.
+     */
+    public static ConfigurationLoad beginConfigurationLoad() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        ConfigurationLoad event = new ConfigurationLoad();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins a {@link CacheLookup}, or returns {@code null} while Flight Recorder has not been started.
+     */
+    public static CacheLookup beginCacheLookup() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        CacheLookup event = new CacheLookup();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * One audit by the runner, from the start of the audit until every result is reported; the violations are counted
+     * per file by {@link FileAudit}.
+     */
+    @Name(PREFIX + "Audit")
+    @Label("Audit")
+    @Category(CATEGORY)
+    @Description("An audit of a set of files by the runner")
+    @StackTrace(false)
+    public static final class Audit extends Event {
+        @Label("Mode")
+        @Description("serial, parallel or tree")
+        private String mode;
+
+        @Label("Files")
+        @Description("Files requested, including those answered by the result cache")
+        private int files;
+
+        @Label("Audited Files")
+        @Description("Files actually audited")
+        private int auditedFiles;
+
+        @Label("Threads")
+        private int threads;
+
+        /**
+         * Ends the event and commits it when the recording wants it.
+         */
+        public void finish(String auditMode, int fileCount, int auditedFileCount, int threadCount) {
+            end();
+            if (shouldCommit()) {
+                mode = auditMode;
+                files = fileCount;
+                auditedFiles = auditedFileCount;
+                threads = threadCount;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * One file audited by a checker, from its file started event until its file finished event.
+     */
+    @Name(PREFIX + "FileAudit")
+    @Label("File Audit")
+    @Category(CATEGORY)
+    @Description("The audit of one file by a checker")
+    @StackTrace(false)
+    public static final class FileAudit extends Event {
+        @Label("Path")
+        private String path;
+
+        @Label("Size")
+        @DataAmount
+        private long size;
+
+        @Label("Lines")
+        @Description("Number of lines, 0 when the checker did not read the file itself")
+        private int lines;
+
+        @Label("Violations")
+        @Description("Reported violations after filtering")
+        private int violations;
+
+        /**
+         * Ends the event and commits it when the recording wants it; only then is the size of the file looked up.
+         */
+        public void finish(String filePath, int lineCount, int violationCount) {
+            end();
+            if (shouldCommit()) {
+                path = filePath;
+                size = new File(filePath).length();
+                lines = lineCount;
+                violations = violationCount;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * One root-level file-set check processing one file; TreeWalker is one such check for all its children.
+     */
+    @Name(PREFIX + "CheckExecution")
+    @Label("Check Execution")
+    @Category(CATEGORY)
+    @Description("A root-level check processing one file, committed when it took at least the threshold")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    public static final class CheckExecution extends Event {
+        @Label("Check")
+        @Description("Module key: the id or the name of the configured module")
+        private String check;
+
+        @Label("Path")
+        private String path;
+
+        @Label("Violations")
+        @Description("Violations the check reported before filtering")
+        private int violations;
+
+        /**
+         * Ends the event and commits it when it took at least the threshold and the recording wants it.
+         */
+        public void finish(String module, String filePath, int violationCount) {
+            end();
+            if (shouldCommit()) {
+                check = module;
+                path = filePath;
+                violations = violationCount;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Loading a configuration file, which is only parsed when its content changed.
+     */
+    @Name(PREFIX + "ConfigurationLoad")
+    @Label("Configuration Load")
+    @Category(CATEGORY)
+    @Description("Reading, hashing and, when it changed, parsing a configuration file")
+    @StackTrace(false)
+    public static final class ConfigurationLoad extends Event {
+        @Label("Path")
+        private String path;
+
+        @Label("Hash")
+        @Description("SHA-256 of the content")
+        private String hash;
+
+        @Label("Parsed")
+        @Description("Whether the content changed and was parsed, or the cached configuration was used")
+        private boolean parsed;
+
+        /**
+         * Ends the event and commits it when the recording wants it.
+         */
+        public void finish(String filePath, String contentHash, boolean wasParsed) {
+            end();
+            if (shouldCommit()) {
+                path = filePath;
+                hash = contentHash;
+                parsed = wasParsed;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Looking up one file in the result cache or the parse cache.
+     */
+    @Name(PREFIX + "CacheLookup")
+    @Label("Cache Lookup")
+    @Category(CATEGORY)
+    @Description("Looking up one file in a cache, including reading and hashing it")
+    @StackTrace(false)
+    public static final class CacheLookup extends Event {
+        /**
+         * Name of the result cache.
+         */
+        public static final String RESULT_CACHE = "result";
+
+        /**
+         * Name of the parse cache.
+         */
+        public static final String PARSE_CACHE = "parse";
+
+        @Label("Cache")
+        @Description("result or parse")
+        private String cache;
+
+        @Label("Path")
+        private String path;
+
+        @Label("Hit")
+        private boolean hit;
+
+        /**
+         * Ends the event and commits it when the recording wants it.
+         */
+        public void finish(String cacheName, String filePath, boolean wasHit) {
+            end();
+            if (shouldCommit()) {
+                cache = cacheName;
+                path = filePath;
+                hit = wasHit;
+                commit();
+            }
+        }
+    }
+}
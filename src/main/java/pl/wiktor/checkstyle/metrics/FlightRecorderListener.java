@@ -0,0 +1,56 @@
+package pl.wiktor.checkstyle.metrics;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+/**
+ * Audit listener that records every audited file as a {@link FlightRecorderEvents.FileAudit}, from its file started
+ * event until its file finished event, with the violations reported in between.
+ * <p>
+ * The checker that reads the files tells the listener how many lines the current file has with
+ * {@link #linesRead(int)}. Like the checkers, a listener is used by one thread at a time.
+ */
+public final class FlightRecorderListener implements AuditListener {
+    private FlightRecorderEvents.FileAudit current;
+    private int lines;
+    private int violations;
+
+    /**
+     * Sets the number of lines of the file being audited.
+     */
+    public void linesRead(int count) {
+        lines = count;
+    }
+
+    @Override
+    public void auditStarted(AuditEvent e) {
+    }
+
+    @Override
+    public void auditFinished(AuditEvent e) {
+    }
+
+    @Override
+    public void fileStarted(AuditEvent e) {
+        current = FlightRecorderEvents.beginFileAudit();
+        lines = 0;
+        violations = 0;
+    }
+
+    @Override
+    public void fileFinished(AuditEvent e) {
+        if (current != null) {
+            current.finish(e.getFileName(), lines, violations);
+            current = null;
+        }
+    }
+
+    @Override
+    public void addError(AuditEvent e) {
+        violations++;
+    }
+
+    @Override
+    public void addException(AuditEvent e, Throwable t) {
+    }
+}
@@ -0,0 +1,21 @@
+package pl.wiktor.checkstyle.metrics;
+
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+/**
+ * Audit listener that additionally receives the time spent in every check for every file.
+ * <p>
+ * The runner enables the per-check instrumentation only while such a listener is attached, so plain listeners do not
+ * pay for the timing.
+ */
+public interface ModuleTimingListener extends AuditListener {
+    /**
+     * Called once per check and file, after the check finished processing the file.
+     *
+     * @param module      module key, see {@link AuditMetrics#moduleKey(String, String)}
+     * @param fileName    absolute path of the file, as reported in the audit events
+     * @param nanos       wall time spent in the check for this file
+     * @param invocations number of calls into the check for this file
+     */
+    void moduleTimed(String module, String fileName, long nanos, int invocations);
+}
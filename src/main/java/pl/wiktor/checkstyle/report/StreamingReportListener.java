@@ -0,0 +1,321 @@
+package pl.wiktor.checkstyle.report;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import pl.wiktor.checkstyle.engine.ManagedTreeWalker;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Audit listener that writes every violation to a SARIF 2.1.0 or JSON Lines report as soon as it is reported.
+ * <p>
+ * Nothing is kept per violation: the report is written through a buffered, optionally gzip compressed,
+ * {@link FileChannel} and only the {@link Summary} counters grow, so memory use does not depend on the number of
+ * violations. Several audits may be written into one report; the document is completed by {@link #close()}, which
+ * also appends the summary. File paths below the base directory are written relative to it.
+ * <p>
+ * JSON Lines reports hold one object per line with a {@code type} of {@code violation}, {@code exception},
+ * {@code file} (written when a file is finished, with its number of violations) and finally {@code summary}.
+ * Violations with severity {@code ignore} are skipped, like Checkstyle's own loggers do. Like those, the listener
+ * expects its callbacks from one thread at a time.
+ */
+public final class StreamingReportListener implements AuditListener, Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final Writer out;
+    private final Format format;
+    private final Path baseDirectory;
+    private boolean started;
+    private boolean firstResult = true;
+    private long fileViolations;
+    private int files;
+    private long errors;
+    private long warnings;
+    private long infos;
+    private long exceptions;
+
+    private StreamingReportListener(Writer out, Format format, Path baseDirectory) {
+        this.out = out;
+        this.format = format;
+        this.baseDirectory = baseDirectory.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Opens a report whose format and compression follow from the file name, see {@link Format#of(Path)}, with
+     * paths relative to the working directory.
+     */
+    public static StreamingReportListener open(Path file) throws IOException {
+        return open(file, Format.of(file), file.getFileName().toString().endsWith(GZIP_SUFFIX), Path.of(""));
+    }
+
+    /**
+     * Opens a report, replacing an existing file.
+     */
+    public static StreamingReportListener open(Path file, Format format, boolean gzip, Path baseDirectory)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream stream = Channels.newOutputStream(channel);
+        try {
+            if (gzip) {
+                stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+            }
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        return open(stream, format, baseDirectory);
+    }
+
+    /**
+     * Opens a report written to the given stream, e.g. standard output, which {@link #close()} closes.
+     */
+    public static StreamingReportListener open(OutputStream stream, Format format, Path baseDirectory) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        return new StreamingReportListener(writer, format, baseDirectory);
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+        start();
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+        fileViolations = 0;
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+        files++;
+        if (format == Format.JSON_LINES) {
+            start();
+            write("{\"type\":\"file\",\"file\":");
+            writeString(relativePath(event.getFileName()));
+            write(",\"violations\":" + fileViolations + "}\n");
+        }
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+        SeverityLevel severity = event.getSeverityLevel();
+        switch (severity) {
+            case ERROR -> errors++;
+            case WARNING -> warnings++;
+            case INFO -> infos++;
+            default -> {
+                return;
+            }
+        }
+        fileViolations++;
+        start();
+        String rule = AuditMetrics.moduleKey(event.getModuleId(), event.getSourceName());
+        if (format == Format.SARIF) {
+            beginResult(rule, severity == SeverityLevel.INFO ? "note" : severity.getName());
+            writeString(event.getMessage());
+            writeLocation(event.getFileName(), event.getLine(), event.getColumn());
+        } else {
+            write("{\"type\":\"violation\",\"file\":");
+            writeString(relativePath(event.getFileName()));
+            write(",\"line\":" + event.getLine() + ",\"column\":" + event.getColumn() + ",\"severity\":");
+            writeString(severity.getName());
+            write(",\"rule\":");
+            writeString(rule);
+            write(",\"source\":");
+            writeString(event.getSourceName());
+            write(",\"message\":");
+            writeString(event.getMessage());
+            write("}\n");
+        }
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+        exceptions++;
+        start();
+        if (format == Format.SARIF) {
+            beginResult(null, "error");
+            writeString(String.valueOf(throwable));
+            writeLocation(event.getFileName(), 0, 0);
+        } else {
+            write("{\"type\":\"exception\",\"file\":");
+            writeString(relativePath(event.getFileName()));
+            write(",\"message\":");
+            writeString(String.valueOf(throwable));
+            write("}\n");
+        }
+    }
+
+    /**
+     * Returns the counters of everything written so far.
+     */
+    public Summary getSummary() {
+        return new Summary(files, errors, warnings, infos, exceptions);
+    }
+
+    /**
+     * Completes the document with the summary and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            start();
+            String counters = "\"files\":" + files + ",\"errors\":" + errors + ",\"warnings\":" + warnings
+                    + ",\"infos\":" + infos + ",\"exceptions\":" + exceptions;
+            if (format == Format.SARIF) {
+                write("],\"invocations\":[{\"executionSuccessful\":" + (exceptions == 0) + "}],\"properties\":{"
+                        + counters + "}}]}\n");
+            } else {
+                write("{\"type\":\"summary\"," + counters + "}\n");
+            }
+        } catch (UncheckedIOException e) {
+            out.close();
+            throw e.getCause();
+        }
+        out.close();
+    }
+
+    private void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (format == Format.SARIF) {
+            write("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",\"version\":\"2.1.0\","
+                    + "\"runs\":[{\"tool\":{\"driver\":{\"name\":\"Checkstyle\",\"version\":\""
+                    + ManagedTreeWalker.CHECKSTYLE_VERSION + "\",\"informationUri\":\"https://checkstyle.org/\"}},"
+                    + "\"results\":[\n");
+        }
+    }
+
+    /**
+     * Writes a SARIF result up to its message text, which the caller writes next.
+     */
+    private void beginResult(String rule, String level) {
+        write(firstResult ? "" : ",\n");
+        firstResult = false;
+        write("{");
+        if (rule != null) {
+            write("\"ruleId\":");
+            writeString(rule);
+            write(",");
+        }
+        write("\"level\":\"" + level + "\",\"message\":{\"text\":");
+    }
+
+    private void writeLocation(String fileName, int line, int column) {
+        write("},\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":");
+        writeString(uri(fileName));
+        write("}");
+        if (line > 0) {
+            write(",\"region\":{\"startLine\":" + line + (column > 0 ? ",\"startColumn\":" + column : "") + "}");
+        }
+        write("}}]}");
+    }
+
+    private String relativePath(String fileName) {
+        Path file = Path.of(fileName).toAbsolutePath().normalize();
+        return file.startsWith(baseDirectory) ? baseDirectory.relativize(file).toString() : file.toString();
+    }
+
+    private String uri(String fileName) {
+        Path file = Path.of(fileName).toAbsolutePath().normalize();
+        if (!file.startsWith(baseDirectory)) {
+            return file.toUri().toString();
+        }
+        String relative = baseDirectory.relativize(file).toString().replace('\\', '/');
+        try {
+            return new URI(null, null, relative, null).toASCIIString();
+        } catch (URISyntaxException e) {
+            return relative;
+        }
+    }
+
+    private void write(String text) {
+        try {
+            out.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeString(String value) {
+        try {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> out.write("\\\"");
+                    case '\\' -> out.write("\\\\");
+                    case '\n' -> out.write("\\n");
+                    case '\r' -> out.write("\\r");
+                    case '\t' -> out.write("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.write(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                        }
+                    }
+                }
+            }
+            out.write('"');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Report format.
+     */
+    public enum Format {
+        SARIF,
+        JSON_LINES;
+
+        /**
+         * Derives the format from the file name: {@code .jsonl} or {@code .ndjson} for JSON Lines, SARIF otherwise,
+         * ignoring a {@code .gz} suffix.
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(GZIP_SUFFIX)) {
+                name = name.substring(0, name.length() - GZIP_SUFFIX.length());
+            }
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON_LINES : SARIF;
+        }
+    }
+
+    /**
+     * Totals of a report; {@code files} counts every finished file, with or without violations.
+     */
+    public record Summary(int files, long errors, long warnings, long infos, long exceptions) {
+        /**
+         * Returns whether nothing failed the audit: no errors and no exceptions.
+         */
+        public boolean passed() {
+            return errors == 0 && exceptions == 0;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package pl.wiktor;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the options, output formats and exit codes of the {@code ci-check} command line.
+ */
+class MainTest {
+    private static final String SUPPRESSIONS_FILE = "check/suppressions.xml";
+    private static final String FAIL_DIR = "src/test/resources/rules/fail";
+    private static final String SUCCESS_DIR = "src/test/resources/rules/success";
+
+    @Test
+    void shouldPrintSameViolationsOnOneThreadAndInParallel() {
+        Output serial = run("--threads", "1", FAIL_DIR);
+        Output parallel = run("--threads", "4", FAIL_DIR);
+
+        assertEquals(Main.EXIT_VIOLATIONS, serial.exitCode());
+        assertEquals(Main.EXIT_VIOLATIONS, parallel.exitCode());
+        List<String> lines = serial.lines();
+        assertTrue(lines.get(0).startsWith("[ERROR] "), serial.text());
+        assertTrue(lines.get(lines.size() - 1).startsWith("Audited 19 files in "), serial.text());
+        // Parallel audits print every file as soon as it is finished, so the order of the files may differ.
+        assertEquals(lines.subList(0, lines.size() - 1).stream().sorted().toList(),
+                parallel.lines().subList(0, parallel.lines().size() - 1).stream().sorted().toList());
+        assertTrue(parallel.lines().get(parallel.lines().size() - 1).startsWith("Audited 19 files in "),
+                parallel.text());
+    }
+
+    @Test
+    void shouldWriteSarifToStandardOutput() {
+        Output clean = run("--suppressions", SUPPRESSIONS_FILE, "--format", "sarif", SUCCESS_DIR);
+        Output failing = run("--format", "sarif", FAIL_DIR + "/MethodName.java");
+
+        assertEquals(Main.EXIT_OK, clean.exitCode(), clean.text());
+        assertTrue(clean.text().startsWith("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\""));
+        assertTrue(clean.text().contains("\"files\":18,\"errors\":0"), clean.text());
+        assertEquals(Main.EXIT_VIOLATIONS, failing.exitCode());
+        assertTrue(failing.text().contains("\"ruleId\":\"MethodName\""), failing.text());
+    }
+
+    @Test
+    void shouldFailOnInvalidOptionsAndMissingPaths() {
+        assertEquals(Main.EXIT_FAILURE, run("--format", "xml", FAIL_DIR).exitCode());
+        assertEquals(Main.EXIT_FAILURE, run("--threads", "0", FAIL_DIR).exitCode());
+        assertEquals(Main.EXIT_FAILURE, run("--config").exitCode());
+        assertEquals(Main.EXIT_FAILURE, run(FAIL_DIR, "src/test/resources/rules/no-such-dir").exitCode());
+        assertEquals(Main.EXIT_FAILURE, run("--config", "check/no-such-config.xml", FAIL_DIR).exitCode());
+    }
+
+    private static Output run(String... args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            return new Output(Main.run(args), bytes.toString(StandardCharsets.UTF_8));
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private record Output(int exitCode, String text) {
+        List<String> lines() {
+            return text.lines().toList();
+        }
+    }
+}
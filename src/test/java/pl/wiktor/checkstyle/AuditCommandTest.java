@@ -0,0 +1,114 @@
+package pl.wiktor.checkstyle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the options and exit codes of {@link AuditCommand}.
+ */
+class AuditCommandTest {
+    private static final String CONFIG_FILE = "check/checkstyle.xml";
+    private static final String FAIL_DIR = "src/test/resources/rules/fail";
+    private static final String SMALL_HEAP = "24m";
+    private static final int SMALL_HEAP_FILES = 40;
+    private static final int SMALL_HEAP_LINES = 2_000;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldWriteModuleTimingReport() throws Exception {
+        Path report = temp.resolve("metrics.json");
+
+        int exitCode = AuditCommand.run(new String[] {"--config", CONFIG_FILE, "--threads", "2", "--report",
+            report.toString(), FAIL_DIR});
+
+        assertEquals(AuditCommand.EXIT_VIOLATIONS, exitCode);
+        String json = Files.readString(report);
+        assertTrue(json.startsWith("{\"totalNanos\":"), json);
+        assertTrue(json.contains("{\"module\":\"LineLength\""), json);
+    }
+
+    @Test
+    void shouldFailFastAtFirstError() {
+        assertEquals(AuditCommand.EXIT_VIOLATIONS, AuditCommand.run(new String[] {"--config", CONFIG_FILE,
+            "--fail-fast", "first-error", FAIL_DIR}));
+        assertEquals(AuditCommand.EXIT_FAILURE, AuditCommand.run(new String[] {"--config", CONFIG_FILE,
+            "--fail-fast", "never", FAIL_DIR}));
+    }
+
+    @Test
+    void shouldAcceptViolationsRecordedInBaseline() {
+        String baseline = temp.resolve("baseline.bin").toString();
+
+        assertEquals(AuditCommand.EXIT_OK, AuditCommand.run(new String[] {"--config", CONFIG_FILE, "--write-baseline",
+            baseline, FAIL_DIR}));
+        assertEquals(AuditCommand.EXIT_OK, AuditCommand.run(new String[] {"--config", CONFIG_FILE, "--threads", "2",
+            "--baseline", baseline, FAIL_DIR}));
+        assertEquals(AuditCommand.EXIT_FAILURE, AuditCommand.run(new String[] {"--config", CONFIG_FILE,
+            "--write-baseline", baseline, "--baseline", baseline, FAIL_DIR}));
+        assertEquals(AuditCommand.EXIT_FAILURE, AuditCommand.run(new String[] {"--config", CONFIG_FILE,
+            "--baseline", temp.resolve("missing.bin").toString(), FAIL_DIR}));
+    }
+
+    @Test
+    void shouldStreamManyViolationsInSmallHeap() throws Exception {
+        Path sources = Files.createDirectories(temp.resolve("src"));
+        String comment = "    // " + "x".repeat(130) + "\n";
+        for (int i = 0; i < SMALL_HEAP_FILES; i++) {
+            Files.writeString(sources.resolve("Commented" + i + ".java"),
+                    "class Commented" + i + " {\n" + comment.repeat(SMALL_HEAP_LINES) + "}\n");
+        }
+        Path output = temp.resolve("report.jsonl");
+        Path printed = temp.resolve("printed.txt");
+
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx" + SMALL_HEAP, "-cp", System.getProperty("java.class.path"), AuditCommand.class.getName(),
+                "--config", CONFIG_FILE, "--threads", "2", "--output", output.toString(), sources.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(printed.toFile())
+                .start();
+
+        assertEquals(AuditCommand.EXIT_VIOLATIONS, process.waitFor(), () -> tail(printed));
+        long violations = 2L * SMALL_HEAP_FILES * SMALL_HEAP_LINES;
+        assertTrue(tail(printed).contains("Audited " + SMALL_HEAP_FILES + " files (0 from cache)"), tail(printed));
+        assertTrue(tail(printed).endsWith(", " + violations + " errors\n"), tail(printed));
+        assertTrue(tail(output).contains("\"files\":" + SMALL_HEAP_FILES + ",\"errors\":" + violations + ","),
+                tail(output));
+    }
+
+    @Test
+    void shouldFailOnMissingPath() {
+        assertEquals(AuditCommand.EXIT_FAILURE, AuditCommand.run(new String[] {"--config", CONFIG_FILE, FAIL_DIR,
+            "src/test/resources/rules/no-such-dir"}));
+    }
+
+    @Test
+    void shouldRejectNonPositiveThreadsAndCacheSize() {
+        assertEquals(AuditCommand.EXIT_FAILURE, AuditCommand.run(new String[] {"--config", CONFIG_FILE, "--threads",
+            "0", FAIL_DIR}));
+        assertEquals(AuditCommand.EXIT_FAILURE, AuditCommand.run(new String[] {"--config", CONFIG_FILE, "--cache",
+            temp.resolve("results.bin").toString(), "--cache-size", "0", FAIL_DIR}));
+        assertEquals(AuditCommand.EXIT_FAILURE, AuditCommand.run(new String[] {"--config", CONFIG_FILE, "--threads",
+            "many", FAIL_DIR}));
+    }
+
+    /**
+     * Returns the end of a file too large to keep in a message.
+     */
+    private static String tail(Path file) {
+        try {
+            String text = Files.readString(file);
+            return text.substring(Math.max(0, text.length() - 500));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package pl.wiktor.checkstyle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the protocol of {@link AuditDaemon} and {@link DaemonClient}.
+ */
+class AuditDaemonTest {
+    private static final String SOURCE = """
+            class Sample {
+                void run() {
+                    System.out.println("run");
+                }
+            }
+            """;
+
+    private static final int LARGE_LINES = 5_000;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldStreamViolationsAndReloadChangedConfiguration() throws Exception {
+        Path config = temp.resolve("checkstyle.xml");
+        Files.copy(Path.of("check/checkstyle.xml"), config);
+        Path source = temp.resolve("Sample.java");
+        Files.writeString(source, SOURCE);
+        Path socket = temp.resolve("daemon.sock");
+
+        try (AuditDaemon daemon = new AuditDaemon(socket, config, null, 2)) {
+            daemon.start();
+
+            List<String> response = request(socket, AuditDaemon.AUDIT + "\n" + source + "\n\n");
+            assertTrue(response.stream().anyMatch(line -> line.endsWith("[SystemOutUsage]")), response::toString);
+            assertEquals(AuditDaemon.OK + "1 " + (response.size() - 1), response.get(response.size() - 1));
+
+            Files.writeString(config, Files.readString(config).replace("System\\s*\\.\\s*out", "System\\.never"));
+            response = request(socket, AuditDaemon.AUDIT + "\n" + source + "\n\n");
+            assertTrue(response.stream().noneMatch(line -> line.endsWith("[SystemOutUsage]")), response::toString);
+
+            assertEquals(AuditCommand.EXIT_FAILURE, DaemonClient.run(new String[] {"--socket", socket.toString(),
+                temp.resolve("Missing.java").toString()}));
+            assertEquals(AuditCommand.EXIT_VIOLATIONS, DaemonClient.run(new String[] {"--socket", socket.toString(),
+                "src/test/resources/rules/fail"}));
+            assertEquals(AuditCommand.EXIT_OK, DaemonClient.run(new String[] {"--socket", socket.toString(),
+                "--stop"}));
+            daemon.awaitStop();
+        }
+
+        assertFalse(Files.exists(socket));
+        assertEquals(AuditCommand.EXIT_FAILURE, DaemonClient.run(new String[] {"--socket", socket.toString(),
+            source.toString()}));
+    }
+
+    @Test
+    @Timeout(120)
+    void shouldAnswerRequestsRunningWhileConfigurationReloadsAndDaemonStops() throws Exception {
+        Path config = temp.resolve("checkstyle.xml");
+        Files.copy(Path.of("check/checkstyle.xml"), config);
+        Path source = temp.resolve("Sample.java");
+        Files.writeString(source, SOURCE);
+        Path large = temp.resolve("Large.java");
+        Files.writeString(large, "class Large {\n" + ("    // " + "x".repeat(130) + "\n").repeat(LARGE_LINES) + "}\n");
+        Path socket = temp.resolve("daemon.sock");
+
+        try (AuditDaemon daemon = new AuditDaemon(socket, config, null, 1)) {
+            daemon.start();
+            // Not reading the response fills the socket buffer, so the audit keeps the only checker until it is read.
+            SocketChannel blocked = send(socket, AuditDaemon.AUDIT + "\n" + large + "\n\n");
+            BufferedReader blockedIn = new BufferedReader(Channels.newReader(blocked, StandardCharsets.UTF_8));
+            assertTrue(blockedIn.readLine().startsWith("[ERROR] " + large + ":2:"));
+
+            List<CompletableFuture<List<String>>> waiting = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                waiting.add(requestAsync(socket, AuditDaemon.AUDIT + "\n" + source + "\n\n"));
+            }
+            // Gives the requests time to wait for the checker before the configuration changes.
+            Thread.sleep(500);
+            Files.writeString(config, Files.readString(config).replace("System\\s*\\.\\s*out", "System\\.never"));
+            assertEquals(List.of(AuditDaemon.OK + "1 0"), request(socket, AuditDaemon.AUDIT + "\n" + source + "\n\n"));
+            assertEquals(List.of(AuditDaemon.OK + "0 0"), request(socket, AuditDaemon.STOP + "\n"));
+
+            try (blocked) {
+                List<String> rest = blockedIn.lines().toList();
+                assertEquals(2 * LARGE_LINES, rest.size());
+                assertEquals(AuditDaemon.OK + "1 " + 2 * LARGE_LINES, rest.get(rest.size() - 1));
+            }
+            for (CompletableFuture<List<String>> response : waiting) {
+                List<String> lines = response.get(30, TimeUnit.SECONDS);
+                assertEquals(List.of(lines.get(0), AuditDaemon.OK + "1 1"), lines);
+                assertTrue(lines.get(0).endsWith("[SystemOutUsage]"), lines::toString);
+            }
+            daemon.awaitStop();
+        }
+        assertFalse(Files.exists(socket));
+    }
+
+    private static List<String> request(Path socket, String request) throws IOException {
+        try (SocketChannel channel = send(socket, request)) {
+            return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8)).lines().toList();
+        }
+    }
+
+    private static CompletableFuture<List<String>> requestAsync(Path socket, String request) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return request(socket, request);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static SocketChannel send(Path socket, String request) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            out.write(request);
+            out.flush();
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link AuditPipeline}.
+ */
+class AuditPipelineTest {
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+    private static final Path RULES = Path.of("src/test/resources/rules");
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReportTheSameViolationsAsTheParallelAuditUnderBackpressure() throws Exception {
+        Path corpus = temp.resolve("corpus");
+        new CorpusGenerator(7).generate(corpus, 40, 150);
+        Files.writeString(corpus.resolve("messages.properties"), "key = value   \n");
+        Files.writeString(corpus.resolve("notes.txt"), "not audited\n");
+        Configuration configuration = ConfigurationCache.load(CONFIG_FILE).configuration();
+
+        AuditPipeline.Result result;
+        try (CheckerPool pool = new CheckerPool(configuration, 3)) {
+            result = new AuditPipeline(pool, configuration, 3, 2, 1, List.of(), List.of())
+                    .audit(List.of(RULES, corpus), null, null);
+        }
+
+        List<File> files = CheckstyleRunner.listFiles(RULES);
+        List<File> corpusFiles = CheckstyleRunner.listFiles(corpus).stream()
+                .filter(file -> !file.getName().endsWith(".txt")).toList();
+        Map<Path, List<AuditEvent>> expected;
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, 3)) {
+            expected = runner.auditFilesParallel(Stream.concat(files.stream(), corpusFiles.stream())
+                    .toList());
+        }
+
+        assertEquals(formatted(expected), formatted(result.events()));
+        assertFalse(result.events().containsKey(corpus.resolve("notes.txt").toAbsolutePath()));
+        for (AuditPipeline.Stage stage : result.stages()) {
+            assertEquals(expected.size(), stage.files(), stage::toString);
+        }
+        assertTrue(result.toSummaryTable().contains("Input wait [ms]"), result.toSummaryTable());
+    }
+
+    @Test
+    void shouldSelectFilesByGlobsAndConfiguredExtensions() throws Exception {
+        Configuration configuration = ConfigurationCache.load(CONFIG_FILE).configuration();
+        Path root = temp.toAbsolutePath();
+        try (CheckerPool pool = new CheckerPool(configuration, 1)) {
+            AuditPipeline all = new AuditPipeline(pool, configuration, 1, 1, 1, List.of(), List.of());
+            assertTrue(all.isSelected(root, root.resolve("a/A.java")));
+            assertTrue(all.isSelected(root, root.resolve("pom.xml")));
+            assertFalse(all.isSelected(root, root.resolve("a/readme.md")));
+
+            AuditPipeline globs = new AuditPipeline(pool, configuration, 1, 1, 1, List.of("src/**"),
+                    List.of("**/generated/**"));
+            assertTrue(globs.isSelected(root, root.resolve("src/main/A.java")));
+            assertFalse(globs.isSelected(root, root.resolve("src/main/generated/B.java")));
+            assertFalse(globs.isSelected(root, root.resolve("other/C.java")));
+        }
+    }
+
+    @Test
+    void shouldAuditTreesThroughTheRunnerAndFailOnMissingRoot() throws Exception {
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, 2)) {
+            CheckstyleException e = assertThrows(CheckstyleException.class,
+                    () -> runner.auditTree(List.of(temp.resolve("missing")), List.of(), List.of(), null, null));
+            assertTrue(e.getMessage().contains("missing"), e.getMessage());
+
+            assertEquals(formatted(runner.auditFilesParallel(CheckstyleRunner.listFiles(RULES))),
+                    formatted(runner.auditTree(List.of(RULES), List.of(), List.of(), null, null).events()));
+        }
+    }
+
+    private static List<String> formatted(Map<Path, List<AuditEvent>> events) {
+        return events.entrySet().stream()
+                .flatMap(entry -> Stream.concat(Stream.of(entry.getKey().toString()),
+                        entry.getValue().stream().map(AuditCommand::format)))
+                .toList();
+    }
+}
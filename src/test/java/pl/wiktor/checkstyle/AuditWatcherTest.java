@@ -0,0 +1,104 @@
+package pl.wiktor.checkstyle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Saves, moves and deletes files below a watched root and checks the new and resolved violations reported.
+ */
+class AuditWatcherTest {
+    private static final String SAMPLE = """
+            class Sample {
+                void run() {
+                    System.out.println("run");
+                }
+            }
+            """;
+    private static final String CLEAN = """
+            class Clean {
+                void run() {
+                }
+            }
+            """;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReportOnlyNewAndResolvedViolations() throws Exception {
+        Path config = temp.resolve("checkstyle.xml");
+        Files.copy(Path.of("check/checkstyle.xml"), config);
+        Path root = Files.createDirectories(temp.resolve("src"));
+        Path sample = root.resolve("Sample.java");
+        Files.writeString(sample, SAMPLE);
+        Path clean = root.resolve("Clean.java");
+        Files.writeString(clean, CLEAN);
+        BlockingQueue<AuditWatcher.Report> reports = new LinkedBlockingQueue<>();
+
+        try (AuditWatcher watcher = new AuditWatcher(List.of(root), config, null, AuditWatcher.DEFAULT_DEBOUNCE,
+                reports::add)) {
+            watcher.start();
+            AuditWatcher.Report initial = reports.take();
+            assertEquals(2, initial.files());
+            assertEquals(List.of("SystemOutUsage"), rules(initial.added()));
+            assertEquals(1, initial.errors());
+
+            Files.writeString(sample, "/**\n * Moves the violation two lines down.\n */\n" + SAMPLE);
+            AuditWatcher.Report shifted = await(reports, report -> report.files() > 0);
+            assertEquals(List.of(), shifted.added());
+            assertEquals(List.of(), shifted.resolved());
+
+            Files.writeString(clean, CLEAN.replace("run()", "Run_Now()"));
+            AuditWatcher.Report renamed = await(reports, report -> !report.added().isEmpty());
+            assertEquals(List.of("MethodName"), rules(renamed.added()));
+            assertEquals(2, renamed.errors());
+
+            Files.delete(clean);
+            AuditWatcher.Report deleted = await(reports, report -> !report.resolved().isEmpty());
+            assertEquals(List.of("MethodName"), rules(deleted.resolved()));
+
+            Path created = Files.createDirectories(root.resolve("created/nested")).resolve("Created.java");
+            Files.writeString(created, SAMPLE.replace("Sample", "Created"));
+            AuditWatcher.Report added = await(reports, report -> !report.added().isEmpty());
+            assertEquals(List.of("SystemOutUsage"), rules(added.added()));
+            assertTrue(added.added().get(0).contains(created.toString()), added::toString);
+
+            Files.writeString(config, Files.readString(config).replace("System\\s*\\.\\s*out", "System\\.never"));
+            AuditWatcher.Report reloaded = await(reports, report -> !report.resolved().isEmpty());
+            assertEquals(2, reloaded.files());
+            assertEquals(List.of("SystemOutUsage", "SystemOutUsage"), rules(reloaded.resolved()));
+            assertEquals(0, reloaded.errors());
+        }
+    }
+
+    private static AuditWatcher.Report await(BlockingQueue<AuditWatcher.Report> reports,
+                                             Predicate<AuditWatcher.Report> expected) throws InterruptedException {
+        while (true) {
+            AuditWatcher.Report report = reports.poll(10, TimeUnit.SECONDS);
+            assertNotNull(report, "No report within 10 seconds");
+            assertNull(report.failure());
+            if (expected.test(report)) {
+                return report;
+            }
+        }
+    }
+
+    /**
+     * Returns the module keys at the end of formatted violations.
+     */
+    private static List<String> rules(List<String> violations) {
+        return violations.stream()
+                .map(line -> line.substring(line.lastIndexOf('[') + 1, line.length() - 1))
+                .toList();
+    }
+}
@@ -2,6 +2,8 @@ package pl.wiktor.checkstyle;
 
 import com.puppycrawl.tools.checkstyle.api.AuditEvent;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -12,27 +14,28 @@ import java.util.stream.Stream;
 /**
  * Refactored test class for Checkstyle rules verification.
  */
+@Execution(ExecutionMode.CONCURRENT)
 class CheckstyleRulesTest {
     @ParameterizedTest(name = "Violation for {0}: {2}")
     @MethodSource("provideFailRules")
     void shouldDetectOnlyOneKindOfViolation_whenSingleRuleFails (String filePath, String checkNameFragment,
-                                            String messageFragment) throws Exception {
-        List<AuditEvent> events = CheckstyleTestRunner.runCheckstyle(filePath);
+                                            String messageFragment) {
+        List<AuditEvent> events = CheckstyleTestRunner.getBatchEvents(filePath);
         CheckstyleTestAssertions.assertSingleViolationType(events, filePath,
                 checkNameFragment, messageFragment);
     }
 
     @ParameterizedTest(name = "Clean code: {0}")
     @MethodSource("provideSuccessRules")
-    void shouldPassForCleanCode(String filePath) throws Exception {
-        List<AuditEvent> events = CheckstyleTestRunner.runCheckstyle(filePath);
+    void shouldPassForCleanCode(String filePath) {
+        List<AuditEvent> events = CheckstyleTestRunner.getBatchEvents(filePath);
         CheckstyleTestAssertions.assertNoViolations(events, filePath);
     }
 
     @Test
-    void shouldReportAllViolationsInSingleFile() throws Exception {
+    void shouldReportAllViolationsInSingleFile() {
         String filePath = "src/test/resources/rules/fail/MultiErrorTest.java";
-        List<AuditEvent> events = CheckstyleTestRunner.runCheckstyle(filePath);
+        List<AuditEvent> events = CheckstyleTestRunner.getBatchEvents(filePath);
         List<String> expectedFragments = CheckstyleTestConfig.getExpectedViolationMessages();
 
         CheckstyleTestAssertions.assertExpectedViolations(events, expectedFragments);
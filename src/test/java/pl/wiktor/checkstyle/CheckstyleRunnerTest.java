@@ -0,0 +1,156 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that the batch and parallel modes of {@link CheckstyleRunner} report the same violations as single-file
+ * and serial runs, and that the runner's engine modules report the same violations as a plain {@link Checker}.
+ */
+class CheckstyleRunnerTest {
+    private static final String FAIL_DIR = "src/test/resources/rules/fail";
+    private static final String RULES_DIR = "src/test/resources/rules";
+    private static final String CONFIG_FILE = "check/checkstyle.xml";
+    private static final String SUPPRESSIONS_FILE = "check/suppressions.xml";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReportSameViolationsInBatchAsPerFile() throws Exception {
+        Map<Path, List<AuditEvent>> batch = CheckstyleTestRunner.runCheckstyleBatch(FAIL_DIR);
+
+        assertEquals(CheckstyleRunner.listFiles(Path.of(FAIL_DIR)).size(), batch.size());
+        for (Map.Entry<Path, List<AuditEvent>> entry : batch.entrySet()) {
+            List<AuditEvent> single = CheckstyleTestRunner.runCheckstyle(entry.getKey().toString());
+            assertEquals(describe(single), describe(entry.getValue()),
+                    () -> "Batch result differs for " + entry.getKey());
+        }
+    }
+
+    @Test
+    void shouldReportSameViolationsInParallelAsSerially() throws Exception {
+        Path rules = Path.of(RULES_DIR);
+        Map<Path, List<AuditEvent>> serial;
+        Map<Path, List<AuditEvent>> parallel;
+
+        try (CheckstyleRunner runner = new CheckstyleRunner(Path.of(CONFIG_FILE), 4)) {
+            serial = runner.auditDirectory(rules);
+            parallel = runner.auditDirectoryParallel(rules);
+        }
+
+        assertEquals(List.copyOf(serial.keySet()), List.copyOf(parallel.keySet()));
+        serial.forEach((file, events) -> assertEquals(describe(events), describe(parallel.get(file)),
+                () -> "Parallel result differs for " + file));
+    }
+
+    @Test
+    void shouldCompareTranslationsAcrossFilesInParallel() throws Exception {
+        Path config = temp.resolve("translation.xml");
+        Files.writeString(config, """
+                <?xml version="1.0"?>
+                <!DOCTYPE module PUBLIC
+                        "-//Checkstyle//DTD Checkstyle Configuration 1.3//EN"
+                        "https://checkstyle.org/dtds/configuration_1_3.dtd">
+                <module name="Checker">
+                    <module name="Translation"/>
+                </module>
+                """);
+        Path bundle = Files.createDirectories(temp.resolve("bundle"));
+        Files.writeString(bundle.resolve("messages.properties"), "greeting=Hello\nfarewell=Bye\n");
+        Files.writeString(bundle.resolve("messages_de.properties"), "greeting=Hallo\n");
+        Map<Path, List<AuditEvent>> serial;
+        Map<Path, List<AuditEvent>> parallel;
+
+        try (CheckstyleRunner runner = new CheckstyleRunner(config, 4)) {
+            serial = runner.auditDirectory(bundle);
+            parallel = runner.auditDirectoryParallel(bundle);
+        }
+
+        assertEquals(1, serial.values().stream().mapToInt(List::size).sum());
+        assertEquals(List.copyOf(serial.keySet()), List.copyOf(parallel.keySet()));
+        serial.forEach((file, events) -> assertEquals(describe(events), describe(parallel.get(file))));
+    }
+
+    @Test
+    void shouldBalanceBatchesBySize() throws Exception {
+        List<File> files = new ArrayList<>();
+        int[] sizes = {900, 100, 500, 400, 300, 200};
+        for (int i = 0; i < sizes.length; i++) {
+            Path file = temp.resolve("File" + i + ".java");
+            Files.writeString(file, "x".repeat(sizes[i]));
+            files.add(file.toFile());
+        }
+
+        List<List<File>> batches = CheckstyleRunner.batches(files, 2);
+
+        assertEquals(2, batches.size());
+        assertEquals(files, batches.stream().flatMap(List::stream).sorted().toList());
+        for (List<File> batch : batches) {
+            assertEquals(1200, batch.stream().mapToLong(File::length).sum());
+            assertEquals(batch.stream().sorted(Comparator.comparingInt(files::indexOf)).toList(), batch);
+        }
+    }
+
+    @Test
+    void shouldReportSameViolationsAsPlainChecker() throws Exception {
+        Path rules = Path.of(RULES_DIR);
+        FileEventsListener plain = new FileEventsListener();
+        Checker checker = CheckerPool.createChecker(ConfigurationCache.load(Path.of(CONFIG_FILE)).configuration());
+        checker.addListener(plain);
+        try {
+            checker.process(CheckstyleRunner.listFiles(rules));
+        } finally {
+            checker.destroy();
+        }
+
+        Map<Path, List<AuditEvent>> expected = plain.getEventsByFile();
+        Map<Path, List<AuditEvent>> actual = CheckstyleTestRunner.runCheckstyleBatch(RULES_DIR);
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(actual.keySet()));
+        expected.forEach((file, events) -> assertEquals(describe(events), describe(actual.get(file)),
+                () -> "Engine result differs for " + file));
+    }
+
+    @Test
+    void shouldApplySuppressionsLikePlainChecker() throws Exception {
+        Path rules = Path.of(RULES_DIR);
+        Path suppressions = Path.of(SUPPRESSIONS_FILE);
+        FileEventsListener plain = new FileEventsListener();
+        Checker checker = CheckerPool.createChecker(ConfigurationModules.withSuppressions(
+                ConfigurationCache.load(Path.of(CONFIG_FILE)).configuration(), suppressions));
+        checker.addListener(plain);
+        try {
+            checker.process(CheckstyleRunner.listFiles(rules));
+        } finally {
+            checker.destroy();
+        }
+
+        Map<Path, List<AuditEvent>> expected = plain.getEventsByFile();
+        Map<Path, List<AuditEvent>> actual;
+        try (CheckstyleRunner runner = new CheckstyleRunner(Path.of(CONFIG_FILE), suppressions, 1)) {
+            actual = runner.auditDirectory(rules);
+        }
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(actual.keySet()));
+        expected.forEach((file, events) -> assertEquals(describe(events), describe(actual.get(file)),
+                () -> "Engine result with suppressions differs for " + file));
+    }
+
+    static List<String> describe(List<AuditEvent> events) {
+        return events.stream()
+                .map(e -> String.format("%s:%d:%d [%s] %s",
+                        e.getFileName(), e.getLine(), e.getColumn(), e.getSourceName(), e.getMessage()))
+                .toList();
+    }
+}
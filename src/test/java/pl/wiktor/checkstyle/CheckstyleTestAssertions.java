@@ -10,19 +10,25 @@ import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Helper class for Checkstyle test assertions.
+ * <p>
+ * Every assertion builds at most one {@link ViolationIndex} over its events, so it runs in time linear in the number
+ * of events and the total length of their messages.
  */
 public class CheckstyleTestAssertions {
     private static final Logger LOGGER = Logger.getLogger(CheckstyleTestAssertions.class.getName());
 
     /**
      * Asserts that only one kind of violation is detected and it matches the expected pattern.
+     * <p>
+     * The sources are scanned only up to the second distinct one, which already fails the assertion; the messages
+     * are indexed only when there is a single source.
      */
     public static void assertSingleViolationType(List<AuditEvent> events, String filePath,
                                                  String expectedCheckName, String expectedMessage) {
         assertFalse(events.isEmpty(),
                 () -> "Expected at least one violation for " + filePath + ", but got none.");
 
-        List<String> distinctSources = getDistinctSources(events);
+        List<String> distinctSources = ViolationIndex.distinctSources(events, 2);
 
         if (distinctSources.size() != 1) {
             printViolationDetails(events, distinctSources);
@@ -34,7 +40,7 @@ public class CheckstyleTestAssertions {
         assertContains(distinctSources.getFirst(), expectedCheckName,
                 "check name", distinctSources.getFirst());
 
-        assertAllMessagesContain(events, expectedMessage);
+        assertAllMessagesContain(ViolationIndex.of(events), expectedMessage);
     }
 
     /**
@@ -52,26 +58,17 @@ public class CheckstyleTestAssertions {
     public static void assertExpectedViolations(List<AuditEvent> events, List<String> expectedFragments) {
         assertFalse(events.isEmpty(), "Expected violations but found none.");
 
-        List<String> messages = events.stream()
-                .map(AuditEvent::getMessage)
-                .toList();
+        ViolationIndex index = ViolationIndex.of(events);
 
-        List<String> missing = findMissingFragments(messages, expectedFragments);
+        List<String> missing = findMissingFragments(index, expectedFragments);
         assertTrue(missing.isEmpty(),
                 () -> "Missing expected violations: " + missing);
 
-        List<String> unexpected = findUnexpectedViolations(events, expectedFragments);
+        List<String> unexpected = findUnexpectedViolations(index, expectedFragments);
         assertTrue(unexpected.isEmpty(),
                 () -> "Unexpected violations: " + unexpected);
     }
 
-    private static List<String> getDistinctSources(List<AuditEvent> events) {
-        return events.stream()
-                .map(AuditEvent::getSourceName)
-                .distinct()
-                .toList();
-    }
-
     private static void printViolationDetails(List<AuditEvent> events, List<String> distinctSources) {
         LOGGER.warning("Detected multiple violation sources:");
         distinctSources.forEach(s -> LOGGER.warning(" - " + s));
@@ -85,12 +82,11 @@ public class CheckstyleTestAssertions {
                 () -> String.format("Expected %s '%s' but got '%s'", type, expected, fullValue));
     }
 
-    private static void assertAllMessagesContain(List<AuditEvent> events, String expectedFragment) {
-        events.forEach(e ->
-                assertTrue(e.getMessage().toLowerCase().contains(expectedFragment.toLowerCase()),
-                        () -> String.format("Violation message should contain '%s', but got '%s'",
-                                expectedFragment, e.getMessage()))
-        );
+    private static void assertAllMessagesContain(ViolationIndex index, String expectedFragment) {
+        int mismatch = index.firstMessageWithout(expectedFragment);
+        assertTrue(mismatch < 0,
+                () -> String.format("Violation message should contain '%s', but got '%s'",
+                        expectedFragment, index.event(mismatch).getMessage()));
     }
 
     private static String formatViolations(List<AuditEvent> events) {
@@ -100,17 +96,12 @@ public class CheckstyleTestAssertions {
                 .collect(Collectors.joining("\n"));
     }
 
-    private static List<String> findMissingFragments(List<String> messages, List<String> expectedFragments) {
-        return expectedFragments.stream()
-                .filter(fragment -> messages.stream().noneMatch(msg -> msg.contains(fragment)))
-                .toList();
+    private static List<String> findMissingFragments(ViolationIndex index, List<String> expectedFragments) {
+        return index.missingFragments(expectedFragments);
     }
 
-    private static List<String> findUnexpectedViolations(List<AuditEvent> events, List<String> expectedFragments) {
-        List<AuditEvent> unexpectedEvents = events.stream()
-                .filter(event -> expectedFragments.stream()
-                        .noneMatch(fragment -> event.getMessage().contains(fragment)))
-                .toList();
+    private static List<String> findUnexpectedViolations(ViolationIndex index, List<String> expectedFragments) {
+        List<AuditEvent> unexpectedEvents = index.eventsMatchingNone(expectedFragments);
 
         return unexpectedEvents.stream()
                 .map(event -> event.getSourceName() + ": " + event.getMessage())
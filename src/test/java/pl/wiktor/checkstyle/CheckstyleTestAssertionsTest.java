@@ -0,0 +1,99 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.checks.blocks.NeedBracesCheck;
+import com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck;
+import com.puppycrawl.tools.checkstyle.checks.whitespace.GenericWhitespaceCheck;
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pins the failure messages of {@link CheckstyleTestAssertions}.
+ */
+class CheckstyleTestAssertionsTest {
+    private static final String LINE_LENGTH = LineLengthCheck.class.getName();
+    private static final String GENERIC_WHITESPACE = GenericWhitespaceCheck.class.getName();
+
+    @Test
+    void shouldReportMissingFragmentsInGivenOrder() {
+        List<AuditEvent> events = List.of(event(LineLengthCheck.class, "Line is longer than 120 characters"));
+
+        AssertionFailedError error = assertThrows(AssertionFailedError.class, () -> CheckstyleTestAssertions
+                .assertExpectedViolations(events, List.of("missing b", "Line is longer", "missing a", "missing b")));
+
+        assertEquals("Missing expected violations: [missing b, missing a, missing b] ==> expected: <true> but was: "
+                + "<false>", error.getMessage());
+    }
+
+    @Test
+    void shouldReportUnexpectedViolationsInEventOrder() {
+        List<AuditEvent> events = List.of(
+                event(GenericWhitespaceCheck.class, "'<' is followed by whitespace."),
+                event(LineLengthCheck.class, "Line is longer than 120 characters"),
+                event(GenericWhitespaceCheck.class, "'>' is preceded with whitespace."));
+
+        AssertionFailedError error = assertThrows(AssertionFailedError.class, () -> CheckstyleTestAssertions
+                .assertExpectedViolations(events, List.of("Line is longer")));
+
+        assertEquals("Unexpected violations: [" + GENERIC_WHITESPACE + ": '<' is followed by whitespace., "
+                + GENERIC_WHITESPACE + ": '>' is preceded with whitespace.] ==> expected: <true> but was: <false>",
+                error.getMessage());
+    }
+
+    @Test
+    void shouldReportFirstMessageWithoutExpectedFragment() {
+        List<AuditEvent> events = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            events.add(event(LineLengthCheck.class, "Line is LONGER than " + i + " characters"));
+        }
+        events.add(500, event(LineLengthCheck.class, "File is too long"));
+
+        CheckstyleTestAssertions.assertSingleViolationType(events.subList(0, 500), "File.java", "LineLength",
+                "line is longer");
+        AssertionFailedError error = assertThrows(AssertionFailedError.class, () -> CheckstyleTestAssertions
+                .assertSingleViolationType(events, "File.java", "LineLength", "line is longer"));
+
+        assertEquals("Violation message should contain 'line is longer', but got 'File is too long' ==> "
+                + "expected: <true> but was: <false>", error.getMessage());
+    }
+
+    @Test
+    void shouldReportMultipleSources() {
+        List<AuditEvent> events = List.of(
+                event(LineLengthCheck.class, "Line is longer than 120 characters"),
+                event(GenericWhitespaceCheck.class, "'<' is followed by whitespace."));
+
+        AssertionFailedError error = assertThrows(AssertionFailedError.class, () -> CheckstyleTestAssertions
+                .assertSingleViolationType(events, "File.java", "LineLength", "line is longer"));
+
+        assertEquals("Expected only one kind of violation, but got multiple sources: [" + LINE_LENGTH + ", "
+                + GENERIC_WHITESPACE + "] ==> expected: <1> but was: <2>", error.getMessage());
+    }
+
+    @Test
+    void shouldStopAtSecondSource() {
+        List<AuditEvent> events = List.of(
+                event(LineLengthCheck.class, "Line is longer than 120 characters"),
+                event(LineLengthCheck.class, "Line is longer than 130 characters"),
+                event(GenericWhitespaceCheck.class, "'<' is followed by whitespace."),
+                event(NeedBracesCheck.class, "'if' construct must use '{}'s."));
+
+        AssertionFailedError error = assertThrows(AssertionFailedError.class, () -> CheckstyleTestAssertions
+                .assertSingleViolationType(events, "File.java", "LineLength", "line is longer"));
+
+        assertEquals("Expected only one kind of violation, but got multiple sources: [" + LINE_LENGTH + ", "
+                + GENERIC_WHITESPACE + "] ==> expected: <1> but was: <2>", error.getMessage());
+    }
+
+    private static AuditEvent event(Class<?> source, String message) {
+        return new AuditEvent(source, "File.java", new Violation(1, 1, "bundle", "key", new Object[] {message},
+                SeverityLevel.ERROR, null, source, "{0}"));
+    }
+}
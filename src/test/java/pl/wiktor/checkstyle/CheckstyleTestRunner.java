@@ -1,57 +1,93 @@
 package pl.wiktor.checkstyle;
 
-import com.puppycrawl.tools.checkstyle.Checker;
-import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
-import com.puppycrawl.tools.checkstyle.PropertiesExpander;
 import com.puppycrawl.tools.checkstyle.api.AuditEvent;
 import com.puppycrawl.tools.checkstyle.api.AuditListener;
-import com.puppycrawl.tools.checkstyle.api.Configuration;
-import org.xml.sax.InputSource;
+import pl.wiktor.checkstyle.engine.ParseCache;
+import pl.wiktor.checkstyle.report.StreamingReportListener;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for running Checkstyle tests.
  */
 public class CheckstyleTestRunner {
     private static final String CONFIG_FILE = "check/checkstyle.xml";
+    private static final ParseCache PARSE_CACHE = new ParseCache(ParseCache.DEFAULT_MAX_CHARACTERS);
+    private static final CheckstyleRunner RUNNER = createRunner();
+    private static final Map<Path, Map<Path, List<AuditEvent>>> BATCHES = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the cache of file texts and syntax trees shared by all tests, so every fixture is parsed once per run.
+     */
+    public static ParseCache getParseCache() {
+        return PARSE_CACHE;
+    }
     
     /**
      * Runs Checkstyle on a single file and returns the list of audit events.
      */
     public static List<AuditEvent> runCheckstyle(String filePath) throws Exception {
-        Configuration config = loadConfiguration();
-        Checker checker = createChecker(config);
-        
-        List<AuditEvent> events = new LinkedList<>();
-        checker.addListener(createAuditListener(events));
-        
-        try {
-            checker.process(Collections.singletonList(new File(filePath)));
-        } finally {
-            checker.destroy();
-        }
-        
+        List<AuditEvent> events = new ArrayList<>();
+        RUNNER.audit(Collections.singletonList(new File(filePath)), createAuditListener(events));
         return events;
     }
     
-    private static Configuration loadConfiguration() throws Exception {
-        try (FileInputStream configStream = new FileInputStream(CONFIG_FILE)) {
-            return ConfigurationLoader.loadConfiguration(
-                    new InputSource(configStream),
-                    new PropertiesExpander(new Properties()),
-                    ConfigurationLoader.IgnoredModulesOptions.EXECUTE
-            );
+    /**
+     * Runs Checkstyle on a file, or on every file below a directory, reporting all callbacks to the given listener.
+     * A {@link pl.wiktor.checkstyle.metrics.ModuleTimingListener} also receives the per-module timings.
+     */
+    public static void runCheckstyle(String path, AuditListener listener) throws Exception {
+        File file = new File(path);
+        List<File> files = file.isDirectory() ? CheckstyleRunner.listFiles(file.toPath()) : List.of(file);
+        RUNNER.audit(files, listener);
+    }
+    
+    /**
+     * Runs Checkstyle on a file, or on every file below a directory, streaming the violations to a SARIF or JSON Lines
+     * report chosen by the file name, see {@link StreamingReportListener}. Only the summary counters are kept in
+     * memory, so this suits audits with any number of violations.
+     */
+    public static StreamingReportListener.Summary runCheckstyleReport(String path, Path report) throws Exception {
+        try (StreamingReportListener listener = StreamingReportListener.open(report)) {
+            runCheckstyle(path, listener);
+            return listener.getSummary();
+        }
+    }
+    
+    /**
+     * Runs Checkstyle once over every file in the given directory and returns the events per file.
+     * The files are spread across parallel workers and the result is shared, so each fixture directory is audited
+     * only once per test run.
+     */
+    public static Map<Path, List<AuditEvent>> runCheckstyleBatch(String directory) {
+        return BATCHES.computeIfAbsent(FileEventsListener.toPath(directory), dir -> {
+            try {
+                return RUNNER.auditDirectoryParallel(dir);
+            } catch (Exception e) {
+                throw new IllegalStateException("Checkstyle batch run failed for " + dir, e);
+            }
+        });
+    }
+    
+    /**
+     * Returns the events for a single file, taken from the shared batch run of its directory.
+     */
+    public static List<AuditEvent> getBatchEvents(String filePath) {
+        Path file = FileEventsListener.toPath(filePath);
+        List<AuditEvent> events = runCheckstyleBatch(file.getParent().toString()).get(file);
+        if (events == null) {
+            throw new IllegalArgumentException("File was not audited in its batch run: " + filePath);
         }
+        return events;
     }
     
-    private static Checker createChecker(Configuration config) throws Exception {
-        Checker checker = new Checker();
-        checker.setModuleClassLoader(Checker.class.getClassLoader());
-        checker.configure(config);
-        return checker;
+    private static CheckstyleRunner createRunner() {
+        CheckstyleRunner runner = new CheckstyleRunner(Path.of(CONFIG_FILE));
+        runner.setParseCache(PARSE_CACHE);
+        return runner;
     }
     
     private static AuditListener createAuditListener(List<AuditEvent> events) {
@@ -0,0 +1,100 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link CompiledConfiguration}.
+ */
+class CompiledConfigurationTest {
+    private static final Path CONFIG = Path.of("check/checkstyle.xml");
+    private static final Path SUPPRESSIONS = Path.of("check/suppressions.xml");
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReportTheSameViolationsAsXmlWithSuppressions() throws Exception {
+        Path compiled = temp.resolve("checkstyle.bin");
+        assertEquals(AuditCommand.EXIT_OK, CompiledConfiguration.run(new String[] {"--config", CONFIG.toString(),
+            "--suppressions", SUPPRESSIONS.toString(), "--output", compiled.toString()}));
+        assertTrue(CompiledConfiguration.isCompiled(Files.readAllBytes(compiled)));
+
+        List<File> files = CheckstyleRunner.listFiles(Path.of("src/test/resources/rules"));
+        Map<Path, List<String>> fromXml = audit(new CheckstyleRunner(CONFIG, SUPPRESSIONS, 2), files);
+        Map<Path, List<String>> fromCompiled = audit(new CheckstyleRunner(compiled, null, 2), files);
+
+        assertEquals(fromXml, fromCompiled);
+        assertFalse(fromCompiled.values().stream().allMatch(List::isEmpty));
+        assertTrue(fromCompiled.values().stream().flatMap(List::stream)
+                .noneMatch(line -> line.endsWith("[SystemOutUsage]") || line.endsWith("[NeedBraces]")));
+    }
+
+    @Test
+    void shouldRoundTripModulesPropertiesAndMessages() throws Exception {
+        Path config = temp.resolve("checkstyle.xml");
+        Files.writeString(config, Files.readString(CONFIG).replace("value=\"120\"", "value=\"${max}\""));
+        Properties properties = new Properties();
+        properties.setProperty("max", "99");
+
+        Configuration configuration = CompiledConfiguration.compile(config, SUPPRESSIONS, properties);
+        byte[] bytes = CompiledConfiguration.write(configuration);
+        Configuration read = CompiledConfiguration.read(bytes, config);
+
+        assertArrayEquals(bytes, CompiledConfiguration.write(read));
+        assertTrue(CompiledConfiguration.write(CompiledConfiguration.compile(CONFIG, null, new Properties())).length
+                < bytes.length);
+        Configuration lineLength = Arrays.stream(read.getChildren())
+                .filter(module -> "LineLength".equals(module.getName())).findFirst().orElseThrow();
+        assertEquals("99", lineLength.getProperty("max"));
+        assertEquals(3, Arrays.stream(read.getChildren())
+                .filter(module -> "SuppressionSingleFilter".equals(module.getName())).count());
+    }
+
+    @Test
+    void shouldRejectCorruptOrForeignCompiledForms() throws Exception {
+        byte[] bytes = CompiledConfiguration.write(CompiledConfiguration.compile(CONFIG, null, new Properties()));
+
+        assertThrows(CheckstyleException.class,
+                () -> CompiledConfiguration.read(Arrays.copyOf(bytes, bytes.length - 3), CONFIG));
+        byte[] otherVersion = bytes.clone();
+        otherVersion[12] = 'X';
+        assertThrows(CheckstyleException.class, () -> CompiledConfiguration.read(otherVersion, CONFIG));
+    }
+
+    @Test
+    void shouldRejectSuppressionsWithUnbundledDtd() throws Exception {
+        Path suppressions = temp.resolve("suppressions.xml");
+        Files.writeString(suppressions, Files.readString(SUPPRESSIONS)
+                .replace("-//Checkstyle//DTD SuppressionFilter Configuration 1.2//EN", "-//Example//DTD Remote//EN"));
+
+        CheckstyleException e = assertThrows(CheckstyleException.class,
+                () -> CompiledConfiguration.compile(CONFIG, suppressions, new Properties()));
+        assertTrue(e.getMessage().contains("not bundled"), e.getMessage());
+    }
+
+    private static Map<Path, List<String>> audit(CheckstyleRunner runner, List<File> files)
+            throws CheckstyleException {
+        try (runner) {
+            Map<Path, List<String>> lines = new TreeMap<>();
+            for (Map.Entry<Path, List<AuditEvent>> entry : runner.auditFilesParallel(files).entrySet()) {
+                lines.put(entry.getKey(), entry.getValue().stream().map(AuditCommand::format).toList());
+            }
+            return lines;
+        }
+    }
+}
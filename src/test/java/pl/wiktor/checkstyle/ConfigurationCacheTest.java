@@ -0,0 +1,44 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ConfigurationCache}.
+ */
+class ConfigurationCacheTest {
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReuseConfigurationUntilFileChanges() throws Exception {
+        Path config = temp.resolve("checkstyle.xml");
+        Files.copy(Path.of("check/checkstyle.xml"), config);
+
+        ConfigurationCache.LoadedConfiguration first = ConfigurationCache.load(config);
+        assertSame(first, ConfigurationCache.load(config));
+
+        Files.writeString(config, Files.readString(config).replace("value=\"120\"", "value=\"100\""));
+        ConfigurationCache.LoadedConfiguration edited = ConfigurationCache.load(config);
+
+        assertNotEquals(first.hash(), edited.hash());
+        assertNotSame(first.configuration(), edited.configuration());
+        assertSame(edited, ConfigurationCache.load(config));
+    }
+
+    @Test
+    void shouldRejectConfigurationWithUnbundledDtd() throws Exception {
+        Path config = temp.resolve("checkstyle.xml");
+        Files.writeString(config, Files.readString(Path.of("check/checkstyle.xml"))
+                .replace("-//Checkstyle//DTD Checkstyle Configuration 1.3//EN", "-//Example//DTD Remote//EN"));
+
+        CheckstyleException e = assertThrows(CheckstyleException.class, () -> ConfigurationCache.load(config));
+        assertTrue(e.getMessage().contains("not bundled"), e.getMessage());
+    }
+}
@@ -0,0 +1,50 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ConfigurationModules}, whose keys are also used as benchmark parameters.
+ */
+class ConfigurationModulesTest {
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+
+    @Test
+    void shouldListEveryCheckWithUniqueKey() throws Exception {
+        Configuration root = ConfigurationCache.load(CONFIG_FILE).configuration();
+
+        assertEquals(List.of("LineLength", "RegexpMultiline#1", "RegexpMultiline#2", "SystemOutUsage",
+                        "SystemErrUsage", "SingleLineComments", "UnusedImports", "UnusedLocalVariable", "NeedBraces",
+                        "GenericWhitespace", "Indentation", "NoWhitespaceBefore", "WhitespaceAround",
+                        "EmptyLineSeparator", "TypeName", "MethodName", "LocalVariableName", "ConstantName"),
+                ConfigurationModules.moduleKeys(root));
+    }
+
+    @Test
+    void shouldRunOnlyTheIsolatedCheck() throws Exception {
+        Configuration root = ConfigurationCache.load(CONFIG_FILE).configuration();
+        Configuration isolated = ConfigurationModules.isolate(root, "LineLength");
+        File file = new File("src/test/resources/rules/fail/MultiErrorTest.java");
+
+        Checker checker = CheckerPool.createChecker(isolated);
+        FileEventsListener listener = new FileEventsListener();
+        checker.addListener(listener);
+        try {
+            checker.process(List.of(file));
+        } finally {
+            checker.destroy();
+        }
+
+        List<AuditEvent> events = listener.getEventsByFile().get(FileEventsListener.toPath(file.getPath()));
+        assertEquals(1, events.size());
+        assertTrue(events.getFirst().getSourceName().endsWith("LineLengthCheck"));
+    }
+}
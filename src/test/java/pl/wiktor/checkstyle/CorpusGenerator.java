@@ -0,0 +1,187 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates reproducible corpora of large Java files from the rule fixtures in {@code src/test/resources/rules}.
+ * <p>
+ * Every generated class starts with a random number of imports and a generic type parameter, and is then filled up
+ * to the requested number of lines with chunks of these kinds:
+ * <ul>
+ *     <li>the members of a fixture, nested into 0 to {@value #MAX_FIXTURE_NESTING} inner classes,</li>
+ *     <li>a method with loops and conditions nested up to {@value #MAX_BLOCK_DEPTH} deep, sometimes misindented,</li>
+ *     <li>a constant with a long string concatenation, often longer than 120 characters,</li>
+ *     <li>a field with nested generic types,</li>
+ *     <li>a run of blank or whitespace-only lines.</li>
+ * </ul>
+ * File {@code i} only depends on the seed, {@code i} and the requested number of lines, so a corpus with more files
+ * extends a smaller one with the same seed.
+ */
+public final class CorpusGenerator {
+    private static final Path FIXTURES = Path.of("src/test/resources/rules");
+    private static final Pattern TYPE_DECLARATION = Pattern.compile("\\b(class|interface|enum|record)\\s+\\w+[^{]*\\{");
+    private static final String[] IMPORTS = {
+        "java.io.File", "java.io.IOException", "java.io.InputStream", "java.io.Reader", "java.math.BigDecimal",
+        "java.net.URI", "java.nio.ByteBuffer", "java.nio.file.Files", "java.nio.file.Path", "java.time.Duration",
+        "java.time.Instant", "java.util.ArrayList", "java.util.Collections", "java.util.Comparator", "java.util.Date",
+        "java.util.HashMap", "java.util.HashSet", "java.util.LinkedHashMap", "java.util.List", "java.util.Map",
+        "java.util.Objects", "java.util.Optional", "java.util.Set", "java.util.TreeMap", "java.util.UUID",
+        "java.util.concurrent.Callable", "java.util.concurrent.ConcurrentHashMap", "java.util.concurrent.Executor",
+        "java.util.concurrent.Future", "java.util.concurrent.TimeUnit", "java.util.function.BiFunction",
+        "java.util.function.Function", "java.util.function.Predicate", "java.util.function.Supplier",
+        "java.util.regex.Pattern", "java.util.stream.Collectors", "java.util.stream.Stream",
+    };
+    private static final String[] GENERIC_TYPES = {
+        "List<String>", "Map<String, List<Integer>>", "Map<T, Set<Map<String, List<T>>>>", "Optional<List<T>>",
+        "Function<? super T, ? extends Comparable<T>>", "BiFunction<T, Map<String, T>, List<? extends T>>",
+    };
+    private static final String[] BLOCKS = {"if (value > %d) {", "for (int i%d = 0; i%1$d < value; i%1$d++) {",
+        "while (value > %d) {", "synchronized (this) {"};
+    private static final int MAX_IMPORTS = 36;
+    private static final int MAX_FIXTURE_NESTING = 3;
+    private static final int MAX_BLOCK_DEPTH = 8;
+    private static final int MAX_BLANK_LINES = 4;
+    private static final int INDENT = 4;
+
+    private final long seed;
+    private final List<String> fixtureBodies;
+
+    /**
+     * Loads the fixtures; the same seed generates the same corpus as long as the fixtures do not change.
+     */
+    public CorpusGenerator(long seed) throws CheckstyleException, IOException {
+        this.seed = seed;
+        this.fixtureBodies = new ArrayList<>();
+        for (File fixture : CheckstyleRunner.listFiles(FIXTURES)) {
+            String text = Files.readString(fixture.toPath()).replace("\r\n", "\n");
+            Matcher declaration = TYPE_DECLARATION.matcher(text);
+            if (declaration.find()) {
+                String body = text.substring(declaration.end(), text.lastIndexOf('}'));
+                fixtureBodies.add(body.replaceFirst("^\\s*\n", "").stripTrailing());
+            }
+        }
+    }
+
+    /**
+     * Writes {@code files} classes of at least {@code linesPerFile} lines each below the given directory.
+     */
+    public Corpus generate(Path directory, int files, int linesPerFile) throws IOException {
+        List<File> written = new ArrayList<>();
+        long lines = 0;
+        for (int i = 0; i < files; i++) {
+            String text = generateFile(i, linesPerFile);
+            Path file = directory.resolve("p" + i % 100).resolve("Generated" + i + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, text);
+            written.add(file.toFile());
+            lines += text.lines().count();
+        }
+        return new Corpus(written, lines);
+    }
+
+    /**
+     * Returns the source of file {@code index} with at least the given number of lines.
+     */
+    String generateFile(int index, int lines) {
+        Random random = new Random(seed * 1_000_003L + index);
+        Source source = new Source();
+        source.line("package generated.p" + index % 100 + ";");
+        source.line("");
+
+        List<String> imports = new ArrayList<>(List.of(IMPORTS));
+        Collections.shuffle(imports, random);
+        imports.subList(0, random.nextInt(MAX_IMPORTS + 1)).stream().sorted()
+                .forEach(name -> source.line("import " + name + ";"));
+        source.line("");
+        source.line("public class Generated" + index + "<T extends Comparable<T>> {");
+
+        for (int member = 0; source.lines < lines - 1; member++) {
+            switch (random.nextInt(5)) {
+                case 0 -> nestedFixture(source, random, member);
+                case 1 -> nestedBlocks(source, random, member);
+                case 2 -> longConstant(source, random, member);
+                case 3 -> source.indented(INDENT, "private " + GENERIC_TYPES[random.nextInt(GENERIC_TYPES.length)]
+                        + " generic" + member + ";");
+                default -> {
+                    for (int i = 1 + random.nextInt(MAX_BLANK_LINES); i > 0; i--) {
+                        source.line(random.nextBoolean() ? "" : " ".repeat(INDENT));
+                    }
+                }
+            }
+        }
+        source.line("}");
+        return source.text.toString();
+    }
+
+    private void nestedFixture(Source source, Random random, int member) {
+        int nesting = random.nextInt(MAX_FIXTURE_NESTING + 1);
+        for (int level = 0; level < nesting; level++) {
+            source.indented(INDENT * (level + 1), "static class Nested" + member + "x" + level + " {");
+        }
+        String shift = " ".repeat(INDENT * nesting);
+        fixtureBodies.get(random.nextInt(fixtureBodies.size())).lines()
+                .forEach(line -> source.line(line.isBlank() ? line : shift + line));
+        for (int level = nesting - 1; level >= 0; level--) {
+            source.indented(INDENT * (level + 1), "}");
+        }
+    }
+
+    private static void nestedBlocks(Source source, Random random, int member) {
+        int depth = 1 + random.nextInt(MAX_BLOCK_DEPTH);
+        source.indented(INDENT, "public int nested" + member + "(int value) {");
+        for (int level = 0; level < depth; level++) {
+            source.indented(INDENT * (level + 2), String.format(BLOCKS[random.nextInt(BLOCKS.length)], level));
+        }
+        int innermost = INDENT * (depth + 2);
+        source.indented(random.nextInt(10) == 0 ? innermost - 2 : innermost, "int unused" + member + " = value * 2;");
+        source.indented(innermost, "value--;");
+        for (int level = depth - 1; level >= 0; level--) {
+            source.indented(INDENT * (level + 2), "}");
+        }
+        source.indented(INDENT * 2, "return value;");
+        source.indented(INDENT, "}");
+    }
+
+    private static void longConstant(Source source, Random random, int member) {
+        StringBuilder value = new StringBuilder("\"");
+        int length = 60 + random.nextInt(180);
+        while (value.length() < length) {
+            value.append("segment").append(random.nextInt(1000)).append(random.nextInt(4) == 0 ? "\" + \"" : " ");
+        }
+        source.indented(INDENT, "private static final String LONG_" + member + " = " + value + "\";");
+    }
+
+    /**
+     * A generated corpus and its total number of lines.
+     */
+    public record Corpus(List<File> files, long lines) {
+    }
+
+    /**
+     * Source text under construction and its number of lines.
+     */
+    private static final class Source {
+        private final StringBuilder text = new StringBuilder();
+        private int lines;
+
+        private void line(String line) {
+            text.append(line).append('\n');
+            lines++;
+        }
+
+        private void indented(int indent, String line) {
+            line(" ".repeat(indent) + line);
+        }
+    }
+}
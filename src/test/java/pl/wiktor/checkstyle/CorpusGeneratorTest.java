@@ -0,0 +1,47 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that {@link CorpusGenerator} output is reproducible and parses.
+ */
+class CorpusGeneratorTest {
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldGenerateSameFilesForSameSeed() throws Exception {
+        CorpusGenerator generator = new CorpusGenerator(7);
+        CorpusGenerator.Corpus small = generator.generate(temp.resolve("small"), 3, 300);
+        CorpusGenerator.Corpus large = new CorpusGenerator(7).generate(temp.resolve("large"), 5, 300);
+
+        for (int i = 0; i < small.files().size(); i++) {
+            assertEquals(Files.readString(small.files().get(i).toPath()),
+                    Files.readString(large.files().get(i).toPath()));
+        }
+        assertNotEquals(generator.generateFile(0, 300), new CorpusGenerator(8).generateFile(0, 300));
+    }
+
+    @Test
+    void shouldGenerateParsableFilesOfRequestedSize() throws Exception {
+        CorpusGenerator.Corpus corpus = new CorpusGenerator(11).generate(temp, 20, 500);
+
+        assertEquals(20, corpus.files().size());
+        long lines = 0;
+        for (File file : corpus.files()) {
+            long fileLines = Files.readAllLines(file.toPath()).size();
+            assertTrue(fileLines >= 500, file + " has " + fileLines + " lines");
+            lines += fileLines;
+            assertDoesNotThrow(() -> JavaParser.parseFile(file, JavaParser.Options.WITH_COMMENTS), file::toString);
+        }
+        assertEquals(lines, corpus.lines());
+    }
+}
@@ -0,0 +1,145 @@
+package pl.wiktor.checkstyle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick matcher that finds which of a fixed list of fragments occur in a text in a single pass.
+ * <p>
+ * Matching is case-sensitive, like {@link String#contains(CharSequence)}; fragment indices refer to the list given to
+ * {@link #compile(List)}, duplicates included.
+ */
+final class FragmentMatcher {
+    private static final int ROOT = 0;
+    private static final int[] NO_FRAGMENTS = {};
+
+    private final Map<Long, Integer> transitions;
+    private final int[] failure;
+    private final int[] outputLink;
+    private final int[][] fragmentsEndingAt;
+
+    private FragmentMatcher(Map<Long, Integer> transitions, int[] failure, int[] outputLink,
+                            int[][] fragmentsEndingAt) {
+        this.transitions = transitions;
+        this.failure = failure;
+        this.outputLink = outputLink;
+        this.fragmentsEndingAt = fragmentsEndingAt;
+    }
+
+    static FragmentMatcher compile(List<String> fragments) {
+        Map<Long, Integer> transitions = new HashMap<>();
+        List<List<Integer>> endings = new ArrayList<>();
+        List<List<Character>> children = new ArrayList<>();
+        endings.add(new ArrayList<>());
+        children.add(new ArrayList<>());
+
+        for (int i = 0; i < fragments.size(); i++) {
+            int state = ROOT;
+            for (char c : fragments.get(i).toCharArray()) {
+                Integer next = transitions.get(edge(state, c));
+                if (next == null) {
+                    next = endings.size();
+                    transitions.put(edge(state, c), next);
+                    children.get(state).add(c);
+                    endings.add(new ArrayList<>());
+                    children.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            endings.get(state).add(i);
+        }
+
+        int states = endings.size();
+        int[] failure = new int[states];
+        int[] outputLink = new int[states];
+        Arrays.fill(outputLink, -1);
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+
+        while (head < tail) {
+            int state = queue[head++];
+            for (char c : children.get(state)) {
+                int child = transitions.get(edge(state, c));
+                int fallback = state == ROOT ? ROOT : step(transitions, failure, failure[state], c);
+                failure[child] = fallback;
+                outputLink[child] = endings.get(fallback).isEmpty() ? outputLink[fallback] : fallback;
+                queue[tail++] = child;
+            }
+        }
+
+        int[][] fragmentsEndingAt = new int[states][];
+        for (int state = 0; state < states; state++) {
+            fragmentsEndingAt[state] = endings.get(state).isEmpty() ? NO_FRAGMENTS
+                    : endings.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new FragmentMatcher(transitions, failure, outputLink, fragmentsEndingAt);
+    }
+
+    /**
+     * Sets the index of every fragment that occurs in the text.
+     */
+    void collectMatches(String text, BitSet found) {
+        collect(ROOT, found);
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(transitions, failure, state, text.charAt(i));
+            collect(state, found);
+        }
+    }
+
+    /**
+     * Tells whether at least one fragment occurs in the text.
+     */
+    boolean matchesAny(String text) {
+        if (hasOutput(ROOT)) {
+            return true;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(transitions, failure, state, text.charAt(i));
+            if (hasOutput(state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasOutput(int state) {
+        return fragmentsEndingAt[state].length > 0 || outputLink[state] >= 0;
+    }
+
+    private void collect(int state, BitSet found) {
+        for (int current = state; current >= 0; current = outputLink[current]) {
+            for (int fragment : fragmentsEndingAt[current]) {
+                found.set(fragment);
+            }
+            if (current == ROOT) {
+                break;
+            }
+        }
+    }
+
+    private static int step(Map<Long, Integer> transitions, int[] failure, int state, char c) {
+        int current = state;
+        while (true) {
+            Integer next = transitions.get(edge(current, c));
+            if (next != null) {
+                return next;
+            }
+            if (current == ROOT) {
+                return ROOT;
+            }
+            current = failure[current];
+        }
+    }
+
+    private static long edge(int state, char c) {
+        return ((long) state << Character.SIZE) | c;
+    }
+}
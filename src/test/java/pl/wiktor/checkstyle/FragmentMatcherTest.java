@@ -0,0 +1,73 @@
+package pl.wiktor.checkstyle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares {@link FragmentMatcher} with plain {@link String#contains(CharSequence)} scans.
+ */
+class FragmentMatcherTest {
+    @Test
+    void shouldFindOverlappingAndNestedFragments() {
+        List<String> fragments = List.of("he", "she", "his", "hers", "s", "she");
+        BitSet found = new BitSet();
+
+        FragmentMatcher.compile(fragments).collectMatches("ushers", found);
+
+        assertEquals(expected(fragments, "ushers"), found);
+        assertFalse(found.get(2));
+    }
+
+    @Test
+    void shouldMatchEmptyFragmentEverywhere() {
+        FragmentMatcher matcher = FragmentMatcher.compile(List.of("x", ""));
+
+        assertTrue(matcher.matchesAny(""));
+        BitSet found = new BitSet();
+        matcher.collectMatches("", found);
+        assertEquals(expected(List.of("x", ""), ""), found);
+    }
+
+    @Test
+    void shouldAgreeWithContainsOnRandomInput() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            List<String> fragments = new ArrayList<>();
+            for (int i = random.nextInt(6); i >= 0; i--) {
+                fragments.add(randomText(random, 1 + random.nextInt(4)));
+            }
+            String text = randomText(random, random.nextInt(40));
+            FragmentMatcher matcher = FragmentMatcher.compile(fragments);
+
+            BitSet found = new BitSet();
+            matcher.collectMatches(text, found);
+            assertEquals(expected(fragments, text), found, () -> fragments + " in " + text);
+            assertEquals(fragments.stream().anyMatch(text::contains), matcher.matchesAny(text),
+                    () -> fragments + " in " + text);
+        }
+    }
+
+    private static BitSet expected(List<String> fragments, String text) {
+        BitSet expected = new BitSet();
+        for (int i = 0; i < fragments.size(); i++) {
+            if (text.contains(fragments.get(i))) {
+                expected.set(i);
+            }
+        }
+        return expected;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(3)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,356 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+import pl.wiktor.checkstyle.metrics.AuditMetricsListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Performance regression gate of the {@code perf-gate} Maven profile: audits a fixed corpus and compares the cost
+ * with a baseline checked into the repository, so that a change to {@code check/checkstyle.xml} or a new custom check
+ * that makes audits noticeably more expensive fails the build.
+ * <p>
+ * Usage: {@code PerformanceGate check|update [--baseline <file>] [--tolerance <fraction>]
+ * [--time-tolerance <fraction>] [--warmup <rounds>] [--measurements <rounds>] [--files <n>] [--lines <n>]}. The
+ * corpus is {@code src/test/resources/rules} plus {@code --files} classes of {@code --lines} lines generated by
+ * {@link CorpusGenerator} with a fixed seed. Every round audits the corpus once on the calling thread, for the time
+ * and the allocated bytes, and once with module timing, for the time of every rule; the warmup rounds are discarded
+ * and the median of the measured rounds is kept.
+ * <p>
+ * {@code check} fails with exit code 1 when the allocated bytes per file exceed the baseline by more than
+ * {@code --tolerance}. The allocations of the same corpus and configuration barely change between runs and machines,
+ * while the wall-clock time follows the load and the kind of the machine, so the milliseconds per 1000 lines exceeding
+ * the baseline by more than {@code --time-tolerance} are only reported, as an advisory. Either way the time of every
+ * rule is then printed next to its baseline. The baseline only changes through the explicit {@code update} command,
+ * which records the current measurement. Exit code 2 means that the gate could not run, e.g. for invalid options or
+ * a baseline recorded for another corpus.
+ */
+public final class PerformanceGate {
+    static final int EXIT_OK = 0;
+    static final int EXIT_REGRESSION = 1;
+    static final int EXIT_FAILURE = 2;
+    static final Path DEFAULT_BASELINE = Path.of("check/performance-baseline.properties");
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+    private static final Path SUPPRESSIONS_FILE = Path.of("check/suppressions.xml");
+    private static final Path FIXTURES = Path.of("src/test/resources/rules");
+    private static final long SEED = 42;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double LINES_PER_KLOC = 1000.0;
+    private static final String RULE_PREFIX = "rule.";
+    private static final String RULE_SUFFIX = ".msPerKloc";
+
+    private PerformanceGate() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: PerformanceGate check|update [--baseline <file>] [--tolerance <fraction>] "
+                    + "[--time-tolerance <fraction>] [--warmup <rounds>] [--measurements <rounds>] [--files <n>] "
+                    + "[--lines <n>]");
+            return EXIT_FAILURE;
+        }
+
+        try {
+            Measurement baseline = options.update() ? null : Measurement.read(options.baseline());
+            if (baseline != null && !baseline.hasCorpus(options.files(), options.lines())) {
+                System.out.printf("Baseline %s was recorded for %dx%d generated files, run the update command%n",
+                        options.baseline(), baseline.files(), baseline.linesPerFile());
+                return EXIT_FAILURE;
+            }
+
+            Measurement current = measure(options);
+            System.out.printf(Locale.ROOT, "Audited %d lines: %.3f ms per KLOC, %.0f bytes allocated per file%n",
+                    current.lines(), current.msPerKloc(), current.bytesPerFile());
+            if (options.update()) {
+                current.write(options.baseline());
+                System.out.println("Baseline written to " + options.baseline());
+                return EXIT_OK;
+            }
+
+            List<String> advisories = advisories(baseline, current, options.timeTolerance());
+            List<String> regressions = regressions(baseline, current, options.tolerance());
+            advisories.forEach(System.out::println);
+            regressions.forEach(System.out::println);
+            if (!advisories.isEmpty() || !regressions.isEmpty()) {
+                System.out.print(ruleDiff(baseline, current));
+            }
+            if (regressions.isEmpty()) {
+                System.out.printf(Locale.ROOT, "Allocations within %.0f%% of the baseline %s%n",
+                        options.tolerance() * 100, options.baseline());
+                return EXIT_OK;
+            }
+            return EXIT_REGRESSION;
+        } catch (CheckstyleException | IOException e) {
+            System.out.println("Performance gate failed: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Audits the corpus in the given number of warmup and measured rounds and returns the medians.
+     */
+    static Measurement measure(Options options) throws CheckstyleException, IOException {
+        Path root = Files.createTempDirectory("performance-gate");
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, SUPPRESSIONS_FILE, 1)) {
+            CorpusGenerator.Corpus generated = new CorpusGenerator(SEED).generate(root, options.files(),
+                    options.lines());
+            List<File> files = new ArrayList<>(CheckstyleRunner.listFiles(FIXTURES));
+            long lines = generated.lines();
+            for (File fixture : files) {
+                lines += Files.readString(fixture.toPath()).lines().count();
+            }
+            files.addAll(generated.files());
+            double klocs = lines / LINES_PER_KLOC;
+
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            int rounds = options.warmup() + options.measurements();
+            double[] msPerKloc = new double[options.measurements()];
+            double[] bytesPerFile = new double[options.measurements()];
+            Map<String, double[]> ruleMsPerKloc = new TreeMap<>();
+            for (int round = 0; round < rounds; round++) {
+                long allocated = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                runner.audit(files, new FileEventsListener());
+                long nanos = System.nanoTime() - start;
+                allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+                AuditMetricsListener timing = new AuditMetricsListener();
+                runner.audit(files, timing);
+                int measured = round - options.warmup();
+                if (measured < 0) {
+                    continue;
+                }
+                msPerKloc[measured] = nanos / NANOS_PER_MILLI / klocs;
+                bytesPerFile[measured] = (double) allocated / files.size();
+                for (AuditMetrics.ModuleMetrics module : timing.getMetrics().modules()) {
+                    ruleMsPerKloc.computeIfAbsent(module.module(), key -> new double[options.measurements()])
+                            [measured] = module.nanos() / NANOS_PER_MILLI / klocs;
+                }
+            }
+
+            Map<String, Double> rules = new TreeMap<>();
+            ruleMsPerKloc.forEach((rule, values) -> rules.put(rule, median(values)));
+            return new Measurement(options.files(), options.lines(), lines, median(msPerKloc), median(bytesPerFile),
+                    rules);
+        } finally {
+            delete(root);
+        }
+    }
+
+    /**
+     * Returns a description of the allocations of the current measurement exceeding the baseline by more than the
+     * tolerance; an empty list passes the gate.
+     */
+    static List<String> regressions(Measurement baseline, Measurement current, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        check(regressions, "Allocation regression", "bytes per file", baseline.bytesPerFile(),
+                current.bytesPerFile(), tolerance);
+        return regressions;
+    }
+
+    /**
+     * Returns a description of the time of the current measurement exceeding the baseline by more than the
+     * tolerance, which is reported without failing the gate.
+     */
+    static List<String> advisories(Measurement baseline, Measurement current, double tolerance) {
+        List<String> advisories = new ArrayList<>();
+        check(advisories, "Time regression (advisory)", "ms per KLOC", baseline.msPerKloc(), current.msPerKloc(),
+                tolerance);
+        return advisories;
+    }
+
+    /**
+     * Formats the milliseconds per 1000 lines of every rule in either measurement next to each other, largest
+     * increase first.
+     */
+    static String ruleDiff(Measurement baseline, Measurement current) {
+        TreeSet<String> rules = new TreeSet<>(baseline.ruleMsPerKloc().keySet());
+        rules.addAll(current.ruleMsPerKloc().keySet());
+        int width = Math.max("Rule".length(), rules.stream().mapToInt(String::length).max().orElse(0));
+        List<String> sorted = rules.stream()
+                .sorted(Comparator.comparingDouble((String rule) -> current.ruleMsPerKloc().getOrDefault(rule, 0.0)
+                        - baseline.ruleMsPerKloc().getOrDefault(rule, 0.0)).reversed().thenComparing(rule -> rule))
+                .toList();
+
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.ROOT, "%-" + width + "s %12s %12s %9s%n", "Rule", "baseline", "current",
+                "change"));
+        for (String rule : sorted) {
+            Double before = baseline.ruleMsPerKloc().get(rule);
+            Double after = current.ruleMsPerKloc().get(rule);
+            String change = before == null ? "new" : after == null ? "removed"
+                    : before == 0 ? "-" : String.format(Locale.ROOT, "%+.1f%%", (after / before - 1) * 100);
+            table.append(String.format(Locale.ROOT, "%-" + width + "s %12s %12s %9s%n", rule, format(before),
+                    format(after), change));
+        }
+        return table.toString();
+    }
+
+    private static void check(List<String> regressions, String name, String unit, double baseline, double current,
+                              double tolerance) {
+        if (current > baseline * (1 + tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "%s: %.3f %s against a baseline of %.3f "
+                    + "(%+.1f%%, tolerance %.0f%%)", name, current, unit, baseline, (current / baseline - 1) * 100,
+                    tolerance * 100));
+        }
+    }
+
+    private static String format(Double msPerKloc) {
+        return msPerKloc == null ? "-" : String.format(Locale.ROOT, "%.3f", msPerKloc);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Medians of one gate run, as stored in the baseline file.
+     *
+     * @param files         number of generated files of the corpus
+     * @param linesPerFile  requested lines of every generated file
+     * @param lines         lines of the whole corpus, fixtures included
+     * @param ruleMsPerKloc milliseconds per 1000 lines of every rule, keyed like {@link AuditMetrics}
+     */
+    record Measurement(int files, int linesPerFile, long lines, double msPerKloc, double bytesPerFile,
+                       Map<String, Double> ruleMsPerKloc) {
+        Measurement {
+            ruleMsPerKloc = Map.copyOf(ruleMsPerKloc);
+        }
+
+        boolean hasCorpus(int otherFiles, int otherLinesPerFile) {
+            return files == otherFiles && linesPerFile == otherLinesPerFile;
+        }
+
+        static Measurement read(Path file) throws IOException {
+            if (!Files.isRegularFile(file)) {
+                throw new IOException("No baseline " + file + ", record one with the update command");
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            try {
+                Map<String, Double> rules = new TreeMap<>();
+                for (String name : properties.stringPropertyNames()) {
+                    if (name.startsWith(RULE_PREFIX) && name.endsWith(RULE_SUFFIX)) {
+                        rules.put(name.substring(RULE_PREFIX.length(), name.length() - RULE_SUFFIX.length()),
+                                Double.parseDouble(properties.getProperty(name)));
+                    }
+                }
+                return new Measurement(Integer.parseInt(required(properties, "corpus.files")),
+                        Integer.parseInt(required(properties, "corpus.linesPerFile")),
+                        Long.parseLong(required(properties, "corpus.lines")),
+                        Double.parseDouble(required(properties, "msPerKloc")),
+                        Double.parseDouble(required(properties, "bytesPerFile")), rules);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid baseline " + file + ": " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Writes the measurement with sorted keys, so that an unchanged measurement gives an unchanged file.
+         */
+        void write(Path file) throws IOException {
+            StringBuilder text = new StringBuilder();
+            text.append("# Performance baseline of PerformanceGate, regenerate with the update command\n");
+            text.append("corpus.files=").append(files).append('\n');
+            text.append("corpus.linesPerFile=").append(linesPerFile).append('\n');
+            text.append("corpus.lines=").append(lines).append('\n');
+            text.append("msPerKloc=").append(format(msPerKloc)).append('\n');
+            text.append("bytesPerFile=").append(String.format(Locale.ROOT, "%.0f", bytesPerFile)).append('\n');
+            new TreeMap<>(ruleMsPerKloc).forEach((rule, value) -> text.append(RULE_PREFIX).append(rule)
+                    .append(RULE_SUFFIX).append('=').append(format(value)).append('\n'));
+            Files.writeString(file, text, StandardCharsets.UTF_8);
+        }
+
+        private static String required(Properties properties, String name) {
+            String value = properties.getProperty(name);
+            if (value == null) {
+                throw new IllegalArgumentException("missing " + name);
+            }
+            return value;
+        }
+    }
+
+    record Options(boolean update, Path baseline, double tolerance, double timeTolerance, int warmup,
+                   int measurements, int files, int lines) {
+        static Options parse(String[] args) {
+            if (args.length == 0 || !List.of("check", "update").contains(args[0])) {
+                throw new IllegalArgumentException("Expected the command check or update");
+            }
+            Path baseline = DEFAULT_BASELINE;
+            double tolerance = 0.1;
+            double timeTolerance = 0.25;
+            int warmup = 3;
+            int measurements = 5;
+            int files = 20;
+            int lines = 500;
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--baseline" -> baseline = Path.of(value(args, ++i));
+                    case "--tolerance" -> tolerance = Double.parseDouble(value(args, ++i));
+                    case "--time-tolerance" -> timeTolerance = Double.parseDouble(value(args, ++i));
+                    case "--warmup" -> warmup = Integer.parseInt(value(args, ++i));
+                    case "--measurements" -> measurements = Integer.parseInt(value(args, ++i));
+                    case "--files" -> files = Integer.parseInt(value(args, ++i));
+                    case "--lines" -> lines = Integer.parseInt(value(args, ++i));
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (!(tolerance >= 0) || !(timeTolerance >= 0)) {
+                throw new IllegalArgumentException("--tolerance and --time-tolerance must not be negative, got "
+                        + tolerance + " and " + timeTolerance);
+            }
+            if (warmup < 0 || measurements < 1 || files < 0 || lines < 1) {
+                throw new IllegalArgumentException("--warmup and --files must not be negative, --measurements and "
+                        + "--lines must be positive");
+            }
+            return new Options("update".equals(args[0]), baseline, tolerance, timeTolerance, warmup, measurements,
+                    files, lines);
+        }
+
+        private static String value(String[] args, int index) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+            }
+            return args[index];
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pl.wiktor.checkstyle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link PerformanceGate}.
+ */
+class PerformanceGateTest {
+    private static final String[] QUICK = {"--warmup", "0", "--measurements", "1", "--files", "1", "--lines", "100"};
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldRecordBaselineAndPassWithinTolerance() throws Exception {
+        Path baseline = temp.resolve("baseline.properties");
+        assertEquals(PerformanceGate.EXIT_OK, PerformanceGate.run(args("update", baseline, "--tolerance", "0")));
+
+        PerformanceGate.Measurement recorded = PerformanceGate.Measurement.read(baseline);
+        assertTrue(recorded.msPerKloc() > 0);
+        assertTrue(recorded.bytesPerFile() > 0);
+        assertTrue(recorded.ruleMsPerKloc().containsKey("LineLength"), recorded.ruleMsPerKloc().toString());
+        assertTrue(Files.readString(baseline).contains("\nrule.LineLength.msPerKloc="));
+
+        assertEquals(PerformanceGate.EXIT_OK, PerformanceGate.run(args("check", baseline, "--tolerance", "1000")));
+        assertEquals(PerformanceGate.EXIT_FAILURE, PerformanceGate.run(new String[] {"check", "--baseline",
+            baseline.toString(), "--files", "2"}));
+        assertEquals(PerformanceGate.EXIT_FAILURE, PerformanceGate.run(args("check", temp.resolve("none"))));
+        assertEquals(PerformanceGate.EXIT_FAILURE, PerformanceGate.run(new String[] {"measure"}));
+    }
+
+    @Test
+    void shouldReportRegressionsBeyondToleranceWithRuleDiff() {
+        PerformanceGate.Measurement baseline = new PerformanceGate.Measurement(1, 100, 1000, 10.0, 5000.0,
+                Map.of("LineLength", 1.0, "Indentation", 4.0, "RemovedCheck", 0.5));
+        Map<String, Double> rules = new HashMap<>(Map.of("LineLength", 1.1, "Indentation", 9.0, "NewCheck", 2.0));
+        PerformanceGate.Measurement current = new PerformanceGate.Measurement(1, 100, 1000, 12.6, 6000.0, rules);
+
+        assertEquals(List.of(), PerformanceGate.regressions(baseline, current, 0.3));
+        assertEquals(List.of(), PerformanceGate.advisories(baseline, current, 0.3));
+        List<String> regressions = PerformanceGate.regressions(baseline, current, 0.1);
+        assertEquals(1, regressions.size(), regressions.toString());
+        assertTrue(regressions.get(0).startsWith("Allocation regression: 6000.000 bytes per file against a baseline "
+                + "of 5000.000 (+20.0%, tolerance 10%)"), regressions.get(0));
+        List<String> advisories = PerformanceGate.advisories(baseline, current, 0.1);
+        assertEquals(1, advisories.size(), advisories.toString());
+        assertTrue(advisories.get(0).startsWith("Time regression (advisory): 12.600 ms per KLOC"), advisories.get(0));
+
+        List<String> diff = PerformanceGate.ruleDiff(baseline, current).lines().toList();
+        assertEquals(5, diff.size(), diff.toString());
+        assertTrue(diff.get(1).matches("Indentation\\s+4\\.000\\s+9\\.000\\s+\\+125\\.0%"), diff.get(1));
+        assertTrue(diff.get(2).matches("NewCheck\\s+-\\s+2\\.000\\s+new"), diff.get(2));
+        assertTrue(diff.get(4).matches("RemovedCheck\\s+0\\.500\\s+-\\s+removed"), diff.get(4));
+    }
+
+    private static String[] args(String command, Path baseline, String... options) {
+        List<String> args = new ArrayList<>(List.of(command, "--baseline", baseline.toString()));
+        args.addAll(List.of(QUICK));
+        args.addAll(List.of(options));
+        return args.toArray(String[]::new);
+    }
+}
@@ -0,0 +1,91 @@
+package pl.wiktor.checkstyle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the module discovery, reports and exit codes of {@link ReactorAudit}.
+ */
+class ReactorAuditTest {
+    private static final String CONFIG_FILE = "check/checkstyle.xml";
+    private static final Path RULES_DIR = Path.of("src/test/resources/rules");
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldAuditAllModulesInOnePassWithModuleAndCombinedReports() throws Exception {
+        createReactor();
+
+        List<ReactorAudit.Module> modules = ReactorAudit.modules(temp, true);
+        assertEquals(List.of("parent", "failing", "clean", "nested"),
+                modules.stream().map(ReactorAudit.Module::name).toList());
+        assertEquals(temp.resolve("clean/java"), modules.get(2).sourceRoots().get(0));
+        assertEquals(temp.resolve("clean/src/test/java"), modules.get(2).sourceRoots().get(1));
+
+        assertEquals(ReactorAudit.EXIT_VIOLATIONS, ReactorAudit.run(args()));
+        String failing = Files.readString(temp.resolve("failing/target/checkstyle-result.xml"));
+        String clean = Files.readString(temp.resolve("clean/target/checkstyle-result.xml"));
+        String combined = Files.readString(temp.resolve("target/checkstyle-aggregate-result.xml"));
+        assertTrue(failing.contains("SystemOutUsage.java") && failing.contains("<error "), failing);
+        assertTrue(clean.contains("ConstantName.java") && !clean.contains("<error "), clean);
+        assertTrue(combined.contains("SystemOutUsage.java") && combined.contains("ConstantName.java")
+                && combined.contains("LineLengthCheck.java") && !combined.contains("Ignored.java"), combined);
+        assertFalse(Files.exists(temp.resolve("target/checkstyle-result.xml")));
+    }
+
+    @Test
+    void shouldKeepFailOnViolationSemantics() throws Exception {
+        createReactor();
+
+        assertEquals(ReactorAudit.EXIT_OK, ReactorAudit.run(args("--fail-on-violation", "false")));
+        assertEquals(ReactorAudit.EXIT_OK, ReactorAudit.run(args("--max-allowed-violations", "100")));
+        assertEquals(ReactorAudit.EXIT_VIOLATIONS, ReactorAudit.run(args("--violation-severity", "warning")));
+        assertEquals(ReactorAudit.EXIT_FAILURE, ReactorAudit.run(args("--violation-severity", "ignore")));
+        assertEquals(ReactorAudit.EXIT_FAILURE, ReactorAudit.run(args("--fail-on-violation", "maybe")));
+        assertEquals(ReactorAudit.EXIT_FAILURE, ReactorAudit.run(new String[] {"--config", CONFIG_FILE,
+            temp.resolve("missing").toString()}));
+    }
+
+    private String[] args(String... options) {
+        List<String> args = new ArrayList<>(List.of("--config", CONFIG_FILE, "--threads", "2",
+                "--include-test-sources", "true"));
+        args.addAll(List.of(options));
+        args.add(temp.toString());
+        return args.toArray(String[]::new);
+    }
+
+    /**
+     * Creates a reactor whose modules are a failing one, a clean one with a custom source directory, and a failing
+     * module nested in the clean one.
+     */
+    private void createReactor() throws Exception {
+        pom(temp, "parent", "<modules><module>failing</module><module>clean/pom.xml</module></modules>");
+        pom(temp.resolve("failing"), "failing", "");
+        copy("fail/SystemOutUsage.java", temp.resolve("failing/src/main/java/SystemOutUsage.java"));
+        pom(temp.resolve("clean"), "clean", "<modules><module>nested</module></modules>"
+                + "<build><sourceDirectory>java</sourceDirectory></build>");
+        copy("success/ConstantName.java", temp.resolve("clean/java/ConstantName.java"));
+        copy("success/ConstantName.java", temp.resolve("clean/src/main/java/Ignored.java"));
+        pom(temp.resolve("clean/nested"), "nested", "");
+        copy("fail/LineLengthCheck.java", temp.resolve("clean/nested/src/test/java/LineLengthCheck.java"));
+    }
+
+    private static void pom(Path directory, String artifactId, String content) throws Exception {
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("pom.xml"), "<?xml version=\"1.0\"?>\n<project><artifactId>"
+                + artifactId + "</artifactId>" + content + "</project>\n");
+    }
+
+    private static void copy(String fixture, Path target) throws Exception {
+        Files.createDirectories(target.getParent());
+        Files.copy(RULES_DIR.resolve(fixture), target);
+    }
+}
@@ -0,0 +1,99 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ViolationBudget} in the runner's audits.
+ */
+class ViolationBudgetTest {
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+    private static final Path FAIL_DIR = Path.of("src/test/resources/rules/fail");
+
+    @Test
+    void shouldStopAtFirstError() throws Exception {
+        List<File> files = CheckstyleRunner.listFiles(FAIL_DIR);
+        ViolationBudget budget = ViolationBudget.firstError();
+        FileEventsListener listener = new FileEventsListener();
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, 1)) {
+            runner.audit(files, listener, budget);
+        }
+
+        Map<Path, List<AuditEvent>> events = listener.getEventsByFile();
+        assertEquals(1, events.size());
+        assertEquals(1, events.values().iterator().next().size());
+        assertTrue(budget.isCutShort());
+        assertTrue(budget.toSummary().startsWith("Audit cut short by its budget (first error): "
+                + (files.size() - 1) + " files not audited, "), budget.toSummary());
+    }
+
+    @Test
+    void shouldFinishFirstFileWithError() throws Exception {
+        File multiError = FAIL_DIR.resolve("MultiErrorTest.java").toFile();
+        List<File> files = new ArrayList<>(List.of(multiError));
+        CheckstyleRunner.listFiles(FAIL_DIR).stream().filter(file -> !file.equals(multiError)).forEach(files::add);
+        Map<Path, List<AuditEvent>> expected;
+        Map<Path, List<AuditEvent>> events;
+        ViolationBudget budget = ViolationBudget.firstFileWithError();
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, 1)) {
+            expected = runner.auditFiles(files);
+            FileEventsListener listener = new FileEventsListener();
+            runner.audit(files, listener, budget);
+            events = listener.getEventsByFile();
+        }
+
+        Path first = multiError.toPath().toAbsolutePath();
+        assertTrue(expected.get(first).size() > 1);
+        assertEquals(List.of(first), List.copyOf(events.keySet()));
+        assertEquals(formatted(expected.get(first)), formatted(events.get(first)));
+        assertEquals(files.size() - 1, Integer.parseInt(budget.toSummary().replaceAll(".*: (\\d+) files.*", "$1")));
+    }
+
+    @Test
+    void shouldLimitViolationsPerCheckAcrossWorkersAndPipeline() throws Exception {
+        List<File> files = CheckstyleRunner.listFiles(FAIL_DIR);
+        ViolationBudget parallel = ViolationBudget.maxViolationsPerCheck(1);
+        ViolationBudget pipeline = ViolationBudget.firstError();
+        Map<Path, List<AuditEvent>> parallelEvents;
+        Map<Path, List<AuditEvent>> pipelineEvents;
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, 3)) {
+            parallelEvents = runner.auditFilesParallel(files, null, parallel);
+            pipelineEvents = runner.auditTree(List.of(FAIL_DIR), List.of(), List.of(), null, pipeline).events();
+        }
+
+        Map<String, Long> perCheck = parallelEvents.values().stream().flatMap(List::stream)
+                .collect(Collectors.groupingBy(AuditEvent::getSourceName, Collectors.counting()));
+        assertFalse(perCheck.isEmpty());
+        perCheck.forEach((check, count) -> assertEquals(1L, count, check));
+        assertTrue(parallel.isCutShort());
+
+        assertEquals(1, pipelineEvents.values().stream().mapToInt(List::size).sum());
+        assertTrue(pipeline.isCutShort());
+    }
+
+    @Test
+    void shouldParseBudgetsAndRejectUnknownOnes() {
+        assertTrue(ViolationBudget.parse("first-error").toSummary().contains("(first error)"));
+        assertTrue(ViolationBudget.parse("first-file").toSummary().contains("(first file with an error)"));
+        assertTrue(ViolationBudget.parse("10").toSummary().contains("(10 violations)"));
+        assertTrue(ViolationBudget.parse("3-per-check").toSummary().contains("(3 violations of one check)"));
+        assertThrows(IllegalArgumentException.class, () -> ViolationBudget.parse("0"));
+        assertThrows(IllegalArgumentException.class, () -> ViolationBudget.parse("some"));
+        assertFalse(ViolationBudget.parse("5").isCutShort());
+    }
+
+    private static List<String> formatted(List<AuditEvent> events) {
+        return events.stream()
+                .map(event -> event.getLine() + ":" + event.getColumn() + " " + event.getSourceName())
+                .toList();
+    }
+}
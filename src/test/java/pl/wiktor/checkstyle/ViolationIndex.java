@@ -0,0 +1,100 @@
+package pl.wiktor.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Index over the events of one run, built once so that assertions do not rescan the events per fragment.
+ * <p>
+ * Every message is lowercased exactly once.
+ */
+final class ViolationIndex {
+    private final List<AuditEvent> events;
+    private final List<String> messages;
+    private final List<String> lowerCaseMessages;
+
+    private ViolationIndex(List<AuditEvent> events) {
+        this.events = events;
+        this.messages = new ArrayList<>(events.size());
+        this.lowerCaseMessages = new ArrayList<>(events.size());
+
+        for (AuditEvent event : events) {
+            String message = event.getMessage();
+            messages.add(message);
+            lowerCaseMessages.add(message.toLowerCase());
+        }
+    }
+
+    static ViolationIndex of(List<AuditEvent> events) {
+        return new ViolationIndex(events);
+    }
+
+    /**
+     * Distinct sources in encounter order, scanning the events only until the given number of sources was found.
+     */
+    static List<String> distinctSources(List<AuditEvent> events, int limit) {
+        Set<String> sources = new LinkedHashSet<>();
+        for (int i = 0; i < events.size() && sources.size() < limit; i++) {
+            sources.add(events.get(i).getSourceName());
+        }
+        return List.copyOf(sources);
+    }
+
+    /**
+     * Returns the index of the first event whose message does not contain the fragment, ignoring case, or -1.
+     */
+    int firstMessageWithout(String fragment) {
+        String lowerCaseFragment = fragment.toLowerCase();
+        for (int i = 0; i < lowerCaseMessages.size(); i++) {
+            if (!lowerCaseMessages.get(i).contains(lowerCaseFragment)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    AuditEvent event(int index) {
+        return events.get(index);
+    }
+
+    /**
+     * Returns the fragments that occur in no message, in the given order.
+     */
+    List<String> missingFragments(List<String> fragments) {
+        FragmentMatcher matcher = FragmentMatcher.compile(fragments);
+        BitSet found = new BitSet(fragments.size());
+        for (String message : messages) {
+            if (found.cardinality() == fragments.size()) {
+                break;
+            }
+            matcher.collectMatches(message, found);
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < fragments.size(); i++) {
+            if (!found.get(i)) {
+                missing.add(fragments.get(i));
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns the events whose message contains none of the fragments, in event order.
+     */
+    List<AuditEvent> eventsMatchingNone(List<String> fragments) {
+        FragmentMatcher matcher = FragmentMatcher.compile(fragments);
+        List<AuditEvent> unmatched = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (!matcher.matchesAny(messages.get(i))) {
+                unmatched.add(events.get(i));
+            }
+        }
+        return unmatched;
+    }
+}
@@ -0,0 +1,113 @@
+package pl.wiktor.checkstyle.baseline;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Records violations of a file, changes the file and checks which violations the baseline still accepts.
+ */
+class ViolationBaselineTest {
+    private static final Path CONFIG = Path.of("check/checkstyle.xml");
+    private static final String SAMPLE = """
+            class Sample {
+                void run() {
+                    System.out.println("run");
+                }
+            }
+            """;
+    private static final String PRINT = "System.out.println(\"run\");";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldAcceptRecordedViolationsAfterLineShifts() throws Exception {
+        Path sample = temp.resolve("Sample.java");
+        Files.writeString(sample, SAMPLE);
+        Path file = temp.resolve("baseline.bin");
+        ViolationBaseline.write(file, temp, audit(sample));
+        ViolationBaseline baseline = ViolationBaseline.load(file, temp);
+
+        assertEquals(1, baseline.size());
+        assertEquals(List.of(new ViolationBaseline.Entry("Sample.java", "SystemOutUsage",
+                "System.out is forbidden. Use a logger instead.")), baseline.entries());
+
+        Files.writeString(sample, "/**\n * Moves the violation two lines down.\n */\n" + SAMPLE);
+        ViolationBaseline.Filtered shifted = baseline.filter(audit(sample));
+        assertEquals(1, shifted.accepted());
+        assertEquals(List.of(), shifted.events().get(sample));
+
+        Files.writeString(sample, SAMPLE.replace("        " + PRINT, "            " + PRINT + "   "));
+        assertEquals(1, baseline.filter(audit(sample)).accepted());
+
+        Files.writeString(sample, SAMPLE.replace("\"run\"", "\"edited\""));
+        ViolationBaseline.Filtered edited = baseline.filter(audit(sample));
+        assertEquals(0, edited.accepted());
+        assertEquals(1, edited.events().get(sample).size());
+
+        Path renamed = Files.move(sample, temp.resolve("Renamed.java"));
+        assertEquals(0, baseline.filter(audit(renamed)).accepted());
+    }
+
+    @Test
+    void shouldAcceptEachRecordedViolationOnce() throws Exception {
+        Path sample = temp.resolve("Sample.java");
+        Files.writeString(sample, SAMPLE);
+        Path file = temp.resolve("baseline.bin");
+        ViolationBaseline.write(file, temp, audit(sample));
+        ViolationBaseline baseline = ViolationBaseline.load(file, temp);
+
+        Files.writeString(sample, SAMPLE.replace(PRINT, PRINT + "\n        " + PRINT));
+        ViolationBaseline.Filtered duplicated = baseline.filter(audit(sample));
+
+        assertEquals(1, duplicated.accepted());
+        List<AuditEvent> remaining = duplicated.events().get(sample);
+        assertEquals(1, remaining.size());
+        assertEquals(4, remaining.get(0).getLine());
+    }
+
+    @Test
+    void shouldLookUpMillionFingerprints() throws Exception {
+        int count = 1_000_000;
+        ViolationBaseline.Builder builder = new ViolationBaseline.Builder();
+        for (int i = 0; i < count; i++) {
+            builder.add(file(i), check(i), "key", "line " + i);
+        }
+        Path file = temp.resolve("large.bin");
+        builder.write(file);
+
+        ViolationBaseline baseline = ViolationBaseline.load(file, temp);
+
+        assertEquals(count, baseline.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(baseline.contains(ViolationBaseline.fingerprint(file(i), check(i), "key", "line " + i)));
+            assertFalse(baseline.contains(ViolationBaseline.fingerprint(file(i), check(i), "key", "absent " + i)));
+        }
+        assertEquals(new ViolationBaseline.Entry(file(count - 1), check(count - 1), "key"),
+                baseline.entries().get(count - 1));
+        assertTrue(Files.size(file) < 16L * count);
+    }
+
+    private Map<Path, List<AuditEvent>> audit(Path file) throws Exception {
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG, null, 1)) {
+            return runner.auditFiles(List.of(file.toFile()));
+        }
+    }
+
+    private static String file(int index) {
+        return "src/main/java/pl/legacy/Module" + index % 5_000 + ".java";
+    }
+
+    private static String check(int index) {
+        return List.of("LineLength", "MethodName", "SystemOutUsage", "BlankLineAroundBrace").get(index % 4);
+    }
+}
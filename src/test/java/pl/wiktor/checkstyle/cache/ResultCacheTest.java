@@ -0,0 +1,159 @@
+package pl.wiktor.checkstyle.cache;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that cached results replay exactly the violations of a fresh audit and are invalidated by changes.
+ */
+class ResultCacheTest {
+    private static final Path CONFIG = Path.of("check/checkstyle.xml");
+    private static final Path SUPPRESSIONS = Path.of("check/suppressions.xml");
+    private static final Path FAIL_DIR = Path.of("src/test/resources/rules/fail");
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReplaySameViolationsFromCache() throws Exception {
+        Path sources = copyFixtures();
+        Path cacheFile = temp.resolve("cache/results.bin");
+
+        Map<Path, List<AuditEvent>> cold;
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG, SUPPRESSIONS, 4)) {
+            ResultCache cache = ResultCache.open(cacheFile, Long.MAX_VALUE);
+            runner.setResultCache(cache);
+            cold = runner.auditDirectoryParallel(sources);
+            assertEquals(0, cache.getHits());
+            cache.save();
+        }
+
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG, SUPPRESSIONS, 4)) {
+            ResultCache cache = ResultCache.open(cacheFile, Long.MAX_VALUE);
+            runner.setResultCache(cache);
+            Map<Path, List<AuditEvent>> parallel = runner.auditDirectoryParallel(sources);
+            Map<Path, List<AuditEvent>> serial = runner.auditDirectory(sources);
+
+            assertEquals(2 * cold.size(), cache.getHits());
+            assertEquals(0, cache.getMisses());
+            assertEquals(describe(cold), describe(parallel));
+            assertEquals(describe(cold), describe(serial));
+        }
+    }
+
+    @Test
+    void shouldAuditChangedFilesAgain() throws Exception {
+        Path sources = copyFixtures();
+        ResultCache cache = ResultCache.open(temp.resolve("results.bin"), Long.MAX_VALUE);
+
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG, SUPPRESSIONS, 1)) {
+            runner.setResultCache(cache);
+            runner.auditDirectory(sources);
+
+            Path changed = sources.resolve("LineLengthCheck.java");
+            Files.writeString(changed, Files.readString(changed).replace("    ", "\t"));
+            Map<Path, List<AuditEvent>> warm = runner.auditDirectory(sources);
+
+            assertEquals(1, cache.getMisses() - warm.size());
+            runner.setResultCache(null);
+            assertEquals(describe(runner.auditDirectory(sources)), describe(warm));
+        }
+    }
+
+    @Test
+    void shouldMissWhenConfigurationChanges() throws Exception {
+        Path sources = copyFixtures();
+        List<File> files = CheckstyleRunner.listFiles(sources);
+        ResultCache cache = ResultCache.open(temp.resolve("results.bin"), Long.MAX_VALUE);
+
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG, SUPPRESSIONS, 1)) {
+            runner.setResultCache(cache);
+            runner.audit(files);
+        }
+        assertEquals(files.size(), cache.lookup(files, ResultCache.fingerprint(CONFIG, SUPPRESSIONS)).cached().size());
+        assertEquals(0, cache.lookup(files, ResultCache.fingerprint(CONFIG, null)).cached().size());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntriesBeyondSizeBound() throws Exception {
+        Path sources = copyFixtures();
+        List<File> files = CheckstyleRunner.listFiles(sources);
+        Path cacheFile = temp.resolve("results.bin");
+        ResultCache cache = ResultCache.open(cacheFile, Long.MAX_VALUE);
+
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG, SUPPRESSIONS, 1)) {
+            runner.setResultCache(cache);
+            runner.audit(files);
+            cache.save();
+            long fullSize = Files.size(cacheFile);
+
+            ResultCache bounded = ResultCache.open(cacheFile, fullSize / 2);
+            bounded.lookup(files.subList(0, 1), ResultCache.fingerprint(CONFIG, SUPPRESSIONS));
+            bounded.save();
+
+            assertTrue(Files.size(cacheFile) <= fullSize / 2);
+            ResultCache reopened = ResultCache.open(cacheFile, Long.MAX_VALUE);
+            assertTrue(reopened.size() > 0 && reopened.size() < files.size(), () -> "Kept " + reopened.size());
+            assertEquals(1, reopened.lookup(files.subList(0, 1),
+                    ResultCache.fingerprint(CONFIG, SUPPRESSIONS)).cached().size(), "Recently used entry was evicted");
+        }
+    }
+
+    @Test
+    void shouldHitInAnotherCheckoutOfTheProject() throws Exception {
+        Path sources = copyFixtures();
+        Path cacheFile = temp.resolve("results.bin");
+        ResultCache cache = ResultCache.open(cacheFile, Long.MAX_VALUE, temp);
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG, SUPPRESSIONS, 1)) {
+            runner.setResultCache(cache);
+            runner.auditDirectory(sources);
+        }
+        cache.save();
+
+        Path checkout = Files.createDirectories(temp.resolve("checkout"));
+        Path moved = Files.createDirectories(checkout.resolve("sources"));
+        for (File file : CheckstyleRunner.listFiles(sources)) {
+            Files.copy(file.toPath(), moved.resolve(file.getName()));
+        }
+        List<File> files = CheckstyleRunner.listFiles(moved);
+        ResultCache restored = ResultCache.open(cacheFile, Long.MAX_VALUE, checkout);
+
+        String fingerprint = ResultCache.fingerprint(CONFIG, SUPPRESSIONS);
+        assertEquals(files.size(), restored.lookup(files, fingerprint).cached().size());
+    }
+
+    @Test
+    void shouldStartEmptyFromCorruptFile() throws Exception {
+        Path cacheFile = temp.resolve("results.bin");
+        Files.write(cacheFile, new byte[] {1, 2, 3});
+
+        assertEquals(0, ResultCache.open(cacheFile, Long.MAX_VALUE).size());
+    }
+
+    private Path copyFixtures() throws Exception {
+        Path sources = Files.createDirectories(temp.resolve("sources"));
+        for (File file : CheckstyleRunner.listFiles(FAIL_DIR)) {
+            Files.copy(file.toPath(), sources.resolve(file.getName()));
+        }
+        return sources;
+    }
+
+    private static List<String> describe(Map<Path, List<AuditEvent>> events) {
+        List<String> lines = new ArrayList<>();
+        events.forEach((file, fileEvents) -> fileEvents.forEach(e -> lines.add(String.format(
+                "%s:%d:%d:%d [%s/%s/%s] %s", file, e.getLine(), e.getColumn(), e.getViolation().getTokenType(),
+                e.getSeverityLevel(), e.getModuleId(), e.getSourceName(), e.getMessage()))));
+        return lines;
+    }
+}
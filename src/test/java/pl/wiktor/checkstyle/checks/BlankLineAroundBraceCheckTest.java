@@ -0,0 +1,107 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckerPool;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.FileEventsListener;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares {@link BlankLineAroundBraceCheck} with the two {@code RegexpMultiline} modules it replaces.
+ */
+class BlankLineAroundBraceCheckTest {
+    private static final String AFTER_OPEN = "Unnecessary blank line after '{'";
+    private static final String BEFORE_CLOSE = "Unnecessary blank line before '}'";
+    private static final char[] ALPHABET = {'{', '}', '\n', '\n', '\r', ' ', ' ', '\t', '\f', 'x', ';'};
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReportSameViolationsAsRegexpMultilineOnFixtures() throws Exception {
+        List<File> files = new ArrayList<>(CheckstyleRunner.listFiles(Path.of("src/test/resources/rules/fail")));
+        files.addAll(CheckstyleRunner.listFiles(Path.of("src/test/resources/rules/success")));
+
+        assertSameViolations(files);
+    }
+
+    @Test
+    void shouldReportSameViolationsAsRegexpMultilineOnRandomText() throws Exception {
+        Random random = new Random(7);
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = random.nextInt(80); j > 0; j--) {
+                text.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+            }
+            Path file = temp.resolve("Random" + i + ".java");
+            Files.writeString(file, text);
+            files.add(file.toFile());
+        }
+
+        assertSameViolations(files);
+    }
+
+    private static void assertSameViolations(List<File> files) throws Exception {
+        DefaultConfiguration regexp = new DefaultConfiguration("Checker");
+        regexp.addChild(regexpMultiline(BlankLineAroundBraceCheck.AFTER_OPEN_FORMAT, AFTER_OPEN));
+        regexp.addChild(regexpMultiline(BlankLineAroundBraceCheck.BEFORE_CLOSE_FORMAT, BEFORE_CLOSE));
+
+        DefaultConfiguration singlePass = new DefaultConfiguration("Checker");
+        DefaultConfiguration check = new DefaultConfiguration(BlankLineAroundBraceCheck.class.getName());
+        check.addProperty("messageAfterOpen", AFTER_OPEN);
+        check.addProperty("messageBeforeClose", BEFORE_CLOSE);
+        check.addProperty("fileExtensions", "java");
+        singlePass.addChild(check);
+
+        Map<Path, List<AuditEvent>> expected = audit(regexp, files);
+        Map<Path, List<AuditEvent>> actual = audit(singlePass, files);
+
+        assertTrue(expected.values().stream().mapToInt(List::size).sum() > 0, "No violations to compare");
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((file, events) -> assertEquals(describe(events), describe(actual.get(file)),
+                () -> "Result differs for " + file));
+    }
+
+    private static DefaultConfiguration regexpMultiline(String format, String message) {
+        DefaultConfiguration module = new DefaultConfiguration("RegexpMultiline");
+        module.addProperty("format", format);
+        module.addProperty("message", message);
+        module.addProperty("matchAcrossLines", "true");
+        module.addProperty("fileExtensions", "java");
+        return module;
+    }
+
+    private static Map<Path, List<AuditEvent>> audit(DefaultConfiguration configuration, List<File> files)
+            throws Exception {
+        Checker checker = CheckerPool.createChecker(configuration);
+        FileEventsListener listener = new FileEventsListener();
+        checker.addListener(listener);
+        try {
+            checker.process(files);
+        } finally {
+            checker.destroy();
+        }
+        return listener.getEventsByFile();
+    }
+
+    private static List<String> describe(List<AuditEvent> events) {
+        return events.stream()
+                .map(e -> String.format("%d:%d [%s/%s/%s] %s", e.getLine(), e.getColumn(), e.getSourceName(),
+                        e.getViolation().getKey(), e.getSeverityLevel(), e.getMessage()))
+                .toList();
+    }
+}
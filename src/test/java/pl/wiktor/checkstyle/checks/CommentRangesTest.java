@@ -0,0 +1,49 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the comments found by {@link CommentRanges} with those Checkstyle's lexer reports to {@link FileContents}.
+ */
+class CommentRangesTest {
+    private static final String[] FRAGMENTS = {
+        "int a = 1; // System.out", "/* Thread.sleep */ f();", "x = 1; /* a */ y = 2; /* b */", "String u = \"//\";",
+        "String v = \"/* not */\" + \"\\\"/*\";", "char q = '\"'; /* c */ g();", "char s = '\\''; // s", "/**/ h();",
+        "/* block\n * still */ i();", "String t = \"\"\"\n    // text /* block\n    \\\"\"\" \"\"\"; // after",
+        "j(); /* one\n\n   three */ // four", "", "/** doc */", "String w = \"\"; // empty",
+    };
+
+    @Test
+    void shouldCoverSameColumnsAsFileContentsOnRandomSources() throws Exception {
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder text = new StringBuilder("class Random {\n    void run() {\n");
+            for (int j = random.nextInt(20); j > 0; j--) {
+                text.append("        ").append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]).append('\n');
+            }
+            text.append("    }\n}\n");
+            String[] lines = text.toString().split("\n", -1);
+            FileContents contents = new FileContents(new FileText(new File("Random.java"), Arrays.asList(lines)));
+            JavaParser.parse(contents);
+            CommentRanges comments = CommentRanges.of(lines);
+
+            for (int line = 1; line <= lines.length; line++) {
+                for (int column = 0; column <= lines[line - 1].length(); column++) {
+                    for (int end = column - 1; end <= column + 2; end++) {
+                        assertEquals(contents.hasIntersectionWithComment(line, column, line, end),
+                                comments.intersects(line, column, end), text + "\n" + line + ":" + column + "-" + end);
+                    }
+                }
+            }
+        }
+    }
+}
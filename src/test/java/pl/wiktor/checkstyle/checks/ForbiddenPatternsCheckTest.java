@@ -0,0 +1,199 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckerPool;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.FileEventsListener;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares {@link ForbiddenPatternsCheck} with one {@code RegexpSinglelineJava} module per pattern.
+ */
+class ForbiddenPatternsCheckTest {
+    /**
+     * Patterns like those of {@code check/checkstyle.xml} followed by patterns without a usable literal, with
+     * {@code ignoreCase}, with the default message and with a severity of their own.
+     */
+    private static final String[][] PATTERNS = {
+        {"SystemOutUsage", "System\\s*\\.\\s*out", "System.out is forbidden. Use a logger instead.", "true", "false"},
+        {"ThreadSleep", "Thread\\s*\\.\\s*sleep", "Thread.sleep is forbidden.", "true", "false"},
+        {"SingleLineComments", "^\\s*//(?!\\s*CHECKSTYLE)", "Single-line comments are forbidden.", "false", "false"},
+        {"StackTrace", "printstacktrace", "", "true", "true"},
+        {"TodoMarker", "(TODO|FIXME):?", "No markers.", "false", "false"},
+        {null, "\\bvar\\s+\\w+\\s*=", "No var.", "true", "false"},
+    };
+    private static final String[] FRAGMENTS = {
+        "System.out.println(\"x\");", "Thread . sleep(1);", "int a = 1; // System.out", "/* Thread.sleep */ f();",
+        "String s = \"System.out\";", "e.printStackTrace();", "// TODO: fix", "//CHECKSTYLE:OFF", "var v = 2;",
+        "/* block", "   System.out */ g();", "x = 1; /* a */ System.out.flush();", "String u = \"//\";", "",
+        "\tSystem\t.\tout.write(3);", "Object o = System.out; // Thread.sleep", "h(); /* TODO */ var w = 4;",
+    };
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReportSameViolationsAsRegexpSinglelineJavaOnFixtures() throws Exception {
+        List<File> files = new ArrayList<>(CheckstyleRunner.listFiles(Path.of("src/test/resources/rules/fail")));
+        files.addAll(CheckstyleRunner.listFiles(Path.of("src/test/resources/rules/success")));
+        files.removeIf(file -> !file.getName().endsWith(".java"));
+
+        assertSameViolations(files);
+    }
+
+    @Test
+    void shouldReportSameViolationsAsRegexpSinglelineJavaOnRandomSources() throws Exception {
+        Random random = new Random(11);
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            StringBuilder text = new StringBuilder("class Random" + i + " {\n    void run() {\n");
+            boolean inBlockComment = false;
+            for (int j = random.nextInt(30); j > 0; j--) {
+                String fragment = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+                if (fragment.startsWith("/* block")) {
+                    inBlockComment = true;
+                } else if (fragment.endsWith("*/ g();")) {
+                    if (!inBlockComment) {
+                        continue;
+                    }
+                    inBlockComment = false;
+                } else if (inBlockComment) {
+                    continue;
+                }
+                text.append("        ").append(fragment).append('\n');
+            }
+            if (inBlockComment) {
+                text.append("        */\n");
+            }
+            text.append("    }\n}\n");
+            Path file = temp.resolve(i % 2 == 0 ? "src/test/java" : "src/main/java").resolve("Random" + i + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, text);
+            files.add(file.toFile());
+        }
+
+        assertSameViolations(files);
+    }
+
+    @Test
+    void shouldFindRequiredLiterals() {
+        assertEquals("System", RequiredLiteral.of("System\\s*\\.\\s*out"));
+        assertEquals("//", RequiredLiteral.of("^\\s*//(?!\\s*CHECKSTYLE)"));
+        assertEquals("Thread.sleep", RequiredLiteral.of("Thread\\.sleep\\s*\\("));
+        assertEquals("ab", RequiredLiteral.of("ab?c*[xyz]+ab"));
+        assertEquals("Date", RequiredLiteral.of("\\bnew\\s+Date\\b"));
+        assertEquals("ab", RequiredLiteral.of("ab+c"));
+        assertNull(RequiredLiteral.of("(TODO|FIXME)"));
+        assertNull(RequiredLiteral.of("(?i)system"));
+        assertNull(RequiredLiteral.of("\\Qa.b\\E"));
+        assertNull(RequiredLiteral.of("\\x41BC"));
+        assertNull(RequiredLiteral.of("$."));
+    }
+
+    @Test
+    void shouldFindEveryLiteralInLine() {
+        LiteralAutomaton automaton = LiteralAutomaton.compile(List.of("he", "she", "his", "hers"));
+        BitSet found = new BitSet();
+
+        automaton.collect("ushers", found);
+
+        assertEquals(BitSet.valueOf(new long[] {0b1011}), found);
+    }
+
+    @Test
+    void shouldRejectUnknownPatternProperty() {
+        DefaultConfiguration check = new DefaultConfiguration(ForbiddenPatternsCheck.class.getName());
+        DefaultConfiguration pattern = new DefaultConfiguration(ForbiddenPatternsCheck.PATTERN_MODULE);
+        pattern.addProperty("maximum", "1");
+        check.addChild(pattern);
+
+        CheckstyleException e = assertThrows(CheckstyleException.class,
+                () -> new ForbiddenPatternsCheck().configure(check));
+        assertTrue(e.getMessage().contains("maximum"), e.getMessage());
+    }
+
+    private static void assertSameViolations(List<File> files) throws Exception {
+        DefaultConfiguration separateWalker = treeWalker();
+        DefaultConfiguration fusedCheck = new DefaultConfiguration(ForbiddenPatternsCheck.class.getName());
+        for (String[] entry : PATTERNS) {
+            DefaultConfiguration module = new DefaultConfiguration("RegexpSinglelineJava");
+            DefaultConfiguration pattern = new DefaultConfiguration(ForbiddenPatternsCheck.PATTERN_MODULE);
+            addProperties(module, entry);
+            addProperties(pattern, entry);
+            separateWalker.addChild(module);
+            fusedCheck.addChild(pattern);
+        }
+        DefaultConfiguration fusedWalker = treeWalker();
+        fusedWalker.addChild(fusedCheck);
+
+        Map<Path, List<AuditEvent>> expected = audit(separateWalker, files);
+        Map<Path, List<AuditEvent>> actual = audit(fusedWalker, files);
+
+        assertTrue(expected.values().stream().mapToInt(List::size).sum() > 0, "No violations to compare");
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((file, events) -> assertEquals(describe(events), describe(actual.get(file)),
+                () -> "Result differs for " + file));
+    }
+
+    private static void addProperties(DefaultConfiguration module, String[] entry) {
+        if (entry[0] != null) {
+            module.addProperty("id", entry[0]);
+        }
+        module.addProperty("format", entry[1]);
+        module.addProperty("message", entry[2]);
+        module.addProperty("ignoreComments", entry[3]);
+        module.addProperty("ignoreCase", entry[4]);
+        if ("StackTrace".equals(entry[0])) {
+            module.addProperty("severity", "warning");
+        }
+    }
+
+    /**
+     * A TreeWalker with the test-source suppression of {@code SingleLineComments} from {@code check/checkstyle.xml}.
+     */
+    private static DefaultConfiguration treeWalker() {
+        DefaultConfiguration treeWalker = new DefaultConfiguration("TreeWalker");
+        DefaultConfiguration filter = new DefaultConfiguration("SuppressionXpathSingleFilter");
+        filter.addProperty("id", "SingleLineComments");
+        filter.addProperty("files", ".*[\\\\/]src[\\\\/]test[\\\\/]java[\\\\/].*");
+        treeWalker.addChild(filter);
+        return treeWalker;
+    }
+
+    private static Map<Path, List<AuditEvent>> audit(DefaultConfiguration treeWalker, List<File> files)
+            throws Exception {
+        DefaultConfiguration root = new DefaultConfiguration("Checker");
+        root.addChild(treeWalker);
+        Checker checker = CheckerPool.createChecker(root);
+        FileEventsListener listener = new FileEventsListener();
+        checker.addListener(listener);
+        try {
+            checker.process(files);
+        } finally {
+            checker.destroy();
+        }
+        return listener.getEventsByFile();
+    }
+
+    private static List<String> describe(List<AuditEvent> events) {
+        return events.stream()
+                .map(e -> String.format("%d:%d [%s/%s/%s/%s] %s", e.getLine(), e.getColumn(), e.getSourceName(),
+                        e.getModuleId(), e.getViolation().getKey(), e.getSeverityLevel(), e.getMessage()))
+                .toList();
+    }
+}
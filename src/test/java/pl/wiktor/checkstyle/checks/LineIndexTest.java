@@ -0,0 +1,94 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the lines of {@link LineIndex} with those of {@link FileText}.
+ */
+class LineIndexTest {
+    private static final String[] PIECES = {"a", "x;", " ", "\t", "\r", "\n", "\r\n", "é", "ą", "😀"};
+    private static final byte[] MALFORMED = {(byte) 0xC3, (byte) 0xFF, (byte) 0x80};
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldSplitLinesLikeFileTextOnRandomContent() throws Exception {
+        Random random = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (int j = random.nextInt(60); j > 0; j--) {
+                if (random.nextInt(30) == 0) {
+                    bytes.write(MALFORMED[random.nextInt(MALFORMED.length)]);
+                } else {
+                    bytes.writeBytes(PIECES[random.nextInt(PIECES.length)].getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            Path file = temp.resolve("Random" + i + ".txt");
+            Files.write(file, bytes.toByteArray());
+
+            assertSameLines(file.toFile(), "UTF-8");
+            assertSameLines(file.toFile(), "ISO-8859-2");
+        }
+    }
+
+    @Test
+    void shouldViewAsciiBytesOfMappedFiles() throws Exception {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 2 * LineIndex.MAP_THRESHOLD) {
+            text.append("int value").append(text.length()).append(" = 0;\r\n\tcall();\r\n\n");
+        }
+        Path ascii = temp.resolve("Ascii.java");
+        Files.writeString(ascii, text.append("last"));
+        Path utf8 = temp.resolve("Utf8.java");
+        Files.writeString(utf8, text.append("é"));
+
+        LineIndex lines = assertSameLines(ascii.toFile(), "UTF-8");
+        assertTrue(lines.isAscii());
+        assertEquals("last", lines.line(lines.size() - 1).toString());
+        assertEquals("call", lines.line(1).subSequence(1, 5).toString());
+        assertEquals('\t', lines.text().charAt(lines.lineStart(1)));
+        assertFalse(assertSameLines(utf8.toFile(), "UTF-8").isAscii());
+        assertFalse(LineIndex.read(ascii.toFile(), "UTF-16").isAscii());
+    }
+
+    @Test
+    void shouldIndexEmptyFilesAndTextInMemory() throws Exception {
+        Path empty = temp.resolve("Empty.java");
+        Files.writeString(empty, "");
+
+        assertEquals(0, assertSameLines(empty.toFile(), "UTF-8").size());
+        LineIndex lines = LineIndex.of("a\r\rb\n");
+        assertEquals(List.of("a", "", "b"), lines(lines));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.line(3));
+    }
+
+    private static LineIndex assertSameLines(File file, String charset) throws Exception {
+        FileText expected = new FileText(file, charset);
+        LineIndex actual = LineIndex.read(file, charset);
+        assertEquals(List.of(expected.toLinesArray()), lines(actual), file::toString);
+        assertEquals(expected.getFullText().toString(), actual.text().toString(), file::toString);
+        return actual;
+    }
+
+    private static List<String> lines(LineIndex index) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            lines.add(index.line(i).toString());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,167 @@
+package pl.wiktor.checkstyle.checks;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckerPool;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.ConfigurationCache;
+import pl.wiktor.checkstyle.FileEventsListener;
+import pl.wiktor.checkstyle.metrics.AuditMetricsListener;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares {@link MaxLineLengthCheck}, on file text and on a {@link LineIndex}, with the {@code LineLength} module it
+ * replaces.
+ */
+class MaxLineLengthCheckTest {
+    private static final String[] PIECES = {"a", "import ", "package ", " ", "\t", "\r", "\n", "\r\n", "é", "😀"};
+    private static final String CONFIG = """
+            <?xml version="1.0"?>
+            <!DOCTYPE module PUBLIC "-//Checkstyle//DTD Checkstyle Configuration 1.3//EN"
+                    "https://checkstyle.org/dtds/configuration_1_3.dtd">
+            <module name="Checker">
+                <property name="charset" value="UTF-8"/>
+                <module name="LineLength">
+                    <property name="max" value="30"/>
+                </module>
+                <module name="RegexpMultiline">
+                    <property name="format" value="\\{\\s*\\r?\\n\\s*\\r?\\n"/>
+                    <property name="message" value="Blank line after '{'"/>
+                    <property name="matchAcrossLines" value="true"/>
+                </module>
+                <module name="SuppressionSingleFilter">
+                    <property name="files" value=".*[\\\\/]generated[\\\\/].*"/>
+                    <property name="checks" value="MethodName"/>
+                </module>
+                <module name="TreeWalker">
+                    <module name="MethodName"/>
+                </module>
+            </module>
+            """;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReportSameViolationsAsLineLengthOnRandomText() throws Exception {
+        Random random = new Random(5);
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = random.nextInt(120); j > 0; j--) {
+                text.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            Path file = temp.resolve("Random" + i + ".java");
+            Files.writeString(file, text);
+            files.add(file.toFile());
+        }
+
+        for (String[] properties : List.of(new String[] {"max", "12"}, new String[] {"max", "7", "ignorePattern",
+            "^a", "fileExtensions", "java", "id", "Long", "severity", "warning"})) {
+            DefaultConfiguration stock = new DefaultConfiguration("LineLength");
+            DefaultConfiguration replacement = new DefaultConfiguration(MaxLineLengthCheck.class.getName());
+            for (int i = 0; i < properties.length; i += 2) {
+                stock.addProperty(properties[i], properties[i + 1]);
+                replacement.addProperty(properties[i], properties[i + 1]);
+            }
+
+            Map<Path, List<AuditEvent>> expected = audit(checker(stock), files);
+            assertTrue(expected.values().stream().mapToInt(List::size).sum() > 0, "No violations to compare");
+            assertSameEvents(expected, audit(checker(replacement), files));
+            assertSameEvents(expected, auditLines(replacement, files));
+        }
+    }
+
+    @Test
+    void shouldAuditFilesOnlyLineChecksRunOnFromTheirLines() throws Exception {
+        Path config = temp.resolve("checkstyle.xml");
+        Files.writeString(config, CONFIG);
+        String source = "class Generated {\n\n    void Bad_Name() { int aVeryLongVariableName = 0; }\n}\n";
+        List<File> files = new ArrayList<>();
+        for (String name : List.of("generated/Generated.java", "main/Generated.java", "notes.txt")) {
+            Path file = temp.resolve(name);
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source);
+            files.add(file.toFile());
+        }
+        Path large = temp.resolve("generated/Large.java");
+        Files.writeString(large, source.repeat(LineIndex.MAP_THRESHOLD / source.length() + 1));
+        files.add(large.toFile());
+
+        Map<Path, List<AuditEvent>> expected = audit(CheckerPool.createChecker(ConfigurationCache.load(config)
+                .configuration()), files);
+        AuditMetricsListener metrics = new AuditMetricsListener();
+        try (CheckstyleRunner runner = new CheckstyleRunner(config, 2)) {
+            assertSameEvents(expected, runner.auditFiles(files));
+            assertSameEvents(expected, runner.auditFilesParallel(files, metrics));
+        }
+        assertEquals(3, expected.get(files.get(1).toPath().toAbsolutePath()).size());
+        assertTrue(metrics.getMetrics().module("LineLength").isPresent());
+    }
+
+    private static Checker checker(Configuration check) throws Exception {
+        DefaultConfiguration root = new DefaultConfiguration("Checker");
+        root.addProperty("charset", "UTF-8");
+        root.addChild(check);
+        return CheckerPool.createChecker(root);
+    }
+
+    private static Map<Path, List<AuditEvent>> audit(Checker checker, List<File> files) throws Exception {
+        FileEventsListener listener = new FileEventsListener();
+        checker.addListener(listener);
+        try {
+            checker.process(files);
+        } finally {
+            checker.destroy();
+        }
+        return listener.getEventsByFile();
+    }
+
+    /**
+     * Audits the files from their {@link LineIndex} with a check configured like the checker configures it.
+     */
+    private static Map<Path, List<AuditEvent>> auditLines(Configuration configuration, List<File> files)
+            throws Exception {
+        MaxLineLengthCheck check = new MaxLineLengthCheck();
+        check.setTabWidth(CommonUtil.DEFAULT_TAB_WIDTH);
+        check.configure(configuration);
+        FileEventsListener listener = new FileEventsListener();
+        for (File file : files) {
+            String fileName = file.getAbsolutePath();
+            SortedSet<Violation> violations = check.process(file, LineIndex.read(file, "UTF-8"));
+            listener.fileStarted(new AuditEvent(check, fileName));
+            violations.forEach(violation -> listener.addError(new AuditEvent(check, fileName, violation)));
+            listener.fileFinished(new AuditEvent(check, fileName));
+        }
+        return listener.getEventsByFile();
+    }
+
+    private static void assertSameEvents(Map<Path, List<AuditEvent>> expected, Map<Path, List<AuditEvent>> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((file, events) -> assertEquals(describe(events), describe(actual.get(file)),
+                () -> "Result differs for " + file));
+    }
+
+    private static List<String> describe(List<AuditEvent> events) {
+        return events.stream()
+                .map(e -> String.format("%d:%d [%s/%s/%s/%s] %s", e.getLine(), e.getColumn(), e.getSourceName(),
+                        e.getModuleId(), e.getViolation().getKey(), e.getSeverityLevel(), e.getMessage()))
+                .toList();
+    }
+}
@@ -0,0 +1,134 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.junit.jupiter.api.Test;
+import pl.wiktor.checkstyle.ConfigurationCache;
+import pl.wiktor.checkstyle.ConfigurationModules;
+import pl.wiktor.checkstyle.checks.BlankLineAroundBraceCheck;
+import pl.wiktor.checkstyle.checks.ForbiddenPatternsCheck;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies how {@link EngineConfiguration} rewrites {@code check/checkstyle.xml}.
+ */
+class EngineConfigurationTest {
+    @Test
+    void shouldRunProjectConfigurationOnEngineModules() throws Exception {
+        Configuration original = ConfigurationCache.load(Path.of("check/checkstyle.xml")).configuration();
+        Configuration rewritten = EngineConfiguration.rewrite(original);
+
+        List<String> names = Arrays.stream(rewritten.getChildren()).map(Configuration::getName).toList();
+        assertEquals(original.getChildren().length - 1, names.size());
+        assertTrue(names.contains(ManagedTreeWalker.class.getName()));
+        assertFalse(names.contains("TreeWalker"));
+    }
+
+    @Test
+    void shouldKeepStockTreeWalkerWithoutTimingOrCompiledSuppressions() throws Exception {
+        Configuration original = ConfigurationCache.load(Path.of("check/checkstyle.xml")).configuration();
+        Configuration substituted = EngineConfiguration.substitute(original);
+
+        List<String> names = Arrays.stream(substituted.getChildren()).map(Configuration::getName).toList();
+        assertEquals(original.getChildren().length - 1, names.size());
+        assertTrue(names.contains(ManagedTreeWalker.class.getName()));
+        assertFalse(names.contains(TimedFileSetCheck.class.getName()));
+        assertTrue(names.contains(BlankLineAroundBraceCheck.class.getName()));
+
+        DefaultConfiguration root = new DefaultConfiguration("Checker");
+        DefaultConfiguration treeWalker = new DefaultConfiguration("TreeWalker");
+        treeWalker.addChild(new DefaultConfiguration("NeedBraces"));
+        root.addChild(treeWalker);
+        assertEquals("TreeWalker", EngineConfiguration.substitute(root).getChildren()[0].getName());
+    }
+
+    @Test
+    void shouldExpandSuppressionFilterOfLocalFile() throws Exception {
+        Configuration original = ConfigurationCache.load(Path.of("check/checkstyle.xml")).configuration();
+        Configuration suppressed = ConfigurationModules.withSuppressions(original, Path.of("check/suppressions.xml"));
+
+        List<Configuration> filters = Arrays.stream(EngineConfiguration.substitute(suppressed).getChildren())
+                .filter(module -> module.getName().startsWith("Suppression"))
+                .toList();
+
+        assertEquals(List.of("SuppressionSingleFilter", "SuppressionSingleFilter", "SuppressionSingleFilter"),
+                filters.stream().map(Configuration::getName).toList());
+        assertEquals("NeedBraces", filters.get(2).getProperty("checks"));
+
+        DefaultConfiguration missing = new DefaultConfiguration("Checker");
+        DefaultConfiguration filter = new DefaultConfiguration("SuppressionFilter");
+        filter.addProperty("file", "check/missing-suppressions.xml");
+        missing.addChild(filter);
+        assertEquals("SuppressionFilter", EngineConfiguration.substitute(missing).getChildren()[0].getName());
+    }
+
+    @Test
+    void shouldMergeBlankLineRegexpsIntoOneSinglePassCheck() throws Exception {
+        Configuration original = ConfigurationCache.load(Path.of("check/checkstyle.xml")).configuration();
+
+        List<Configuration> replaced = Arrays.stream(EngineConfiguration.rewrite(original).getChildren())
+                .filter(module -> module.getName().equals(TimedFileSetCheck.class.getName()))
+                .map(module -> module.getChildren()[0])
+                .filter(module -> module.getName().equals(BlankLineAroundBraceCheck.class.getName()))
+                .toList();
+
+        assertEquals(1, replaced.size());
+        assertEquals("Unnecessary blank line after '{'", replaced.get(0).getProperty("messageAfterOpen"));
+        assertEquals("Unnecessary blank line before '}'", replaced.get(0).getProperty("messageBeforeClose"));
+        assertEquals("java", replaced.get(0).getProperty("fileExtensions"));
+    }
+
+    @Test
+    void shouldKeepBlankLineRegexpsWithDifferentSeveritySeparate() throws Exception {
+        DefaultConfiguration root = new DefaultConfiguration("Checker");
+        root.addChild(regexpMultiline(BlankLineAroundBraceCheck.AFTER_OPEN_FORMAT, "after", null));
+        root.addChild(regexpMultiline(BlankLineAroundBraceCheck.BEFORE_CLOSE_FORMAT, "before", "warning"));
+        root.addChild(regexpMultiline(BlankLineAroundBraceCheck.BEFORE_CLOSE_FORMAT, "before again", null));
+
+        Configuration[] children = EngineConfiguration.substitute(root).getChildren();
+
+        assertEquals(2, children.length);
+        assertEquals("after", children[0].getProperty("messageAfterOpen"));
+        assertEquals("before again", children[0].getProperty("messageBeforeClose"));
+        assertEquals("before", children[1].getProperty("messageBeforeClose"));
+        assertEquals("warning", children[1].getProperty("severity"));
+    }
+
+    @Test
+    void shouldFuseRegexpSinglelineJavaModulesIntoOneCheck() throws Exception {
+        Configuration original = ConfigurationCache.load(Path.of("check/checkstyle.xml")).configuration();
+
+        Configuration treeWalker = Arrays.stream(EngineConfiguration.rewrite(original).getChildren())
+                .filter(module -> module.getName().equals(ManagedTreeWalker.class.getName()))
+                .findFirst()
+                .orElseThrow();
+        List<Configuration> fused = Arrays.stream(treeWalker.getChildren())
+                .filter(module -> module.getName().equals(ForbiddenPatternsCheck.class.getName()))
+                .toList();
+
+        assertEquals(1, fused.size());
+        assertTrue(Arrays.stream(treeWalker.getChildren())
+                .noneMatch(module -> module.getName().equals("RegexpSinglelineJava")));
+        List<String> ids = new ArrayList<>();
+        for (Configuration pattern : fused.get(0).getChildren()) {
+            ids.add(pattern.getProperty("id"));
+        }
+        assertEquals(List.of("SystemOutUsage", "SystemErrUsage", "SingleLineComments"), ids);
+    }
+
+    private static DefaultConfiguration regexpMultiline(String format, String message, String severity) {
+        DefaultConfiguration module = new DefaultConfiguration("RegexpMultiline");
+        module.addProperty("format", format);
+        module.addProperty("message", message);
+        if (severity != null) {
+            module.addProperty("severity", severity);
+        }
+        return module;
+    }
+}
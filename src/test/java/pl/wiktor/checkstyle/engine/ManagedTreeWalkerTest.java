@@ -0,0 +1,74 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.junit.jupiter.api.Test;
+import pl.wiktor.checkstyle.CheckerPool;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.ConfigurationCache;
+import pl.wiktor.checkstyle.FileEventsListener;
+import pl.wiktor.checkstyle.metrics.AuditMetricsListener;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards {@link ManagedTreeWalker}, which mirrors the internals of Checkstyle's {@code TreeWalker}.
+ */
+class ManagedTreeWalkerTest {
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+
+    @Test
+    void shouldMirrorCheckstyleVersionOnClasspath() {
+        assertEquals(ManagedTreeWalker.CHECKSTYLE_VERSION, Checker.class.getPackage().getImplementationVersion(),
+                "Checkstyle was upgraded: compare ManagedTreeWalker with the new TreeWalker, then update "
+                        + "ManagedTreeWalker.CHECKSTYLE_VERSION");
+    }
+
+    @Test
+    void shouldReportSameViolationsAsTreeWalkerWhenTimed() throws Exception {
+        Configuration root = ConfigurationCache.load(CONFIG_FILE).configuration();
+        List<File> files = CheckstyleRunner.listFiles(Path.of("src/test/resources/rules"));
+
+        FileEventsListener plain = new FileEventsListener();
+        Checker checker = CheckerPool.createChecker(root);
+        checker.addListener(plain);
+        try {
+            checker.process(files);
+        } finally {
+            checker.destroy();
+        }
+
+        FileEventsListener timed = new FileEventsListener();
+        ManagedChecker managed = ManagedChecker.create(EngineConfiguration.substitute(root),
+                EngineConfiguration.rewrite(root), null);
+        AuditMetricsListener metrics = new AuditMetricsListener();
+        Checker timedChecker = managed.timedChecker(metrics);
+        timedChecker.addListener(timed);
+        timedChecker.addListener(metrics);
+        try {
+            timedChecker.process(files);
+        } finally {
+            managed.destroy();
+        }
+
+        Map<Path, List<AuditEvent>> expected = plain.getEventsByFile();
+        Map<Path, List<AuditEvent>> actual = timed.getEventsByFile();
+        assertFalse(metrics.getMetrics().module(ManagedTreeWalker.PARSER_KEY).isEmpty());
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(actual.keySet()));
+        expected.forEach((file, events) -> assertEquals(describe(events), describe(actual.get(file)),
+                () -> "Timed result differs for " + file));
+    }
+
+    private static List<String> describe(List<AuditEvent> events) {
+        return events.stream()
+                .map(e -> String.format("%d:%d [%s/%s] %s", e.getLine(), e.getColumn(), e.getSourceName(),
+                        e.getModuleId(), e.getMessage()))
+                .toList();
+    }
+}
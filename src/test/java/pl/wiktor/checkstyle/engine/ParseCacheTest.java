@@ -0,0 +1,146 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckerPool;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.FileEventsListener;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ParseCache}.
+ */
+class ParseCacheTest {
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+    private static final Path RULES = Path.of("src/test/resources/rules");
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldReportTheSameViolationsAndParseEveryFileOnce() throws Exception {
+        List<File> files = CheckstyleRunner.listFiles(RULES);
+        Map<Path, List<AuditEvent>> expected;
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, 2)) {
+            expected = runner.auditFilesParallel(files);
+        }
+
+        ParseCache cache = new ParseCache(ParseCache.DEFAULT_MAX_CHARACTERS);
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, 2)) {
+            runner.setParseCache(cache);
+            assertEquals(formatted(expected), formatted(runner.auditFilesParallel(files)));
+            assertEquals(formatted(expected), formatted(runner.auditFiles(files)));
+            long parses = cache.getParses();
+            assertTrue(parses >= files.size(), "trees were not cached: " + parses);
+
+            assertEquals(formatted(expected), formatted(runner.auditFiles(files)));
+            assertEquals(parses, cache.getParses());
+            assertEquals(files.size(), cache.getMisses());
+            assertEquals(2L * files.size(), cache.getHits());
+        }
+    }
+
+    @Test
+    void shouldKeepTreesWithAndWithoutCommentsApart() throws Exception {
+        Path source = temp.resolve("Sample.java");
+        Files.writeString(source, """
+                class Sample {
+                    // TODO: remove
+                    void Run() {
+                        int unused = 1;
+                    }
+                }
+                """);
+        DefaultConfiguration treeWalker = new DefaultConfiguration("TreeWalker");
+        treeWalker.addChild(new DefaultConfiguration("TodoComment"));
+        treeWalker.addChild(new DefaultConfiguration("MethodName"));
+        treeWalker.addChild(new DefaultConfiguration("UnusedLocalVariable"));
+        DefaultConfiguration root = new DefaultConfiguration("Checker");
+        root.addChild(treeWalker);
+
+        FileEventsListener stock = new FileEventsListener();
+        Checker checker = CheckerPool.createChecker(root);
+        checker.addListener(stock);
+        try {
+            checker.process(List.of(source.toFile()));
+        } finally {
+            checker.destroy();
+        }
+        assertEquals(3, stock.getEventsByFile().get(source.toAbsolutePath()).size());
+
+        ParseCache cache = new ParseCache(ParseCache.DEFAULT_MAX_CHARACTERS);
+        long[] parses = new long[3];
+        try (CheckerPool pool = new CheckerPool(root, 1, cache)) {
+            for (int run = 0; run < parses.length; run++) {
+                FileEventsListener cached = new FileEventsListener();
+                ManagedChecker managed = pool.borrow();
+                try {
+                    managed.checker().process(List.of(source.toFile()), cached);
+                } finally {
+                    pool.release(managed);
+                }
+                assertEquals(formatted(stock.getEventsByFile()), formatted(cached.getEventsByFile()));
+                parses[run] = cache.getParses();
+            }
+        }
+        assertArrayEquals(new long[] {1, 2, 2}, parses);
+    }
+
+    @Test
+    void shouldReplaceChangedFilesAndEvictLeastRecentlyUsed() throws Exception {
+        File first = write("First.java", 100);
+        File second = write("Second.java", 100);
+        File third = write("Third.java", 100);
+        ParseCache cache = new ParseCache(250);
+
+        FileText text = cache.text(first, "UTF-8");
+        assertSame(text, cache.text(first, "UTF-8"));
+        assertNotSame(text, cache.text(first, "ISO-8859-1"));
+
+        Files.writeString(first.toPath(), "class First {}\n");
+        FileText changed = cache.text(first, "UTF-8");
+        assertEquals("class First {}\n", changed.getFullText().toString());
+        assertEquals(1, cache.size());
+
+        cache.text(second, "UTF-8");
+        cache.text(third, "UTF-8");
+        cache.text(first, "UTF-8");
+        cache.text(write("Large.java", 300), "UTF-8");
+        assertEquals(3, cache.size());
+        cache.text(write("Fourth.java", 100), "UTF-8");
+        assertEquals(3, cache.size());
+
+        long misses = cache.getMisses();
+        cache.text(first, "UTF-8");
+        cache.text(third, "UTF-8");
+        assertEquals(misses, cache.getMisses());
+        cache.text(second, "UTF-8");
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    private File write(String name, int length) throws Exception {
+        Path file = temp.resolve(name);
+        Files.writeString(file, "x".repeat(length - 1) + "\n");
+        return file.toFile();
+    }
+
+    private static List<String> formatted(Map<Path, List<AuditEvent>> events) {
+        return events.entrySet().stream()
+                .flatMap(entry -> Stream.concat(Stream.of(entry.getKey().toString()),
+                        entry.getValue().stream().map(event -> event.getLine() + ":" + event.getColumn() + " "
+                                + event.getSourceName() + " " + event.getMessage())))
+                .toList();
+    }
+}
@@ -0,0 +1,196 @@
+package pl.wiktor.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckerPool;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.ConfigurationCache;
+import pl.wiktor.checkstyle.ConfigurationModules;
+import pl.wiktor.checkstyle.FileEventsListener;
+import pl.wiktor.checkstyle.metrics.AuditMetrics;
+import pl.wiktor.checkstyle.metrics.AuditMetricsListener;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SuppressionIndex} and the checks the engine skips with it.
+ */
+class SuppressionIndexTest {
+    private static final Path CONFIG_FILE = Path.of("check/checkstyle.xml");
+    private static final Path SUPPRESSIONS_FILE = Path.of("check/suppressions.xml");
+    private static final String TEST_SOURCES = ".*[\\\\/]src[\\\\/]test[\\\\/]java[\\\\/].*";
+    private static final String SOURCE = "com.puppycrawl.tools.checkstyle.checks.naming.MethodNameCheck";
+    private static final String COMMENTED = """
+            package sample;
+
+            public class Commented {
+                // a single-line comment
+                public void Bad_Name() {
+                    if (true) return;
+                }
+            }
+            """;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldSkipSuppressedChecksAndReportLikeStockChecker() throws Exception {
+        File testFile = write(temp.resolve("src/test/java/sample/Commented.java"));
+        File mainFile = write(temp.resolve("src/main/java/sample/Commented.java"));
+        List<File> files = new ArrayList<>(List.of(testFile, mainFile));
+        files.addAll(CheckstyleRunner.listFiles(Path.of("src/test/resources/rules")));
+        Configuration root = ConfigurationCache.load(CONFIG_FILE).configuration();
+
+        Map<Path, List<AuditEvent>> expected = stockEvents(root, files);
+        AuditMetricsListener metrics = new AuditMetricsListener();
+        Map<Path, List<AuditEvent>> plain;
+        Map<Path, List<AuditEvent>> timed;
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, 2)) {
+            plain = runner.auditFiles(files);
+            timed = runner.auditFilesParallel(files, metrics);
+        }
+
+        assertSameEvents(expected, plain);
+        assertSameEvents(expected, timed);
+        assertEquals(List.of(), ids(expected.get(testFile.toPath().toAbsolutePath())));
+        assertEquals(List.of("SingleLineComments", "MethodName"),
+                ids(expected.get(mainFile.toPath().toAbsolutePath())));
+        assertTrue(moduleNanos(metrics.getMetrics(), mainFile).containsKey("SingleLineComments"));
+        assertFalse(moduleNanos(metrics.getMetrics(), testFile).containsKey("SingleLineComments"));
+        assertTrue(moduleNanos(metrics.getMetrics(), testFile).containsKey("SystemOutUsage"));
+        assertFalse(moduleNanos(metrics.getMetrics(), testFile).containsKey("MethodName"));
+    }
+
+    @Test
+    void shouldSkipChecksOfSuppressionsFileOnWholeTree() throws Exception {
+        List<File> files = new ArrayList<>(CheckstyleRunner.listFiles(Path.of("src/main/java")));
+        files.addAll(CheckstyleRunner.listFiles(Path.of("src/test/java")));
+        Configuration root = ConfigurationCache.load(CONFIG_FILE).configuration();
+
+        Map<Path, List<AuditEvent>> expected = stockEvents(ConfigurationModules.withSuppressions(root,
+                SUPPRESSIONS_FILE), files);
+        AuditMetricsListener metrics = new AuditMetricsListener();
+        Map<Path, List<AuditEvent>> actual;
+        try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG_FILE, SUPPRESSIONS_FILE, 2)) {
+            actual = runner.auditFilesParallel(files, metrics);
+        }
+
+        assertSameEvents(expected, actual);
+        assertTrue(metrics.getMetrics().module("NeedBraces").isEmpty());
+        assertTrue(metrics.getMetrics().module("SingleLineComments").isEmpty());
+        assertTrue(metrics.getMetrics().module("SystemErrUsage").isPresent());
+    }
+
+    @Test
+    void shouldResolveDirectoriesOnTrieLikeRegex() throws Exception {
+        SuppressionIndex index = new SuppressionIndex();
+        index.add(filter(TEST_SOURCES, null, "MethodName"));
+        index.add(filter("^.*[/\\\\]generated[/\\\\].*$", "MethodName", null));
+        index.add(filter("Legacy\\.java$", null, null));
+        List<String> paths = List.of("/work/src/test/java/A.java", "/work/src/test/javax/A.java",
+                "/work/src/test/java", "src/test/java/A.java", "/src/test/java/A.java",
+                "C:\\work\\src\\test\\java\\A.java",
+                "/work/src/main/java/A.java", "/work/generated/A.java", "/work/generated", "/work/src/Legacy.java",
+                "/work/test/java/src/test/A.java", "/work/src/test/java/deep/er/A.java");
+
+        for (String path : paths) {
+            boolean testSources = Pattern.compile(TEST_SOURCES).matcher(path).find();
+            boolean generated = path.matches("^.*[/\\\\]generated[/\\\\].*$");
+            boolean legacy = path.endsWith("Legacy.java");
+            assertEquals(testSources || generated || legacy, index.suppresses(path, index.rules(SOURCE, "MethodName")),
+                    path);
+            assertEquals(generated || legacy, index.suppresses(path, index.rules(SOURCE, null)), path);
+            assertEquals(legacy, index.suppresses(path, index.rules("OtherCheck", null)), path);
+        }
+    }
+
+    @Test
+    void shouldCompileOnlyFiltersWithoutMessageLinesOrQuery() throws Exception {
+        DefaultConfiguration lines = filter(TEST_SOURCES, null, "MethodName");
+        lines.addProperty("lines", "1-10");
+        DefaultConfiguration xpath = new DefaultConfiguration("SuppressionXpathSingleFilter");
+        xpath.addProperty("files", TEST_SOURCES);
+        DefaultConfiguration query = new DefaultConfiguration("SuppressionXpathSingleFilter");
+        query.addProperty("query", "//METHOD_DEF");
+
+        assertTrue(SuppressionIndex.isRule(filter(TEST_SOURCES, "MethodName", null), false));
+        assertFalse(SuppressionIndex.isRule(lines, false));
+        assertFalse(SuppressionIndex.isRule(filter("[unclosed", null, null), false));
+        assertTrue(SuppressionIndex.isRule(xpath, true));
+        assertFalse(SuppressionIndex.isRule(xpath, false));
+        assertFalse(SuppressionIndex.isRule(query, true));
+    }
+
+    private File write(Path file) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, COMMENTED);
+        return file.toFile();
+    }
+
+    private static Map<Path, List<AuditEvent>> stockEvents(Configuration root, List<File> files) throws Exception {
+        FileEventsListener listener = new FileEventsListener();
+        Checker checker = CheckerPool.createChecker(root);
+        checker.addListener(listener);
+        try {
+            checker.process(files);
+        } finally {
+            checker.destroy();
+        }
+        return listener.getEventsByFile();
+    }
+
+    private static void assertSameEvents(Map<Path, List<AuditEvent>> expected, Map<Path, List<AuditEvent>> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((file, events) -> assertEquals(describe(events), describe(actual.get(file)),
+                () -> "Result differs for " + file));
+    }
+
+    private static List<String> ids(List<AuditEvent> events) {
+        return events.stream()
+                .filter(event -> event.getModuleId() != null)
+                .map(AuditEvent::getModuleId)
+                .toList();
+    }
+
+    private static Map<String, Long> moduleNanos(AuditMetrics metrics, File file) {
+        return metrics.files().stream()
+                .filter(fileMetrics -> Path.of(fileMetrics.file()).equals(file.toPath().toAbsolutePath()))
+                .findFirst()
+                .orElseThrow()
+                .moduleNanos();
+    }
+
+    private static DefaultConfiguration filter(String files, String checks, String id) {
+        DefaultConfiguration filter = new DefaultConfiguration("SuppressionSingleFilter");
+        if (files != null) {
+            filter.addProperty("files", files);
+        }
+        if (checks != null) {
+            filter.addProperty("checks", checks);
+        }
+        if (id != null) {
+            filter.addProperty("id", id);
+        }
+        return filter;
+    }
+
+    private static List<String> describe(List<AuditEvent> events) {
+        return events.stream()
+                .map(e -> String.format("%d:%d [%s/%s] %s", e.getLine(), e.getColumn(), e.getSourceName(),
+                        e.getModuleId(), e.getMessage()))
+                .toList();
+    }
+}
@@ -0,0 +1,164 @@
+package pl.wiktor.checkstyle.git;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitChangesTest {
+    private static final String SOURCE = """
+            class Sample {
+                void first() {
+                    System.out.println("first");
+                }
+
+                void second() {
+                    int a = 1;
+                }
+            }
+            """;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldParseChangedLinesOfUnifiedDiff() {
+        String diff = """
+                diff --git a/src/A.java b/src/A.java
+                index 1111111..2222222 100644
+                --- a/src/A.java
+                +++ b/src/A.java
+                @@ -3 +3 @@ class A {
+                -    int a;
+                +    int b;
+                @@ -10,0 +11,2 @@ class A {
+                +    int c;
+                +    int d;
+                @@ -20,3 +22,0 @@ class A {
+                diff --git a/src/Gone.java b/src/Gone.java
+                deleted file mode 100644
+                --- a/src/Gone.java
+                +++ /dev/null
+                @@ -1,2 +0,0 @@
+                diff --git a/src/Moved.java b/src/Moved.java
+                --- a/src/Moved.java
+                +++ b/src/Moved.java
+                @@ -5,2 +4,0 @@
+                """;
+
+        GitChanges changes = GitChanges.parse(temp, diff, List.of("src/New.java"));
+
+        Path file = temp.resolve("src/A.java");
+        assertTrue(changes.isChanged(file));
+        assertTrue(changes.isChangedLine(file, 3));
+        assertTrue(changes.isChangedLine(file, 11));
+        assertTrue(changes.isChangedLine(file, 12));
+        assertFalse(changes.isChangedLine(file, 4));
+        assertFalse(changes.isChangedLine(file, 13));
+        assertFalse(changes.isChangedLine(file, 22));
+        assertFalse(changes.isChanged(temp.resolve("src/Gone.java")));
+        assertFalse(changes.isChanged(temp.resolve("src/Moved.java")));
+        assertTrue(changes.isChangedLine(temp.resolve("src/New.java"), 100));
+    }
+
+    @Test
+    void shouldParseFileNamesWithSpacesAndQuotes() {
+        String diff = "diff --git a/src/My File.java b/src/My File.java\n"
+                + "--- a/src/My File.java\t\n"
+                + "+++ b/src/My File.java\t\n"
+                + "@@ -2 +2 @@\n"
+                + "diff --git \"a/src/Quo\\\"te x.java\" \"b/src/Quo\\\"te x.java\"\n"
+                + "--- \"a/src/Quo\\\"te x.java\"\t\n"
+                + "+++ \"b/src/Quo\\\"te x.java\"\t\n"
+                + "@@ -4 +4,2 @@\n"
+                + "--- a/src/Content.java\n"
+                + "+++ b/src/Content.java\n"
+                + "@@ -9 +9 @@\n";
+
+        GitChanges changes = GitChanges.parse(temp, diff, List.of());
+
+        assertTrue(changes.isChangedLine(temp.resolve("src/My File.java"), 2));
+        assertTrue(changes.isChangedLine(temp.resolve("src/Quo\"te x.java"), 5));
+        assertFalse(changes.isChanged(temp.resolve("src/Content.java")));
+        assertEquals("b/tab\there", GitChanges.fileName("\"b/tab\\there\""));
+        assertEquals("b/caf\u00e9.java", GitChanges.fileName("\"b/caf\\303\\251.java\""));
+        assertEquals("b/plain.java", GitChanges.fileName("b/plain.java"));
+    }
+
+    @Test
+    void shouldAuditOnlyChangesSinceBaseRevision() throws Exception {
+        Path repository = temp.resolve("repository");
+        Path changed = repository.resolve("src/Changed.java");
+        Path unchanged = repository.resolve("src/Unchanged.java");
+        Path untracked = repository.resolve("src/Untracked.java");
+        Path spaced = repository.resolve("src/My File.java");
+        Path quoted = repository.resolve("src/Quo\"te.java");
+        Path untrackedSpaced = repository.resolve("src/New File.java");
+        Files.createDirectories(changed.getParent());
+        Files.writeString(changed, SOURCE);
+        Files.writeString(unchanged, SOURCE);
+        Files.writeString(spaced, SOURCE);
+        Files.writeString(quoted, SOURCE);
+        git(repository, "init", "-q", "-b", "main");
+        git(repository, "add", "-A");
+        git(repository, "commit", "-q", "-m", "base");
+        git(repository, "checkout", "-q", "-b", "feature");
+        Files.writeString(changed, SOURCE.replace("int a = 1;", "System.out.println(\"second\");"));
+        Files.writeString(untracked, SOURCE);
+        Files.writeString(spaced, SOURCE.replace("int a = 1;", "System.out.println(\"spaced\");"));
+        Files.writeString(quoted, SOURCE.replace("int a = 1;", "System.out.println(\"quoted\");"));
+        Files.writeString(untrackedSpaced, SOURCE);
+
+        GitChanges changes = GitChanges.since(repository.resolve("src"), "main");
+        List<File> sources = CheckstyleRunner.listFiles(repository.resolve("src"));
+        try (CheckstyleRunner runner = new CheckstyleRunner(Path.of("check/checkstyle.xml"), 2)) {
+            Map<Path, List<AuditEvent>> files = runner.auditChangesParallel(sources, changes, false, null, null);
+            Map<Path, List<AuditEvent>> lines = runner.auditChangesParallel(sources, changes, true, null, null);
+
+            assertEquals(List.of(changed, spaced, untrackedSpaced, quoted, untracked), new ArrayList<>(files.keySet()));
+            assertEquals(List.of(3, 7), systemOutLines(files.get(changed)));
+            assertEquals(List.of(7), systemOutLines(lines.get(changed)));
+            assertEquals(List.of(3), systemOutLines(lines.get(untracked)));
+            assertEquals(List.of(7), systemOutLines(lines.get(spaced)));
+            assertEquals(List.of(7), systemOutLines(lines.get(quoted)));
+            assertEquals(List.of(3), systemOutLines(lines.get(untrackedSpaced)));
+        }
+    }
+
+    @Test
+    void shouldFailForUnknownBaseRevision() throws Exception {
+        Files.writeString(temp.resolve("A.java"), SOURCE);
+        git(temp, "init", "-q", "-b", "main");
+        git(temp, "add", "-A");
+        git(temp, "commit", "-q", "-m", "base");
+
+        CheckstyleException e = assertThrows(CheckstyleException.class, () -> GitChanges.since(temp, "missing"));
+        assertTrue(e.getMessage().contains("merge-base"), e.getMessage());
+    }
+
+    private static List<Integer> systemOutLines(List<AuditEvent> events) {
+        return events.stream()
+                .filter(event -> "SystemOutUsage".equals(event.getModuleId()))
+                .map(AuditEvent::getLine)
+                .toList();
+    }
+
+    private static void git(Path directory, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git", "-c", "user.name=Test", "-c", "user.email=test@example",
+                "-c", "commit.gpgsign=false", "-C", directory.toString()));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        assertEquals(0, process.waitFor(), () -> "git " + String.join(" ", args));
+    }
+}
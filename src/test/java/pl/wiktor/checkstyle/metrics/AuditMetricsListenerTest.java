@@ -0,0 +1,126 @@
+package pl.wiktor.checkstyle.metrics;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import org.junit.jupiter.api.Test;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.CheckstyleTestRunner;
+import pl.wiktor.checkstyle.ConfigurationCache;
+import pl.wiktor.checkstyle.ConfigurationModules;
+import pl.wiktor.checkstyle.checks.ForbiddenPatternsCheck;
+import pl.wiktor.checkstyle.engine.ManagedTreeWalker;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies the per-module timings and counters reported through the {@link CheckstyleRunner} listener plumbing.
+ */
+class AuditMetricsListenerTest {
+    private static final String FAIL_DIR = "src/test/resources/rules/fail";
+
+    @Test
+    void shouldTimeEveryModuleOnEveryFile() throws Exception {
+        AuditMetricsListener listener = new AuditMetricsListener();
+        CheckstyleTestRunner.runCheckstyle(FAIL_DIR, listener);
+        AuditMetrics metrics = listener.getMetrics();
+
+        int fileCount = CheckstyleRunner.listFiles(Path.of(FAIL_DIR)).size();
+        assertEquals(fileCount, metrics.files().size());
+
+        Set<String> expected = new HashSet<>();
+        for (String key : ConfigurationModules.moduleKeys(ConfigurationCache.load(Path.of("check/checkstyle.xml"))
+                .configuration())) {
+            expected.add(key.replaceFirst("#\\d+$", ""));
+        }
+        expected.add(ManagedTreeWalker.PARSER_KEY);
+
+        for (String key : expected) {
+            AuditMetrics.ModuleMetrics module = metrics.module(key)
+                    .orElseThrow(() -> new AssertionError("No metrics for " + key + ": " + metrics.modules()));
+            assertTrue(module.invocations() > 0, () -> key + " was never invoked");
+            assertTrue(module.nanos() > 0, () -> key + " has no time");
+            assertEquals(fileCount, module.files(), () -> key + " did not process every file");
+        }
+        assertEquals(metrics.totalNanos(), metrics.files().stream().mapToLong(AuditMetrics.FileMetrics::nanos).sum());
+        assertTrue(metrics.module(AuditMetrics.moduleKey(null, ForbiddenPatternsCheck.class.getName())).isEmpty(),
+                "Fused check timed under its own key");
+    }
+
+    @Test
+    void shouldReportSameMetricsInParallelAsSerially() throws Exception {
+        List<File> files = CheckstyleRunner.listFiles(Path.of(FAIL_DIR));
+        AuditMetricsListener serial = new AuditMetricsListener();
+        int[] finished = new int[1];
+        AuditMetricsListener parallel = new AuditMetricsListener(metrics -> finished[0]++);
+
+        try (CheckstyleRunner runner = new CheckstyleRunner(Path.of("check/checkstyle.xml"), 4)) {
+            runner.audit(files, serial);
+            runner.auditFilesParallel(files, parallel);
+        }
+
+        assertEquals(1, finished[0]);
+        assertEquals(counters(serial.getMetrics()), counters(parallel.getMetrics()));
+    }
+
+    @Test
+    void shouldCountViolationsPerModule() throws Exception {
+        AuditMetricsListener listener = new AuditMetricsListener();
+        CheckstyleTestRunner.runCheckstyle(FAIL_DIR, listener);
+        AuditMetrics metrics = listener.getMetrics();
+
+        Map<String, Long> expected = CheckstyleRunner.listFiles(Path.of(FAIL_DIR)).stream()
+                .flatMap(file -> CheckstyleTestRunner.getBatchEvents(file.getPath()).stream())
+                .collect(Collectors.groupingBy(AuditMetricsListenerTest::moduleKey, Collectors.counting()));
+
+        expected.forEach((module, count) -> assertEquals(count, metrics.module(module).orElseThrow().violations(),
+                () -> "Violation count of " + module));
+        assertEquals(expected.values().stream().mapToLong(Long::longValue).sum(),
+                metrics.files().stream().mapToLong(AuditMetrics.FileMetrics::violations).sum());
+    }
+
+    @Test
+    void shouldReportMetricsAtAuditFinishedAsTableAndJson() throws Exception {
+        AuditMetrics[] finished = new AuditMetrics[1];
+        AuditMetricsListener listener = new AuditMetricsListener(metrics -> finished[0] = metrics);
+        CheckstyleTestRunner.runCheckstyle("src/test/resources/rules/fail/MultiErrorTest.java", listener);
+
+        assertNotNull(finished[0]);
+        String table = finished[0].toSummaryTable();
+        String json = finished[0].toJson();
+        for (AuditMetrics.ModuleMetrics module : finished[0].modules()) {
+            assertTrue(table.contains(module.module()), () -> "Table misses " + module.module());
+            assertTrue(json.contains("{\"module\":\"" + module.module() + "\",\"nanos\":" + module.nanos()),
+                    () -> "JSON misses " + module.module());
+        }
+        assertTrue(json.startsWith("{\"totalNanos\":" + finished[0].totalNanos() + ",\"modules\":["));
+        assertTrue(json.contains("MultiErrorTest.java\",\"nanos\":"));
+    }
+
+    @Test
+    void shouldNotTimePlainListeners() throws Exception {
+        List<AuditEvent> events = CheckstyleTestRunner.runCheckstyle(
+                "src/test/resources/rules/fail/MultiErrorTest.java");
+        assertFalse(events.isEmpty());
+
+        AuditMetricsListener listener = new AuditMetricsListener();
+        CheckstyleTestRunner.runCheckstyle("src/test/resources/rules/fail/MultiErrorTest.java", listener);
+        assertEquals(events.size(), listener.getMetrics().modules().stream()
+                .mapToLong(AuditMetrics.ModuleMetrics::violations).sum());
+    }
+
+    private static Map<String, List<Long>> counters(AuditMetrics metrics) {
+        return metrics.modules().stream().collect(Collectors.toMap(AuditMetrics.ModuleMetrics::module,
+                module -> List.of(module.invocations(), (long) module.files(), module.violations())));
+    }
+
+    private static String moduleKey(AuditEvent event) {
+        return AuditMetrics.moduleKey(event.getModuleId(), event.getSourceName());
+    }
+}
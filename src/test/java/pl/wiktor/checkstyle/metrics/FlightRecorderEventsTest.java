@@ -0,0 +1,83 @@
+package pl.wiktor.checkstyle.metrics;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.cache.ResultCache;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Records audits of the fixtures and reads the Java Flight Recorder events back.
+ */
+class FlightRecorderEventsTest {
+    private static final Path CONFIG = Path.of("check/checkstyle.xml");
+    private static final Path SUPPRESSIONS = Path.of("check/suppressions.xml");
+    private static final Path FAIL_DIR = Path.of("src/test/resources/rules/fail");
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldRecordAuditsFilesChecksConfigurationAndCacheLookups() throws Exception {
+        List<File> files = CheckstyleRunner.listFiles(FAIL_DIR);
+        Path recordingFile = temp.resolve("audit.jfr");
+        Map<Path, List<AuditEvent>> parallel;
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("Audit", "FileAudit", "ConfigurationLoad", "CacheLookup")) {
+                recording.enable(FlightRecorderEvents.PREFIX + name);
+            }
+            recording.enable(FlightRecorderEvents.PREFIX + "CheckExecution").withThreshold(Duration.ZERO);
+            recording.start();
+            try (CheckstyleRunner runner = new CheckstyleRunner(CONFIG, SUPPRESSIONS, 2)) {
+                runner.setResultCache(ResultCache.open(temp.resolve("results.bin"), Long.MAX_VALUE));
+                parallel = runner.auditFilesParallel(files);
+                runner.auditFiles(files);
+            }
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+        List<RecordedEvent> audits = events(events, "Audit");
+        assertEquals(List.of("parallel", "serial"), audits.stream().map(e -> e.getString("mode")).sorted().toList());
+        for (RecordedEvent audit : audits) {
+            assertEquals(files.size(), audit.getInt("files"));
+        }
+        assertEquals(files.size(), audits.stream().mapToInt(e -> e.getInt("auditedFiles")).sum());
+
+        List<RecordedEvent> fileAudits = events(events, "FileAudit");
+        assertEquals(files.size(), fileAudits.size());
+        for (RecordedEvent fileAudit : fileAudits) {
+            Path file = Path.of(fileAudit.getString("path"));
+            assertEquals(Files.size(file), fileAudit.getLong("size"));
+            assertEquals(Files.readAllLines(file).size(), fileAudit.getInt("lines"), file::toString);
+            assertEquals(parallel.get(file).size(), fileAudit.getInt("violations"), file::toString);
+        }
+
+        List<RecordedEvent> lookups = events(events, "CacheLookup").stream()
+                .filter(e -> e.getString("cache").equals("result"))
+                .toList();
+        assertEquals(files.size(), lookups.stream().filter(e -> !e.getBoolean("hit")).count());
+        assertEquals(files.size(), lookups.stream().filter(e -> e.getBoolean("hit")).count());
+        assertFalse(events(events, "ConfigurationLoad").isEmpty());
+        assertTrue(events(events, "CheckExecution").stream().anyMatch(e -> e.getString("check").equals("TreeWalker")));
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(FlightRecorderEvents.PREFIX + name))
+                .toList();
+    }
+}
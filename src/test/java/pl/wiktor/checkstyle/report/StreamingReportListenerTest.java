@@ -0,0 +1,86 @@
+package pl.wiktor.checkstyle.report;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wiktor.checkstyle.CheckstyleRunner;
+import pl.wiktor.checkstyle.CheckstyleTestRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingReportListenerTest {
+    private static final String FIXTURES = "src/test/resources/rules/fail";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void shouldStreamSarifWithEveryViolation() throws Exception {
+        Path report = temp.resolve("checkstyle.sarif.gz");
+
+        StreamingReportListener.Summary summary = CheckstyleTestRunner.runCheckstyleReport(FIXTURES, report);
+
+        long violations = expectedViolations();
+        assertEquals(violations, summary.errors() + summary.warnings() + summary.infos());
+        assertFalse(summary.passed());
+        String sarif = read(report, true);
+        assertTrue(sarif.startsWith("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\","
+                + "\"version\":\"2.1.0\""), sarif);
+        assertTrue(sarif.endsWith("\"exceptions\":0}}]}\n"), sarif);
+        assertEquals(violations, sarif.lines().filter(line -> line.startsWith("{\"ruleId\":")).count());
+        assertTrue(sarif.contains("\"artifactLocation\":{\"uri\":\"src/test/resources/rules/fail/"), sarif);
+    }
+
+    @Test
+    void shouldWriteOneJsonLinePerViolationAndFile() throws Exception {
+        Path report = temp.resolve("checkstyle.jsonl");
+
+        StreamingReportListener.Summary summary = CheckstyleTestRunner.runCheckstyleReport(FIXTURES, report);
+
+        List<String> lines = read(report, false).lines().toList();
+        int files = CheckstyleRunner.listFiles(Path.of(FIXTURES)).size();
+        assertEquals(files, summary.files());
+        assertEquals(expectedViolations(), lines.stream().filter(line -> line.startsWith("{\"type\":\"violation\""))
+                .count());
+        assertEquals(files, lines.stream().filter(line -> line.startsWith("{\"type\":\"file\"")).count());
+        assertEquals("{\"type\":\"summary\",\"files\":" + files + ",\"errors\":" + summary.errors()
+                + ",\"warnings\":" + summary.warnings() + ",\"infos\":" + summary.infos() + ",\"exceptions\":0}",
+                lines.get(lines.size() - 1));
+    }
+
+    @Test
+    void shouldWriteEmptyReportWithoutAudit() throws Exception {
+        Path report = temp.resolve("empty.sarif");
+
+        try (StreamingReportListener listener = StreamingReportListener.open(report)) {
+            assertTrue(listener.getSummary().passed());
+        }
+
+        assertTrue(read(report, false).endsWith("\"results\":[\n],\"invocations\":[{\"executionSuccessful\":true}],"
+                + "\"properties\":{\"files\":0,\"errors\":0,\"warnings\":0,\"infos\":0,\"exceptions\":0}}]}\n"));
+    }
+
+    private static long expectedViolations() throws Exception {
+        Map<Path, List<AuditEvent>> events = CheckstyleTestRunner.runCheckstyleBatch(FIXTURES);
+        return events.values().stream()
+                .flatMap(List::stream)
+                .filter(event -> event.getSeverityLevel() != SeverityLevel.IGNORE)
+                .count();
+    }
+
+    private static String read(Path report, boolean gzip) throws IOException {
+        try (InputStream in = gzip ? new GZIPInputStream(Files.newInputStream(report)) : Files.newInputStream(report)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}